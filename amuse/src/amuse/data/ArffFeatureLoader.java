@@ -23,24 +23,63 @@
  */
 package amuse.data;
 
-import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
 import java.io.FileNotFoundException;
-import java.io.FileReader;
 import java.io.IOException;
+import java.io.InputStream;
 import java.util.ArrayList;
-import java.util.StringTokenizer;
+
+import org.apache.log4j.Level;
 
 import amuse.interfaces.nodes.NodeException;
+import amuse.util.AmuseLogger;
 
 /**
- * Loads feature from an arff file
+ * Loads feature from an arff file. The data section is parsed directly from the bytes of the file,
+ * since the feature files are loaded for each processed music file and may be very large. If a binary
+ * feature file (see BinaryFeatureFile) is up to date, it is loaded instead.
  * 
  * @author Igor Vatolkin
  * @version $Id$
  */
 public class ArffFeatureLoader {
 	
+	/** Initial size of the read buffer; it is enlarged for longer lines */
+	private static final int BUFFER_SIZE = 1 << 16;
+	
+	/** Powers of ten which are exactly representable as doubles */
+	private static final double[] POWERS_OF_TEN = {1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10,
+		1e11, 1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22};
+	
+	/** Mantissas up to this value are exactly representable as doubles */
+	private static final long MAX_EXACT_MANTISSA = 1L << 53;
+	
+	/**
+	 * Loads the feature from the binary feature file if it is up to date and from the ARFF file otherwise
+	 * @param featureFile ARFF feature file
+	 * @return Loaded feature
+	 * @throws NodeException
+	 */
 	public static Feature loadFeature(String featureFile) throws NodeException {
+		if(BinaryFeatureFile.isUpToDate(new File(featureFile))) {
+			try {
+				return BinaryFeatureFile.loadFeature(BinaryFeatureFile.getBinaryFile(new File(featureFile)));
+			} catch(IOException e) {
+				AmuseLogger.write(ArffFeatureLoader.class.getName(), Level.WARN,
+						"Could not load the binary feature file, the ARFF file is loaded: " + e.getMessage());
+			}
+		}
+		return loadFeatureFromArff(featureFile);
+	}
+	
+	/**
+	 * Loads the feature from the ARFF file
+	 * @param featureFile ARFF feature file
+	 * @return Loaded feature
+	 * @throws NodeException
+	 */
+	static Feature loadFeatureFromArff(String featureFile) throws NodeException {
 		ArrayList<Double[]> values;
 		ArrayList<Double> windows;
 		int numberOfValues = 0;
@@ -48,13 +87,13 @@ public class ArffFeatureLoader {
 		int sampleRate = -1;
 		String featureName = new String();
 		
-		FileReader featureInput = null;
+		InputStream featureInput = null;
 		try {
-			featureInput = new FileReader(featureFile);
+			featureInput = new FileInputStream(featureFile);
 		} catch(FileNotFoundException e) {
 			throw new NodeException("Could not open the feature file: " + e.getMessage());
 		}
-		BufferedReader featureReader = new BufferedReader(featureInput);
+		LineReader featureReader = new LineReader(featureInput);
 		
 		boolean nameFound = false;
 		
@@ -62,7 +101,10 @@ public class ArffFeatureLoader {
 		
 		int dimensionNumber = 0;
 		try {
-			String line = featureReader.readLine();
+			if(!featureReader.nextLine()) {
+				throw new NodeException("The feature file has no data section: " + featureFile);
+			}
+			String line = featureReader.getLine();
 			while(!line.toLowerCase().startsWith(new String("@data"))) {
 				if(line.toLowerCase().startsWith(new String("%columns="))) {
 					numberOfValues = new Integer(line.substring(9));
@@ -89,7 +131,10 @@ public class ArffFeatureLoader {
 					dimensionNumber++;
 				}
 				
-				line = featureReader.readLine();
+				if(!featureReader.nextLine()) {
+					throw new NodeException("The feature file has no data section: " + featureFile);
+				}
+				line = featureReader.getLine();
 			}
 			
 			// Initialize the array lists
@@ -101,36 +146,57 @@ public class ArffFeatureLoader {
 				dimensionNumber--;
 			}
 			
-			line = featureReader.readLine();
-			while(line != null) {
-				if(!line.equals("") && !line.startsWith("%")) {
-					
-					// Proceed the attributes
-					StringTokenizer t = new StringTokenizer(line,",");
-					Double[] valuesOfCurrentWindow = new Double[dimensionNumber];
-					for(int i=0;i<dimensionNumber;i++) {
-						String val = t.nextToken();
-						if(val.toUpperCase().equals("NAN")) {
-							val = "NaN";
-						}
-						valuesOfCurrentWindow[i] = new Double(val);
+			// Proceed the data lines without creating strings
+			while(featureReader.nextLine()) {
+				byte[] buffer = featureReader.buffer;
+				int position = featureReader.lineStart;
+				int end = featureReader.lineEnd;
+				if(position == end || buffer[position] == '%') {
+					continue;
+				}
+				
+				// Proceed the attributes; empty values between two commas are skipped as before
+				Double[] valuesOfCurrentWindow = new Double[dimensionNumber];
+				for(int i=0;i<=dimensionNumber;i++) {
+					if(i == dimensionNumber && !windowNumberAttributeExisting) {
+						break;
+					}
+					while(position < end && buffer[position] == ',') {
+						position++;
 					}
-					
-					// Add time window of this feature (last attribute)
-					if(windowNumberAttributeExisting) {
-						windows.add(new Double(t.nextToken()));
+					if(position == end) {
+						throw new NodeException("Too few values in the feature file " + featureFile + ": '" + featureReader.getLine() + "'");
+					}
+					int tokenEnd = position;
+					while(tokenEnd < end && buffer[tokenEnd] != ',') {
+						tokenEnd++;
+					}
+					double value = parseDouble(buffer, position, tokenEnd);
+					if(i < dimensionNumber) {
+						valuesOfCurrentWindow[i] = value;
 					} else {
-						windows.add(-1d);
+						
+						// Add time window of this feature (last attribute)
+						windows.add(value);
 					}
-					values.add(valuesOfCurrentWindow);
+					position = tokenEnd;
 				}
-				line = featureReader.readLine();
+				if(!windowNumberAttributeExisting) {
+					windows.add(-1d);
+				}
+				values.add(valuesOfCurrentWindow);
 			}
 			
-			featureReader.close();
-			
 		} catch(IOException e) {
 			throw new NodeException("Could not read from the feature file: " + e.getMessage());
+		} catch(NumberFormatException e) {
+			throw new NodeException("Could not parse the feature file " + featureFile + ": " + e.getMessage());
+		} finally {
+			try {
+				featureInput.close();
+			} catch(IOException e) {
+				// Nothing to do, the file has been read
+			}
 		}
 		
 		// Create the Feature object and set the frame size
@@ -141,5 +207,208 @@ public class ArffFeatureLoader {
 		loadedFeature.setSampleRate(sampleRate);
 		return loadedFeature;
 	}
+	
+	/**
+	 * Parses a feature value; "?" and "NaN" (in any case) are missing values. Decimal numbers with up to
+	 * 18 significant digits and a small exponent are converted directly, since both the mantissa and the
+	 * power of ten are exact doubles and the result is rounded only once. All other numbers are converted
+	 * by Double.parseDouble(), so that the result is always the same as before
+	 * @param buffer Bytes of the file
+	 * @param from Start of the value (inclusive)
+	 * @param to End of the value (exclusive)
+	 * @return Parsed value
+	 * @throws NumberFormatException If the value is not a number
+	 */
+	static double parseDouble(byte[] buffer, int from, int to) {
+		
+		// Double.parseDouble() ignores leading and trailing whitespace
+		while(from < to && (buffer[from] & 0xff) <= ' ') {
+			from++;
+		}
+		while(to > from && (buffer[to - 1] & 0xff) <= ' ') {
+			to--;
+		}
+		if(to - from == 1 && buffer[from] == '?') {
+			return Double.NaN;
+		}
+		if(to - from == 3 && (buffer[from] | 0x20) == 'n' && (buffer[from + 1] | 0x20) == 'a' && (buffer[from + 2] | 0x20) == 'n') {
+			return Double.NaN;
+		}
+		
+		int position = from;
+		boolean isNegative = false;
+		if(position < to && (buffer[position] == '-' || buffer[position] == '+')) {
+			isNegative = buffer[position] == '-';
+			position++;
+		}
+		
+		// Significant digits without trailing zeros
+		long mantissa = 0;
+		int numberOfDigits = 0;
+		int trailingZeros = 0;
+		int exponent = 0;
+		boolean isDigitFound = false;
+		boolean isPointFound = false;
+		for(;position < to;position++) {
+			byte c = buffer[position];
+			if(c >= '0' && c <= '9') {
+				isDigitFound = true;
+				if(isPointFound) {
+					exponent--;
+				}
+				if(c == '0') {
+					if(numberOfDigits > 0) {
+						trailingZeros++;
+					}
+					continue;
+				}
+				numberOfDigits += trailingZeros + 1;
+				if(numberOfDigits > 18) {
+					return parseWithJava(buffer, from, to);
+				}
+				for(;trailingZeros > 0;trailingZeros--) {
+					mantissa *= 10;
+				}
+				mantissa = mantissa * 10 + (c - '0');
+			} else if(c == '.' && !isPointFound) {
+				isPointFound = true;
+			} else {
+				break;
+			}
+		}
+		exponent += trailingZeros;
+		if(!isDigitFound) {
+			return parseWithJava(buffer, from, to);
+		}
+		
+		// Exponent
+		if(position < to && (buffer[position] == 'e' || buffer[position] == 'E')) {
+			position++;
+			boolean isExponentNegative = false;
+			if(position < to && (buffer[position] == '-' || buffer[position] == '+')) {
+				isExponentNegative = buffer[position] == '-';
+				position++;
+			}
+			if(position == to) {
+				return parseWithJava(buffer, from, to);
+			}
+			int exponentValue = 0;
+			for(;position < to;position++) {
+				byte c = buffer[position];
+				if(c < '0' || c > '9' || exponentValue > 100000) {
+					return parseWithJava(buffer, from, to);
+				}
+				exponentValue = exponentValue * 10 + (c - '0');
+			}
+			exponent += isExponentNegative ? -exponentValue : exponentValue;
+		}
+		if(position != to) {
+			return parseWithJava(buffer, from, to);
+		}
+		
+		double value;
+		if(mantissa == 0) {
+			value = 0d;
+		} else if(mantissa > MAX_EXACT_MANTISSA || exponent < -22 || exponent > 22) {
+			return parseWithJava(buffer, from, to);
+		} else if(exponent < 0) {
+			value = mantissa / POWERS_OF_TEN[-exponent];
+		} else {
+			value = mantissa * POWERS_OF_TEN[exponent];
+		}
+		return isNegative ? -value : value;
+	}
+	
+	private static double parseWithJava(byte[] buffer, int from, int to) {
+		char[] chars = new char[to - from];
+		for(int i=0;i<chars.length;i++) {
+			chars[i] = (char)(buffer[from + i] & 0xff);
+		}
+		return Double.parseDouble(new String(chars));
+	}
+	
+	/**
+	 * Reads the lines of a file into a byte buffer; the current line is found between lineStart (inclusive)
+	 * and lineEnd (exclusive), without line separators
+	 */
+	private static class LineReader {
+		
+		private final InputStream input;
+		byte[] buffer = new byte[BUFFER_SIZE];
+		
+		/** Number of valid bytes in the buffer */
+		private int limit = 0;
+		
+		/** Start of the next line */
+		private int nextLineStart = 0;
+		
+		private boolean isEndOfFile = false;
+		int lineStart = 0;
+		int lineEnd = 0;
+		
+		LineReader(InputStream input) {
+			this.input = input;
+		}
+		
+		/**
+		 * Goes to the next line
+		 * @return False if the end of file is achieved
+		 */
+		boolean nextLine() throws IOException {
+			int position = nextLineStart;
+			while(true) {
+				while(position < limit && buffer[position] != '\n' && buffer[position] != '\r') {
+					position++;
+				}
+				if(position < limit || isEndOfFile) {
+					break;
+				}
+				
+				// The line is not complete; move it to the start of the buffer and read further bytes
+				int lineLength = position - nextLineStart;
+				if(nextLineStart > 0) {
+					System.arraycopy(buffer, nextLineStart, buffer, 0, lineLength);
+				} else if(lineLength == buffer.length) {
+					byte[] largerBuffer = new byte[buffer.length * 2];
+					System.arraycopy(buffer, 0, largerBuffer, 0, lineLength);
+					buffer = largerBuffer;
+				}
+				nextLineStart = 0;
+				limit = lineLength;
+				position = lineLength;
+				int read = input.read(buffer, limit, buffer.length - limit);
+				if(read == -1) {
+					isEndOfFile = true;
+				} else {
+					limit += read;
+				}
+			}
+			if(position == nextLineStart && position == limit && isEndOfFile) {
+				return false;
+			}
+			lineStart = nextLineStart;
+			lineEnd = position;
+			
+			// Skip the line separator ("\n", "\r" or "\r\n"); a "\n" after a "\r" at the end of the
+			// buffer is skipped as an empty line
+			if(position < limit && buffer[position] == '\r') {
+				position++;
+				if(position < limit && buffer[position] == '\n') {
+					position++;
+				}
+			} else if(position < limit) {
+				position++;
+			}
+			nextLineStart = position;
+			return true;
+		}
+		
+		/**
+		 * @return The current line as string
+		 */
+		String getLine() throws IOException {
+			return new String(buffer, lineStart, lineEnd - lineStart, "UTF-8");
+		}
+	}
 
 }
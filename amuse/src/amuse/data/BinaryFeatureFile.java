@@ -0,0 +1,471 @@
+/**
+ * This file is part of AMUSE framework (Advanced MUsic Explorer).
+ *
+ * Copyright 2006-2010 by code authors
+ *
+ * Created at TU Dortmund, Chair of Algorithm Engineering
+ * (Contact: <http://ls11-www.cs.tu-dortmund.de>)
+ *
+ * AMUSE is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * AMUSE is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with AMUSE. If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Creation date: 17.10.2026
+ */
+package amuse.data;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.FileReader;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.apache.log4j.Level;
+
+import amuse.data.io.ArffDataSet;
+import amuse.data.io.DataSet;
+import amuse.data.io.DataSetAbstract;
+import amuse.data.io.attributes.NominalAttribute;
+import amuse.data.io.attributes.NumericAttribute;
+import amuse.interfaces.nodes.NodeException;
+import amuse.util.AmuseLogger;
+
+/**
+ * Binary copy of a feature file from the feature database or of a processed feature file.
+ * It is saved next to the ARFF file with the extension ".bin" and is read instead of the ARFF
+ * file if it is up to date, since the values do not need to be parsed from text.<br/>
+ * All numbers are stored little-endian: magic number, version and type of the file (int);
+ * number of feature ids and the ids (int); source frame size and sample rate (int); number of
+ * dimensions and the dimension names (strings as int length and UTF-8 bytes); number of windows (int),
+ * window numbers (for processed features the partition starts in milliseconds) and for processed
+ * features the partition ends (double); and finally the values of all windows one after another (double).
+ *
+ * Can be started from the command line to create the binary files for existing databases:
+ * <code>java amuse.data.BinaryFeatureFile [folder or ARFF file]+</code>
+ *
+ * @version $Id$
+ */
+public class BinaryFeatureFile {
+
+	/** Extension of binary feature files */
+	public static final String EXTENSION = ".bin";
+
+	/** "AMFB" as little-endian int */
+	private static final int MAGIC = 0x42464D41;
+
+	private static final int VERSION = 1;
+
+	/** Feature from the feature database */
+	private static final int TYPE_FEATURE = 0;
+
+	/** Processed features from the processed feature database */
+	private static final int TYPE_PROCESSED_FEATURES = 1;
+
+	/** Name of the relation in processed feature files */
+	private static final String PROCESSED_FEATURES_RELATION = "Classifier input";
+
+	/** Unit of the partition boundaries in processed feature files */
+	private static final String UNIT = "milliseconds";
+
+	private static final Charset UTF8 = Charset.forName("UTF-8");
+
+	/**
+	 * @param arffFile ARFF feature file
+	 * @return Binary file which belongs to the given ARFF file
+	 */
+	public static File getBinaryFile(File arffFile) {
+		String path = arffFile.getPath();
+		if(path.toLowerCase().endsWith(".arff")) {
+			path = path.substring(0, path.length() - 5);
+		}
+		return new File(path + EXTENSION);
+	}
+
+	/**
+	 * @param arffFile ARFF feature file
+	 * @return True if the binary file exists and has not been modified before the ARFF file
+	 */
+	public static boolean isUpToDate(File arffFile) {
+		File binaryFile = getBinaryFile(arffFile);
+		return binaryFile.exists() && (!arffFile.exists() || binaryFile.lastModified() >= arffFile.lastModified());
+	}
+
+	/**
+	 * Saves a feature from the feature database
+	 * @param feature Feature with the values of all time windows
+	 * @param binaryFile File to write
+	 * @throws IOException
+	 */
+	public static void saveFeature(Feature feature, File binaryFile) throws IOException {
+		String[] dimensionNames = new String[feature.getDimension()];
+		Arrays.fill(dimensionNames, feature.getDescription());
+		int numberOfWindows = feature.getValues().size();
+		double[] windows = new double[numberOfWindows];
+		double[] values = new double[numberOfWindows * dimensionNames.length];
+		for(int i=0;i<numberOfWindows;i++) {
+			windows[i] = feature.getWindows().get(i);
+			Double[] valuesOfWindow = feature.getValues().get(i);
+			for(int j=0;j<dimensionNames.length;j++) {
+				values[i * dimensionNames.length + j] = valuesOfWindow[j];
+			}
+		}
+		save(binaryFile, TYPE_FEATURE, feature.getIds(), feature.getSourceFrameSize(), feature.getSampleRate(),
+				dimensionNames, windows, null, values);
+	}
+
+	/**
+	 * Loads a feature from the feature database
+	 * @param binaryFile File to read
+	 * @return Feature with the values of all time windows
+	 * @throws IOException If the file cannot be read or does not contain a feature
+	 */
+	public static Feature loadFeature(File binaryFile) throws IOException {
+		ByteBuffer buffer = read(binaryFile, TYPE_FEATURE);
+		try {
+			return readFeature(buffer);
+		} catch(RuntimeException e) {
+			throw new IOException("'" + binaryFile + "' is damaged: " + e);
+		}
+	}
+
+	private static Feature readFeature(ByteBuffer buffer) {
+		ArrayList<Integer> ids = readIds(buffer);
+		int sourceFrameSize = buffer.getInt();
+		int sampleRate = buffer.getInt();
+		String[] dimensionNames = readStrings(buffer);
+		int numberOfWindows = buffer.getInt();
+
+		Feature feature = new Feature(ids, dimensionNames.length > 0 ? dimensionNames[0] : "", dimensionNames.length);
+		feature.setSourceFrameSize(sourceFrameSize);
+		feature.setSampleRate(sampleRate);
+		ArrayList<Double> windows = feature.getWindows();
+		windows.ensureCapacity(numberOfWindows);
+		for(int i=0;i<numberOfWindows;i++) {
+			windows.add(buffer.getDouble());
+		}
+		ArrayList<Double[]> values = feature.getValues();
+		values.ensureCapacity(numberOfWindows);
+		for(int i=0;i<numberOfWindows;i++) {
+			Double[] valuesOfWindow = new Double[dimensionNames.length];
+			for(int j=0;j<dimensionNames.length;j++) {
+				valuesOfWindow[j] = buffer.getDouble();
+			}
+			values.add(valuesOfWindow);
+		}
+		return feature;
+	}
+
+	/**
+	 * Saves the processed features of a music file. The unit of partition boundaries is milliseconds
+	 * @param attributeNames Names of the processed features
+	 * @param partitionStarts Starts of partitions
+	 * @param partitionEnds Ends of partitions
+	 * @param values Values of all partitions one after another
+	 * @param binaryFile File to write
+	 * @throws IOException
+	 */
+	public static void saveProcessedFeatures(String[] attributeNames, double[] partitionStarts, double[] partitionEnds,
+			double[] values, File binaryFile) throws IOException {
+		save(binaryFile, TYPE_PROCESSED_FEATURES, new ArrayList<Integer>(), -1, -1,
+				attributeNames, partitionStarts, partitionEnds, values);
+	}
+
+	/**
+	 * Loads the processed features of a music file with the same attributes as in the ARFF file:
+	 * the processed features followed by Unit, Start and End of partitions
+	 * @param binaryFile File to read
+	 * @return Data set with the processed features
+	 * @throws IOException If the file cannot be read or does not contain processed features
+	 */
+	public static DataSet loadProcessedFeatures(File binaryFile) throws IOException {
+		ByteBuffer buffer = read(binaryFile, TYPE_PROCESSED_FEATURES);
+		try {
+			return readProcessedFeatures(buffer);
+		} catch(RuntimeException e) {
+			throw new IOException("'" + binaryFile + "' is damaged: " + e);
+		}
+	}
+
+	private static DataSet readProcessedFeatures(ByteBuffer buffer) {
+		readIds(buffer);
+		buffer.getInt();
+		buffer.getInt();
+		String[] attributeNames = readStrings(buffer);
+		int numberOfPartitions = buffer.getInt();
+		double[] starts = new double[numberOfPartitions];
+		double[] ends = new double[numberOfPartitions];
+		buffer.asDoubleBuffer().get(starts);
+		buffer.position(buffer.position() + 8 * numberOfPartitions);
+		buffer.asDoubleBuffer().get(ends);
+		buffer.position(buffer.position() + 8 * numberOfPartitions);
+
+		double[][] columns = new double[attributeNames.length][numberOfPartitions];
+		for(int i=0;i<numberOfPartitions;i++) {
+			for(int j=0;j<attributeNames.length;j++) {
+				columns[j][i] = buffer.getDouble();
+			}
+		}
+
+		DataSet dataSet = new DataSet(PROCESSED_FEATURES_RELATION);
+		for(int j=0;j<attributeNames.length;j++) {
+			dataSet.addAttribute(new NumericAttribute(attributeNames[j], columns[j]));
+		}
+		List<String> units = new ArrayList<String>(numberOfPartitions);
+		for(int i=0;i<numberOfPartitions;i++) {
+			units.add(UNIT);
+		}
+		dataSet.addAttribute(new NominalAttribute("Unit", Arrays.asList(UNIT, "samples"), units));
+		dataSet.addAttribute(new NumericAttribute("Start", starts));
+		dataSet.addAttribute(new NumericAttribute("End", ends));
+		return dataSet;
+	}
+
+	/**
+	 * Loads the processed features of a music file from the binary file if it is up to date
+	 * and from the ARFF file otherwise
+	 * @param arffFile ARFF file with processed features
+	 * @return Data set with the processed features
+	 * @throws IOException
+	 */
+	public static DataSetAbstract loadProcessedFeaturesFromDatabase(File arffFile) throws IOException {
+		if(isUpToDate(arffFile)) {
+			try {
+				return loadProcessedFeatures(getBinaryFile(arffFile));
+			} catch(IOException e) {
+				AmuseLogger.write(BinaryFeatureFile.class.getName(), Level.WARN,
+						"Could not load the binary file of '" + arffFile + "', the ARFF file is loaded: " + e.getMessage());
+			}
+		}
+		return new ArffDataSet(arffFile);
+	}
+
+	/**
+	 * Creates the binary file for the given ARFF file with a feature or with processed features
+	 * @param arffFile ARFF file
+	 * @throws NodeException If the ARFF file cannot be loaded or the binary file cannot be saved
+	 */
+	public static void convert(File arffFile) throws NodeException {
+		try {
+			if(isProcessedFeatureFile(arffFile)) {
+				DataSetAbstract dataSet = new ArffDataSet(arffFile);
+				int numberOfAttributes = dataSet.getAttributeCount() - 3;
+				int numberOfPartitions = dataSet.getValueCount();
+				if(numberOfAttributes < 0 || !dataSet.getAttribute(numberOfAttributes).getName().equals("Unit")) {
+					throw new NodeException("Unit, Start and End attributes are missing");
+				}
+				String[] attributeNames = new String[numberOfAttributes];
+				double[] values = new double[numberOfPartitions * numberOfAttributes];
+				for(int j=0;j<numberOfAttributes;j++) {
+					attributeNames[j] = dataSet.getAttribute(j).getName();
+					for(int i=0;i<numberOfPartitions;i++) {
+						values[i * numberOfAttributes + j] = (Double)dataSet.getAttribute(j).getValueAt(i);
+					}
+				}
+				double[] starts = new double[numberOfPartitions];
+				double[] ends = new double[numberOfPartitions];
+				for(int i=0;i<numberOfPartitions;i++) {
+					if(!dataSet.getAttribute(numberOfAttributes).getValueAt(i).toString().equals(UNIT)) {
+						throw new NodeException("Only partitions in " + UNIT + " are supported");
+					}
+					starts[i] = (Double)dataSet.getAttribute(numberOfAttributes + 1).getValueAt(i);
+					ends[i] = (Double)dataSet.getAttribute(numberOfAttributes + 2).getValueAt(i);
+				}
+				saveProcessedFeatures(attributeNames, starts, ends, values, getBinaryFile(arffFile));
+			} else {
+				saveFeature(ArffFeatureLoader.loadFeatureFromArff(arffFile.getPath()), getBinaryFile(arffFile));
+			}
+		} catch(IOException e) {
+			throw new NodeException("Could not convert '" + arffFile + "': " + e.getMessage());
+		} catch(RuntimeException e) {
+			throw new NodeException("Could not convert '" + arffFile + "': " + e.getMessage());
+		}
+	}
+
+	/**
+	 * Creates the binary files for all ARFF files in the given folders (including subfolders) or
+	 * for the given ARFF files. Binary files which are up to date are not created again
+	 * @param args Folders or ARFF files
+	 */
+	public static void main(String[] args) {
+		if(args.length < 1) {
+			AmuseLogger.write(BinaryFeatureFile.class.getName(), Level.FATAL,
+					"Usage: BinaryFeatureFile [folder or ARFF file]+");
+			System.exit(1);
+		}
+		int[] numberOfFiles = new int[2];
+		for(String arg : args) {
+			convertAll(new File(arg), numberOfFiles);
+		}
+		AmuseLogger.write(BinaryFeatureFile.class.getName(), Level.INFO,
+				numberOfFiles[0] + " binary feature files created, " + numberOfFiles[1] + " ARFF files could not be converted");
+	}
+
+	/**
+	 * Converts the ARFF files in the given folder recursively
+	 * @param file Folder or ARFF file
+	 * @param numberOfFiles Numbers of converted and failed files
+	 */
+	private static void convertAll(File file, int[] numberOfFiles) {
+		if(file.isDirectory()) {
+			File[] children = file.listFiles();
+			Arrays.sort(children);
+			for(File child : children) {
+				convertAll(child, numberOfFiles);
+			}
+		} else if(file.getName().toLowerCase().endsWith(".arff") && !isUpToDate(file)) {
+			try {
+				convert(file);
+				numberOfFiles[0]++;
+			} catch(NodeException e) {
+				AmuseLogger.write(BinaryFeatureFile.class.getName(), Level.WARN, e.getMessage());
+				numberOfFiles[1]++;
+			}
+		}
+	}
+
+	/**
+	 * @return True if the relation of the given ARFF file is the one of processed features
+	 */
+	private static boolean isProcessedFeatureFile(File arffFile) throws IOException {
+		BufferedReader reader = new BufferedReader(new FileReader(arffFile));
+		try {
+			String line;
+			while((line = reader.readLine()) != null) {
+				if(line.toLowerCase().startsWith("@relation")) {
+					return line.substring(9).trim().replace("'", "").replace("\"", "").equals(PROCESSED_FEATURES_RELATION);
+				}
+			}
+			return false;
+		} finally {
+			reader.close();
+		}
+	}
+
+	/**
+	 * Writes a binary file; it is first written to a temporary file and then renamed,
+	 * so that readers never see an incomplete binary file
+	 */
+	private static void save(File binaryFile, int type, List<Integer> ids, int sourceFrameSize, int sampleRate,
+			String[] dimensionNames, double[] windows, double[] windowEnds, double[] values) throws IOException {
+		byte[][] encodedNames = new byte[dimensionNames.length][];
+		int size = 4 * 6 + 4 * ids.size() + 4;
+		for(int i=0;i<dimensionNames.length;i++) {
+			encodedNames[i] = dimensionNames[i].getBytes(UTF8);
+			size += 4 + encodedNames[i].length;
+		}
+		size += 4 + 8 * (windows.length + (windowEnds != null ? windowEnds.length : 0) + values.length);
+
+		ByteBuffer buffer = ByteBuffer.allocate(size).order(ByteOrder.LITTLE_ENDIAN);
+		buffer.putInt(MAGIC);
+		buffer.putInt(VERSION);
+		buffer.putInt(type);
+		buffer.putInt(ids.size());
+		for(Integer id : ids) {
+			buffer.putInt(id);
+		}
+		buffer.putInt(sourceFrameSize);
+		buffer.putInt(sampleRate);
+		buffer.putInt(encodedNames.length);
+		for(byte[] encodedName : encodedNames) {
+			buffer.putInt(encodedName.length);
+			buffer.put(encodedName);
+		}
+		buffer.putInt(windows.length);
+		buffer.asDoubleBuffer().put(windows);
+		buffer.position(buffer.position() + 8 * windows.length);
+		if(windowEnds != null) {
+			buffer.asDoubleBuffer().put(windowEnds);
+			buffer.position(buffer.position() + 8 * windowEnds.length);
+		}
+		buffer.asDoubleBuffer().put(values);
+		buffer.position(buffer.position() + 8 * values.length);
+		buffer.flip();
+
+		File temporaryFile = new File(binaryFile.getPath() + ".tmp");
+		FileOutputStream output = new FileOutputStream(temporaryFile);
+		try {
+			FileChannel channel = output.getChannel();
+			while(buffer.hasRemaining()) {
+				channel.write(buffer);
+			}
+		} finally {
+			output.close();
+		}
+		if(!temporaryFile.renameTo(binaryFile)) {
+			binaryFile.delete();
+			if(!temporaryFile.renameTo(binaryFile)) {
+				temporaryFile.delete();
+				throw new IOException("Could not rename '" + temporaryFile + "' to '" + binaryFile + "'");
+			}
+		}
+	}
+
+	/**
+	 * Reads the complete binary file and checks the magic number, version and type
+	 * @return Buffer positioned after the type
+	 */
+	private static ByteBuffer read(File binaryFile, int expectedType) throws IOException {
+		FileInputStream input = new FileInputStream(binaryFile);
+		ByteBuffer buffer;
+		try {
+			FileChannel channel = input.getChannel();
+			buffer = ByteBuffer.allocate((int)channel.size()).order(ByteOrder.LITTLE_ENDIAN);
+			while(buffer.hasRemaining()) {
+				if(channel.read(buffer) < 0) {
+					throw new IOException("Unexpected end of file");
+				}
+			}
+		} finally {
+			input.close();
+		}
+		buffer.flip();
+		if(buffer.remaining() < 12 || buffer.getInt() != MAGIC) {
+			throw new IOException("'" + binaryFile + "' is not a binary feature file");
+		}
+		int version = buffer.getInt();
+		if(version != VERSION) {
+			throw new IOException("Version " + version + " of '" + binaryFile + "' is not supported");
+		}
+		int type = buffer.getInt();
+		if(type != expectedType) {
+			throw new IOException("'" + binaryFile + "' contains " + (type == TYPE_FEATURE ? "a feature" : "processed features"));
+		}
+		return buffer;
+	}
+
+	private static ArrayList<Integer> readIds(ByteBuffer buffer) {
+		int numberOfIds = buffer.getInt();
+		ArrayList<Integer> ids = new ArrayList<Integer>(numberOfIds);
+		for(int i=0;i<numberOfIds;i++) {
+			ids.add(buffer.getInt());
+		}
+		return ids;
+	}
+
+	private static String[] readStrings(ByteBuffer buffer) {
+		String[] strings = new String[buffer.getInt()];
+		for(int i=0;i<strings.length;i++) {
+			byte[] encodedString = new byte[buffer.getInt()];
+			buffer.get(encodedString);
+			strings[i] = new String(encodedString, UTF8);
+		}
+		return strings;
+	}
+}
@@ -25,6 +25,7 @@ package amuse.data;
 
 import java.io.Serializable;
 import java.util.ArrayList;
+import java.util.Arrays;
 
 /**
  * Feature Object that contains information about a single music feature.
@@ -73,6 +74,16 @@ public class Feature implements Serializable {
 	/** This value is used to determine if this feature is selected for extraction */
 	private boolean isSelectedForExtraction = true;
 	
+	/** Size, first and last time window of the window list when it was checked to be sorted; the check
+	 * is repeated if the window list has been replaced or changed at its ends */
+	private transient ArrayList<Double> checkedWindows = null;
+	private transient int checkedWindowsSize = -1;
+	private transient double checkedFirstWindow;
+	private transient double checkedLastWindow;
+	
+	/** True if the time windows are in ascending order, so that they can be searched binary */
+	private transient boolean areWindowsSorted = false;
+	
 	public Feature(ArrayList<Integer> ids, String description, ArrayList<Double[]> values,ArrayList<Double> windows) {
 		this.ids = ids;
 		this.values = values;
@@ -163,12 +174,104 @@ public class Feature implements Serializable {
 	 * @param window The given time window
 	 */
 	public Double[] getValuesFromWindow(double window) {
+		int index = getIndexOfWindow(window);
+		return index == -1 ? null : values.get(index);
+	}
+	
+	/**
+	 * Returns the index of the values of the given time window; returns -1 if this time window is not found
+	 * @param window The given time window
+	 */
+	public int getIndexOfWindow(double window) {
+		if(areWindowsSorted()) {
+			
+			// Time windows are mostly counted up without gaps
+			double offset = window - windows.get(0);
+			if(offset >= 0 && offset < windows.size() && offset == Math.floor(offset)) {
+				int index = (int)offset;
+				if(windows.get(index) == window && (index == 0 || windows.get(index - 1) < window)) {
+					return index;
+				}
+			}
+			int index = getIndexOfFirstWindowFrom(window);
+			if(index < windows.size() && windows.get(index) == window) {
+				return index;
+			}
+		}
 		for(int i=0;i<windows.size();i++) {
 			if(windows.get(i) == window) {
-				return values.get(i);
+				return i;
+			}
+		}
+		return -1;
+	}
+	
+	/**
+	 * Returns the indices of the values of all time windows in the given range
+	 * @param start First time window of the range (inclusive)
+	 * @param end Last time window of the range (exclusive)
+	 * @return Indices of values in the order of time windows
+	 */
+	public int[] getIndicesOfWindows(double start, double end) {
+		if(areWindowsSorted()) {
+			int first = getIndexOfFirstWindowFrom(start);
+			int last = Math.max(first, getIndexOfFirstWindowFrom(end));
+			int[] indices = new int[last - first];
+			for(int i=0;i<indices.length;i++) {
+				indices[i] = first + i;
+			}
+			return indices;
+		}
+		int[] indices = new int[windows.size()];
+		int numberOfIndices = 0;
+		for(int i=0;i<windows.size();i++) {
+			if(windows.get(i) >= start && windows.get(i) < end) {
+				indices[numberOfIndices++] = i;
+			}
+		}
+		return Arrays.copyOf(indices, numberOfIndices);
+	}
+	
+	/**
+	 * Returns the index of the first time window which is equal to or larger than the given window
+	 * (time windows must be sorted)
+	 */
+	private int getIndexOfFirstWindowFrom(double window) {
+		int low = 0;
+		int high = windows.size();
+		while(low < high) {
+			int middle = (low + high) >>> 1;
+			if(windows.get(middle) < window) {
+				low = middle + 1;
+			} else {
+				high = middle;
+			}
+		}
+		return low;
+	}
+	
+	/**
+	 * Checks if the time windows are in ascending order
+	 */
+	private boolean areWindowsSorted() {
+		if(windows.isEmpty()) {
+			return false;
+		}
+		if(checkedWindows != windows || checkedWindowsSize != windows.size() || 
+				checkedFirstWindow != windows.get(0) || checkedLastWindow != windows.get(windows.size() - 1)) {
+			areWindowsSorted = true;
+			for(int i=1;i<windows.size();i++) {
+				if(!(windows.get(i - 1) <= windows.get(i))) {
+					areWindowsSorted = false;
+					break;
+				}
 			}
+			checkedWindows = windows;
+			checkedWindowsSize = windows.size();
+			checkedFirstWindow = windows.get(0);
+			checkedLastWindow = windows.get(windows.size() - 1);
 		}
-		return null;
+		return areWindowsSorted;
 	}
 
 	public ArrayList<Double> getWindows() {
@@ -0,0 +1,294 @@
+/**
+ * This file is part of AMUSE framework (Advanced MUsic Explorer).
+ *
+ * Copyright 2006-2010 by code authors
+ *
+ * Created at TU Dortmund, Chair of Algorithm Engineering
+ * (Contact: <http://ls11-www.cs.tu-dortmund.de>)
+ *
+ * AMUSE is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * AMUSE is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with AMUSE. If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Creation date: 17.10.2026
+ */
+package amuse.data;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.apache.log4j.Level;
+
+import amuse.interfaces.nodes.NodeException;
+import amuse.preferences.AmusePreferences;
+import amuse.preferences.KeysIntValue;
+import amuse.util.AmuseLogger;
+
+/**
+ * Keeps the recently loaded raw features in memory, so that the processor, trainer, classifier,
+ * validator and optimizer running in the same JVM do not load the same feature files again.
+ * The cache is limited by the estimated memory of the stored features; the least recently used
+ * features are removed first.<br/>
+ * Features are stored by the path of the feature file (which contains the feature id) together
+ * with its modification time and length; if the file has been changed, it is loaded again. Since
+ * the processing steps change the loaded features, each call returns a new copy.
+ *
+ * @version $Id$
+ */
+public class FeatureCache {
+
+	/** Cache shared by all nodes of this JVM */
+	private static final FeatureCache sharedCache = new FeatureCache(0);
+
+	/** Estimated memory of a feature without its values and windows */
+	private static final long FEATURE_OVERHEAD = 256;
+
+	/** Maximal estimated memory of the stored features in bytes */
+	private volatile long maximalSize;
+
+	/** Estimated memory of the stored features in bytes */
+	private long size = 0;
+
+	/** Stored features in the order of their last use */
+	private final LinkedHashMap<String,Entry> entries = new LinkedHashMap<String,Entry>(16, 0.75f, true);
+
+	private long hits = 0;
+	private long misses = 0;
+	private long evictions = 0;
+	private long invalidations = 0;
+
+	/**
+	 * Creates a cache
+	 * @param maximalSize Maximal estimated memory of the stored features in bytes; 0 disables the cache
+	 */
+	public FeatureCache(long maximalSize) {
+		this.maximalSize = maximalSize;
+	}
+
+	/**
+	 * Returns the cache shared by all nodes of this JVM; its size is set to FEATURE_CACHE_SIZE_IN_MB
+	 * from AmusePreferences
+	 */
+	public static FeatureCache getInstance() {
+		sharedCache.setMaximalSize(AmusePreferences.getInt(KeysIntValue.FEATURE_CACHE_SIZE_IN_MB) * 1048576L);
+		return sharedCache;
+	}
+
+	/**
+	 * Loads the feature using the shared cache
+	 * @param featureFile ARFF feature file
+	 * @return Loaded feature, which may be changed by the caller
+	 * @throws NodeException
+	 */
+	public static Feature loadFeature(String featureFile) throws NodeException {
+		return getInstance().getFeature(featureFile);
+	}
+
+	/**
+	 * Returns the feature from the cache or loads it with ArffFeatureLoader, if it is not stored
+	 * or the feature file has been changed since it was stored
+	 * @param featureFile ARFF feature file
+	 * @return Loaded feature, which may be changed by the caller
+	 * @throws NodeException
+	 */
+	public Feature getFeature(String featureFile) throws NodeException {
+		File file = new File(featureFile);
+		String key = file.getAbsolutePath();
+		long lastModified = file.lastModified();
+		long length = file.length();
+
+		Entry storedEntry = null;
+		synchronized(this) {
+			Entry entry = entries.get(key);
+			if(entry != null) {
+				if(entry.lastModified == lastModified && entry.length == length) {
+					hits++;
+					storedEntry = entry;
+				} else {
+					remove(key);
+					invalidations++;
+					AmuseLogger.write(FeatureCache.class.getName(), Level.DEBUG, "Feature file has been changed: " + key);
+				}
+			}
+			if(storedEntry == null) {
+				misses++;
+			}
+		}
+		if(storedEntry != null) {
+			return storedEntry.toFeature();
+		}
+
+		// Loading is done without the lock, so that several threads may load different files
+		Feature feature = ArffFeatureLoader.loadFeature(featureFile);
+		if(maximalSize > 0) {
+			Entry entry = new Entry(feature, lastModified, length);
+			synchronized(this) {
+				if(entry.size <= maximalSize && !entries.containsKey(key)) {
+					entries.put(key, entry);
+					size += entry.size;
+					evict();
+				}
+			}
+		}
+		return feature;
+	}
+
+	/**
+	 * Sets the maximal estimated memory of the stored features and removes features if required
+	 * @param maximalSize Maximal size in bytes; 0 disables the cache
+	 */
+	public synchronized void setMaximalSize(long maximalSize) {
+		this.maximalSize = maximalSize;
+		evict();
+	}
+
+	/**
+	 * Removes all features
+	 */
+	public synchronized void clear() {
+		entries.clear();
+		size = 0;
+	}
+
+	/**
+	 * Writes the number of hits, misses, evictions and invalidations to the log
+	 */
+	public void logStatistics() {
+		AmuseLogger.write(FeatureCache.class.getName(), Level.INFO, getStatistics());
+	}
+
+	/**
+	 * @return Description of the number of hits, misses, evictions and invalidations and the current size
+	 */
+	public synchronized String getStatistics() {
+		return "Feature cache: " + hits + " hits, " + misses + " misses, " + evictions + " evictions, " +
+			invalidations + " invalidations; " + entries.size() + " features with " + (size / 1024) + " of " +
+			(maximalSize / 1024) + " KB";
+	}
+
+	public synchronized long getHits() {
+		return hits;
+	}
+
+	public synchronized long getMisses() {
+		return misses;
+	}
+
+	public synchronized long getEvictions() {
+		return evictions;
+	}
+
+	public synchronized long getInvalidations() {
+		return invalidations;
+	}
+
+	/**
+	 * @return Estimated memory of the stored features in bytes
+	 */
+	public synchronized long getSize() {
+		return size;
+	}
+
+	/**
+	 * @return Number of stored features
+	 */
+	public synchronized int getNumberOfFeatures() {
+		return entries.size();
+	}
+
+	/**
+	 * Removes the least recently used features until the maximal size is kept
+	 */
+	private void evict() {
+		Iterator<Map.Entry<String,Entry>> iterator = entries.entrySet().iterator();
+		while(size > maximalSize && iterator.hasNext()) {
+			Map.Entry<String,Entry> eldest = iterator.next();
+			size -= eldest.getValue().size;
+			iterator.remove();
+			evictions++;
+			AmuseLogger.write(FeatureCache.class.getName(), Level.DEBUG, "Removed from feature cache: " + eldest.getKey());
+		}
+	}
+
+	private void remove(String key) {
+		Entry entry = entries.remove(key);
+		if(entry != null) {
+			size -= entry.size;
+		}
+	}
+
+	/**
+	 * Stored feature; the values are kept in primitive arrays, which need about a third
+	 * of the memory of the Double objects
+	 */
+	private static class Entry {
+		final long lastModified;
+		final long length;
+		final long size;
+		final ArrayList<Integer> ids;
+		final String description;
+		final int dimension;
+		final int sampleRate;
+		final int sourceFrameSize;
+		final double[] values;
+		final double[] windows;
+
+		Entry(Feature feature, long lastModified, long length) {
+			this.lastModified = lastModified;
+			this.length = length;
+			this.ids = new ArrayList<Integer>(feature.getIds());
+			this.description = feature.getDescription();
+			this.dimension = feature.getDimension();
+			this.sampleRate = feature.getSampleRate();
+			this.sourceFrameSize = feature.getSourceFrameSize();
+			ArrayList<Double[]> featureValues = feature.getValues();
+			ArrayList<Double> featureWindows = feature.getWindows();
+			this.values = new double[featureValues.size() * dimension];
+			this.windows = new double[featureWindows.size()];
+			for(int i=0;i<featureValues.size();i++) {
+				Double[] value = featureValues.get(i);
+				for(int d=0;d<dimension;d++) {
+					values[i * dimension + d] = value[d];
+				}
+			}
+			for(int i=0;i<windows.length;i++) {
+				windows[i] = featureWindows.get(i);
+			}
+			this.size = FEATURE_OVERHEAD + 8L * (values.length + windows.length) + (description == null ? 0 : 2L * description.length());
+		}
+
+		Feature toFeature() {
+			Feature feature = new Feature(new ArrayList<Integer>(ids), description, dimension);
+			feature.setSampleRate(sampleRate);
+			feature.setSourceFrameSize(sourceFrameSize);
+			int numberOfValues = dimension == 0 ? 0 : values.length / dimension;
+			ArrayList<Double[]> featureValues = feature.getValues();
+			featureValues.ensureCapacity(numberOfValues);
+			for(int i=0;i<numberOfValues;i++) {
+				Double[] value = new Double[dimension];
+				for(int d=0;d<dimension;d++) {
+					value[d] = values[i * dimension + d];
+				}
+				featureValues.add(value);
+			}
+			ArrayList<Double> featureWindows = feature.getWindows();
+			featureWindows.ensureCapacity(windows.length);
+			for(int i=0;i<windows.length;i++) {
+				featureWindows.add(windows[i]);
+			}
+			return feature;
+		}
+	}
+}
@@ -0,0 +1,169 @@
+/**
+ * This file is part of AMUSE framework (Advanced MUsic Explorer).
+ *
+ * Copyright 2006-2010 by code authors
+ *
+ * Created at TU Dortmund, Chair of Algorithm Engineering
+ * (Contact: <http://ls11-www.cs.tu-dortmund.de>)
+ *
+ * AMUSE is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * AMUSE is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with AMUSE. If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Creation date: 17.10.2026
+ */
+package amuse.data.datasets;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import amuse.data.io.ArffDataSet;
+import amuse.data.io.attributes.NumericAttribute;
+
+/**
+ * This class describes the parts a music file was split into: the first sample frame of each part in the
+ * music file, the number of frames which belong to the part and the number of further frames which the part
+ * file contains as overlap with the next part. Serialisation to ARFF is supported.
+ *
+ * @version $Id$
+ */
+public class WavePartTableSet extends ArffDataSet {
+
+	/** Name of the file in the task folder which describes the parts */
+	public static final String FILE_NAME = "waveParts.arff";
+
+	private static final String strId = "Id";
+	private static final String strStart = "Start";
+	private static final String strLength = "Length";
+	private static final String strOverlap = "Overlap";
+	private static final String strSampleRate = "SampleRate";
+
+	private final NumericAttribute idAttribute;
+	private final NumericAttribute startAttribute;
+	private final NumericAttribute lengthAttribute;
+	private final NumericAttribute overlapAttribute;
+	private final NumericAttribute sampleRateAttribute;
+
+	/**
+	 * Creates a new WavePartTableSet from a file. Validates if the given file contains a WavePartTableSet.
+	 * @param file The file to load form.
+	 * @throws java.io.IOException Thrown whenever given file does not represent a valid WavePartTableSet.
+	 */
+	public WavePartTableSet(File file) throws IOException {
+		super(file);
+		// Check preconditions:
+		checkNumericAttribute(strId);
+		checkNumericAttribute(strStart);
+		checkNumericAttribute(strLength);
+		checkNumericAttribute(strOverlap);
+		checkNumericAttribute(strSampleRate);
+		idAttribute = (NumericAttribute) this.getAttribute(strId);
+		startAttribute = (NumericAttribute) this.getAttribute(strStart);
+		lengthAttribute = (NumericAttribute) this.getAttribute(strLength);
+		overlapAttribute = (NumericAttribute) this.getAttribute(strOverlap);
+		sampleRateAttribute = (NumericAttribute) this.getAttribute(strSampleRate);
+	}
+
+	/**
+	 * Creates the description of consecutive parts
+	 * @param lengths Number of frames of each part without the overlap
+	 * @param overlaps Number of frames each part file contains after its length
+	 * @param sampleRate Sampling rate of the parts
+	 */
+	public WavePartTableSet(List<Long> lengths, List<Long> overlaps, float sampleRate) {
+		super("WavePartTable");
+		if (lengths.size() != overlaps.size()) {
+			throw new IllegalArgumentException("Lengths and overlaps dont contain same amount of values!");
+		}
+		List<Double> ids = new ArrayList<Double>();
+		List<Double> starts = new ArrayList<Double>();
+		List<Double> lengthValues = new ArrayList<Double>();
+		List<Double> overlapValues = new ArrayList<Double>();
+		List<Double> sampleRates = new ArrayList<Double>();
+		long start = 0;
+		for (int i = 0; i < lengths.size(); i++) {
+			ids.add(new Double(i + 1));
+			starts.add(new Double(start));
+			lengthValues.add(new Double(lengths.get(i)));
+			overlapValues.add(new Double(overlaps.get(i)));
+			sampleRates.add(new Double(sampleRate));
+			start += lengths.get(i);
+		}
+		idAttribute = new NumericAttribute(strId, ids);
+		startAttribute = new NumericAttribute(strStart, starts);
+		lengthAttribute = new NumericAttribute(strLength, lengthValues);
+		overlapAttribute = new NumericAttribute(strOverlap, overlapValues);
+		sampleRateAttribute = new NumericAttribute(strSampleRate, sampleRates);
+		this.addAttribute(idAttribute);
+		this.addAttribute(startAttribute);
+		this.addAttribute(lengthAttribute);
+		this.addAttribute(overlapAttribute);
+		this.addAttribute(sampleRateAttribute);
+	}
+
+	/**
+	 * @return Number of parts
+	 */
+	public int getNumberOfParts() {
+		return idAttribute.getValueCount();
+	}
+
+	/**
+	 * @param part Number of the part starting with 1
+	 * @return First frame of the part in the music file
+	 */
+	public long getStart(int part) {
+		return startAttribute.getValueAt(part - 1).longValue();
+	}
+
+	/**
+	 * @param part Number of the part starting with 1
+	 * @return Number of frames which belong to the part
+	 */
+	public long getLength(int part) {
+		return lengthAttribute.getValueAt(part - 1).longValue();
+	}
+
+	/**
+	 * @param part Number of the part starting with 1
+	 * @return Number of frames after the length of the part which belong to the next part
+	 */
+	public long getOverlap(int part) {
+		return overlapAttribute.getValueAt(part - 1).longValue();
+	}
+
+	/**
+	 * @param part Number of the part starting with 1
+	 * @return Sampling rate of the part
+	 */
+	public double getSampleRate(int part) {
+		return sampleRateAttribute.getValueAt(part - 1);
+	}
+
+	/**
+	 * @param part Number of the part starting with 1
+	 * @return Time of the first frame of the part in seconds
+	 */
+	public double getStartInSeconds(int part) {
+		return getStart(part) / getSampleRate(part);
+	}
+
+	/**
+	 * @param part Number of the part starting with 1
+	 * @return Duration of the frames which belong to the part in seconds
+	 */
+	public double getLengthInSeconds(int part) {
+		return getLength(part) / getSampleRate(part);
+	}
+}
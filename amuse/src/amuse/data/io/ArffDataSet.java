@@ -23,17 +23,25 @@
  */
 package amuse.data.io;
 
-import java.io.BufferedWriter;
+import java.io.BufferedInputStream;
 import java.io.File;
+import java.io.FileInputStream;
 import java.io.FileNotFoundException;
 import java.io.FileReader;
-import java.io.FileWriter;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
 import java.io.LineNumberReader;
+import java.io.RandomAccessFile;
+import java.io.Reader;
 import java.io.StreamTokenizer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
-import java.util.List;
+import java.util.LinkedHashMap;
 import java.util.Map;
 
 import amuse.data.io.attributes.Attribute;
@@ -65,10 +73,20 @@ public class ArffDataSet extends DataSetAbstract {
 	protected int lines;
 	private int bufferedLineCount = 1024 * 8;
 	private static final int defaultBufferdLineCount = 1024 * 8;
+	private static final int defaultCachedBlockCount = 4;
 	private int dataTagLine;
 	private int startLine = -1;
 	private int endLine = -1;
 	private double[][] bufferedLines;
+	/**
+	 * Byte offsets of the first data row of every block of
+	 * <code>bufferedLineCount</code> rows. Built once while validating the data
+	 * section, so a buffer miss seeks directly to the block instead of
+	 * re-reading the file from the start.
+	 */
+	private long[] blockOffsets = new long[0];
+	/** The data blocks held in memory, least recently used first */
+	private Map<Integer, double[][]> blockCache;
 	/**
 	 * This String stores the @Relation-Tag as used in ARFF files.
 	 */
@@ -86,7 +104,6 @@ public class ArffDataSet extends DataSetAbstract {
 	private final Map<String, String> amuseAttributes = new HashMap<String, String>();
 	private int valueCount = 0;
 	private StreamTokenizer tokenizer;
-	private List<Integer> emptyLines = new ArrayList<Integer>();
 
 	/**
 	 * The standard constructor to create a new DataSet.
@@ -126,8 +143,39 @@ public class ArffDataSet extends DataSetAbstract {
 	 *             existing.
 	 */
 	public ArffDataSet(File file, int linesToCache) throws IOException {
+		this(file, linesToCache, defaultCachedBlockCount);
+	}
+
+	/**
+	 * This constructor loads a DataSet from a given arff file. IOExceptions are
+	 * thrown due to IO operations. The data rows are read in blocks of
+	 * <code>linesToCache</code> lines, of which up to
+	 * <code>blocksToCache</code> blocks are held in memory at the same time.
+	 * 
+	 * @param file
+	 *            The arff file to load from.
+	 * @param linesToCache
+	 *            The count of lines per cached block.
+	 * @param blocksToCache
+	 *            The count of blocks to hold in memory.
+	 * @throws java.io.IOException
+	 *             Thrown whenever given file is not a valid arff or not
+	 *             existing.
+	 */
+	public ArffDataSet(File file, int linesToCache, final int blocksToCache) throws IOException {
 		// Check preconditions:
+		if (linesToCache < 1 || blocksToCache < 1) {
+			throw new IllegalArgumentException("At least one line and one block must be cached!");
+		}
 		bufferedLineCount = linesToCache;
+		blockCache = new LinkedHashMap<Integer, double[][]>(blocksToCache + 1, 0.75f, true) {
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<Integer, double[][]> eldest) {
+				return size() > blocksToCache;
+			}
+		};
 		if (!file.isFile()) {
 			throw new FileNotFoundException(file.getCanonicalPath());
 		}
@@ -177,11 +225,10 @@ public class ArffDataSet extends DataSetAbstract {
 
 		// System.out.println("\n\n\n");
 		this.name = tmpName;
-		bufferedLines = new double[bufferedLineCount][this.getAttributeNames()
-				.size()];
 		validateHeader();
 		validateDataSection();
 		reader.close();
+		buildBlockIndex();
 	}
 
 	/*
@@ -219,37 +266,58 @@ public class ArffDataSet extends DataSetAbstract {
 			throw new IOException("Can not write/read to/from same file!");
 		}
 		File outputFile = new File(file.getAbsolutePath());
-		StringBuilder output = new StringBuilder();
-		// Write Amuse attributes:
-		for (String key : amuseAttributes.keySet()) {
-			output.append("%@" + key + "=" + amuseAttributes.get(key) + "\n");
-		}
-		// Write @RELATION name:
-		output.append(this.getRelationHeaderStr() + "\n\n");
-		// Write @ATTRIBUTE Headers:
-		for (Attribute atr : attributes) {
-			output.append(atr.getHeaderStr() + "\n");
-		}
-		// Begin writing data to StringBuilder:
-		output.append("\n" + dataStr + "\n");
-		BufferedWriter fileWriter = new BufferedWriter(new FileWriter(outputFile));
-		fileWriter.append(output);
-		output = new StringBuilder();
-		for (int i = 0; i < getValueCount(); i++) {
+		ArffWriter fileWriter = new ArffWriter(outputFile, Charset.defaultCharset(), "\n");
+		try {
+			// Write Amuse attributes:
+			for (String key : amuseAttributes.keySet()) {
+				fileWriter.write("%@").write(key).write('=').writeLine(amuseAttributes.get(key));
+			}
+			// Write @RELATION name:
+			fileWriter.writeLine(this.getRelationHeaderStr()).newLine();
+			// Write @ATTRIBUTE Headers:
 			for (Attribute atr : attributes) {
-				output.append(atr.getValueStrAt(i));
-				if (attributes.indexOf(atr) == attributes.size() - 1) {
-					output.append("\n");
-				} else {
-					output.append(",");
-				}
+				fileWriter.writeLine(atr.getHeaderStr());
 			}
+			fileWriter.newLine().writeLine(dataStr);
 			
-			// Write the attribute values of the current instance to file:
-			fileWriter.append(output);
-			output = new StringBuilder();
+			// Numeric values are written without creating strings
+			int lastAttribute = attributes.size() - 1;
+			NumericAttribute[] numericAttributes = new NumericAttribute[attributes.size()];
+			for (int a = 0; a <= lastAttribute; a++) {
+				if (attributes.get(a) instanceof NumericAttribute) {
+					numericAttributes[a] = (NumericAttribute) attributes.get(a);
+				}
+			}
+			int valueCount = getValueCount();
+			for (int i = 0; i < valueCount; i++) {
+				for (int a = 0; a <= lastAttribute; a++) {
+					if (numericAttributes[a] != null) {
+						writeNumericValue(fileWriter, numericAttributes[a].getDouble(i));
+					} else {
+						fileWriter.write(attributes.get(a).getValueStrAt(i));
+					}
+					if (a == lastAttribute) {
+						fileWriter.newLine();
+					} else {
+						fileWriter.write(',');
+					}
+				}
+			}
+		} finally {
+			fileWriter.close();
+		}
+	}
+
+	/**
+	 * Writes a numeric value as NumericAttribute.getValueStrAt(): integer values without fraction digits.
+	 * Integer values beyond the range of int are written completely instead of the largest int
+	 */
+	private static void writeNumericValue(ArffWriter fileWriter, double value) throws IOException {
+		if (value - Math.floor(value) == 0 && Math.abs(value) < 0x1p63) {
+			fileWriter.write((long) value);
+		} else {
+			fileWriter.write(value);
 		}
-		fileWriter.close();
 	}
 
 	/**
@@ -300,8 +368,7 @@ public class ArffDataSet extends DataSetAbstract {
 		// "\" is out of bounds of this DataSet.");
 		// }
 		assertInBuffer(index);
-		return bufferedLines[calculateBufferIndex(index)][this
-				.getAttributeNames().indexOf(attribute.getName())];
+		return bufferedLines[calculateBufferIndex(index)][getAttributeIndex(attribute)];
 	}
 
 	/*
@@ -332,30 +399,132 @@ public class ArffDataSet extends DataSetAbstract {
 		if (startLine <= index && index < endLine) {
 			return;
 		} else {
-			try {
-				// Move Buffer:
-				startLine = index;
-				initTokenizer(startLine + dataTagLine);
-				int bufferIndex = 0;
+			// Move Buffer:
+			int block = index / bufferedLineCount;
+			double[][] lines = blockCache.get(block);
+			if (lines == null) {
+				try {
+					lines = loadBlock(block);
+				} catch (IOException ex) {
+					throw new RuntimeException(ex);
+				}
+				blockCache.put(block, lines);
+			}
+			bufferedLines = lines;
+			startLine = block * bufferedLineCount;
+			endLine = startLine + lines.length;
+		}
+	}
+
+	/**
+	 * Reads the given block of data rows, starting at its indexed byte offset.
+	 * 
+	 * @param block
+	 *            The number of the block to read.
+	 * @return The parsed data rows of the block.
+	 * @throws IOException
+	 *             If the file could not be read.
+	 */
+	private double[][] loadBlock(int block) throws IOException {
+		if (block < 0 || block >= blockOffsets.length) {
+			throw new IndexOutOfBoundsException("The index: \"" + block * bufferedLineCount
+					+ "\" is out of bounds of this DataSet.");
+		}
+		int firstRow = block * bufferedLineCount;
+		double[][] lines = new double[Math.min(bufferedLineCount, valueCount - firstRow)][];
+		RandomAccessFile randomAccessFile = new RandomAccessFile(file, "r");
+		try {
+			FileChannel channel = randomAccessFile.getChannel();
+			channel.position(blockOffsets[block]);
+			initTokenizer(new InputStreamReader(Channels.newInputStream(channel), Charset.defaultCharset()));
+			for (int i = 0; i < lines.length; i++) {
 				getFirstToken();
-				while (bufferIndex < bufferedLines.length
-						&& tokenizer.ttype != StreamTokenizer.TT_EOF) {
-					bufferedLines[bufferIndex] = parseDataLine();
-					bufferIndex++;
-					getFirstToken();
+				lines[i] = parseDataLine();
+			}
+		} finally {
+			randomAccessFile.close();
+		}
+		return lines;
+	}
+
+	/**
+	 * Scans the raw bytes of the data section and stores the byte offset of
+	 * the first row of each block. Lines without a value (empty, whitespace or
+	 * comment only) are skipped the same way as by the tokenizer.
+	 * 
+	 * @throws IOException
+	 *             If the file could not be read or the count of rows differs
+	 *             from the validated value count.
+	 */
+	private void buildBlockIndex() throws IOException {
+		long[] offsets = new long[valueCount / bufferedLineCount + 1];
+		int rows = 0;
+		int lineNumber = 0;
+		long position = 0;
+		long lineStart = 0;
+		boolean lineDecided = false;
+		boolean lineHasData = false;
+		boolean previousWasCR = false;
+		InputStream in = new BufferedInputStream(new FileInputStream(file));
+		try {
+			byte[] buffer = new byte[1 << 16];
+			int read;
+			while ((read = in.read(buffer)) != -1) {
+				for (int i = 0; i < read; i++, position++) {
+					int b = buffer[i] & 0xFF;
+					if (b == '\n' && previousWasCR) {
+						// Second half of \r\n:
+						lineStart = position + 1;
+						previousWasCR = false;
+						continue;
+					}
+					previousWasCR = (b == '\r');
+					if (b == '\n' || b == '\r') {
+						if (lineNumber >= dataTagLine && lineHasData) {
+							if (rows % bufferedLineCount == 0 && rows / bufferedLineCount < offsets.length) {
+								offsets[rows / bufferedLineCount] = lineStart;
+							}
+							rows++;
+						}
+						lineNumber++;
+						lineStart = position + 1;
+						lineDecided = false;
+						lineHasData = false;
+					} else if (!lineDecided && b > ' ' && b != ',') {
+						lineDecided = true;
+						lineHasData = (b != '%');
+					}
 				}
-				endLine = startLine + bufferIndex;
-				reader.close();
-			} catch (IOException ex) {
-				throw new RuntimeException(ex);
 			}
+		} finally {
+			in.close();
+		}
+		// Last line without line break:
+		if (lineNumber >= dataTagLine && lineHasData) {
+			if (rows % bufferedLineCount == 0 && rows / bufferedLineCount < offsets.length) {
+				offsets[rows / bufferedLineCount] = lineStart;
+			}
+			rows++;
+		}
+		if (rows != valueCount) {
+			throw new IOException("Could not index data section of " + file.getName() + ": found " + rows
+					+ " rows, but validated " + valueCount + "!");
 		}
+		int blocks = (valueCount + bufferedLineCount - 1) / bufferedLineCount;
+		blockOffsets = Arrays.copyOf(offsets, blocks);
 	}
 
 	private int calculateBufferIndex(int index) {
 		return index - startLine;
 	}
 
+	/**
+	 * @return The byte offsets of the first data row of every block.
+	 */
+	long[] getBlockOffsets() {
+		return blockOffsets.clone();
+	}
+
 	private boolean isEmptyString(String line) {
 		if (!line.isEmpty() && !line.trim().startsWith("%")) {
 			return false;
@@ -398,7 +567,6 @@ public class ArffDataSet extends DataSetAbstract {
 			parseDataLine(true);
 			getFirstToken();
 		}
-		// System.out.println(Arrays.toString(emptyLines.toArray()));
 	}
 
 	private void validateHeader() throws IOException {
@@ -424,6 +592,20 @@ public class ArffDataSet extends DataSetAbstract {
 	 */
 	private void initTokenizer(int marker) throws IOException {
 		initReader(marker);
+		initTokenizer(reader);
+	}
+
+	/**
+	 * Initializes the StreamTokenizer used for reading the ARFF file from the
+	 * given position.
+	 * 
+	 * @param positionedReader
+	 *            Reader positioned at the beginning of a line.
+	 */
+	private void initTokenizer(Reader positionedReader) {
+		if (positionedReader != reader) {
+			reader = new LineNumberReader(positionedReader, 1 << 16);
+		}
 		tokenizer = new StreamTokenizer(reader);
 		tokenizer.resetSyntax();
 		tokenizer.whitespaceChars(0, ' ');
@@ -445,7 +627,6 @@ public class ArffDataSet extends DataSetAbstract {
 	 */
 	private void getFirstToken() throws IOException {
 		while (tokenizer.nextToken() == StreamTokenizer.TT_EOL) {
-			emptyLines.add(reader.getLineNumber());
 		}
 
 		if ((tokenizer.ttype == '\'') || (tokenizer.ttype == '"')) {
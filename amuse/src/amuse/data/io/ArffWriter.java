@@ -0,0 +1,490 @@
+/**
+ * This file is part of AMUSE framework (Advanced MUsic Explorer).
+ *
+ * Copyright 2006-2010 by code authors
+ *
+ * Created at TU Dortmund, Chair of Algorithm Engineering
+ * (Contact: <http://ls11-www.cs.tu-dortmund.de>)
+ *
+ * AMUSE is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * AMUSE is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with AMUSE. If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Creation date: 17.10.2026
+ */
+package amuse.data.io;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.math.BigInteger;
+import java.nio.charset.Charset;
+
+/**
+ * Writes ARFF files through a large buffer. Header lines and values are written directly
+ * into the buffer, so no strings are created for the values.<br/>
+ * Doubles are written in the layout of Double.toString() with the shortest decimal (of at least two
+ * digits) which is converted back to the same double. The digits are calculated with the Schubfach
+ * algorithm by R. Giulietti, which is also used by Double.toString() since Java 19. Older versions of
+ * Double.toString() sometimes write a longer decimal, e.g. "0.0020" instead of "0.002" or
+ * "9.999999999999999E22" instead of "1.0E23"; both are parsed to the same double.
+ *
+ * @version $Id$
+ */
+public class ArffWriter implements Closeable {
+
+	/** Size of the write buffer */
+	private static final int BUFFER_SIZE = 1 << 16;
+
+	/** Maximal length of a formatted long or double */
+	private static final int MAX_NUMBER_LENGTH = 32;
+
+	/** Charset used by DataOutputStream.writeBytes() for the characters up to 0xff */
+	public static final Charset LATIN1 = Charset.forName("ISO-8859-1");
+
+	private final OutputStream output;
+	private final Charset charset;
+	private final byte[] lineSeparator;
+	private final byte[] buffer = new byte[BUFFER_SIZE];
+	private int position = 0;
+
+	/** Digits of the current number */
+	private final byte[] digits = new byte[20];
+
+	/**
+	 * Creates a writer with the system line separator; characters are written as by
+	 * DataOutputStream.writeBytes() (see LATIN1)
+	 * @param file File to write
+	 * @throws IOException
+	 */
+	public ArffWriter(File file) throws IOException {
+		this(new FileOutputStream(file), LATIN1, System.getProperty("line.separator"));
+	}
+
+	/**
+	 * @param file File to write
+	 * @param charset Charset for non-ASCII characters
+	 * @param lineSeparator Line separator
+	 * @throws IOException
+	 */
+	public ArffWriter(File file, Charset charset, String lineSeparator) throws IOException {
+		this(new FileOutputStream(file), charset, lineSeparator);
+	}
+
+	/**
+	 * @param output Stream to write; it is closed together with this writer
+	 * @param charset Charset for non-ASCII characters
+	 * @param lineSeparator Line separator
+	 */
+	public ArffWriter(OutputStream output, Charset charset, String lineSeparator) {
+		this.output = output;
+		this.charset = charset;
+		this.lineSeparator = lineSeparator.getBytes(charset);
+	}
+
+	/**
+	 * Writes the given text
+	 */
+	public ArffWriter write(String text) throws IOException {
+		int length = text.length();
+		for(int i=0;i<length;i++) {
+			if(text.charAt(i) >= 0x80) {
+				write(text.getBytes(charset));
+				return this;
+			}
+		}
+		int i = 0;
+		while(i < length) {
+			if(position == buffer.length) {
+				flushBuffer();
+			}
+			int end = Math.min(length, i + buffer.length - position);
+			while(i < end) {
+				buffer[position++] = (byte)text.charAt(i++);
+			}
+		}
+		return this;
+	}
+
+	/**
+	 * Writes the given ASCII character
+	 */
+	public ArffWriter write(char c) throws IOException {
+		if(c >= 0x80) {
+			return write(String.valueOf(c));
+		}
+		if(position == buffer.length) {
+			flushBuffer();
+		}
+		buffer[position++] = (byte)c;
+		return this;
+	}
+
+	/**
+	 * Writes the given value as Long.toString()
+	 */
+	public ArffWriter write(long value) throws IOException {
+		if(buffer.length - position < MAX_NUMBER_LENGTH) {
+			flushBuffer();
+		}
+		if(value < 0) {
+			buffer[position++] = '-';
+		} else {
+			value = -value;
+		}
+
+		// Negative values, so that Long.MIN_VALUE is also written correctly
+		int start = digits.length;
+		do {
+			digits[--start] = (byte)('0' - value % 10);
+			value /= 10;
+		} while(value != 0);
+		System.arraycopy(digits, start, buffer, position, digits.length - start);
+		position += digits.length - start;
+		return this;
+	}
+
+	/**
+	 * Writes the given value in the layout of Double.toString() with the shortest decimal
+	 * which is converted back to the same value
+	 */
+	public ArffWriter write(double value) throws IOException {
+		if(buffer.length - position < MAX_NUMBER_LENGTH) {
+			flushBuffer();
+		}
+		position = format(value, buffer, position, digits);
+		return this;
+	}
+
+	/**
+	 * Writes the given values separated by commas
+	 * @param values Values
+	 * @param offset Index of the first value
+	 * @param length Number of values
+	 */
+	public ArffWriter write(double[] values, int offset, int length) throws IOException {
+		for(int i=offset;i<offset+length;i++) {
+			if(i > offset) {
+				write(',');
+			}
+			write(values[i]);
+		}
+		return this;
+	}
+
+	/**
+	 * Writes the line separator
+	 */
+	public ArffWriter newLine() throws IOException {
+		return write(lineSeparator);
+	}
+
+	/**
+	 * Writes the given text and the line separator
+	 */
+	public ArffWriter writeLine(String text) throws IOException {
+		return write(text).newLine();
+	}
+
+	/**
+	 * Writes the buffered data to the stream
+	 */
+	public void flush() throws IOException {
+		flushBuffer();
+		output.flush();
+	}
+
+	public void close() throws IOException {
+		try {
+			flushBuffer();
+		} finally {
+			output.close();
+		}
+	}
+
+	/**
+	 * @return The value formatted as by write(double)
+	 */
+	public static String toString(double value) {
+		byte[] formatted = new byte[MAX_NUMBER_LENGTH];
+		int length = format(value, formatted, 0, new byte[20]);
+		return new String(formatted, 0, length, LATIN1);
+	}
+
+	private ArffWriter write(byte[] bytes) throws IOException {
+		int i = 0;
+		while(i < bytes.length) {
+			if(position == buffer.length) {
+				flushBuffer();
+			}
+			int length = Math.min(bytes.length - i, buffer.length - position);
+			System.arraycopy(bytes, i, buffer, position, length);
+			i += length;
+			position += length;
+		}
+		return this;
+	}
+
+	private void flushBuffer() throws IOException {
+		if(position > 0) {
+			output.write(buffer, 0, position);
+			position = 0;
+		}
+	}
+
+	// ------------------------------------------------------------------------------------------
+	// Shortest decimal of a double (Schubfach); see R. Giulietti, "The Schubfach way to render
+	// doubles", 2020. The comments refer to the notation of this paper
+
+	/** Precision of doubles in bits */
+	private static final int P = 53;
+
+	/** Minimal exponent q of c 2^q */
+	private static final int Q_MIN = -1074;
+
+	/** Minimal and maximal exponent k of 10^k which are required */
+	private static final int K_MIN = -324;
+	private static final int K_MAX = 292;
+
+	/** Minimal significand c of normal doubles */
+	private static final long C_MIN = 1L << (P - 1);
+
+	/** Subnormal significands below this value are multiplied by 10 to get at least two digits */
+	private static final int C_TINY = 3;
+
+	private static final long MASK_63 = (1L << 63) - 1;
+
+	/** g = g1 2^63 + g0 is the 126 bit approximation of 10^-k for k = K_MIN...K_MAX */
+	private static final long[] G = createG();
+
+	private static long[] createG() {
+		long[] g = new long[2 * (K_MAX - K_MIN + 1)];
+		BigInteger mask = BigInteger.ONE.shiftLeft(63).subtract(BigInteger.ONE);
+		for(int k=K_MIN;k<=K_MAX;k++) {
+
+			// 10^-k = beta 2^r with 2^125 <= beta < 2^126 and g = floor(beta) + 1
+			int r = flog2pow10(-k) - 125;
+			BigInteger beta;
+			if(k <= 0) {
+				beta = BigInteger.TEN.pow(-k);
+				beta = r >= 0 ? beta.shiftRight(r) : beta.shiftLeft(-r);
+			} else {
+				beta = BigInteger.ONE.shiftLeft(-r).divide(BigInteger.TEN.pow(k));
+			}
+			beta = beta.add(BigInteger.ONE);
+			g[2 * (k - K_MIN)] = beta.shiftRight(63).longValue();
+			g[2 * (k - K_MIN) + 1] = beta.and(mask).longValue();
+		}
+		return g;
+	}
+
+	/**
+	 * Formats the value into the buffer
+	 * @return Position after the value
+	 */
+	private static int format(double value, byte[] buffer, int position, byte[] digits) {
+		long bits = Double.doubleToRawLongBits(value);
+		long t = bits & (C_MIN - 1);
+		int bq = (int)(bits >>> (P - 1)) & 0x7ff;
+		if(bq == 0x7ff) {
+			return writeAscii(t != 0 ? "NaN" : bits > 0 ? "Infinity" : "-Infinity", buffer, position);
+		}
+		if(bits < 0) {
+			buffer[position++] = '-';
+		}
+		if(bq != 0) {
+
+			// Normal value: c 2^q with q = -mq
+			int mq = -Q_MIN + 1 - bq;
+			long c = C_MIN | t;
+			if(0 < mq && mq < P) {
+
+				// Integer values are written directly
+				long f = c >> mq;
+				if(f << mq == c) {
+					return toChars(f, 0, buffer, position, digits);
+				}
+			}
+			return toDecimal(-mq, c, 0, buffer, position, digits);
+		}
+		if(t != 0) {
+			return t < C_TINY ? toDecimal(Q_MIN, 10 * t, -1, buffer, position, digits)
+					: toDecimal(Q_MIN, t, 0, buffer, position, digits);
+		}
+		return writeAscii("0.0", buffer, position);
+	}
+
+	/**
+	 * Calculates the shortest decimal in the rounding interval of c 2^q
+	 */
+	private static int toDecimal(int q, long c, int dk, byte[] buffer, int position, byte[] digits) {
+		int out = (int)c & 1;
+		long cb = c << 2;
+		long cbr = cb + 2;
+		long cbl;
+		int k;
+		if(c != C_MIN || q == Q_MIN) {
+			cbl = cb - 2;
+			k = flog10pow2(q);
+		} else {
+			cbl = cb - 1;
+			k = flog10threeQuartersPow2(q);
+		}
+		int h = q + flog2pow10(-k) + 2;
+
+		long g1 = G[2 * (k - K_MIN)];
+		long g0 = G[2 * (k - K_MIN) + 1];
+
+		long vb = rop(g1, g0, cb << h);
+		long vbl = rop(g1, g0, cbl << h);
+		long vbr = rop(g1, g0, cbr << h);
+
+		long s = vb >> 2;
+		if(s >= 100) {
+
+			// One digit less: s' = floor(s / 10), u' = 10 s' and w' = 10 (s' + 1)
+			long sp10 = 10 * multiplyHigh(s, 115292150460684698L << 4);
+			long tp10 = sp10 + 10;
+			boolean upin = vbl + out <= sp10 << 2;
+			boolean wpin = (tp10 << 2) + out <= vbr;
+			if(upin != wpin) {
+				return toChars(upin ? sp10 : tp10, k + dk, buffer, position, digits);
+			}
+		}
+
+		// u = s or w = s + 1; if both are in the rounding interval, the closer one is taken
+		long tt = s + 1;
+		boolean uin = vbl + out <= s << 2;
+		boolean win = (tt << 2) + out <= vbr;
+		if(uin != win) {
+			return toChars(uin ? s : tt, k + dk, buffer, position, digits);
+		}
+		long cmp = vb - ((s + tt) << 1);
+		return toChars(cmp < 0 || cmp == 0 && (s & 1) == 0 ? s : tt, k + dk, buffer, position, digits);
+	}
+
+	/**
+	 * Computes rop(cp g 2^-127) with g = g1 2^63 + g0 (round to odd)
+	 */
+	private static long rop(long g1, long g0, long cp) {
+		long x1 = multiplyHigh(g0, cp);
+		long y0 = g1 * cp;
+		long y1 = multiplyHigh(g1, cp);
+		long z = (y0 >>> 1) + x1;
+		long vbp = y1 + (z >>> 63);
+		return vbp | ((z & MASK_63) + MASK_63) >>> 63;
+	}
+
+	/**
+	 * Writes f 10^e in the layout of Double.toString()
+	 */
+	private static int toChars(long f, int e, byte[] buffer, int position, byte[] digits) {
+		while(f % 10 == 0) {
+			f /= 10;
+			e++;
+		}
+		int start = digits.length;
+		do {
+			digits[--start] = (byte)('0' + f % 10);
+			f /= 10;
+		} while(f != 0);
+		int length = digits.length - start;
+
+		// The value is 0.d1d2...dn 10^exponent
+		int exponent = e + length;
+		if(0 < exponent && exponent <= 7) {
+			if(length <= exponent) {
+				System.arraycopy(digits, start, buffer, position, length);
+				position += length;
+				for(int i=length;i<exponent;i++) {
+					buffer[position++] = '0';
+				}
+				buffer[position++] = '.';
+				buffer[position++] = '0';
+			} else {
+				System.arraycopy(digits, start, buffer, position, exponent);
+				position += exponent;
+				buffer[position++] = '.';
+				System.arraycopy(digits, start + exponent, buffer, position, length - exponent);
+				position += length - exponent;
+			}
+		} else if(-3 < exponent && exponent <= 0) {
+			buffer[position++] = '0';
+			buffer[position++] = '.';
+			for(int i=exponent;i<0;i++) {
+				buffer[position++] = '0';
+			}
+			System.arraycopy(digits, start, buffer, position, length);
+			position += length;
+		} else {
+			buffer[position++] = digits[start];
+			buffer[position++] = '.';
+			if(length > 1) {
+				System.arraycopy(digits, start + 1, buffer, position, length - 1);
+				position += length - 1;
+			} else {
+				buffer[position++] = '0';
+			}
+			buffer[position++] = 'E';
+			int scientificExponent = exponent - 1;
+			if(scientificExponent < 0) {
+				buffer[position++] = '-';
+				scientificExponent = -scientificExponent;
+			}
+			if(scientificExponent >= 100) {
+				buffer[position++] = (byte)('0' + scientificExponent / 100);
+			}
+			if(scientificExponent >= 10) {
+				buffer[position++] = (byte)('0' + scientificExponent / 10 % 10);
+			}
+			buffer[position++] = (byte)('0' + scientificExponent % 10);
+		}
+		return position;
+	}
+
+	private static int writeAscii(String text, byte[] buffer, int position) {
+		for(int i=0;i<text.length();i++) {
+			buffer[position++] = (byte)text.charAt(i);
+		}
+		return position;
+	}
+
+	/** floor(e log10(2)) */
+	private static int flog10pow2(int e) {
+		return (int)(e * 661971961083L >> 41);
+	}
+
+	/** floor(log10(3/4 2^e)) */
+	private static int flog10threeQuartersPow2(int e) {
+		return (int)(e * 661971961083L - 274743187321L >> 41);
+	}
+
+	/** floor(e log2(10)) */
+	private static int flog2pow10(int e) {
+		return (int)(e * 913124641741L >> 38);
+	}
+
+	/** High 64 bits of the signed 128 bit product */
+	private static long multiplyHigh(long x, long y) {
+		long x1 = x >> 32;
+		long x2 = x & 0xffffffffL;
+		long y1 = y >> 32;
+		long y2 = y & 0xffffffffL;
+		long z2 = x2 * y2;
+		long t = x1 * y2 + (z2 >>> 32);
+		long z1 = (t & 0xffffffffL) + x2 * y1;
+		long z0 = t >> 32;
+		return x1 * y1 + z0 + (z1 >> 32);
+	}
+}
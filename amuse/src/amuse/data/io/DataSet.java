@@ -75,7 +75,7 @@ public class DataSet extends DataSetAbstract implements Serializable {
 	int aCount = 0;
 	for (Attribute a : fileSet.attributes) {
 	    if (a instanceof NumericAttribute) {
-		values[aCount] = new Double[fileSet.getValueCount()];
+		values[aCount] = new double[fileSet.getValueCount()];
 	    } else if (a instanceof StringAttribute) {
 		values[aCount] = new String[fileSet.getValueCount()];
 	    } else {
@@ -89,8 +89,8 @@ public class DataSet extends DataSetAbstract implements Serializable {
 	    for (Attribute a : fileSet.attributes) {
 		if (a instanceof NumericAttribute) {
 		    NumericAttribute atr = (NumericAttribute) a;
-		    Double[] val = (Double[]) values[aCount];
-		    val[i]= (atr.getValueAt(i));
+		    double[] val = (double[]) values[aCount];
+		    val[i]= (atr.getDouble(i));
 		} else if (a instanceof StringAttribute) {
 		    StringAttribute atr = (StringAttribute) a;
 		    String[] val = (String[]) values[aCount];
@@ -109,7 +109,7 @@ public class DataSet extends DataSetAbstract implements Serializable {
 	for (Attribute a : fileSet.attributes) {
 	    Attribute newAttr;
 	    if (a instanceof NumericAttribute) {
-		newAttr = new NumericAttribute(a.getName(), (Double[])values[aCount]);
+		newAttr = new NumericAttribute(a.getName(), (double[])values[aCount]);
 	    } else if (a instanceof StringAttribute) {
 		newAttr = new StringAttribute(a.getName(), (String[])values[aCount]);
 	    } else {
@@ -4,7 +4,10 @@ import java.io.File;
 import java.io.IOException;
 import java.io.Serializable;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Vector;
 
 import amuse.data.io.attributes.Attribute;
@@ -21,7 +24,7 @@ public abstract class DataSetAbstract implements Serializable {
 	protected String name = "";
 
 	/** This List stores all attributes of this DataSet */
-	protected final List<Attribute> attributes = new Vector<Attribute>();
+	protected final List<Attribute> attributes = new AttributeList();
 
 	/**
 	 * This method returns this DataSets name.
@@ -39,21 +42,56 @@ public abstract class DataSetAbstract implements Serializable {
 	 */
 	public abstract int getValueCount();
 
+	/**
+	 * Returns the names of all attributes in their order. The list is cached
+	 * until the attributes change and can not be modified.
+	 * 
+	 * @return Unmodifiable list with the attribute names.
+	 */
 	public final List<String> getAttributeNames() {
-		List<String> names = new ArrayList<String>();
-		for (Attribute at : attributes) {
-			names.add(at.getName());
+		return ((AttributeList) attributes).getNames();
+	}
+
+	/**
+	 * Returns the position of the first attribute with the given name.
+	 * Attribute names are case-sensitive.
+	 * 
+	 * @param name
+	 *            The name of the attribute.
+	 * @return The index of the attribute or -1 if there is no such attribute.
+	 */
+	public final int getAttributeIndex(String name) {
+		return ((AttributeList) attributes).indexOfName(name);
+	}
+
+	/**
+	 * Returns the position of the given attribute in this DataSet.
+	 * 
+	 * @param attribute
+	 *            The attribute to look up.
+	 * @return The index of the attribute or -1 if it is not part of this
+	 *         DataSet.
+	 */
+	public final int getAttributeIndex(Attribute attribute) {
+		int index = getAttributeIndex(attribute.getName());
+		if (index == -1 || attributes.get(index) == attribute) {
+			return index;
+		}
+		// Another attribute with the same name comes first:
+		for (int i = index + 1; i < attributes.size(); i++) {
+			if (attributes.get(i) == attribute) {
+				return i;
+			}
 		}
-		return names;
+		return -1;
 	}
 
 	public final Attribute getAttribute(String name) throws DataSetException {
-		for (Attribute at : attributes) {
-			if (at.getName().equals(name)) {
-				return at;
-			}
+		int index = getAttributeIndex(name);
+		if (index == -1) {
+			throw new DataSetException("No such Attribute: " + name);
 		}
-		throw new DataSetException("No such Attribute: " + name);
+		return attributes.get(index);
 	}
 
 	public final Attribute getAttribute(int index) throws DataSetException {
@@ -104,24 +142,24 @@ public abstract class DataSetAbstract implements Serializable {
 	}
 
 	public void checkStringAttribute(String attributeName) {
-		if (!this.getAttributeNames().contains(attributeName)
-				|| !(this.getAttribute(attributeName) instanceof StringAttribute)) {
+		int index = getAttributeIndex(attributeName);
+		if (index == -1 || !(attributes.get(index) instanceof StringAttribute)) {
 			// System.out.println("No "+attributeName+" Attribute!");
 			throw new DataSetException("No " + attributeName + " Attribute!");
 		}
 	}
 
 	public void checkNumericAttribute(String attributeName) {
-		if (!this.getAttributeNames().contains(attributeName)
-				|| !(this.getAttribute(attributeName) instanceof NumericAttribute)) {
+		int index = getAttributeIndex(attributeName);
+		if (index == -1 || !(attributes.get(index) instanceof NumericAttribute)) {
 			// System.out.println("No "+attributeName+" Attribute!");
 			throw new DataSetException("No " + attributeName + " Attribute!");
 		}
 	}
 
 	public void checkNominalAttribute(String attributeName) {
-		if (!this.getAttributeNames().contains(attributeName)
-				|| !(this.getAttribute(attributeName) instanceof NominalAttribute)) {
+		int index = getAttributeIndex(attributeName);
+		if (index == -1 || !(attributes.get(index) instanceof NominalAttribute)) {
 			// System.out.println("No "+attributeName+" Attribute!");
 			throw new DataSetException("No " + attributeName + " Attribute!");
 		}
@@ -132,4 +170,68 @@ public abstract class DataSetAbstract implements Serializable {
 	}
 
 	public abstract void saveToArffFile(File file) throws IOException;
+
+	/**
+	 * Attribute list that maintains an index from attribute names to their
+	 * positions. Appending attributes updates the index, any other
+	 * modification of the list causes a rebuild on the next lookup.
+	 */
+	private static final class AttributeList extends Vector<Attribute> {
+
+		private static final long serialVersionUID = 6394217384651036312L;
+
+		/** Position of the first attribute with a given name */
+		private transient Map<String, Integer> nameIndex;
+		private transient List<String> names;
+		/** modCount at the time the index was last up to date */
+		private transient int indexedModCount;
+
+		@Override
+		public synchronized boolean add(Attribute attribute) {
+			boolean indexUpToDate = nameIndex != null && indexedModCount == modCount;
+			super.add(attribute);
+			names = null;
+			if (indexUpToDate) {
+				if (!nameIndex.containsKey(attribute.getName())) {
+					nameIndex.put(attribute.getName(), size() - 1);
+				}
+				indexedModCount = modCount;
+			}
+			return true;
+		}
+
+		@Override
+		public synchronized Attribute set(int index, Attribute attribute) {
+			Attribute previous = super.set(index, attribute);
+			// Vector does not count replacements as modification
+			modCount++;
+			return previous;
+		}
+
+		synchronized int indexOfName(String name) {
+			if (nameIndex == null || indexedModCount != modCount) {
+				nameIndex = new HashMap<String, Integer>(size() * 2);
+				for (int i = size() - 1; i >= 0; i--) {
+					nameIndex.put(get(i).getName(), i);
+				}
+				names = null;
+				indexedModCount = modCount;
+			}
+			Integer index = nameIndex.get(name);
+			return index == null ? -1 : index;
+		}
+
+		synchronized List<String> getNames() {
+			if (names == null || indexedModCount != modCount) {
+				// Also brings the name index up to date
+				indexOfName(null);
+				List<String> newNames = new ArrayList<String>(size());
+				for (Attribute attribute : this) {
+					newNames.add(attribute.getName());
+				}
+				names = Collections.unmodifiableList(newNames);
+			}
+			return names;
+		}
+	}
 }
\ No newline at end of file
@@ -24,8 +24,6 @@
 package amuse.data.io.attributes;
 
 import java.io.Serializable;
-import java.util.ArrayList;
-import java.util.List;
 
 import amuse.data.io.ArffDataSet;
 
@@ -47,10 +45,6 @@ public abstract class Attribute implements AttributeInterface, Serializable {
      */
     protected final String name;
     private ArffDataSet arffDataSet;
-    /**
-     * The list that stores any kind of values.
-     */
-    protected final List valueList = new ArrayList<Object>();
     /**
      * The Attribute String as used in ARFF.
      */
@@ -67,13 +61,12 @@ public abstract class Attribute implements AttributeInterface, Serializable {
     }
 
     /**
-     * Creates a new Attribute with initial values.
+     * Creates a new Attribute which stores its values in memory. Subclasses
+     * hold the values in their own primitive columns.
      * @param name Name of the new Attributes.
-     * @param list List of initial values.
      */
-    protected Attribute(String name, List list) {
+    protected Attribute(String name) {
         this.name = name;
-        this.valueList.addAll(list);
     }
 
     @SuppressWarnings("unused")
@@ -81,15 +74,6 @@ public abstract class Attribute implements AttributeInterface, Serializable {
         this.name = null;
     }
 
-    @Override
-    public Object getValueAt(int index) {
-        if (getDataSet() == null) {
-            return valueList.get(index).toString();
-        } else {
-            return getDataSet().getValueFor(index, this);
-        }
-    }
-
     @Override
     public final String getName() {
         return name;
@@ -111,7 +95,7 @@ public abstract class Attribute implements AttributeInterface, Serializable {
         if (arffDataSet != null) {
             return arffDataSet.getValueCount();
         } else {
-            return valueList.size();
+            return getStoredValueCount();
         }
     }
     
@@ -120,7 +104,7 @@ public abstract class Attribute implements AttributeInterface, Serializable {
     	if (arffDataSet != null) {
             arffDataSet.setValueAt(index, this,value); 
         } else {
-            valueList.set(index, value);
+            setStoredValueAt(index, value);
         }
     }
     
@@ -129,8 +113,26 @@ public abstract class Attribute implements AttributeInterface, Serializable {
     	if (arffDataSet != null) {
             arffDataSet.addValue(this,value);
         } else {
-            valueList.add(value);
+            addStoredValue(value);
         }
     }
+
+    /**
+     * @return The count of values held in memory by this Attribute.
+     */
+    protected abstract int getStoredValueCount();
+
+    /**
+     * Replaces a value held in memory by this Attribute.
+     * @param index The index of the value.
+     * @param value The new value.
+     */
+    protected abstract void setStoredValueAt(int index, Object value);
+
+    /**
+     * Appends a value to the values held in memory by this Attribute.
+     * @param value The new value.
+     */
+    protected abstract void addStoredValue(Object value);
 }
 
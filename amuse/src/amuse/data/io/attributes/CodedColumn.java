@@ -0,0 +1,113 @@
+/**
+ * This file is part of AMUSE framework (Advanced MUsic Explorer).
+ *
+ * Copyright 2006-2010 by code authors
+ *
+ * Created at TU Dortmund, Chair of Algorithm Engineering
+ * (Contact: <http://ls11-www.cs.tu-dortmund.de>)
+ *
+ * AMUSE is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * AMUSE is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with AMUSE. If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Creation date: 17.10.2026
+ */
+package amuse.data.io.attributes;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Growable column of String values used as storage of String and
+ * NominalAttributes. Each distinct String is stored only once in a dictionary,
+ * the column itself holds the dictionary codes as primitive ints.
+ * 
+ * @version $Id$
+ */
+final class CodedColumn implements Serializable {
+
+	private static final long serialVersionUID = -2430711606618893473L;
+
+	/** Code used for <code>null</code> values */
+	private static final int nullCode = -1;
+
+	private static final int defaultCapacity = 16;
+
+	private final List<String> dictionary = new ArrayList<String>();
+	private final Map<String, Integer> codes = new HashMap<String, Integer>();
+	private int[] values;
+	private int size = 0;
+
+	CodedColumn() {
+		this(defaultCapacity);
+	}
+
+	CodedColumn(int initialCapacity) {
+		values = new int[Math.max(initialCapacity, 1)];
+	}
+
+	int size() {
+		return size;
+	}
+
+	String get(int index) {
+		int code = getCode(index);
+		return code == nullCode ? null : dictionary.get(code);
+	}
+
+	int getCode(int index) {
+		checkIndex(index);
+		return values[index];
+	}
+
+	void set(int index, String value) {
+		checkIndex(index);
+		values[index] = intern(value);
+	}
+
+	void add(String value) {
+		if (size == values.length) {
+			values = Arrays.copyOf(values, values.length + (values.length >> 1) + 1);
+		}
+		values[size++] = intern(value);
+	}
+
+	/**
+	 * @return The count of distinct Strings stored in this column.
+	 */
+	int getDictionarySize() {
+		return dictionary.size();
+	}
+
+	private int intern(String value) {
+		if (value == null) {
+			return nullCode;
+		}
+		Integer code = codes.get(value);
+		if (code == null) {
+			code = dictionary.size();
+			dictionary.add(value);
+			codes.put(value, code);
+		}
+		return code;
+	}
+
+	private void checkIndex(int index) {
+		if (index < 0 || index >= size) {
+			throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+		}
+	}
+}
@@ -0,0 +1,113 @@
+/**
+ * This file is part of AMUSE framework (Advanced MUsic Explorer).
+ *
+ * Copyright 2006-2010 by code authors
+ *
+ * Created at TU Dortmund, Chair of Algorithm Engineering
+ * (Contact: <http://ls11-www.cs.tu-dortmund.de>)
+ *
+ * AMUSE is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * AMUSE is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with AMUSE. If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Creation date: 17.10.2026
+ */
+package amuse.data.io.attributes;
+
+import java.io.Serializable;
+import java.util.Arrays;
+
+/**
+ * Growable column of primitive double values used as storage of
+ * NumericAttributes, so that values are neither boxed nor held in a List. The
+ * values are kept in chunks of fixed size, so growing a large column never
+ * copies the values added before.
+ * 
+ * @version $Id$
+ */
+final class DoubleColumn implements Serializable {
+
+	private static final long serialVersionUID = 4817313212052930544L;
+
+	/** Each chunk holds 2^chunkBits values */
+	private static final int chunkBits = 13;
+	private static final int chunkSize = 1 << chunkBits;
+	private static final int chunkMask = chunkSize - 1;
+
+	/** All chunks are full except for the last one; only the first chunk may be smaller than chunkSize */
+	private double[][] chunks;
+	private int size = 0;
+
+	DoubleColumn() {
+		this(16);
+	}
+
+	DoubleColumn(int initialCapacity) {
+		chunks = new double[Math.max(1, (initialCapacity + chunkMask) >>> chunkBits)][];
+		chunks[0] = new double[Math.min(Math.max(initialCapacity, 1), chunkSize)];
+	}
+
+	int size() {
+		return size;
+	}
+
+	double get(int index) {
+		checkIndex(index);
+		return chunks[index >>> chunkBits][index & chunkMask];
+	}
+
+	void set(int index, double value) {
+		checkIndex(index);
+		chunks[index >>> chunkBits][index & chunkMask] = value;
+	}
+
+	void add(double value) {
+		int chunk = size >>> chunkBits;
+		int offset = size & chunkMask;
+		if (chunk == 0) {
+			if (offset == chunks[0].length) {
+				chunks[0] = Arrays.copyOf(chunks[0], Math.min(chunkSize, offset * 2));
+			}
+		} else if (offset == 0) {
+			if (chunk == chunks.length) {
+				chunks = Arrays.copyOf(chunks, chunks.length * 2);
+			}
+			if (chunks[chunk] == null) {
+				chunks[chunk] = new double[chunkSize];
+			}
+		}
+		chunks[chunk][offset] = value;
+		size++;
+	}
+
+	void addAll(double[] newValues) {
+		for (double value : newValues) {
+			add(value);
+		}
+	}
+
+	double[] toArray() {
+		double[] array = new double[size];
+		for (int copied = 0, chunk = 0; copied < size; chunk++) {
+			int length = Math.min(chunks[chunk].length, size - copied);
+			System.arraycopy(chunks[chunk], 0, array, copied, length);
+			copied += length;
+		}
+		return array;
+	}
+
+	private void checkIndex(int index) {
+		if (index < 0 || index >= size) {
+			throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+		}
+	}
+}
@@ -71,6 +71,11 @@ public class NominalAttribute extends Attribute {
 
 	private List<String> nominalValues = new ArrayList<String>();
 
+	/**
+	 * The values of this Attribute if it is not loaded from file.
+	 */
+	private final CodedColumn column;
+
 	/**
 	 * Creates a new NominalAttribute, with given values.
 	 * 
@@ -80,7 +85,11 @@ public class NominalAttribute extends Attribute {
 	 *            List of nominal values.
 	 */
 	public NominalAttribute(String name, List<String> values) {
-		super(name, values);
+		super(name);
+		column = new CodedColumn(values.size());
+		for (Object value : values) {
+			addStoredValue(value);
+		}
 		generateNominalValues(values);
 	}
 
@@ -97,7 +106,11 @@ public class NominalAttribute extends Attribute {
 	 */
 	public NominalAttribute(String name, List<String> allowedValues,
 			List<String> values) {
-		super(name, values);
+		super(name);
+		column = new CodedColumn(values.size());
+		for (Object value : values) {
+			addStoredValue(value);
+		}
 		nominalValues.addAll(allowedValues);
 		validateValues(values);
 	}
@@ -116,6 +129,7 @@ public class NominalAttribute extends Attribute {
 	public NominalAttribute(String name, List<String> allowedValues,
 			ArffDataSet dataSet) {
 		super(name, dataSet);
+		column = null;
 		nominalValues.addAll(allowedValues);
 	}
 
@@ -152,7 +166,7 @@ public class NominalAttribute extends Attribute {
 	@Override
 	public String getValueAt(int index) {
 		if (super.getDataSet() == null) {
-			return (valueList.get(index).toString());
+			return column.get(index);
 		} else {
 			int val = (int) getDataSet().getValueFor(index, this);
 			return nominalValues.get(val);
@@ -167,15 +181,27 @@ public class NominalAttribute extends Attribute {
 	 *         stored in this Attribute.
 	 */
 	public List<String> getValues() {
-		if (getDataSet() == null) {
-			return new ArrayList<String>(valueList);
-		} else {
-			ArrayList<String> values = new ArrayList<String>();
-			for (int i = 0; i < getValueCount(); i++) {
-				values.add(getValueAt(i));
-			}
-			return values;
+		int valueCount = getValueCount();
+		ArrayList<String> values = new ArrayList<String>(valueCount);
+		for (int i = 0; i < valueCount; i++) {
+			values.add(getValueAt(i));
 		}
+		return values;
+	}
+
+	@Override
+	protected int getStoredValueCount() {
+		return column.size();
+	}
+
+	@Override
+	protected void setStoredValueAt(int index, Object value) {
+		column.set(index, value == null ? null : value.toString());
+	}
+
+	@Override
+	protected void addStoredValue(Object value) {
+		column.add(value == null ? null : value.toString());
 	}
 
 	@Override
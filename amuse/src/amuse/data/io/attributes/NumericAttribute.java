@@ -43,6 +43,11 @@ public class NumericAttribute extends Attribute {
 	 */
 	public static final String typeStr = "NUMERIC";
 
+	/**
+	 * The values of this Attribute if it is not loaded from file.
+	 */
+	private final DoubleColumn column;
+
 	/**
 	 * Creates a new NumericAttribute with given name and initial values.
 	 * 
@@ -52,31 +57,49 @@ public class NumericAttribute extends Attribute {
 	 *            Initial values of this Attribute.
 	 */
 	public NumericAttribute(String name, List<Double> values) {
-		super(name, values);
+		super(name);
+		column = new DoubleColumn(values.size());
+		for (Object value : values) {
+			column.add(toDouble(value));
+		}
+	}
+
+	/**
+	 * Creates a new NumericAttribute with given name and initial values.
+	 * 
+	 * @param name
+	 *            Name of this new Attribute.
+	 * @param values
+	 *            Initial values of this Attribute; the array is copied.
+	 */
+	public NumericAttribute(String name, double[] values) {
+		super(name);
+		column = new DoubleColumn(values.length);
+		column.addAll(values);
 	}
 
 	public static NumericAttribute createFromIntList(String name,
 			List<Integer> values) {
-		List<Double> list = new ArrayList<Double>();
-		for (int i : values) {
-			list.add(new Double(i));
+		double[] array = new double[values.size()];
+		int i = 0;
+		for (int value : values) {
+			array[i++] = value;
 		}
-		return new NumericAttribute(name, list);
+		return new NumericAttribute(name, array);
 	}
 
 	public static NumericAttribute createFromDouble(String name, double value) {
-		List<Double> list = new ArrayList<Double>();
-		list.add(value);
-		return new NumericAttribute(name, list);
+		return new NumericAttribute(name, new double[] { value });
 	}
 
 	public NumericAttribute(String name, ArffDataSet accordingSet) {
 		super(name, accordingSet);
+		column = null;
 	}
 
 	/* Only copies containing data. */
 	public NumericAttribute(NumericAttribute a) {
-		this(a.name, a.getValues());
+		this(a.name, a.toArray());
 	}
 
     public NumericAttribute(String name, Double[] aDouble) {
@@ -91,17 +114,77 @@ public class NumericAttribute extends Attribute {
 	 *         this Attribute.
 	 */
 	public List<Double> getValues() {
+		int valueCount = getValueCount();
+		ArrayList<Double> values = new ArrayList<Double>(valueCount);
+		for (int i = 0; i < valueCount; i++) {
+			values.add(getDouble(i));
+		}
+		return values;
+	}
+
+	/**
+	 * Returns a copy of all values stored in this Attribute as primitive
+	 * array.
+	 * 
+	 * @return Array with all values of this Attribute.
+	 */
+	public double[] toArray() {
 		if (getDataSet() == null) {
-			return new ArrayList<Double>(valueList);
+			return column.toArray();
 		} else {
-			ArrayList<Double> values = new ArrayList<Double>();
-			for (int i = 0; i < getValueCount(); i++) {
-				values.add(getValueAt(i));
+			double[] values = new double[getValueCount()];
+			for (int i = 0; i < values.length; i++) {
+				values[i] = getDouble(i);
 			}
 			return values;
 		}
 	}
 
+	/**
+	 * Returns the value at the given index without boxing it.
+	 * 
+	 * @param index
+	 *            The index of the value.
+	 * @return The value at the given index.
+	 */
+	public double getDouble(int index) {
+		if (getDataSet() == null) {
+			return column.get(index);
+		} else {
+			return getDataSet().getValueFor(index, this);
+		}
+	}
+
+	/**
+	 * Appends a value without boxing it.
+	 * 
+	 * @param value
+	 *            The value to add.
+	 */
+	public void addDouble(double value) {
+		if (getDataSet() == null) {
+			column.add(value);
+		} else {
+			addValue(value);
+		}
+	}
+
+	/**
+	 * Replaces the value at the given index without boxing it.
+	 * 
+	 * @param index
+	 *            The index of the value.
+	 * @param value
+	 *            The new value.
+	 */
+	public void setDouble(int index, double value) {
+		if (getDataSet() == null) {
+			column.set(index, value);
+		} else {
+			setValueAt(index, value);
+		}
+	}
+
 	@Override
 	public String getHeaderStr() {
 		return attributeStr + " '" + name + "' " + typeStr;
@@ -113,19 +196,44 @@ public class NumericAttribute extends Attribute {
 	}
 
 	public String getValueStrAt(int index) {
-		if (getValueAt(index) - Math.floor(getValueAt(index)) == 0) {
-			return getValueAt(index).intValue() + "";
+		double value = getDouble(index);
+		if (value - Math.floor(value) == 0) {
+			return Integer.toString((int) value);
 		}
-		return getValues().get(index).toString();
+		return Double.toString(value);
 	}
 
 	@Override
 	public Double getValueAt(int index) {
-		if (getDataSet() == null) {
-			return (Double) valueList.get(index);
-		} else {
-			return parse(super.getValueAt(index).toString());
+		return getDouble(index);
+	}
+
+	@Override
+	protected int getStoredValueCount() {
+		return column.size();
+	}
+
+	@Override
+	protected void setStoredValueAt(int index, Object value) {
+		column.set(index, toDouble(value));
+	}
+
+	@Override
+	protected void addStoredValue(Object value) {
+		column.add(toDouble(value));
+	}
+
+	/**
+	 * Converts a value given as Object to double; <code>null</code> is stored
+	 * as missing value.
+	 */
+	private static double toDouble(Object value) {
+		if (value == null) {
+			return missingValue();
+		} else if (value instanceof Number) {
+			return ((Number) value).doubleValue();
 		}
+		return parse(value.toString());
 	}
 
 	static Double parse(String str) throws NumberFormatException {
@@ -64,13 +64,22 @@ public class StringAttribute extends Attribute {
 
 	private List<String> stringValues = new ArrayList<String>();
 
+	/**
+	 * The values of this Attribute if it is not loaded from file.
+	 */
+	private final CodedColumn column;
+
 	/**
 	 * 
 	 * @param name
 	 * @param values
 	 */
 	public StringAttribute(String name, List<String> values) {
-		super(name, values);
+		super(name);
+		column = new CodedColumn(values.size());
+		for (Object value : values) {
+			addStoredValue(value);
+		}
 	}
 
 	public static StringAttribute createFromString(String name, String value) {
@@ -90,6 +99,7 @@ public class StringAttribute extends Attribute {
 	 */
 	public StringAttribute(String name, ArffDataSet dataSet) {
 		super(name, dataSet);
+		column = null;
 	}
 
 	public StringAttribute(StringAttribute a) {
@@ -105,15 +115,12 @@ public class StringAttribute extends Attribute {
 	 * @return
 	 */
 	public List<String> getValues() {
-		if (getDataSet() == null) {
-			return new ArrayList<String>(valueList);
-		} else {
-			ArrayList<String> values = new ArrayList<String>();
-			for (int i = 0; i < getValueCount(); i++) {
-				values.add(getValueAt(i));
-			}
-			return values;
+		int valueCount = getValueCount();
+		ArrayList<String> values = new ArrayList<String>(valueCount);
+		for (int i = 0; i < valueCount; i++) {
+			values.add(getValueAt(i));
 		}
+		return values;
 	}
 	
 	@Override
@@ -145,7 +152,7 @@ public class StringAttribute extends Attribute {
 	@Override
 	public String getValueAt(int index) {
 		if (getDataSet() == null) {
-			return (String) valueList.get(index);
+			return column.get(index);
 		} else {
 			return stringValues
 					.get((int) getDataSet().getValueFor(index, this));
@@ -157,10 +164,25 @@ public class StringAttribute extends Attribute {
     	if (getDataSet() != null) {
     		stringValues.set((int) getDataSet().getValueFor(index, this), (String) value);
         } else {
-            valueList.set(index, value);
+            setStoredValueAt(index, value);
         }
     }
 
+	@Override
+	protected int getStoredValueCount() {
+		return column.size();
+	}
+
+	@Override
+	protected void setStoredValueAt(int index, Object value) {
+		column.set(index, value == null ? null : value.toString());
+	}
+
+	@Override
+	protected void addStoredValue(Object value) {
+		column.add(value == null ? null : value.toString());
+	}
+
 	static String parse(String str) {
 		if (str.startsWith("\"")) {
 			if (!str.endsWith("\"")) {
@@ -27,6 +27,17 @@ import java.io.File;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.apache.log4j.Level;
 
@@ -35,6 +46,7 @@ import amuse.interfaces.nodes.NodeEventListener;
 import amuse.interfaces.nodes.NodeEventSource;
 import amuse.interfaces.nodes.NodeScheduler;
 import amuse.preferences.AmusePreferences;
+import amuse.preferences.KeysIntValue;
 import amuse.preferences.KeysStringValue;
 import amuse.scheduler.taskstarters.ClassificationStarter;
 import amuse.scheduler.taskstarters.ClassificationTrainingStarter;
@@ -67,8 +79,17 @@ public abstract class AmuseTaskStarter implements AmuseTaskStarterInterface, Nod
     protected List<StringBuilder> errorDescriptionsList;
     
     /** If the tasks should be started locally as threads, currently working node schedulers are
-     * kept in this list */
-    protected ArrayList<NodeEventSource> nodeSchedulers = null;
+     * kept in this set */
+    protected Set<NodeEventSource> nodeSchedulers = null;
+    
+    /** Threads which run the node schedulers of all task starters */
+    private static ThreadPoolExecutor nodeSchedulerExecutor = null;
+    
+    /** Notifies this task starter about node schedulers which have finished */
+    private CompletionService<NodeScheduler> completedNodeSchedulers = null;
+    
+    /** Number of node schedulers started by this task starter which have not been taken from completedNodeSchedulers yet */
+    private int numberOfStartedNodeSchedulers = 0;
     
     /** If true, node scheduler will be started directly as thread; if false, it will be started
      * via command line script (e.g. processing the task to grid) */
@@ -79,7 +100,7 @@ public abstract class AmuseTaskStarter implements AmuseTaskStarterInterface, Nod
      */
     public AmuseTaskStarter(String nodeFolder, long jobCounter, boolean startNodeDirectly) throws SchedulerException {
     	this.errorDescriptionsList = Collections.synchronizedList(new ArrayList<StringBuilder>());
-        this.nodeSchedulers = new ArrayList<NodeEventSource>();
+        this.nodeSchedulers = Collections.newSetFromMap(new ConcurrentHashMap<NodeEventSource,Boolean>());
         this.nodeFolder = new String(nodeFolder);
         this.jobCounter = jobCounter;
         this.startNodeDirectly = startNodeDirectly;
@@ -154,6 +175,109 @@ public abstract class AmuseTaskStarter implements AmuseTaskStarterInterface, Nod
         //System.out.println("Current Number of Threads: " + this.processorNodeSchedulers.size());
     }
 
+    /**
+     * Returns the executor for node schedulers which are started directly; its size is adapted to the
+     * current maximum number of task threads
+     * @return Executor shared by all task starters
+     */
+    private static synchronized ThreadPoolExecutor getNodeSchedulerExecutor() {
+    	int maxNumberOfTaskThreads = Math.max(1, AmusePreferences.getInt(KeysIntValue.MAX_NUMBER_OF_TASK_THREADS));
+    	if(nodeSchedulerExecutor == null) {
+    		nodeSchedulerExecutor = new ThreadPoolExecutor(maxNumberOfTaskThreads, maxNumberOfTaskThreads, 60, TimeUnit.SECONDS, 
+    				new LinkedBlockingQueue<Runnable>(), new ThreadFactory() {
+    			private final AtomicInteger threadNumber = new AtomicInteger(1);
+    			public Thread newThread(Runnable r) {
+    				Thread thread = new Thread(r, "AmuseNodeScheduler-" + threadNumber.getAndIncrement());
+    				thread.setDaemon(true);
+    				return thread;
+    			}
+    		});
+    		nodeSchedulerExecutor.allowCoreThreadTimeOut(true);
+    	} else if(nodeSchedulerExecutor.getMaximumPoolSize() < maxNumberOfTaskThreads) {
+    		nodeSchedulerExecutor.setMaximumPoolSize(maxNumberOfTaskThreads);
+    		nodeSchedulerExecutor.setCorePoolSize(maxNumberOfTaskThreads);
+    	} else if(nodeSchedulerExecutor.getMaximumPoolSize() > maxNumberOfTaskThreads) {
+    		nodeSchedulerExecutor.setCorePoolSize(maxNumberOfTaskThreads);
+    		nodeSchedulerExecutor.setMaximumPoolSize(maxNumberOfTaskThreads);
+    	}
+    	return nodeSchedulerExecutor;
+    }
+    
+    /**
+     * Starts the given node scheduler as soon as less than the maximum number of task threads are running
+     * for this task starter. Afterwards the node scheduler is monitored until waitForNodeSchedulers() is called
+     * @param scheduler Node scheduler with already set thread parameters
+     * @throws SchedulerException If this task starter was interrupted while waiting
+     */
+    protected void startNodeScheduler(final NodeScheduler scheduler) throws SchedulerException {
+    	ThreadPoolExecutor executor = getNodeSchedulerExecutor();
+    	if(completedNodeSchedulers == null) {
+    		completedNodeSchedulers = new ExecutorCompletionService<NodeScheduler>(executor);
+    	}
+    	while(numberOfStartedNodeSchedulers >= executor.getMaximumPoolSize()) {
+    		takeCompletedNodeScheduler();
+    	}
+    	this.connectSchedulerToErrorDescriptionList(scheduler);
+    	nodeSchedulers.add(scheduler);
+    	scheduler.addListener(this);
+    	completedNodeSchedulers.submit(new Callable<NodeScheduler>() {
+    		public NodeScheduler call() {
+    			try {
+    				scheduler.run();
+    			} catch(RuntimeException e) {
+    				reportFailedNodeScheduler(scheduler, e);
+    			} catch(Error e) {
+    				reportFailedNodeScheduler(scheduler, e);
+    			} finally {
+    				nodeSchedulers.remove(scheduler);
+    			}
+    			return scheduler;
+    		}
+    	});
+    	numberOfStartedNodeSchedulers++;
+    }
+    
+    /**
+     * Waits until all node schedulers started by startNodeScheduler() are ready
+     * @throws SchedulerException If this task starter was interrupted while waiting
+     */
+    protected void waitForNodeSchedulers() throws SchedulerException {
+    	while(numberOfStartedNodeSchedulers > 0) {
+    		takeCompletedNodeScheduler();
+    	}
+    }
+    
+    /**
+     * Waits until the next node scheduler is ready
+     */
+    private void takeCompletedNodeScheduler() throws SchedulerException {
+    	try {
+    		completedNodeSchedulers.take().get();
+    	} catch (InterruptedException e) {
+    		throw new SchedulerException(this.getClass().getName() + " was interrupted: " + e.getMessage());
+    	} catch (ExecutionException e) {
+    		
+    		// Can not occur since all exceptions are caught by the submitted task
+    		AmuseLogger.write(this.getClass().getName(), Level.ERROR, "Node scheduler failed: " + e.getCause());
+    	} finally {
+    		numberOfStartedNodeSchedulers--;
+    	}
+    }
+    
+    /**
+     * Writes the description of a node scheduler which has been stopped by an unexpected exception
+     * to the error description list
+     */
+    private void reportFailedNodeScheduler(NodeScheduler scheduler, Throwable t) {
+    	AmuseLogger.write(this.getClass().getName(), Level.ERROR, "Job " + scheduler.getTaskId() + " failed: " + t);
+    	StringBuilder errorDescription = scheduler.getErrorDescriptionBuilder();
+    	synchronized(errorDescription) {
+    		if(errorDescription.length() == 0) {
+    			errorDescription.append("Job " + scheduler.getTaskId() + " (" + t + ")");
+    		}
+    	}
+    }
+
     /**
      * Removes input folder of the corresponding node (which contains intermediate results)
      * @throws Exception
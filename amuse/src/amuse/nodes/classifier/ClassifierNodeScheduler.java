@@ -23,10 +23,8 @@
  */ 
 package amuse.nodes.classifier;
 
-import java.io.DataOutputStream;
 import java.io.File;
 import java.io.FileInputStream;
-import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.ObjectInputStream;
 import java.util.ArrayList;
@@ -39,6 +37,7 @@ import weka.core.Attribute;
 import weka.core.Instance;
 import weka.core.converters.ArffLoader;
 import amuse.data.Feature;
+import amuse.data.FeatureCache;
 import amuse.data.FileTable;
 import amuse.data.InputFeatureType;
 import amuse.data.ModelType.LabelType;
@@ -47,6 +46,7 @@ import amuse.data.ModelType.RelationshipType;
 import amuse.data.annotation.ClassifiedSongPartitions;
 import amuse.data.annotation.SongPartitionsDescription;
 import amuse.data.io.ArffDataSet;
+import amuse.data.io.ArffWriter;
 import amuse.data.io.DataInputInterface;
 import amuse.data.io.DataSet;
 import amuse.data.io.DataSetAbstract;
@@ -60,6 +60,7 @@ import amuse.interfaces.nodes.NodeScheduler;
 import amuse.interfaces.nodes.TaskConfiguration;
 import amuse.interfaces.nodes.methods.AmuseTask;
 import amuse.nodes.classifier.interfaces.ClassifierInterface;
+import amuse.nodes.processor.ProcessedFeatureCache;
 import amuse.nodes.processor.ProcessingConfiguration;
 import amuse.nodes.processor.ProcessorNodeScheduler;
 import amuse.nodes.trainer.TrainingConfiguration;
@@ -357,18 +358,22 @@ public class ClassifierNodeScheduler extends NodeScheduler {
 						startAndEnd = false;
 						AmuseLogger.write(ClassifierNodeScheduler.class.getName(), Level.WARN, "Missing Start and/or End attributes.");
 					}
-					int id = (int)((double)completeInput.getAttribute("Id").getValueAt(0));
+					// Look up the attributes only once for all partitions
+					amuse.data.io.attributes.Attribute idAttribute = completeInput.getAttribute("Id");
+					amuse.data.io.attributes.Attribute startAttribute = startAndEnd ? completeInput.getAttribute("Start") : null;
+					amuse.data.io.attributes.Attribute endAttribute = startAndEnd ? completeInput.getAttribute("End") : null;
+					int id = (int)((double)idAttribute.getValueAt(0));
 					List<Double> partitionStarts = new ArrayList<Double>();
 					List<Double> partitionEnds = new ArrayList<Double>();
 					for(int i = 0; i<completeInput.getValueCount(); i++) {
-						int newId = (int)((double)completeInput.getAttribute("Id").getValueAt(i));
+						int newId = (int)((double)idAttribute.getValueAt(i));
 						
 						double start = 0;
 						double end = -1;
 						
 						if(startAndEnd) {
-							start = (double)completeInput.getAttribute("Start").getValueAt(i);
-							end = (double)completeInput.getAttribute("End").getValueAt(i);
+							start = (double)startAttribute.getValueAt(i);
+							end = (double)endAttribute.getValueAt(i);
 						}
 						
 						if(newId != id) {
@@ -666,6 +671,9 @@ public class ClassifierNodeScheduler extends NodeScheduler {
 				throw new NodeException(e.getMessage());
 			}
 			
+			FeatureCache.getInstance().logStatistics();
+			ProcessedFeatureCache.getInstance().logStatistics();
+			
 			// Replace the input to classify by the data set input loaded into memory
 			((ClassificationConfiguration)this.taskConfiguration).setInputToClassify(new DataSetInput(inputForClassification));
 		}
@@ -1027,32 +1035,30 @@ public class ClassifierNodeScheduler extends NodeScheduler {
 				classifierResultFile.createNewFile();
 			}
 			
-			FileOutputStream values_to = new FileOutputStream(classifierResultFile);
-			DataOutputStream values_writer = new DataOutputStream(values_to);
-			String sep = System.getProperty("line.separator");
-			values_writer.writeBytes("% Classifier result");
-			values_writer.writeBytes(sep);
-			values_writer.writeBytes(sep);
-			values_writer.writeBytes("@RELATION 'Classification result'");
-			values_writer.writeBytes(sep);
-			values_writer.writeBytes(sep);
-			values_writer.writeBytes("@ATTRIBUTE Id NUMERIC");
-			values_writer.writeBytes(sep);
-			values_writer.writeBytes("@ATTRIBUTE Filename STRING");
-			values_writer.writeBytes(sep);
-			values_writer.writeBytes("@ATTRIBUTE StartMs NUMERIC");
-			values_writer.writeBytes(sep);
-			values_writer.writeBytes("@ATTRIBUTE EndMs NUMERIC");
-			values_writer.writeBytes(sep);
+			ArffWriter values_writer = new ArffWriter(classifierResultFile);
+			values_writer.write("% Classifier result");
+			values_writer.newLine();
+			values_writer.newLine();
+			values_writer.write("@RELATION 'Classification result'");
+			values_writer.newLine();
+			values_writer.newLine();
+			values_writer.write("@ATTRIBUTE Id NUMERIC");
+			values_writer.newLine();
+			values_writer.write("@ATTRIBUTE Filename STRING");
+			values_writer.newLine();
+			values_writer.write("@ATTRIBUTE StartMs NUMERIC");
+			values_writer.newLine();
+			values_writer.write("@ATTRIBUTE EndMs NUMERIC");
+			values_writer.newLine();
 			for(int category = 0; category < numberOfCategories; category ++) {
-				values_writer.writeBytes("@ATTRIBUTE " + classifierResult.get(0).getLabels()[category] + " NUMERIC");
-				values_writer.writeBytes(sep);
+				values_writer.write("@ATTRIBUTE ").write(classifierResult.get(0).getLabels()[category]).write(" NUMERIC");
+				values_writer.newLine();
 			}
-			values_writer.writeBytes(sep);
-			values_writer.writeBytes(sep);
-			values_writer.writeBytes(sep);
-			values_writer.writeBytes("@DATA");
-			values_writer.writeBytes(sep);
+			values_writer.newLine();
+			values_writer.newLine();
+			values_writer.newLine();
+			values_writer.write("@DATA");
+			values_writer.newLine();
 	        
 			// If the partition classifications should be combined
 			if(((ClassificationConfiguration)taskConfiguration).getMergeSongResults().equals(new Integer("1"))) {
@@ -1062,7 +1068,7 @@ public class ClassifierNodeScheduler extends NodeScheduler {
 					String currentSongName = classifierResult.get(i).getPathToMusicSong();
 					
 					// Save the results
-					values_writer.writeBytes(descriptionOfClassifierInput.get(i).getSongId() + ",'" + currentSongName + "',-1,-1");
+					values_writer.write(descriptionOfClassifierInput.get(i).getSongId()).write(",'").write(currentSongName).write("',-1,-1");
 					
 					//go through all categories
 					for(int category=0;category<numberOfCategories;category++) {
@@ -1072,10 +1078,10 @@ public class ClassifierNodeScheduler extends NodeScheduler {
 							meanRelationship += classifierResult.get(i).getRelationships()[j][category];
 						}
 						meanRelationship /= classifierResult.get(i).getRelationships().length;
-						values_writer.writeBytes("," + meanRelationship);
+						values_writer.write(',').write(meanRelationship);
 					}
 					
-					values_writer.writeBytes(sep);
+					values_writer.newLine();
 				}
 			}
 			// If the classification results for each partition should be saved
@@ -1088,15 +1094,14 @@ public class ClassifierNodeScheduler extends NodeScheduler {
 					for(int j=0;j<classifierResult.get(i).getRelationships().length;j++) {
 						
 						// Save the results
-						values_writer.writeBytes(descriptionOfClassifierInput.get(i).getSongId() + "," + currentSongName + "," + 
-								classifierResult.get(i).getStartMs()[j] + "," + 
-								classifierResult.get(i).getEndMs()[j]);
+						values_writer.write(descriptionOfClassifierInput.get(i).getSongId()).write(',').write(currentSongName).write(',');
+						values_writer.write(classifierResult.get(i).getStartMs()[j]).write(',').write(classifierResult.get(i).getEndMs()[j]);
 						
 						for(int category=0;category<numberOfCategories;category++) {
-							values_writer.writeBytes("," + classifierResult.get(i).getRelationships()[j][category]);
+							values_writer.write(',').write(classifierResult.get(i).getRelationships()[j][category]);
 						}
 						
-						values_writer.writeBytes(sep);
+						values_writer.newLine();
 					}
 				}
 			}
@@ -0,0 +1,193 @@
+/**
+ * This file is part of AMUSE framework (Advanced MUsic Explorer).
+ *
+ * Copyright 2006-2010 by code authors
+ *
+ * Created at TU Dortmund, Chair of Algorithm Engineering
+ * (Contact: <http://ls11-www.cs.tu-dortmund.de>)
+ *
+ * AMUSE is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * AMUSE is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with AMUSE. If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Creation date: 17.10.2026
+ */
+package amuse.nodes.extractor;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.apache.log4j.Level;
+
+import amuse.data.Feature;
+import amuse.data.FeatureTable;
+import amuse.interfaces.nodes.NodeException;
+import amuse.interfaces.nodes.methods.AmuseTask;
+import amuse.nodes.extractor.interfaces.ExtractorInterface;
+import amuse.util.AmuseLogger;
+import amuse.util.FileOperations;
+
+/**
+ * Converts the base scripts of the extractor tools (which extract all features available from a tool)
+ * for a feature table. The converted scripts are saved in the folder convertedScripts/&lt;key&gt; of the
+ * tool, where the key is the SHA-256 hash of the adapter, the base script and the features to extract.
+ * A folder is created only once by renaming a completely converted temporary folder and is never changed
+ * afterwards, so that extraction jobs with different feature tables may run at the same time, also on
+ * grid machines sharing the tools folder.<br/>
+ * The folder is set as property "convertedScriptFolder" of the adapter, which reads the converted
+ * scripts from there.
+ *
+ * @version $Id$
+ */
+public class BaseScriptConverter {
+
+	/** Folder in the tool folder with the converted scripts */
+	public static final String CONVERTED_SCRIPTS_FOLDER = "convertedScripts";
+
+	/** Changed if the conversion of the adapters changes, so that older converted scripts are not used */
+	private static final int VERSION = 1;
+
+	/** Keys which are currently converted by this JVM, so that the same key is converted only once */
+	private static final ConcurrentHashMap<String,Object> conversionLocks = new ConcurrentHashMap<String,Object>();
+
+	/**
+	 * Maps the ids of the features selected for extraction to their extractor ids
+	 * @param featureTable Feature table
+	 * @return Map from feature id to extractor id
+	 */
+	public static HashMap<Integer,Integer> createFeatureToToolMap(FeatureTable featureTable) {
+		HashMap<Integer,Integer> feature2Tool = new HashMap<Integer,Integer>();
+		List<Integer> indices = featureTable.getSelectedIds();
+		for(int j=0;j<indices.size();j++) {
+			feature2Tool.put(indices.get(j), featureTable.getFeatureByID(indices.get(j)).getExtractorId());
+		}
+		return feature2Tool;
+	}
+
+	/**
+	 * Sets the folder with the converted base script for the given features as property
+	 * "convertedScriptFolder" of the adapter; the base script is converted if this has not
+	 * been done before
+	 * @param adapter Adapter configured with the properties id, extractorFolder, inputExtractorBaseBatch
+	 * and inputExtractorBatch
+	 * @param feature2Tool Maps feature ids to extractor ids
+	 * @param featureTable Feature table
+	 * @return Folder with the converted scripts
+	 * @throws NodeException
+	 */
+	public static File prepare(ExtractorInterface adapter, HashMap<Integer,Integer> feature2Tool, FeatureTable featureTable)
+			throws NodeException {
+		Properties properties = ((AmuseTask)adapter).getProperties();
+		String key = createKey(adapter, feature2Tool, featureTable);
+		File convertedScriptsFolder = new File(properties.getProperty("extractorFolder") + File.separator + CONVERTED_SCRIPTS_FOLDER);
+		File folder = new File(convertedScriptsFolder, key);
+
+		Object lock = new Object();
+		Object existingLock = conversionLocks.putIfAbsent(key, lock);
+		if(existingLock != null) {
+			lock = existingLock;
+		}
+		synchronized(lock) {
+			if(!folder.isDirectory()) {
+				convert(adapter, feature2Tool, featureTable, convertedScriptsFolder, folder);
+			}
+		}
+		properties.setProperty("convertedScriptFolder", folder.getPath());
+		return folder;
+	}
+
+	/**
+	 * Converts the base script into a temporary folder and renames it to the given folder
+	 */
+	private static void convert(ExtractorInterface adapter, HashMap<Integer,Integer> feature2Tool, FeatureTable featureTable,
+			File convertedScriptsFolder, File folder) throws NodeException {
+		Properties properties = ((AmuseTask)adapter).getProperties();
+		File temporaryFolder = null;
+		try {
+			convertedScriptsFolder.mkdirs();
+			temporaryFolder = Files.createTempDirectory(convertedScriptsFolder.toPath(), folder.getName() + "_").toFile();
+			properties.setProperty("convertedScriptFolder", temporaryFolder.getPath());
+			adapter.convertBaseScript(feature2Tool, featureTable);
+			Files.move(temporaryFolder.toPath(), folder.toPath(), StandardCopyOption.ATOMIC_MOVE);
+			AmuseLogger.write(BaseScriptConverter.class.getName(), Level.DEBUG, properties.getProperty("extractorName") +
+					" base script converted to " + folder);
+		} catch(IOException e) {
+
+			// Another process has converted the script at the same time
+			if(!folder.isDirectory()) {
+				throw new NodeException("Could not save the converted base script of " + properties.getProperty("extractorName") +
+						": " + e.getMessage());
+			}
+		} finally {
+			properties.remove("convertedScriptFolder");
+			if(temporaryFolder != null && temporaryFolder.exists()) {
+				FileOperations.delete(temporaryFolder, true);
+			}
+		}
+	}
+
+	/**
+	 * Creates the key of the converted script
+	 * @return Hexadecimal SHA-256 hash of the adapter class, the base script and the selected features
+	 * with their extractor ids, descriptions and dimensions
+	 * @throws NodeException If the base script cannot be read
+	 */
+	static String createKey(ExtractorInterface adapter, HashMap<Integer,Integer> feature2Tool, FeatureTable featureTable)
+			throws NodeException {
+		Properties properties = ((AmuseTask)adapter).getProperties();
+		StringBuilder description = new StringBuilder();
+		description.append("version=").append(VERSION).append('\n');
+		description.append("adapter=").append(adapter.getClass().getName()).append('\n');
+		description.append("id=").append(properties.getProperty("id")).append('\n');
+		description.append("inputExtractorBatch=").append(properties.getProperty("inputExtractorBatch")).append('\n');
+		List<Integer> featureIds = new ArrayList<Integer>(feature2Tool.keySet());
+		Collections.sort(featureIds);
+		for(Integer id : featureIds) {
+			Feature feature = featureTable.getFeatureByID(id);
+			description.append("feature=").append(id).append(';').append(feature2Tool.get(id));
+			if(feature != null) {
+				description.append(';').append(feature.getDescription()).append(';').append(feature.getDimension());
+			}
+			description.append('\n');
+		}
+		try {
+			MessageDigest digest = MessageDigest.getInstance("SHA-256");
+			digest.update(description.toString().getBytes(Charset.forName("UTF-8")));
+			File baseScript = new File(properties.getProperty("extractorFolder") + File.separator +
+					properties.getProperty("inputExtractorBaseBatch"));
+			digest.update(Files.readAllBytes(baseScript.toPath()));
+			byte[] hash = digest.digest();
+			StringBuilder key = new StringBuilder(2 * hash.length);
+			for(byte b : hash) {
+				key.append(Character.forDigit((b >> 4) & 0xf, 16)).append(Character.forDigit(b & 0xf, 16));
+			}
+			return key.toString();
+		} catch(IOException e) {
+			throw new NodeException("Could not read the base script of " + properties.getProperty("extractorName") +
+					": " + e.getMessage());
+		} catch(NoSuchAlgorithmException e) {
+			// Every Java platform supports SHA-256
+			throw new IllegalStateException(e);
+		}
+	}
+}
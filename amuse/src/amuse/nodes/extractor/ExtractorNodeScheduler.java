@@ -32,14 +32,21 @@ import java.io.FileReader;
 import java.io.IOException;
 import java.io.ObjectInputStream;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
-import java.util.Iterator;
+import java.util.List;
 import java.util.Properties;
-import java.util.Set;
 import java.util.StringTokenizer;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import org.apache.log4j.Level;
 
+import amuse.data.BinaryFeatureFile;
+import amuse.data.FeatureTable;
+import amuse.data.datasets.WavePartTableSet;
 import amuse.data.io.ArffDataSet;
 import amuse.data.io.DataSetAbstract;
 import amuse.data.io.attributes.Attribute;
@@ -51,6 +58,8 @@ import amuse.interfaces.nodes.methods.AmuseTask;
 import amuse.interfaces.scheduler.SchedulerException;
 import amuse.nodes.extractor.interfaces.ExtractorInterface;
 import amuse.preferences.AmusePreferences;
+import amuse.preferences.KeysBooleanValue;
+import amuse.preferences.KeysIntValue;
 import amuse.preferences.KeysStringValue;
 import amuse.scheduler.pluginmanagement.PluginLoader;
 import amuse.util.AmuseLogger;
@@ -78,17 +87,12 @@ public class ExtractorNodeScheduler extends NodeScheduler {
 	/** If the music file is splitted into several parts.. */
 	private int numberOfParts = 0;
 	
-	/** currentPartForThisExtractor[i] contains the number of a song part
-	 * which is currently extracted by extractor i */
-	private HashMap<Integer,Integer> currentPartForThisExtractor;
-	
 	/**
 	 * Constructor
 	 */
 	public ExtractorNodeScheduler(String folderForResults) throws NodeException {
 		super(folderForResults);
 		extractors = new HashMap<Integer,ExtractorInterface>();
-		currentPartForThisExtractor = new HashMap<Integer,Integer>();
 		inputFileName = new String();
 	}
 	
@@ -297,6 +301,10 @@ public class ExtractorNodeScheduler extends NodeScheduler {
 			}
 		}
 		
+		// The base scripts are converted for the features of this task, if no other task has converted them before
+		FeatureTable featureTable = ((ExtractionConfiguration)this.taskConfiguration).getFeatureTable();
+		HashMap<Integer,Integer> feature2Tool = BaseScriptConverter.createFeatureToToolMap(featureTable);
+		
 		// Load the extractors table
 		DataSetAbstract extractorTableSet;
 	    try {
@@ -310,6 +318,7 @@ public class ExtractorNodeScheduler extends NodeScheduler {
 			Attribute adapterClassAttribute = extractorTableSet.getAttribute("AdapterClass");
 			Attribute homeFolderAttribute = extractorTableSet.getAttribute("HomeFolder");
 			Attribute extractorStartScriptAttribute = extractorTableSet.getAttribute("StartScript");
+			Attribute inputExtractorBaseBatchAttribute = extractorTableSet.getAttribute("InputBaseBatch");
 			Attribute inputExtractorBatchAttribute = extractorTableSet.getAttribute("InputBatch");
 			for(int i=0;i<extractorTableSet.getValueCount();i++) {
 
@@ -330,8 +339,10 @@ public class ExtractorNodeScheduler extends NodeScheduler {
 							extractorProperties.setProperty("extractorFolder",nodeHome + File.separator + "tools" + File.separator + homeFolderAttribute.getValueAt(i));
 						}
 						extractorProperties.setProperty("extractorStartScript",extractorStartScriptAttribute.getValueAt(i).toString());
+						extractorProperties.setProperty("inputExtractorBaseBatch",inputExtractorBaseBatchAttribute.getValueAt(i).toString());
 						extractorProperties.setProperty("inputExtractorBatch",inputExtractorBatchAttribute.getValueAt(i).toString());
 						((AmuseTask)ead).configure(extractorProperties,this,null);
+						BaseScriptConverter.prepare(ead, feature2Tool, featureTable);
 						this.extractors.put(idOfCurrentExtractor,ead);
 						
 						AmuseLogger.write(this.getClass().getName(), Level.DEBUG, 
@@ -345,6 +356,9 @@ public class ExtractorNodeScheduler extends NodeScheduler {
 					} catch(InstantiationException e) {
 						AmuseLogger.write(this.getClass().getName(), Level.ERROR, 
 								"Instantiation failed for extractor class: " + adapterClassAttribute.getValueAt(i));
+					} catch(NodeException e) {
+						AmuseLogger.write(this.getClass().getName(), Level.ERROR, 
+								"Conversion of base script for " + adapterClassAttribute.getValueAt(i) + " failed: " + e.getMessage());
 					}
 				}
 			}
@@ -354,9 +368,20 @@ public class ExtractorNodeScheduler extends NodeScheduler {
 	}
 	
 	/**
-	 * Starts the extractor adapters
+	 * Starts the extractor adapters. The number of threads is set to the maximum number of task threads
 	 */
 	public void startFeatureExtractors() {
+		startFeatureExtractors(AmusePreferences.getInt(KeysIntValue.MAX_NUMBER_OF_TASK_THREADS));
+	}
+	
+	/**
+	 * Starts the extractor adapters for all parts of the music file. Each pair of extractor and part
+	 * is extracted by its own adapter with its own folder for temporary files, so that the pairs
+	 * may run at the same time. The results of an extractor are consolidated after all its parts
+	 * are extracted, one extractor after another in the order of their ids
+	 * @param numberOfThreads Number of pairs of extractor and part extracted at the same time
+	 */
+	public void startFeatureExtractors(int numberOfThreads) {
 		
 		// For a music file name without path
 	    String inputFileName = new String();
@@ -364,39 +389,110 @@ public class ExtractorNodeScheduler extends NodeScheduler {
 		if(inputFileName.lastIndexOf(File.separator) != -1) {
 			inputFileName = inputFileName.substring(inputFileName.lastIndexOf(File.separator)+1);
 		}
+		
+		List<Integer> usedExtractorIDs = new ArrayList<Integer>(this.extractors.keySet());
+		Collections.sort(usedExtractorIDs);
 	    
-	    // Start the extractor adapters
-		Set<?> usedExtractorIDs = this.extractors.keySet();
-		Iterator<?> it = usedExtractorIDs.iterator();
-		while(it.hasNext()) {
-			int i = (Integer)it.next();
-			this.currentPartForThisExtractor.put(new Integer(((AmuseTask)this.extractors.
-					get(i)).getProperties().getProperty("id")), 1);
-		    
-			// Start the feature extractors for all parts
+	    // Start the extractor adapters for all parts
+		numberOfThreads = Math.max(1, Math.min(numberOfThreads, usedExtractorIDs.size() * this.numberOfParts));
+		ExecutorService executor = Executors.newFixedThreadPool(numberOfThreads);
+		HashMap<Integer,List<Future<?>>> extractions = new HashMap<Integer,List<Future<?>>>();
+		for(Integer id : usedExtractorIDs) {
+			List<Future<?>> extractionsOfParts = new ArrayList<Future<?>>(this.numberOfParts);
 			for(int currentPart = 1; currentPart <= this.numberOfParts; currentPart++) {
-                String sep = File.separator;
-				String musicInput = new String(this.nodeHome + sep + "input" + sep + "task_" + this.jobId + sep + currentPart + sep + inputFileName);
-				String featureOutput = new String(this.nodeHome + sep + "input" + sep + "task_" + this.jobId + sep + currentPart + sep +
-						inputFileName.substring(0,inputFileName.lastIndexOf(".")) + "_" +  
-						((AmuseTask)this.extractors.get(i)).getProperties().getProperty("extractorName") + 
-						"_features.arff"); 
+				extractionsOfParts.add(executor.submit(createExtraction(this.extractors.get(id), currentPart, inputFileName)));
+			}
+			extractions.put(id, extractionsOfParts);
+		}
+		executor.shutdown();
+		
+		// Consolidate the part results and copy them to feature database
+		for(Integer id : usedExtractorIDs) {
+			for(Future<?> extraction : extractions.get(id)) {
 				try {
-					this.extractors.get(i).setFilenames(musicInput, featureOutput,currentPart);
-					this.extractors.get(i).extractFeatures();
-				} catch (NodeException e) {
+					extraction.get();
+				} catch(InterruptedException e) {
+					executor.shutdownNow();
+					Thread.currentThread().interrupt();
+					return;
+				} catch(ExecutionException e) {
 					AmuseLogger.write(this.getClass().getName(), Level.ERROR, 
 							"Error occured during feature extraction with extractor '" + 
-							((AmuseTask)this.extractors.get(i)).getProperties().getProperty("extractorName") + 
-							"': " + e.getMessage());
+							((AmuseTask)this.extractors.get(id)).getProperties().getProperty("extractorName") + 
+							"': " + e.getCause());
 				}
 			}
-			
-			// Consolidate the part results and copy them to feature database
-			consolidateResults(this.extractors.get(i));
+			consolidateResults(this.extractors.get(id));
 		}
 	}
 	
+	/**
+	 * Creates the extraction of one part of the music file with one extractor
+	 * @param configuredAdapter Adapter configured by configureFeatureExtractors()
+	 * @param currentPart Number of the part
+	 * @param inputFileName Music file name without path
+	 * @return Extraction which logs the errors
+	 */
+	private Runnable createExtraction(final ExtractorInterface configuredAdapter, final int currentPart, String inputFileName) {
+		String sep = File.separator;
+		final String extractorName = ((AmuseTask)configuredAdapter).getProperties().getProperty("extractorName");
+		String partFolder = this.nodeHome + sep + "input" + sep + "task_" + this.jobId + sep + currentPart;
+		final File workFolder = new File(partFolder + sep + "work_" + ((AmuseTask)configuredAdapter).getProperties().getProperty("id"));
+		final String musicInput = new String(partFolder + sep + inputFileName);
+		final String featureOutput = new String(workFolder + sep + inputFileName.substring(0,inputFileName.lastIndexOf(".")) + 
+				"_" + extractorName + "_features.arff");
+		return new Runnable() {
+			public void run() {
+				try {
+					if(!workFolder.exists() && !workFolder.mkdirs()) {
+						throw new NodeException("Could not create temp folder " + workFolder);
+					}
+					ExtractorInterface adapter = createAdapter(configuredAdapter, workFolder);
+					adapter.setFilenames(musicInput, featureOutput, currentPart);
+					adapter.extractFeatures();
+				} catch (NodeException e) {
+					AmuseLogger.write(ExtractorNodeScheduler.class.getName(), Level.ERROR, 
+							"Error occured during feature extraction with extractor '" + extractorName + 
+							"' (part " + currentPart + "): " + e.getMessage());
+				}
+			}
+		};
+	}
+	
+	/**
+	 * Creates a further adapter with the properties of the configured adapter; the adapters keep the state
+	 * of the current part and write their scripts and intermediate results to the folder "extractorWorkFolder"
+	 * @param configuredAdapter Adapter configured by configureFeatureExtractors()
+	 * @param workFolder Folder for temporary files of the new adapter
+	 * @return New adapter
+	 * @throws NodeException
+	 */
+	private ExtractorInterface createAdapter(ExtractorInterface configuredAdapter, File workFolder) throws NodeException {
+		Properties extractorProperties = new Properties();
+		extractorProperties.putAll(((AmuseTask)configuredAdapter).getProperties());
+		extractorProperties.setProperty("extractorWorkFolder", workFolder.getPath());
+		try {
+			ExtractorInterface adapter = configuredAdapter.getClass().newInstance();
+			((AmuseTask)adapter).configure(extractorProperties,this,null);
+			return adapter;
+		} catch(IllegalAccessException e) {
+			throw new NodeException("Extractor class or its nullary constructor is not accessible: " + configuredAdapter.getClass().getName());
+		} catch(InstantiationException e) {
+			throw new NodeException("Instantiation failed for extractor class: " + configuredAdapter.getClass().getName());
+		}
+	}
+	
+	/**
+	 * Sets the music file name and the number of its parts, which are otherwise set by proceedTask()
+	 * after the decoding
+	 * @param inputFileName Wave file name relative to the music database
+	 * @param numberOfParts Number of parts in the task folder
+	 */
+	void setDecodedMusicFile(String inputFileName, int numberOfParts) {
+		this.inputFileName = inputFileName;
+		this.numberOfParts = numberOfParts;
+	}
+	
 	/**
 	 * Copies the extracted features to feature database
 	 * @param adapter Extractor 
@@ -407,12 +503,13 @@ public class ExtractorNodeScheduler extends NodeScheduler {
 		// (I) If the song was splitted, create a new arff feature file from several
 		// -------------------------------------------------------------------------
 		if(numberOfParts > 1) {
-			File file = new File(this.nodeHome + File.separator + "input" + File.separator + "task_" + this.jobId + File.separator + "1" + File.separator + 
-					((AmuseTask)adapter).getProperties().getProperty("extractorFolderName"));
+			String taskFolder = this.nodeHome + File.separator + "input" + File.separator + "task_" + this.jobId;
+			String extractorFolderName = ((AmuseTask)adapter).getProperties().getProperty("extractorFolderName");
+			File file = new File(taskFolder + File.separator + "1" + File.separator + extractorFolderName);
 			File[] files = file.listFiles();
 			
 			// Create a folder for consolidated features
-			File folder = new File(this.nodeHome + File.separator + "input" + File.separator + "task_" + this.jobId + File.separator + "features" + File.separator);
+			File folder = new File(taskFolder + File.separator + "features" + File.separator);
 			if (!folder.exists() && !folder.mkdirs()) {
 				AmuseLogger.write(this.getClass().getName(), Level.ERROR,
 						"Error creating temp folder; could not consolidate the features extracted by '" + 
@@ -421,154 +518,26 @@ public class ExtractorNodeScheduler extends NodeScheduler {
 				return;
 			}
 			
+			// The positions of the parts in the music file are written by the splitting
+			WavePartTableSet parts;
+			try {
+				parts = new WavePartTableSet(new File(taskFolder, WavePartTableSet.FILE_NAME));
+				if(parts.getNumberOfParts() != numberOfParts) {
+					throw new IOException(parts.getNumberOfParts() + " parts are described instead of " + numberOfParts);
+				}
+			} catch(IOException e) {
+				AmuseLogger.write(this.getClass().getName(), Level.ERROR,
+						"Could not consolidate the features extracted by '" + 
+						((AmuseTask)adapter).getProperties().getProperty("extractorName") + "'; the parts of the music file are unknown: " + 
+						e.getMessage());
+				extractors.remove(adapter);
+				return;
+			}
+			
 			// Go through all features (equal to the number of files for each part)
 			for(int i=0;i<files.length;i++) {
-				
-				// TODO Problem for features from splitted files.
-				// Currently hard-coded, better solution required!!!
-				double duration_id_400=0.0d;
-				boolean dataPartStarted=false;
-				
 				try {
-					
-					// Create the ARFF feature file for all features
-					String featureFileName = files[i].toString().substring(files[i].toString().lastIndexOf(File.separator));
-					FileOutputStream values_to = new FileOutputStream(this.nodeHome + File.separator + "input" + File.separator + "task_" + this.jobId + 
-							File.separator + "features" + File.separator + featureFileName);
-					DataOutputStream values_writer = new DataOutputStream(values_to);
-					String sep = System.getProperty("line.separator");
-					
-					values_writer.writeBytes("%This feature was calculated from splitted wave file\n");
-					values_writer.writeBytes("%and the values of attribute WindowNumber were approximated\n");
-					values_writer.writeBytes("%for windows after the first split.\n");
-					values_writer.writeBytes(sep);
-					
-					// Find out the overall number of windows
-					int columnNumber = 0;
-					if(files[i].getName().toString().endsWith("_400.arff")) {
-						columnNumber = 1;
-					} else if(files[i].getName().toString().endsWith("_601.arff")) {
-						File currentPartFile = new File(this.nodeHome + File.separator + "input" + File.separator + "task_" + this.jobId + File.separator + "1" + File.separator + 
-								((AmuseTask)adapter).getProperties().getProperty("extractorFolderName") + File.separator + files[i].getName());
-						FileReader featuresInput = null;
-						featuresInput = new FileReader(currentPartFile);
-						BufferedReader featuresReader = new BufferedReader(featuresInput);
-						String line =  new String();
-			            // Save the feature values from the part file
-						while ((line = featuresReader.readLine()) != null) {
-							if(line.startsWith("%columns=")) {
-								columnNumber = new Integer(line.substring(9));
-								break;
-							}
-						}
-					} else {
-						for(int j=1;j<=numberOfParts;j++) {
-							File currentPartFile = new File(this.nodeHome + File.separator + "input" + File.separator + "task_" + this.jobId + File.separator + j + File.separator + 
-									((AmuseTask)adapter).getProperties().getProperty("extractorFolderName") + File.separator + files[i].getName());
-							FileReader featuresInput = null;
-							featuresInput = new FileReader(currentPartFile);
-							BufferedReader featuresReader = new BufferedReader(featuresInput);
-							String line =  new String();
-				            // Save the feature values from the part file
-							while ((line = featuresReader.readLine()) != null) {
-								if(line.startsWith("%columns=")) {
-									columnNumber += new Integer(line.substring(9));
-									break;
-								}
-							}
-						}
-					}
-					
-					int lineCounter = 1;
-						
-					// Go through the splitted parts
-					for(int j=1;j<=numberOfParts;j++) {
-						
-						// TODO v0.2 Problem for features from splitted files.
-						// Currently hard-coded, better solution required!!!
-						if(files[i].getName().toString().endsWith("_601.arff") && j>1) break;
-						
-						File currentPartFile = new File((this.nodeHome + File.separator + "input" + File.separator + "task_" + this.jobId + File.separator + j + File.separator + 
-								((AmuseTask)adapter).getProperties().getProperty("extractorFolderName") + File.separator + files[i].getName()));
-						
-						FileReader featuresInput = null;
-						featuresInput = new FileReader(currentPartFile);
-						BufferedReader featuresReader = new BufferedReader(featuresInput);
-
-						String line =  new String();
-						
-						// If we are by second or higher part, do not write the arff header again,
-						// wait till data part
-						if(j>1) {
-							line = featuresReader.readLine();
-							while(!(line.startsWith("@DATA"))) {
-								line = featuresReader.readLine();
-								if(line == null) break;
-							}
-						}
-						
-			            // Save the feature values from the part file
-						while ((line = featuresReader.readLine()) != null) {
-							
-							if(line.startsWith("%columns")) {
-								line = new String("%columns=" + columnNumber);
-							}
-							
-							// TODO v0.2 Problem for features from splitted files.
-							// Currently hard-coded, better solution required!!!
-							// Only the lines (a) and (b) should remain in the future!
-							if(files[i].getName().toString().endsWith("_400.arff")) {
-								if(dataPartStarted) { 
-									duration_id_400 += new Double(line);
-								} else {
-									values_writer.writeBytes(line); 
-									values_writer.writeBytes(sep);  
-								}
-							} else {
-								if(files[i].getName().toString().endsWith("_408.arff")) {
-									if(dataPartStarted) {
-										Double beatTimesValue = new Double(line);
-										// TODO 480 = maxSize from system.sh !
-										beatTimesValue += (j-1)*480;
-										line = beatTimesValue.toString();
-									}
-								} else if(files[i].getName().toString().endsWith("_416.arff")) {
-									if(dataPartStarted) {	
-										Double tatumTimesValue = new Double(line);
-										tatumTimesValue += (j-1)*480;
-										line = tatumTimesValue.toString();
-									}
-								} else if(files[i].getName().toString().endsWith("_419.arff")) {
-									if(dataPartStarted) {	
-										Double onsetTimesValue = new Double(line);
-										onsetTimesValue += (j-1)*480;
-										line = onsetTimesValue.toString();
-									}
-								} else if(dataPartStarted) {
-									if(line.indexOf(",") != -1) {
-										line = new String(line.substring(0,line.lastIndexOf(",")) + "," + lineCounter);
-									}
-									lineCounter++;
-								}
-								
-								values_writer.writeBytes(line); // (a)
-								values_writer.writeBytes(sep);  // (b)
-							}
-							
-							// TODO v0.2Problem for features from splitted files.
-							// Currently hard-coded, better solution required!!!
-							if(line.startsWith("@DATA")) {
-								dataPartStarted = true;
-							}
-			            }
-						featuresReader.close();
-					}
-					
-					if(files[i].getName().toString().endsWith("_400.arff")) {
-						values_writer.writeBytes(new Double(duration_id_400).toString());
-					}
-					
-					values_writer.close();
+					consolidateFeature(taskFolder, extractorFolderName, files[i].getName(), parts);
 				} catch(Exception e) {
 					AmuseLogger.write(this.getClass().getName(), Level.ERROR,
 							"Could not consolidate the features extracted by '" + 
@@ -605,14 +574,16 @@ public class ExtractorNodeScheduler extends NodeScheduler {
 		}
 		
 		// Move the extracted features
+		File extractedFeatures;
+		if(numberOfParts > 1) {
+			extractedFeatures = new File(this.nodeHome + File.separator + "input" + File.separator + "task_" + this.jobId + File.separator + "features" + File.separator);
+		} else {
+			extractedFeatures = new File(this.nodeHome + File.separator + "input" + File.separator + "task_" + this.jobId + File.separator + "1" + File.separator +  
+					((AmuseTask)adapter).getProperties().getProperty("extractorFolderName"));
+		}
+		String[] extractedFeatureFiles = extractedFeatures.list();
 		try {
-			if(numberOfParts > 1) {
-				FileOperations.move(new File(this.nodeHome + File.separator + "input" + File.separator + "task_" + this.jobId + File.separator + "features" + File.separator), new File(path2Create.toString()) );
-			} else {
-				FileOperations.move(new File(this.nodeHome + File.separator + "input" + File.separator + "task_" + this.jobId + File.separator + "1" + File.separator +  
-						((AmuseTask)adapter).getProperties().getProperty("extractorFolderName")), 
-						new File(path2Create.toString()));
-			}
+			FileOperations.move(extractedFeatures, new File(path2Create.toString()));
 		} catch(IOException e) {
 			AmuseLogger.write(this.getClass().getName(), Level.ERROR,
 					"Could not move the features extracted by '" + 
@@ -620,8 +591,160 @@ public class ExtractorNodeScheduler extends NodeScheduler {
 			return;
 		}
 		
+		// Save the binary feature files; features which cannot be loaded as numeric features remain only in ARFF
+		if(AmusePreferences.getBoolean(KeysBooleanValue.WRITE_BINARY_FEATURE_FILES) && extractedFeatureFiles != null) {
+			for(String featureFile : extractedFeatureFiles) {
+				if(featureFile.endsWith(".arff")) {
+					try {
+						BinaryFeatureFile.convert(new File(path2Create.toString(), featureFile));
+					} catch(NodeException e) {
+						AmuseLogger.write(this.getClass().getName(), Level.DEBUG,
+								"Binary feature file is not saved: " + e.getMessage());
+					}
+				}
+			}
+		}
+		
 		AmuseLogger.write(this.getClass().getName(), Level.DEBUG, 
 				"Features extracted with '" + ((AmuseTask)adapter).getProperties().getProperty("extractorName") + "' are copied to feature database");
 	}
+	
+	/**
+	 * Creates the feature file of the whole music file from the feature files of its parts. The windows and the
+	 * event times of each part are shifted by the start of the part; the values in the overlap with the next part
+	 * are skipped, since they belong to the next part
+	 * @param taskFolder Folder with the parts
+	 * @param extractorFolderName Folder of the features in each part folder
+	 * @param featureFileName Name of the feature file
+	 * @param parts Positions of the parts in the music file
+	 * @throws IOException
+	 */
+	private void consolidateFeature(String taskFolder, String extractorFolderName, String featureFileName, 
+			WavePartTableSet parts) throws IOException {
+		
+		// TODO Problem for features from splitted files.
+		// The duration, the event times and feature 601 are handled by their ids
+		boolean isDuration = featureFileName.endsWith("_400.arff");
+		boolean isEventTime = featureFileName.endsWith("_408.arff") || featureFileName.endsWith("_416.arff") || 
+			featureFileName.endsWith("_419.arff");
+		int numberOfUsedParts = featureFileName.endsWith("_601.arff") ? 1 : numberOfParts;
+		
+		StringBuilder header = new StringBuilder();
+		StringBuilder data = new StringBuilder();
+		String sep = System.getProperty("line.separator");
+		double duration = 0.0d;
+		int columnNumber = 0;
+		long writtenWindows = 0;
+		boolean isUnalignedWarned = false;
+		
+		// Go through the splitted parts
+		for(int j=1;j<=numberOfUsedParts;j++) {
+			File currentPartFile = new File(taskFolder + File.separator + j + File.separator + 
+					extractorFolderName + File.separator + featureFileName);
+			boolean isLastPart = j == numberOfUsedParts;
+			Integer columns = readHeaderValue(currentPartFile, "%columns=");
+			Integer windowSize = readHeaderValue(currentPartFile, "%window_size=");
+			
+			// Without window size the windows are numbered consecutively
+			long windowOffset = writtenWindows;
+			if(windowSize != null) {
+				windowOffset = parts.getStart(j) / windowSize;
+				if(parts.getStart(j) % windowSize != 0 && !isUnalignedWarned) {
+					AmuseLogger.write(this.getClass().getName(), Level.WARN, "The parts of the music file are not aligned to the window size " + 
+							windowSize + " of " + featureFileName + "; the window numbers are rounded");
+					isUnalignedWarned = true;
+				}
+			} else if(!isDuration && !isEventTime && !isLastPart && parts.getOverlap(j) > 0) {
+				throw new IOException("The window size of " + featureFileName + " is required to remove the overlap of the parts");
+			}
+			if(columns != null) {
+				columnNumber += columns;
+			}
+			
+			BufferedReader featuresReader = new BufferedReader(new FileReader(currentPartFile));
+			try {
+				String line;
+				boolean dataPartStarted = false;
+				int localWindow = 0;
+				while((line = featuresReader.readLine()) != null) {
+					if(!dataPartStarted) {
+						// Only the header of the first part is used
+						if(j == 1) {
+							header.append(line).append(sep);
+						}
+						if(line.startsWith("@DATA")) {
+							dataPartStarted = true;
+						}
+						continue;
+					}
+					if(isDuration) {
+						double partDuration = new Double(line);
+						duration += isLastPart ? partDuration : Math.min(partDuration, parts.getLengthInSeconds(j));
+					} else if(isEventTime) {
+						double time = new Double(line);
+						if(!isLastPart && time >= parts.getLengthInSeconds(j)) {
+							columnNumber--;
+							continue;
+						}
+						data.append(new Double(time + parts.getStartInSeconds(j)).toString()).append(sep);
+					} else {
+						localWindow++;
+						if(!isLastPart && windowSize != null && (long)(localWindow - 1) * windowSize >= parts.getLength(j)) {
+							columnNumber--;
+							continue;
+						}
+						if(line.indexOf(",") != -1) {
+							line = new String(line.substring(0,line.lastIndexOf(",")) + "," + (windowOffset + localWindow));
+						}
+						data.append(line).append(sep);
+						writtenWindows++;
+					}
+				}
+			} finally {
+				featuresReader.close();
+			}
+		}
+		if(isDuration) {
+			columnNumber = 1;
+		}
+		
+		// Create the ARFF feature file for all features
+		DataOutputStream values_writer = new DataOutputStream(new FileOutputStream(taskFolder + File.separator + 
+				"features" + File.separator + featureFileName));
+		try {
+			values_writer.writeBytes("%This feature was calculated from splitted wave file\n");
+			values_writer.writeBytes("%and the values of attribute WindowNumber were shifted\n");
+			values_writer.writeBytes("%by the starts of the parts.\n");
+			values_writer.writeBytes(sep);
+			values_writer.writeBytes(header.toString().replaceAll("(?m)^%columns=.*$", "%columns=" + columnNumber));
+			values_writer.writeBytes(data.toString());
+			if(isDuration) {
+				values_writer.writeBytes(new Double(duration).toString());
+			}
+		} finally {
+			values_writer.close();
+		}
+	}
+	
+	/**
+	 * Reads an integer value given by a comment in the header of a feature file
+	 * @param featureFile Feature file
+	 * @param key Beginning of the comment, e.g. "%columns="
+	 * @return The value or null if the header does not contain it
+	 */
+	private static Integer readHeaderValue(File featureFile, String key) throws IOException {
+		BufferedReader featuresReader = new BufferedReader(new FileReader(featureFile));
+		try {
+			String line;
+			while((line = featuresReader.readLine()) != null && !line.startsWith("@DATA")) {
+				if(line.startsWith(key)) {
+					return new Integer(line.substring(key.length()).trim());
+				}
+			}
+			return null;
+		} finally {
+			featuresReader.close();
+		}
+	}
 
 }
@@ -30,6 +30,9 @@ import amuse.interfaces.nodes.NodeException;
 
 /**
  * This interface defines the operations which should be supported by all feature extractors.
+ * The extractor node scheduler creates an adapter for each part of the music file and may run
+ * them at the same time; such adapters get the property "extractorWorkFolder" with their own
+ * folder for modified scripts, logs and other temporary files.
  * 
  * @author Igor Vatolkin
  * @version $Id$
@@ -154,8 +154,7 @@ public class HighLevelFeatureExtractor extends AmuseTask implements ExtractorInt
 		try {
 			Transformer transformer = TransformerFactory.newInstance().newTransformer();
 			DOMSource domsource = new DOMSource(currentBaseScript);
-			File modifiedScript = new File(properties.getProperty("extractorFolder")+ File.separator +
-										   properties.getProperty("inputExtractorBatch"));
+			File modifiedScript = getConvertedScript();
 			if (modifiedScript.exists())
 				if (!modifiedScript.canWrite()) {
 					throw new NodeException("Cannot write to modified HighLevelFeatureAdapter base script");
@@ -174,6 +173,15 @@ public class HighLevelFeatureExtractor extends AmuseTask implements ExtractorInt
 		}
 	}
 	
+	/**
+	 * Returns the base script converted for the features to extract, which is saved in the folder set
+	 * by BaseScriptConverter or in the extractor folder
+	 */
+	private File getConvertedScript() {
+		return new File(properties.getProperty("convertedScriptFolder", properties.getProperty("extractorFolder")) + 
+				File.separator + properties.getProperty("inputExtractorBatch"));
+	}
+	
 	/**
 	 * @see amuse.nodes.extractor.interfaces.ExtractorInterface#extractFeatures()
 	 */
@@ -183,9 +191,7 @@ public class HighLevelFeatureExtractor extends AmuseTask implements ExtractorInt
 		// Load the modified base script with configuration for features to extract
 		Document modifiedBaseScript = null;
 		try {
-			modifiedBaseScript = DocumentBuilderFactory.newInstance().newDocumentBuilder().parse(
-					properties.getProperty("extractorFolder") + File.separator + 
-					properties.getProperty("inputExtractorBatch"));
+			modifiedBaseScript = DocumentBuilderFactory.newInstance().newDocumentBuilder().parse(getConvertedScript());
 		} catch(java.io.IOException e) {
 			throw new NodeException("Cannot open HighLevelFeatureExtractor script: " + e.getMessage());
 		} catch(javax.xml.parsers.ParserConfigurationException e) {
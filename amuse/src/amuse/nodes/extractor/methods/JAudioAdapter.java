@@ -61,6 +61,7 @@ import amuse.interfaces.nodes.methods.AmuseTask;
 import amuse.nodes.extractor.ExtractionConfiguration;
 import amuse.nodes.extractor.interfaces.ExtractorInterface;
 import amuse.preferences.AmusePreferences;
+import amuse.preferences.KeysBooleanValue;
 import amuse.preferences.KeysStringValue;
 import amuse.util.AmuseLogger;
 import amuse.util.ExternalProcessBuilder;
@@ -93,8 +94,7 @@ public class JAudioAdapter extends AmuseTask implements ExtractorInterface {
 		// Load the jAudio batch script
 		Document jAudioScript;
 		try {
-			jAudioScript = DocumentBuilderFactory.newInstance().newDocumentBuilder().parse(properties.getProperty("extractorFolder") + 
-					File.separator + properties.getProperty("inputExtractorBatch"));
+			jAudioScript = DocumentBuilderFactory.newInstance().newDocumentBuilder().parse(getConvertedScript());
 		} catch (SAXException e) {
 			throw new NodeException("Setting of input music file with jAudio failed: " + e.getMessage());		
 		} catch (IOException e) {
@@ -122,8 +122,7 @@ public class JAudioAdapter extends AmuseTask implements ExtractorInterface {
 					properties.getProperty("inputExtractorBatch") + ".");
 		}
 		node = nList.item(0);
-		node.setTextContent(outputFeatureFile.substring(0,outputFeatureFile.lastIndexOf(File.separator)+1) +
-			"feature_def_rms512.arff");
+		node.setTextContent(getFeatureKeyFile(outputFeatureFile));
 		node = nList.item(1);
 		node.setTextContent(outputFeatureFile);
 		this.outputFeatureFile = outputFeatureFile;
@@ -131,10 +130,12 @@ public class JAudioAdapter extends AmuseTask implements ExtractorInterface {
 		// Save the modified jAudio batch script
 		try {
 			Transformer transformer = TransformerFactory.newInstance().newTransformer();
-			transformer.setOutputProperty(OutputKeys.DOCTYPE_SYSTEM, "jAudio.dtd");
+			
+			// The script is saved outside of the jAudio folder, which contains the DTD
+			transformer.setOutputProperty(OutputKeys.DOCTYPE_SYSTEM, 
+					new File(properties.getProperty("extractorFolder") + File.separator + "jAudio.dtd").toURI().toString());
 			DOMSource domsource = new DOMSource(jAudioScript);
-			File modifiedScript = new File( 
-					properties.getProperty("extractorFolder") + File.separator + properties.getProperty("inputExtractorBatch"));
+			File modifiedScript = getBatchFile();
 			
 			if (modifiedScript.exists())
 				if (!modifiedScript.canWrite())
@@ -154,6 +155,31 @@ public class JAudioAdapter extends AmuseTask implements ExtractorInterface {
 		}
 	}
 	
+	/**
+	 * Returns the file for the feature definitions written by jAudio next to the output feature file
+	 */
+	private static String getFeatureKeyFile(String outputFeatureFile) {
+		return outputFeatureFile.substring(0,outputFeatureFile.lastIndexOf(File.separator)+1) + "feature_def_rms512.arff";
+	}
+	
+	/**
+	 * Returns the batch script for the current music file, which is saved in the folder for temporary
+	 * files of this adapter (if set by the extractor node scheduler) or in the jAudio folder
+	 */
+	private File getBatchFile() {
+		return new File(properties.getProperty("extractorWorkFolder", properties.getProperty("extractorFolder")) + 
+				File.separator + properties.getProperty("inputExtractorBatch"));
+	}
+	
+	/**
+	 * Returns the base script converted for the features to extract, which is saved in the folder set
+	 * by BaseScriptConverter or in the jAudio folder
+	 */
+	private File getConvertedScript() {
+		return new File(properties.getProperty("convertedScriptFolder", properties.getProperty("extractorFolder")) + 
+				File.separator + properties.getProperty("inputExtractorBatch"));
+	}
+	
 	/*
 	 * (non-Javadoc)
 	 * @see amuse.nodes.extractor.interfaces.ExtractorInterface#convertBaseScript(java.util.HashMap)
@@ -242,10 +268,10 @@ public class JAudioAdapter extends AmuseTask implements ExtractorInterface {
 		// Save the modified script
 		try {
 			Transformer transformer = TransformerFactory.newInstance().newTransformer();
-			transformer.setOutputProperty(OutputKeys.DOCTYPE_SYSTEM, "jAudio.dtd");
+			transformer.setOutputProperty(OutputKeys.DOCTYPE_SYSTEM, 
+					new File(properties.getProperty("extractorFolder") + File.separator + "jAudio.dtd").toURI().toString());
 			DOMSource domsource = new DOMSource(currentBaseScript);
-			File modifiedScript = new File(properties.getProperty("extractorFolder")+ File.separator +
-										   properties.getProperty("inputExtractorBatch"));
+			File modifiedScript = getConvertedScript();
 			if (modifiedScript.exists())
 				if (!modifiedScript.canWrite()) {
 					throw new NodeException("Cannot write to modified jAudio base script");
@@ -269,10 +295,25 @@ public class JAudioAdapter extends AmuseTask implements ExtractorInterface {
 	 */
 	public void extractFeatures() throws NodeException {
 		AmuseLogger.write(this.getClass().getName(), Level.DEBUG, "Starting feature extraction...");
+		String amuse = AmusePreferences.get(KeysStringValue.AMUSE_PATH);
+		
+		// Run jAudio in this JVM if it can be loaded
+		JAudioInProcessExtractor extractor = null;
+		if(AmusePreferences.getBoolean(KeysBooleanValue.RUN_JAUDIO_IN_PROCESS)) {
+			try {
+				extractor = JAudioInProcessExtractor.getExtractor(new File(amuse + File.separator + "tools" + File.separator + "jAudio"));
+			} catch(NodeException e) {
+				AmuseLogger.write(this.getClass().getName(), Level.WARN, "Could not load jAudio, starting it in a new JVM: " + e.getMessage());
+			}
+		}
+		if(extractor != null) {
+			extractor.extract(getBatchFile(), getConvertedScript(), musicFile, getFeatureKeyFile(outputFeatureFile), outputFeatureFile);
+			convertOutput();
+			return;
+		}
 		
 		// Start jAudio
 		try {
-		String amuse = AmusePreferences.get(KeysStringValue.AMUSE_PATH);
 		    List<String> libs = new ArrayList<String>();
 		    libs.add(amuse + File.separator + "tools" + File.separator + "jAudio" + File.separator + "jhall.jar");
 		    libs.add(amuse + File.separator + "tools" + File.separator + "jAudio" + File.separator + "mp3plugin.jar");
@@ -285,7 +326,7 @@ public class JAudioAdapter extends AmuseTask implements ExtractorInterface {
 		    List<String> commands = new ArrayList<String>();
 		    commands.add("jAudioFE");
 		    commands.add("-b");
-		    commands.add(properties.getProperty("extractorFolder") + File.separator + properties.getProperty("inputExtractorBatch"));
+		    commands.add(getBatchFile().getPath());
 		    ExternalProcessBuilder jAudio = ExternalProcessBuilder.buildJavaProcess(javaParameters, libs, commands);
 		    jAudio.setWorkingDirectory(new File(amuse + File.separator +"tools"+ File.separator + "jAudio"));
 		    Process pc = jAudio.start();
@@ -0,0 +1,287 @@
+/**
+ * This file is part of AMUSE framework (Advanced MUsic Explorer).
+ *
+ * Copyright 2006-2010 by code authors
+ *
+ * Created at TU Dortmund, Chair of Algorithm Engineering
+ * (Contact: <http://ls11-www.cs.tu-dortmund.de>)
+ *
+ * AMUSE is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * AMUSE is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with AMUSE. If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Creation date: 17.10.2026
+ */
+package amuse.nodes.extractor.methods;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.net.URL;
+import java.util.ArrayDeque;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.apache.log4j.Level;
+
+import amuse.interfaces.nodes.NodeException;
+import amuse.preferences.AmusePreferences;
+import amuse.preferences.KeysIntValue;
+import amuse.util.AmuseLogger;
+import amuse.util.JarClassLoader;
+
+/**
+ * Runs jAudio batches in the AMUSE JVM instead of a new JVM for each music file. The jAudio jars are loaded
+ * once by an own class loader, which does not see the class path of AMUSE. The parsed batch scripts are
+ * reused for the next music files with the same converted base script; only the recording and the output
+ * files are changed. Since jAudio checks the music files of a batch script when it is parsed, the file set
+ * of the script must name existing files.
+ *
+ * @version $Id$
+ */
+public class JAudioInProcessExtractor {
+
+	/** Jars of jAudio, which are loaded from the jAudio folder */
+	private static final String[] JARS = {"jAudio.jar", "jhall.jar", "mp3plugin.jar",
+		"tritonus_remaining-0.3.6.jar", "tritonus_share-0.3.6.jar", "xerces.jar"};
+
+	/** Extractors loaded by this JVM, the key is the jAudio folder */
+	private static final ConcurrentHashMap<String, JAudioInProcessExtractor> extractors =
+			new ConcurrentHashMap<String, JAudioInProcessExtractor>();
+
+	private final File jAudioFolder;
+	private final ClassLoader classLoader;
+
+	/** Feature configuration of jAudio */
+	private final String featureConfiguration;
+
+	private final Method parseXMLDocument;
+	private final Method setDataModel;
+	private final Method setRecordings;
+	private final Method setDestination;
+	private final Method execute;
+	private final Method setUpdater;
+	private final Constructor<?> dataModelConstructor;
+	private final Field featureKey;
+	private final Field featureValue;
+	private final Object updater;
+
+	/** Number of converted base scripts whose parsed batches are kept */
+	private static final int MAX_CACHED_SCRIPTS = 8;
+
+	/**
+	 * Batches which are not used at the moment, the key is the path and modification time of the converted
+	 * base script. The batches of the least recently used scripts are dropped
+	 */
+	private final LinkedHashMap<String, ArrayDeque<Object>> idleBatches =
+			new LinkedHashMap<String, ArrayDeque<Object>>(16, 0.75f, true) {
+		private static final long serialVersionUID = 1L;
+
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<String, ArrayDeque<Object>> eldest) {
+			return size() > MAX_CACHED_SCRIPTS;
+		}
+	};
+
+	/**
+	 * Returns the extractor for the given jAudio folder, which loads jAudio on first use
+	 * @param jAudioFolder Folder with the jAudio jars and features.xml
+	 * @return Shared extractor
+	 * @throws NodeException If jAudio cannot be loaded
+	 */
+	public static synchronized JAudioInProcessExtractor getExtractor(File jAudioFolder) throws NodeException {
+		String key = jAudioFolder.getAbsolutePath();
+		JAudioInProcessExtractor extractor = extractors.get(key);
+		if(extractor == null) {
+			extractor = new JAudioInProcessExtractor(jAudioFolder);
+			extractors.put(key, extractor);
+		}
+		return extractor;
+	}
+
+	/**
+	 * Loads jAudio from the given folder
+	 * @param jAudioFolder Folder with the jAudio jars and features.xml
+	 * @throws NodeException If jAudio cannot be loaded
+	 */
+	public JAudioInProcessExtractor(File jAudioFolder) throws NodeException {
+		this.jAudioFolder = jAudioFolder.getAbsoluteFile();
+		this.featureConfiguration = new File(this.jAudioFolder, "features.xml").getPath();
+		try {
+			URL[] urls = new URL[JARS.length];
+			for(int i=0;i<JARS.length;i++) {
+				File jar = new File(this.jAudioFolder, JARS[i]);
+				if(!jar.exists()) {
+					throw new NodeException("Missing jAudio library " + jar);
+				}
+				urls[i] = jar.toURI().toURL();
+			}
+			classLoader = new JarClassLoader(urls, ClassLoader.getSystemClassLoader().getParent());
+
+			Class<?> parser = classLoader.loadClass("jAudioFeatureExtractor.ACE.XMLParsers.XMLDocumentParser");
+			Class<?> batch = classLoader.loadClass("jAudioFeatureExtractor.ACE.DataTypes.Batch");
+			Class<?> dataModel = classLoader.loadClass("jAudioFeatureExtractor.DataModel");
+			Class<?> modelListener = classLoader.loadClass("jAudioFeatureExtractor.ModelListener");
+			Class<?> updaterInterface = classLoader.loadClass("jAudioFeatureExtractor.Updater");
+			parseXMLDocument = parser.getMethod("parseXMLDocument", String.class, String.class);
+			setDataModel = batch.getMethod("setDataModel", dataModel);
+			setRecordings = batch.getMethod("setRecordings", File[].class);
+			setDestination = batch.getMethod("setDestination", String.class, String.class);
+			execute = batch.getMethod("execute");
+			setUpdater = dataModel.getMethod("setUpdater", updaterInterface);
+			dataModelConstructor = dataModel.getConstructor(String.class, modelListener);
+			featureKey = dataModel.getField("featureKey");
+			featureValue = dataModel.getField("featureValue");
+
+			// The progress of the extraction is not shown
+			updater = Proxy.newProxyInstance(classLoader, new Class<?>[] {updaterInterface}, new InvocationHandler() {
+				public Object invoke(Object proxy, Method method, Object[] args) {
+					if(method.getName().equals("toString")) {
+						return "AMUSE jAudio updater";
+					} else if(method.getName().equals("hashCode")) {
+						return System.identityHashCode(proxy);
+					} else if(method.getName().equals("equals")) {
+						return proxy == args[0];
+					}
+					return null;
+				}
+			});
+		} catch(NodeException e) {
+			throw e;
+		} catch(Exception e) {
+			throw new NodeException("Could not load jAudio from " + this.jAudioFolder + ": " + e);
+		} catch(LinkageError e) {
+			throw new NodeException("Could not load jAudio from " + this.jAudioFolder + ": " + e);
+		}
+		AmuseLogger.write(this.getClass().getName(), Level.DEBUG, "jAudio loaded from " + this.jAudioFolder);
+	}
+
+	/**
+	 * Extracts the features of the batch script from the music file
+	 * @param batchScript jAudio batch script with the settings and the features to extract; its file set
+	 * is only read if no batch of the converted script is idle and its destinations are ignored
+	 * @param convertedScript Converted base script the batch script was created from; the parsed batches
+	 * are reused for all batch scripts created from it
+	 * @param musicFile Music file
+	 * @param featureKeyFile File for the feature definitions
+	 * @param featureValueFile File for the feature values
+	 * @throws NodeException If the extraction fails
+	 */
+	public void extract(File batchScript, File convertedScript, String musicFile, String featureKeyFile, 
+			String featureValueFile) throws NodeException {
+		String key = convertedScript.getAbsolutePath() + ":" + convertedScript.lastModified();
+
+		Thread thread = Thread.currentThread();
+		ClassLoader contextClassLoader = thread.getContextClassLoader();
+
+		// Java Sound and the XML parser look up their providers with the context class loader
+		thread.setContextClassLoader(classLoader);
+		OutputStream keyStream = null;
+		OutputStream valueStream = null;
+		try {
+			Object batch = pollIdleBatch(key);
+			if(batch == null) {
+				batch = parseBatch(batchScript);
+			}
+
+			// The feature extractors of jAudio keep values of the previous music file, so each
+			// music file gets a new data model
+			Object dataModel = dataModelConstructor.newInstance(featureConfiguration, null);
+			setUpdater.invoke(dataModel, updater);
+			setDataModel.invoke(batch, dataModel);
+			setRecordings.invoke(batch, new Object[] {new File[] {new File(musicFile)}});
+			setDestination.invoke(batch, featureKeyFile, featureValueFile);
+			keyStream = new FileOutputStream(featureKeyFile);
+			valueStream = new FileOutputStream(featureValueFile);
+			featureKey.set(dataModel, keyStream);
+			featureValue.set(dataModel, valueStream);
+			execute.invoke(batch);
+
+			// The batch is used again only if the extraction has succeeded
+			addIdleBatch(key, batch);
+		} catch(InvocationTargetException e) {
+			throw new NodeException("Extraction with jAudio failed: " + e.getCause());
+		} catch(IOException e) {
+			throw new NodeException("Extraction with jAudio failed: " + e.getMessage());
+		} catch(Exception e) {
+			throw new NodeException("Extraction with jAudio failed: " + e);
+		} finally {
+			thread.setContextClassLoader(contextClassLoader);
+			close(keyStream);
+			close(valueStream);
+		}
+	}
+
+	/**
+	 * @return An idle batch of the given converted script or null if there is none
+	 */
+	private synchronized Object pollIdleBatch(String key) {
+		ArrayDeque<Object> batches = idleBatches.get(key);
+		return batches == null ? null : batches.poll();
+	}
+
+	/**
+	 * Keeps the batch for the next music file; not more batches are kept for a script than
+	 * extractions may run at the same time
+	 */
+	private synchronized void addIdleBatch(String key, Object batch) {
+		ArrayDeque<Object> batches = idleBatches.get(key);
+		if(batches == null) {
+			batches = new ArrayDeque<Object>();
+			idleBatches.put(key, batches);
+		}
+		if(batches.size() < Math.max(1, AmusePreferences.getInt(KeysIntValue.MAX_NUMBER_OF_TASK_THREADS))) {
+			batches.add(batch);
+		}
+	}
+
+	/**
+	 * @return Number of idle batches of all converted scripts
+	 */
+	synchronized int getIdleBatchCount() {
+		int count = 0;
+		for(ArrayDeque<Object> batches : idleBatches.values()) {
+			count += batches.size();
+		}
+		return count;
+	}
+
+	/**
+	 * Parses the batch script
+	 */
+	private Object parseBatch(File batchScript) throws Exception {
+		Object[] batches = (Object[])parseXMLDocument.invoke(null, batchScript.getAbsolutePath(), "batchFile");
+		if(batches.length != 1) {
+			throw new NodeException("jAudio batch script " + batchScript + " must contain one batch");
+		}
+		AmuseLogger.write(this.getClass().getName(), Level.DEBUG, "jAudio batch script loaded: " + batchScript);
+		return batches[0];
+	}
+
+	private static void close(OutputStream stream) {
+		if(stream != null) {
+			try {
+				stream.close();
+			} catch(IOException e) {
+				AmuseLogger.write(JAudioInProcessExtractor.class.getName(), Level.WARN, "Could not close jAudio output: " + e.getMessage());
+			}
+		}
+	}
+}
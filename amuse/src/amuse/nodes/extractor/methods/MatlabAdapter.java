@@ -212,7 +212,7 @@ public class MatlabAdapter extends AmuseTask implements ExtractorInterface {
 		BufferedWriter out = null;
 		FileWriter fileWriter = null;
 		try {
-				fileWriter = new FileWriter(properties.getProperty("extractorFolder")
+				fileWriter = new FileWriter(getConvertedScriptFolder()
 						+ File.separator
 						+ properties.getProperty("inputExtractorBatch"));
 		        out = new BufferedWriter(fileWriter);
@@ -244,6 +244,14 @@ public class MatlabAdapter extends AmuseTask implements ExtractorInterface {
 		
 	}
 	
+	/**
+	 * Returns the folder with the base script converted for the features to extract, which is set
+	 * by BaseScriptConverter, or the extractor folder
+	 */
+	private String getConvertedScriptFolder() {
+		return properties.getProperty("convertedScriptFolder", properties.getProperty("extractorFolder"));
+	}
+	
 	/**
 	 * @see amuse.nodes.extractor.interfaces.ExtractorInterface#extractFeatures()
 	 */
@@ -258,6 +266,10 @@ public class MatlabAdapter extends AmuseTask implements ExtractorInterface {
 					folder.toString());
 		}
 				
+		// The log file is written to the folder for temporary files of this adapter (if set by the extractor node scheduler),
+		// so that the log files of parallel extractions are not mixed
+		String logFolder = properties.getProperty("extractorWorkFolder", properties.getProperty("extractorFolder"));
+		
 		// Start Matlab
 		try {
 			List<String> commands = new ArrayList<String>();
@@ -268,14 +280,16 @@ public class MatlabAdapter extends AmuseTask implements ExtractorInterface {
 			commands.add("-r");
 			commands.add("matlabBaseModified('" + this.musicFile + "','" + folder + "')");
 			commands.add("-logfile");
-			commands.add("\"" + properties.getProperty("extractorFolder") + File.separator + "MatlabFeatures.log\"");
+			commands.add("\"" + logFolder + File.separator + "MatlabFeatures.log\"");
 			ExternalProcessBuilder matlab = new ExternalProcessBuilder(commands);
-			matlab.setWorkingDirectory(new File(properties.getProperty("extractorFolder")));
+			
+			// The converted script is started from its folder, the other functions are found in the extractor folder
+			matlab.setWorkingDirectory(new File(getConvertedScriptFolder()));
 			matlab.setEnv("MATLABPATH", properties.getProperty("extractorFolder"));
 			
 			// Monitor the path that contains the log file
 			WatchService watcher = FileSystems.getDefault().newWatchService();
-			Path pathToWatch = FileSystems.getDefault().getPath(properties.getProperty("extractorFolder"));
+			Path pathToWatch = FileSystems.getDefault().getPath(logFolder);
 			pathToWatch.register(watcher, StandardWatchEventKinds.ENTRY_MODIFY);
 					
 			// Start the matlab process
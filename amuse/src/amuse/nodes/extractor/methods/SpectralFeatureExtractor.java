@@ -0,0 +1,724 @@
+/**
+ * This file is part of AMUSE framework (Advanced MUsic Explorer).
+ *
+ * Copyright 2006-2010 by code authors
+ *
+ * Created at TU Dortmund, Chair of Algorithm Engineering
+ * (Contact: <http://ls11-www.cs.tu-dortmund.de>)
+ *
+ * AMUSE is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * AMUSE is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with AMUSE. If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Creation date: 17.10.2026
+ */
+package amuse.nodes.extractor.methods;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.nio.FloatBuffer;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.StringTokenizer;
+
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.transform.Transformer;
+import javax.xml.transform.TransformerFactory;
+import javax.xml.transform.dom.DOMSource;
+import javax.xml.transform.stream.StreamResult;
+
+import org.apache.log4j.Level;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.NamedNodeMap;
+import org.w3c.dom.Node;
+import org.w3c.dom.NodeList;
+
+import amuse.data.FeatureTable;
+import amuse.interfaces.nodes.NodeException;
+import amuse.interfaces.nodes.methods.AmuseTask;
+import amuse.nodes.extractor.interfaces.ExtractorInterface;
+import amuse.util.AmuseLogger;
+import amuse.util.audio.DecodedAudioCache;
+import amuse.util.audio.DecodedAudioCache.DecodedAudio;
+import amuse.util.audio.RealFFT;
+
+/**
+ * Extracts low-level features in Java without starting an external tool. The mono samples of the music file
+ * are read window by window from the <class>DecodedAudioCache</class>; the magnitude spectrum of a window is computed once and shared by all spectral features, and all
+ * buffers are reused for the next window. The features are written directly to AMUSE ARFF feature files.<br/>
+ * The features and their parameters are given by the base script, see tools/AmuseSpectral/spectralBase.xml.
+ *
+ * @version $Id$
+ */
+public class SpectralFeatureExtractor extends AmuseTask implements ExtractorInterface {
+
+	/** Ids of the features which can be extracted */
+	private static final int ZERO_CROSSING_RATE = 50;
+	private static final int ROOT_MEAN_SQUARE = 51;
+	private static final int SPECTRAL_CENTROID = 52;
+	private static final int SPECTRAL_ROLLOFF = 53;
+	private static final int SPECTRAL_FLUX = 54;
+	private static final int MFCC = 55;
+	private static final int CHROMA = 264;
+
+	/** Input music file */
+	private String musicFile;
+
+	/** If the input music file was splitted, here is the number of current part */
+	private Integer currentPart;
+
+	/*
+	 * (non-Javadoc)
+	 * @see amuse.nodes.extractor.interfaces.ExtractorInterface#setFilenames(java.lang.String, java.lang.String, java.lang.Integer)
+	 */
+	public void setFilenames(String musicFile, String outputFeatureFile, Integer currentPart) throws NodeException {
+		this.musicFile = musicFile;
+		this.currentPart = currentPart;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see amuse.nodes.extractor.interfaces.ExtractorInterface#convertBaseScript(java.util.HashMap, amuse.data.FeatureTable)
+	 */
+	public void convertBaseScript(HashMap<Integer,Integer> feature2Tool, FeatureTable featureTable) throws NodeException {
+
+		// Load the base script
+		Document currentBaseScript = null;
+		try {
+			currentBaseScript = DocumentBuilderFactory.newInstance().newDocumentBuilder().parse(
+					properties.getProperty("extractorFolder") + File.separator +
+					properties.getProperty("inputExtractorBaseBatch"));
+		} catch(java.io.IOException e) {
+			throw new NodeException("Cannot open SpectralFeatureExtractor base script: " + e.getMessage());
+		} catch(javax.xml.parsers.ParserConfigurationException e) {
+			throw new NodeException("Cannot create DocumentBuilder which satisfies the configuration: " + e.getMessage());
+		} catch(org.xml.sax.SAXException e) {
+			throw new NodeException("Cannot create DocumentBuilder which satisfies the configuration: " + e.getMessage());
+		}
+
+		// Search for all AmuseEnabler Nodes
+		NodeList nList = currentBaseScript.getElementsByTagName("amuseEnableFeature");
+		for(int i=0;i<nList.getLength();i++) {
+			Node node = nList.item(i);
+			NamedNodeMap attr = node.getAttributes();
+			StringTokenizer idsTokenizer = new StringTokenizer(attr.getNamedItem("id").getNodeValue(),",");
+			ArrayList<Integer> idsOfCurrentEnabler = new ArrayList<Integer>();
+			while(idsTokenizer.hasMoreElements()) {
+				idsOfCurrentEnabler.add(new Integer(idsTokenizer.nextToken()));
+			}
+
+			// The subtree will be kept only if this extractor should extract the feature
+			boolean enableSubTree = false;
+			for(int j=0;j<idsOfCurrentEnabler.size();j++) {
+				if(!feature2Tool.containsKey(idsOfCurrentEnabler.get(j))) {
+					continue;
+				}
+				if(feature2Tool.get(idsOfCurrentEnabler.get(j)).toString().equals(properties.getProperty("id"))) {
+					AmuseLogger.write(this.getClass().getName(), Level.DEBUG, "Feature with ID '" + idsOfCurrentEnabler.get(j) +
+							"' will be extracted with " + properties.getProperty("extractorName"));
+					enableSubTree = true; break;
+				}
+			}
+
+			if(!enableSubTree) {
+				// Cut the XML subtree which extracts current feature(s) since it should not be supported by this extractor
+				node.getParentNode().removeChild(node);
+
+				// Important, since the list is updated after replacement!
+				i--;
+			}
+		}
+
+		// Save the modified script
+		try {
+			Transformer transformer = TransformerFactory.newInstance().newTransformer();
+			DOMSource domsource = new DOMSource(currentBaseScript);
+			File modifiedScript = getConvertedScript();
+			if (modifiedScript.exists())
+				if (!modifiedScript.canWrite()) {
+					throw new NodeException("Cannot write to modified SpectralFeatureExtractor base script");
+				}
+
+			if (!modifiedScript.exists())
+				modifiedScript.createNewFile();
+			StreamResult result = new StreamResult(modifiedScript);
+			transformer.transform(domsource,result);
+		} catch(javax.xml.transform.TransformerConfigurationException e) {
+			throw new NodeException("Cannot transform SpectralFeatureExtractor base script: " + e.getMessage());
+		} catch(java.io.IOException e) {
+			throw new NodeException("Cannot save transformed SpectralFeatureExtractor base script: " + e.getMessage());
+		} catch(javax.xml.transform.TransformerException e) {
+			throw new NodeException("Cannot transform SpectralFeatureExtractor base script: " + e.getMessage());
+		}
+	}
+
+	/**
+	 * Returns the base script converted for the features to extract, which is saved in the folder set
+	 * by BaseScriptConverter or in the extractor folder
+	 */
+	private File getConvertedScript() {
+		return new File(properties.getProperty("convertedScriptFolder", properties.getProperty("extractorFolder")) +
+				File.separator + properties.getProperty("inputExtractorBatch"));
+	}
+
+	/**
+	 * @see amuse.nodes.extractor.interfaces.ExtractorInterface#extractFeatures()
+	 */
+	public void extractFeatures() throws NodeException {
+		AmuseLogger.write(this.getClass().getName(), Level.DEBUG, "Starting feature extraction...");
+
+		// Load the modified base script with configuration for features to extract
+		Document modifiedBaseScript = null;
+		try {
+			modifiedBaseScript = DocumentBuilderFactory.newInstance().newDocumentBuilder().parse(getConvertedScript());
+		} catch(java.io.IOException e) {
+			throw new NodeException("Cannot open SpectralFeatureExtractor script: " + e.getMessage());
+		} catch(javax.xml.parsers.ParserConfigurationException e) {
+			throw new NodeException("Cannot create DocumentBuilder which satisfies the configuration: " + e.getMessage());
+		} catch(org.xml.sax.SAXException e) {
+			throw new NodeException("Cannot create DocumentBuilder which satisfies the configuration: " + e.getMessage());
+		}
+		int windowSize;
+		try {
+			windowSize = new Integer(modifiedBaseScript.getDocumentElement().getAttribute("windowSize"));
+		} catch(NumberFormatException e) {
+			throw new NodeException("Window size of SpectralFeatureExtractor script is not set: " + e.getMessage());
+		}
+
+		// Create a folder for Amuse feature files
+		File folder = new File(this.correspondingScheduler.getHomeFolder() + File.separator + "input" + File.separator + "task_" +
+				this.correspondingScheduler.getTaskId() + File.separator + this.currentPart + File.separator +
+				properties.getProperty("extractorFolderName"));
+		if(!folder.exists() && !folder.mkdirs()) {
+			throw new NodeException("Extraction with SpectralFeatureExtractor failed: could not create temp folder " +
+					folder.toString());
+		}
+		String musicFileName = new File(musicFile).getName();
+		if(musicFileName.lastIndexOf(".") != -1) {
+			musicFileName = musicFileName.substring(0,musicFileName.lastIndexOf("."));
+		}
+
+		// The channels are averaged by the cache, which is shared with the other readers of the music file
+		DecodedAudio audio;
+		try {
+			audio = DecodedAudioCache.getInstance().get(new File(musicFile), 0, 1);
+		} catch(IOException e) {
+			throw new NodeException("Extraction with SpectralFeatureExtractor failed: " + e.getMessage());
+		}
+		List<SpectralFeature> features = new ArrayList<SpectralFeature>();
+		List<BufferedWriter> writers = new ArrayList<BufferedWriter>();
+		try {
+			long numberOfWindows = (audio.getFrames() + windowSize - 1) / windowSize;
+			Window window;
+			try {
+				window = new Window(windowSize, audio.getSampleRate());
+			} catch(IllegalArgumentException e) {
+				throw new NodeException("Extraction with SpectralFeatureExtractor failed: " + e.getMessage());
+			}
+
+			NodeList nList = modifiedBaseScript.getElementsByTagName("amuseEnableFeature");
+			boolean isSpectrumRequired = false;
+			for(int i=0;i<nList.getLength();i++) {
+				SpectralFeature feature = createFeature((Element)nList.item(i), window);
+				features.add(feature);
+				isSpectrumRequired |= feature.isSpectral();
+				writers.add(createFeatureFile(new File(folder, musicFileName + "_" + feature.id + ".arff"), feature,
+						numberOfWindows, window));
+			}
+
+			// Go through the windows; all features are written after a window is read
+			String sep = System.getProperty("line.separator");
+			FloatBuffer samples = audio.getSamples();
+			StringBuilder row = new StringBuilder();
+			for(long currentWindow=1;currentWindow<=numberOfWindows;currentWindow++) {
+				window.setSamples(samples);
+				if(isSpectrumRequired) {
+					window.calculateSpectrum();
+				}
+				for(int i=0;i<features.size();i++) {
+					SpectralFeature feature = features.get(i);
+					feature.calculate(window);
+					row.setLength(0);
+					for(int j=0;j<feature.values.length;j++) {
+						row.append(feature.values[j]).append(',');
+					}
+					row.append(currentWindow).append(sep);
+					writers.get(i).write(row.toString());
+				}
+			}
+		} catch(IOException e) {
+			throw new NodeException("Extraction with SpectralFeatureExtractor failed: " + e.getMessage());
+		} finally {
+			for(BufferedWriter writer : writers) {
+				try {
+					writer.close();
+				} catch(IOException e) {
+					AmuseLogger.write(this.getClass().getName(), Level.WARN, "Could not close feature file: " + e.getMessage());
+				}
+			}
+		}
+		AmuseLogger.write(this.getClass().getName(), Level.DEBUG, features.size() + " features extracted from " + musicFile);
+	}
+
+	/**
+	 * Creates the feature described by an enabler of the script
+	 */
+	private static SpectralFeature createFeature(Element enabler, Window window) throws NodeException {
+		String name = enabler.getAttribute("name");
+		HashMap<String,String> parameters = new HashMap<String,String>();
+		NodeList children = enabler.getElementsByTagName("extractionParameter");
+		for(int i=0;i<children.getLength();i++) {
+			Element parameter = (Element)children.item(i);
+			parameters.put(parameter.getAttribute("name"), parameter.getAttribute("stringValue"));
+		}
+		try {
+			int id = new Integer(enabler.getAttribute("id"));
+			switch(id) {
+			case ZERO_CROSSING_RATE:
+				return new ZeroCrossingRate(id, name);
+			case ROOT_MEAN_SQUARE:
+				return new RootMeanSquare(id, name);
+			case SPECTRAL_CENTROID:
+				return new SpectralCentroid(id, name);
+			case SPECTRAL_ROLLOFF:
+				return new SpectralRolloff(id, name, new Double(getParameter(parameters, "Fraction", id)));
+			case SPECTRAL_FLUX:
+				return new SpectralFlux(id, name);
+			case MFCC:
+				return new MelFrequencyCepstralCoefficients(id, name, new Integer(getParameter(parameters, "Coefficients", id)),
+						new Integer(getParameter(parameters, "Mel bands", id)), window);
+			case CHROMA:
+				return new Chroma(id, name, new Double(getParameter(parameters, "Minimal frequency", id)),
+						new Double(getParameter(parameters, "Maximal frequency", id)), window);
+			default:
+				throw new NodeException("Feature " + id + " cannot be extracted by SpectralFeatureExtractor");
+			}
+		} catch(NumberFormatException e) {
+			throw new NodeException("Wrong feature id or parameter in SpectralFeatureExtractor script: " + e.getMessage());
+		}
+	}
+
+	private static String getParameter(HashMap<String,String> parameters, String name, int id) throws NodeException {
+		String value = parameters.get(name);
+		if(value == null) {
+			throw new NodeException("Parameter '" + name + "' of feature " + id + " is not set");
+		}
+		return value;
+	}
+
+	/**
+	 * Creates the ARFF feature file and writes its header
+	 */
+	private static BufferedWriter createFeatureFile(File file, SpectralFeature feature, long numberOfWindows,
+			Window window) throws IOException {
+		BufferedWriter values_writer = new BufferedWriter(new FileWriter(file));
+		String sep = System.getProperty("line.separator");
+		values_writer.write("@RELATION 'Music feature'");
+		values_writer.write(sep);
+		values_writer.write("%rows=" + feature.values.length);
+		values_writer.write(sep);
+		values_writer.write("%columns=" + numberOfWindows);
+		values_writer.write(sep);
+		values_writer.write("%sample_rate=" + Math.round(window.sampleRate));
+		values_writer.write(sep);
+		values_writer.write("%window_size=" + window.size);
+		values_writer.write(sep);
+		values_writer.write(sep);
+		for(int i=0;i<feature.values.length;i++) {
+			values_writer.write("@ATTRIBUTE '" + feature.name + "' NUMERIC");
+			values_writer.write(sep);
+		}
+		values_writer.write("@ATTRIBUTE WindowNumber NUMERIC");
+		values_writer.write(sep);
+		values_writer.write(sep);
+		values_writer.write("@DATA");
+		values_writer.write(sep);
+		return values_writer;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see amuse.nodes.extractor.interfaces.ExtractorInterface#convertOutput()
+	 */
+	public void convertOutput() throws NodeException {
+		// Do nothing, since the features are written in AMUSE format
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see amuse.interfaces.AmuseTaskInterface#initialize()
+	 */
+	public void initialize() throws NodeException {
+		// Do nothing, since initialization is not required
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see amuse.interfaces.AmuseTaskInterface#setParameters(java.lang.String)
+	 */
+	public void setParameters(String parameterString) throws NodeException {
+		// Do nothing, since initialization is not required
+	}
+
+	/**
+	 * Current window with its samples and its magnitude spectrum, which are shared by all features
+	 */
+	private static class Window {
+		final int size;
+		final float sampleRate;
+
+		/** Mono samples between -1 and 1; the last window is filled with zeros */
+		final double[] samples;
+
+		/** Magnitudes of the Hann windowed samples for the frequencies k * sampleRate / size, k = 0, ..., size / 2 */
+		double[] magnitudes;
+
+		/** Magnitudes of the previous window, if hasPreviousSpectrum is set */
+		double[] previousMagnitudes;
+		boolean hasPreviousSpectrum = false;
+		private boolean hasSpectrum = false;
+
+		private final RealFFT fft;
+		private final double[] hann;
+		private final double[] spectrum;
+
+		Window(int size, float sampleRate) {
+			this.size = size;
+			this.sampleRate = sampleRate;
+			this.fft = new RealFFT(size);
+			samples = new double[size];
+			spectrum = new double[size];
+			magnitudes = new double[size / 2 + 1];
+			previousMagnitudes = new double[size / 2 + 1];
+			hann = new double[size];
+			for(int i=0;i<size;i++) {
+				hann[i] = 0.5 - 0.5 * Math.cos(2 * Math.PI * i / size);
+			}
+		}
+
+		/**
+		 * Sets the samples from the current position of the mono samples; missing samples are set to 0
+		 */
+		void setSamples(FloatBuffer buffer) {
+			int frames = Math.min(size, buffer.remaining());
+			for(int i=0;i<frames;i++) {
+				samples[i] = buffer.get();
+			}
+			for(int i=frames;i<size;i++) {
+				samples[i] = 0;
+			}
+		}
+
+		void calculateSpectrum() {
+			double[] previous = previousMagnitudes;
+			previousMagnitudes = magnitudes;
+			magnitudes = previous;
+			hasPreviousSpectrum = hasSpectrum;
+			hasSpectrum = true;
+			for(int i=0;i<size;i++) {
+				spectrum[i] = samples[i] * hann[i];
+			}
+			fft.transform(spectrum);
+			fft.magnitudes(spectrum, magnitudes);
+		}
+
+		double getFrequency(int bin) {
+			return (double)bin * sampleRate / size;
+		}
+	}
+
+	/**
+	 * Feature with the values of the current window
+	 */
+	private static abstract class SpectralFeature {
+		final int id;
+		final String name;
+		final double[] values;
+
+		SpectralFeature(int id, String name, int dimensions) {
+			this.id = id;
+			this.name = name;
+			this.values = new double[dimensions];
+		}
+
+		/**
+		 * @return True if the feature uses the magnitude spectrum
+		 */
+		boolean isSpectral() {
+			return true;
+		}
+
+		/**
+		 * Calculates the values of the window
+		 */
+		abstract void calculate(Window window);
+	}
+
+	/**
+	 * Number of sign changes between neighbouring samples divided by the window size
+	 */
+	private static class ZeroCrossingRate extends SpectralFeature {
+		ZeroCrossingRate(int id, String name) {
+			super(id, name, 1);
+		}
+
+		boolean isSpectral() {
+			return false;
+		}
+
+		void calculate(Window window) {
+			int crossings = 0;
+			for(int i=1;i<window.size;i++) {
+				if((window.samples[i - 1] >= 0) != (window.samples[i] >= 0)) {
+					crossings++;
+				}
+			}
+			values[0] = (double)crossings / window.size;
+		}
+	}
+
+	/**
+	 * Root mean square of the samples
+	 */
+	private static class RootMeanSquare extends SpectralFeature {
+		RootMeanSquare(int id, String name) {
+			super(id, name, 1);
+		}
+
+		boolean isSpectral() {
+			return false;
+		}
+
+		void calculate(Window window) {
+			double sum = 0;
+			for(int i=0;i<window.size;i++) {
+				sum += window.samples[i] * window.samples[i];
+			}
+			values[0] = Math.sqrt(sum / window.size);
+		}
+	}
+
+	/**
+	 * Mean frequency weighted by the magnitudes in Hz
+	 */
+	private static class SpectralCentroid extends SpectralFeature {
+		SpectralCentroid(int id, String name) {
+			super(id, name, 1);
+		}
+
+		void calculate(Window window) {
+			double weightedSum = 0;
+			double sum = 0;
+			for(int k=0;k<window.magnitudes.length;k++) {
+				weightedSum += window.getFrequency(k) * window.magnitudes[k];
+				sum += window.magnitudes[k];
+			}
+			values[0] = sum > 0 ? weightedSum / sum : 0;
+		}
+	}
+
+	/**
+	 * Lowest frequency in Hz below which the given fraction of the magnitudes is concentrated
+	 */
+	private static class SpectralRolloff extends SpectralFeature {
+		private final double fraction;
+
+		SpectralRolloff(int id, String name, double fraction) {
+			super(id, name, 1);
+			this.fraction = fraction;
+		}
+
+		void calculate(Window window) {
+			double sum = 0;
+			for(int k=0;k<window.magnitudes.length;k++) {
+				sum += window.magnitudes[k];
+			}
+			values[0] = 0;
+			if(sum > 0) {
+				double partialSum = 0;
+				for(int k=0;k<window.magnitudes.length;k++) {
+					partialSum += window.magnitudes[k];
+					if(partialSum >= fraction * sum) {
+						values[0] = window.getFrequency(k);
+						break;
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * Sum of the squared differences between the magnitudes of the window and of the previous window;
+	 * 0 for the first window
+	 */
+	private static class SpectralFlux extends SpectralFeature {
+		SpectralFlux(int id, String name) {
+			super(id, name, 1);
+		}
+
+		void calculate(Window window) {
+			double sum = 0;
+			if(window.hasPreviousSpectrum) {
+				for(int k=0;k<window.magnitudes.length;k++) {
+					double difference = window.magnitudes[k] - window.previousMagnitudes[k];
+					sum += difference * difference;
+				}
+			}
+			values[0] = sum;
+		}
+	}
+
+	/**
+	 * Orthonormal DCT-II of the logarithmic mel band energies. The mel bands are triangular filters on
+	 * the power spectrum, equally spaced on the mel scale 2595 log10(1 + f / 700) between 0 Hz and half
+	 * of the sampling rate; the energy of a band is the mean power weighted by its filter, so that a flat
+	 * spectrum has the same energy in all bands
+	 */
+	private static class MelFrequencyCepstralCoefficients extends SpectralFeature {
+
+		/** First bin and weights of the bins of each mel band */
+		private final int[] firstBins;
+		private final double[][] weights;
+
+		/** Cosines of the DCT for each coefficient and band */
+		private final double[][] dct;
+
+		private final double[] logEnergies;
+
+		MelFrequencyCepstralCoefficients(int id, String name, int coefficients, int melBands, Window window) throws NodeException {
+			super(id, name, coefficients);
+			if(coefficients < 1 || coefficients > melBands) {
+				throw new NodeException("Number of MFCCs must be between 1 and the number of mel bands " + melBands);
+			}
+			int bins = window.size / 2 + 1;
+			double maxMel = toMel(window.sampleRate / 2);
+			firstBins = new int[melBands];
+			weights = new double[melBands][];
+			for(int j=0;j<melBands;j++) {
+				double lower = toFrequency(maxMel * j / (melBands + 1));
+				double center = toFrequency(maxMel * (j + 1) / (melBands + 1));
+				double upper = toFrequency(maxMel * (j + 2) / (melBands + 1));
+				double[] bandWeights = new double[bins];
+				int first = bins;
+				int last = -1;
+				double sum = 0;
+				for(int k=0;k<bins;k++) {
+					double frequency = window.getFrequency(k);
+					double weight = 0;
+					if(frequency > lower && frequency <= center) {
+						weight = (frequency - lower) / (center - lower);
+					} else if(frequency > center && frequency < upper) {
+						weight = (upper - frequency) / (upper - center);
+					}
+					if(weight > 0) {
+						bandWeights[k] = weight;
+						first = Math.min(first, k);
+						last = k;
+						sum += weight;
+					}
+				}
+
+				// Narrow bands between two bins use the bin next to their center
+				if(last == -1) {
+					first = last = (int)Math.min(bins - 1, Math.round(center * window.size / window.sampleRate));
+					bandWeights[first] = sum = 1;
+				}
+				firstBins[j] = first;
+				weights[j] = new double[last - first + 1];
+				for(int k=first;k<=last;k++) {
+					weights[j][k - first] = bandWeights[k] / sum;
+				}
+			}
+			dct = new double[coefficients][melBands];
+			for(int i=0;i<coefficients;i++) {
+				double scale = Math.sqrt((i == 0 ? 1.0 : 2.0) / melBands);
+				for(int j=0;j<melBands;j++) {
+					dct[i][j] = scale * Math.cos(Math.PI * i * (j + 0.5) / melBands);
+				}
+			}
+			logEnergies = new double[melBands];
+		}
+
+		void calculate(Window window) {
+			for(int j=0;j<weights.length;j++) {
+				double energy = 0;
+				for(int k=0;k<weights[j].length;k++) {
+					double magnitude = window.magnitudes[firstBins[j] + k];
+					energy += weights[j][k] * magnitude * magnitude;
+				}
+				logEnergies[j] = Math.log(Math.max(energy, 1e-10));
+			}
+			for(int i=0;i<values.length;i++) {
+				double sum = 0;
+				for(int j=0;j<logEnergies.length;j++) {
+					sum += dct[i][j] * logEnergies[j];
+				}
+				values[i] = sum;
+			}
+		}
+
+		private static double toMel(double frequency) {
+			return 2595 * Math.log10(1 + frequency / 700);
+		}
+
+		private static double toFrequency(double mel) {
+			return 700 * (Math.pow(10, mel / 2595) - 1);
+		}
+	}
+
+	/**
+	 * Power of the twelve pitch classes C, C#, ..., B (tuned to A = 440 Hz) in the given frequency range,
+	 * divided by the maximum of the window
+	 */
+	private static class Chroma extends SpectralFeature {
+
+		/** Pitch class of each bin or -1 if the bin is not used */
+		private final int[] pitchClasses;
+
+		Chroma(int id, String name, double minFrequency, double maxFrequency, Window window) {
+			super(id, name, 12);
+			pitchClasses = new int[window.size / 2 + 1];
+			for(int k=0;k<pitchClasses.length;k++) {
+				double frequency = window.getFrequency(k);
+				pitchClasses[k] = -1;
+				if(k > 0 && frequency >= minFrequency && frequency <= maxFrequency) {
+					long semitones = Math.round(12 * Math.log(frequency / 440) / Math.log(2));
+					pitchClasses[k] = (int)(((semitones + 9) % 12 + 12) % 12);
+				}
+			}
+		}
+
+		void calculate(Window window) {
+			for(int i=0;i<values.length;i++) {
+				values[i] = 0;
+			}
+			for(int k=0;k<pitchClasses.length;k++) {
+				if(pitchClasses[k] != -1) {
+					values[pitchClasses[k]] += window.magnitudes[k] * window.magnitudes[k];
+				}
+			}
+			double max = 0;
+			for(int i=0;i<values.length;i++) {
+				max = Math.max(max, values[i]);
+			}
+			if(max > 0) {
+				for(int i=0;i<values.length;i++) {
+					values[i] /= max;
+				}
+			}
+		}
+	}
+}
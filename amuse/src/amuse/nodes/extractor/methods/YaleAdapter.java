@@ -99,9 +99,7 @@ public class YaleAdapter extends AmuseTask implements ExtractorInterface {
 			yaleScript = DocumentBuilderFactory
 					.newInstance()
 					.newDocumentBuilder()
-					.parse(properties.getProperty("extractorFolder")
-							+ File.separator
-							+ properties.getProperty("inputExtractorBatch"));
+					.parse(getConvertedScript());
 		} catch (SAXException e) {
 			throw new NodeException(
 					"Setting of input music file with Yale failed: "
@@ -173,9 +171,7 @@ public class YaleAdapter extends AmuseTask implements ExtractorInterface {
 			Transformer transformer = TransformerFactory.newInstance()
 					.newTransformer();
 			DOMSource domsource = new DOMSource(yaleScript);
-			File modifiedScript = new File(
-					properties.getProperty("extractorFolder") + File.separator
-							+ properties.getProperty("inputExtractorBatch"));
+			File modifiedScript = getBatchFile();
 			if (modifiedScript.exists())
 				if (!modifiedScript.canWrite())
 					throw new NodeException("Cannot write to " + modifiedScript
@@ -200,6 +196,37 @@ public class YaleAdapter extends AmuseTask implements ExtractorInterface {
 		}
 	}
 
+	/**
+	 * Returns the batch script for the current music file, which is saved in
+	 * the folder for temporary files of this adapter (if set by the extractor
+	 * node scheduler) or in the Yale folder. The relative files of the script
+	 * (e.g. the log file) are written to the folder of the script
+	 */
+	private File getBatchFile() {
+		return new File(properties.getProperty("extractorWorkFolder",
+				properties.getProperty("extractorFolder"))
+				+ File.separator
+				+ properties.getProperty("inputExtractorBatch"));
+	}
+
+	/**
+	 * Returns the folder with the base script converted for the features to
+	 * extract and the description of these features, which is set by
+	 * BaseScriptConverter or the Yale folder
+	 */
+	private String getConvertedScriptFolder() {
+		return properties.getProperty("convertedScriptFolder",
+				properties.getProperty("extractorFolder"));
+	}
+
+	/**
+	 * Returns the base script converted for the features to extract
+	 */
+	private File getConvertedScript() {
+		return new File(getConvertedScriptFolder() + File.separator
+				+ properties.getProperty("inputExtractorBatch"));
+	}
+
 	/**
 	 * @see amuse.nodes.extractor.interfaces.ExtractorInterface#convertBaseScript(HashMap)
 	 */
@@ -408,9 +435,7 @@ public class YaleAdapter extends AmuseTask implements ExtractorInterface {
 			Transformer transformer = TransformerFactory.newInstance()
 					.newTransformer();
 			DOMSource domsource = new DOMSource(currentBaseScript);
-			File modifiedScript = new File(
-					properties.getProperty("extractorFolder") + File.separator
-							+ properties.getProperty("inputExtractorBatch"));
+			File modifiedScript = getConvertedScript();
 			if (modifiedScript.exists())
 				if (!modifiedScript.canWrite()) {
 					throw new NodeException(
@@ -438,8 +463,8 @@ public class YaleAdapter extends AmuseTask implements ExtractorInterface {
 
 		// Create a name for Amuse feature file
 		String currentFeatureFile = new String();
-		currentFeatureFile = properties.getProperty("extractorFolder")
-				+ File.separator + "extractorFeatureTable.arff";
+		currentFeatureFile = getConvertedScriptFolder() + File.separator
+				+ "extractorFeatureTable.arff";
 		saver.setInstances(data);
 		new File(currentFeatureFile).delete();
 		try {
@@ -471,9 +496,7 @@ public class YaleAdapter extends AmuseTask implements ExtractorInterface {
 			libs.add(lib + "yale.jar");
 			List<String> commands = new ArrayList<String>();
 			commands.add("edu.udo.cs.yale.YaleCommandLine");
-			commands.add(properties.getProperty("extractorFolder")
-					+ File.separator
-					+ properties.getProperty("inputExtractorBatch"));
+			commands.add(getBatchFile().getPath());
 			ExternalProcessBuilder javaPCB = ExternalProcessBuilder
 					.buildJavaProcess(javaProperties, libs, commands);
 			javaPCB.setWorkingDirectory(new File(properties
@@ -576,9 +599,9 @@ public class YaleAdapter extends AmuseTask implements ExtractorInterface {
 		// Load the IDs of features
 		ArffLoader featureDescriptionsloader = new ArffLoader();
 		try {
-			featureDescriptionsloader.setFile(new File(properties
-					.getProperty("extractorFolder")
-					+ File.separator + "extractorFeatureTable.arff"));
+			featureDescriptionsloader.setFile(new File(
+					getConvertedScriptFolder() + File.separator
+							+ "extractorFeatureTable.arff"));
 
 			// Set up the attributes
 			Attribute idAttribute = featureDescriptionsloader.getStructure().attribute("Id");
@@ -50,7 +50,15 @@ public class ESConfiguration {
 	 */
 	public ESConfiguration(String pathToConfiguration) throws NodeException {
 		try {
-			this.document = DocumentBuilderFactory.newInstance().newDocumentBuilder().parse(new File(pathToConfiguration));
+			// The configuration is read by concurrently running fitness evaluations; therefore the complete
+			// document is built at once instead of expanding the nodes during the first access
+			DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
+			try {
+				factory.setFeature("http://apache.org/xml/features/dom/defer-node-expansion", false);
+			} catch (javax.xml.parsers.ParserConfigurationException e) {
+				// The parser does not defer the node expansion
+			}
+			this.document = factory.newDocumentBuilder().parse(new File(pathToConfiguration));
 		} catch (java.io.IOException e) {
 			throw new NodeException("Cannot open configuration XML file: " + e.getMessage());
 		} catch (javax.xml.parsers.ParserConfigurationException e) {
@@ -63,7 +71,7 @@ public class ESConfiguration {
 	/**
 	 * @return XML node with all parameters which should be optimized by ES
 	 */
-	public Node getParametersToOptimize() {
+	public synchronized Node getParametersToOptimize() {
 		NodeList children = document.getDocumentElement().getChildNodes();
 		Node headNode = null;
 		for(int i=0;i<children.getLength();i++) {
@@ -78,7 +86,7 @@ public class ESConfiguration {
 	/**
 	 * @return XML node with all constant problem parameters
 	 */
-	public Node getParametersConstant() {
+	public synchronized Node getParametersConstant() {
 		NodeList children = document.getDocumentElement().getChildNodes();
 		Node headNode = null;
 		for(int i=0;i<children.getLength();i++) {
@@ -93,7 +101,7 @@ public class ESConfiguration {
 	/**
 	 * @return XML node with all ES parameters 
 	 */
-	public Node getESParameters() {
+	public synchronized Node getESParameters() {
 		NodeList children = document.getDocumentElement().getChildNodes();
 		Node headNode = null;
 		for(int i=0;i<children.getLength();i++) {
@@ -108,7 +116,7 @@ public class ESConfiguration {
 	/**
 	 * @return XML node with parameters for logging during optimization process
 	 */
-	public Node getOutputParameters() {
+	public synchronized Node getOutputParameters() {
 		NodeList children = document.getDocumentElement().getChildNodes();
 		Node headNode = null;
 		for(int i=0;i<children.getLength();i++) {
@@ -125,7 +133,7 @@ public class ESConfiguration {
 	 * @param name The name of a constant parameter
 	 * @return The node which describes a constant parameter
 	 */
-	public Node getConstantParameterByName(String name) {
+	public synchronized Node getConstantParameterByName(String name) {
 		return getParameterByName(name, getParametersConstant());
 	}
 	
@@ -134,7 +142,7 @@ public class ESConfiguration {
 	 * @param name The name of an optimization parameter
 	 * @return The node which describes an optimization parameter
 	 */
-	public Node getOptimizationParameterByName(String name) {
+	public synchronized Node getOptimizationParameterByName(String name) {
 		return getParameterByName(name, getParametersToOptimize());
 	}
 	
@@ -143,7 +151,7 @@ public class ESConfiguration {
 	 * @param name The name of an ES parameter
 	 * @return The node which describes an ES parameter
 	 */
-	public Node getESParameterByName(String name) {
+	public synchronized Node getESParameterByName(String name) {
 		return getParameterByName(name, getESParameters());
 	}
 	
@@ -152,7 +160,7 @@ public class ESConfiguration {
 	 * @param name The name of an output parameter
 	 * @return The node which describes an output parameter
 	 */
-	public Node getOutputParameterByName(String name) {
+	public synchronized Node getOutputParameterByName(String name) {
 		return getParameterByName(name, getOutputParameters());
 	}
 	
@@ -162,7 +170,7 @@ public class ESConfiguration {
 	 * @param parametersHeadNode Start node for parsing
 	 * @return The first node with given name starting at parametersHeadNode
 	 */
-	public Node getParameterByName(String name, Node parametersHeadNode) {
+	public synchronized Node getParameterByName(String name, Node parametersHeadNode) {
 		NodeList headChildren = parametersHeadNode.getChildNodes();
 		for(int i=0;i<headChildren.getLength();i++) {
 			
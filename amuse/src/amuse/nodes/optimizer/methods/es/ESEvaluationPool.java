@@ -0,0 +1,140 @@
+/**
+ * This file is part of AMUSE framework (Advanced MUsic Explorer).
+ *
+ * Copyright 2006-2020 by code authors
+ *
+ * Created at TU Dortmund, Chair of Algorithm Engineering
+ * (Contact: <http://ls11-www.cs.tu-dortmund.de>)
+ *
+ * AMUSE is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * AMUSE is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with AMUSE. If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Creation date: 17.10.2026
+ */
+package amuse.nodes.optimizer.methods.es;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.LinkedBlockingQueue;
+
+import amuse.interfaces.nodes.NodeException;
+import amuse.nodes.optimizer.methods.es.evaluation.interfaces.EvaluationInterface;
+
+/**
+ * Runs fitness evaluations of ES individuals on a bounded number of worker threads. Each worker
+ * uses its own evaluator, so that the evaluators do not have to be thread-safe. If only one evaluator
+ * is given, the evaluations are done directly by the calling thread.
+ *
+ * @version $Id$
+ */
+public class ESEvaluationPool {
+
+	/**
+	 * Task which is run by a worker with the evaluator assigned to it
+	 */
+	public interface EvaluationTask<T> {
+		public T evaluate(EvaluationInterface evaluator) throws NodeException;
+	}
+
+	/** All evaluators of this pool; the first one is used if the pool has only one worker */
+	private final List<EvaluationInterface> evaluators;
+
+	/** Evaluators which are currently not used by any worker */
+	private final LinkedBlockingQueue<EvaluationInterface> idleEvaluators;
+
+	/** Worker threads; null if the evaluations are done by the calling thread */
+	private final ExecutorService executor;
+
+	/**
+	 * Standard constructor
+	 * @param evaluators Evaluators for the workers; the number of workers equals the number of evaluators
+	 */
+	public ESEvaluationPool(List<EvaluationInterface> evaluators) {
+		if(evaluators.isEmpty()) {
+			throw new IllegalArgumentException("At least one evaluator is required");
+		}
+		this.evaluators = new ArrayList<EvaluationInterface>(evaluators);
+		this.idleEvaluators = new LinkedBlockingQueue<EvaluationInterface>(evaluators);
+		this.executor = evaluators.size() > 1 ? Executors.newFixedThreadPool(evaluators.size()) : null;
+	}
+
+	/**
+	 * @return Number of evaluations which may run at the same time
+	 */
+	public int getWorkerNumber() {
+		return evaluators.size();
+	}
+
+	/**
+	 * Submits the given task. If this pool has only one worker, the task is already done when this method returns
+	 * @param task Task to run
+	 * @return Future of the task result
+	 */
+	public <T> Future<T> submit(final EvaluationTask<T> task) {
+		Callable<T> callable = new Callable<T>() {
+			public T call() throws Exception {
+				EvaluationInterface evaluator = idleEvaluators.take();
+				try {
+					return task.evaluate(evaluator);
+				} finally {
+					idleEvaluators.put(evaluator);
+				}
+			}
+		};
+		if(executor == null) {
+			FutureTask<T> future = new FutureTask<T>(callable);
+			future.run();
+			return future;
+		}
+		return executor.submit(callable);
+	}
+
+	/**
+	 * Waits for the result of a submitted task
+	 * @param future Future returned by submit
+	 * @return Task result
+	 * @throws NodeException If the task has failed or waiting was interrupted
+	 */
+	public static <T> T getResult(Future<T> future) throws NodeException {
+		try {
+			return future.get();
+		} catch(ExecutionException e) {
+			if(e.getCause() instanceof NodeException) {
+				throw (NodeException)e.getCause();
+			}
+			throw new NodeException("Fitness evaluation failed: " + e.getCause());
+		} catch(InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new NodeException("Interrupted while waiting for fitness evaluation: " + e.getMessage());
+		}
+	}
+
+	/**
+	 * Stops the workers and closes all evaluators
+	 */
+	public void close() throws NodeException {
+		if(executor != null) {
+			executor.shutdownNow();
+		}
+		for(EvaluationInterface evaluator : evaluators) {
+			evaluator.close();
+		}
+	}
+
+}
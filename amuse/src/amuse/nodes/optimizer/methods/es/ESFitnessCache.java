@@ -0,0 +1,440 @@
+/**
+ * This file is part of AMUSE framework (Advanced MUsic Explorer).
+ *
+ * Copyright 2006-2020 by code authors
+ *
+ * Created at TU Dortmund, Chair of Algorithm Engineering
+ * (Contact: <http://ls11-www.cs.tu-dortmund.de>)
+ *
+ * AMUSE is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * AMUSE is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with AMUSE. If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Creation date: 17.10.2026
+ */
+package amuse.nodes.optimizer.methods.es;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+
+import org.apache.log4j.Level;
+import org.w3c.dom.NamedNodeMap;
+import org.w3c.dom.Node;
+import org.w3c.dom.NodeList;
+
+import amuse.interfaces.nodes.NodeException;
+import amuse.nodes.optimizer.methods.es.evaluation.interfaces.EvaluationInterface;
+import amuse.nodes.optimizer.methods.es.representation.interfaces.RepresentationInterface;
+import amuse.nodes.validator.interfaces.ValidationMeasureDouble;
+import amuse.util.AmuseLogger;
+
+/**
+ * Stores the fitness values of already evaluated ES individuals. The key of an individual is a hash of
+ * the evaluation configuration and the values of all its representations, so that an individual which is
+ * created again by mutation or crossover is not evaluated again. The entries can be saved to a file, so
+ * that continued or restarted optimizations with the same configuration and unchanged referenced files
+ * reuse the evaluations of previous runs.
+ *
+ * @version $Id$
+ */
+public class ESFitnessCache {
+
+	/** Name of the cache file in the folder of the ES log */
+	public static final String FILE_NAME = "fitnessCache.arff";
+
+	/** Describes everything besides the individual which has an influence on the fitness */
+	private final String configurationDescription;
+
+	/** Maps the individual keys to the fitness values */
+	private final HashMap<String,ValidationMeasureDouble[]> fitnessValues = new HashMap<String,ValidationMeasureDouble[]>();
+
+	/** Stream for new entries; null if the cache is not saved */
+	private FileOutputStream values_to = null;
+
+	private long requestNumber = 0;
+	private long hitNumber = 0;
+
+	/**
+	 * Standard constructor
+	 * @param configurationDescription Description of the evaluation configuration; entries which were
+	 * saved with another configuration are never returned
+	 */
+	public ESFitnessCache(String configurationDescription) {
+		this.configurationDescription = configurationDescription;
+	}
+
+	/**
+	 * Describes the evaluation configuration of the given ES: the parameters to optimize and the constant problem
+	 * parameters (e.g. the measure table, classifier and feature processing settings), the used data sets and the
+	 * fingerprints of the files which are referenced by these parameters or given, so that a file changed at the same
+	 * path leads to another description. The ES parameters (e.g. the population strategy, operators, random seed and
+	 * evaluation limits) control only the search, so that continued or restarted runs may reuse the fitness values
+	 * @param esConfiguration Configuration of the described ES
+	 * @param referencedFiles Further files which have an influence on the fitness (e.g. the ground truth)
+	 * @param categories Descriptions of the used training, optimization and test data
+	 * @return Description which can be used for the constructor
+	 * @throws NodeException If a referenced file could not be read
+	 */
+	public static String describeConfiguration(ESConfiguration esConfiguration, List<File> referencedFiles, 
+			String... categories) throws NodeException {
+		StringBuffer description = new StringBuffer();
+		for(String category : categories) {
+			description.append(category).append('|');
+		}
+		List<File> files = new ArrayList<File>(referencedFiles);
+		describeNode(esConfiguration.getParametersToOptimize(), description, files);
+		describeNode(esConfiguration.getParametersConstant(), description, files);
+		for(File file : files) {
+			description.append('|').append(file.getPath()).append('=');
+			describeFile(file, description);
+		}
+		return description.toString();
+	}
+
+	private static void describeNode(Node node, StringBuffer description, List<File> files) {
+		if(node == null) {
+			return;
+		}
+		description.append('<').append(node.getNodeName());
+		NamedNodeMap attributes = node.getAttributes();
+		if(attributes != null) {
+			for(int i=0;i<attributes.getLength();i++) {
+				description.append(' ').append(attributes.item(i).getNodeName()).append("='").
+					append(attributes.item(i).getNodeValue()).append('\'');
+				if(attributes.item(i).getNodeName().equals("fileValue")) {
+					files.add(new File(attributes.item(i).getNodeValue()));
+				}
+			}
+		}
+		description.append('>');
+		NodeList children = node.getChildNodes();
+		for(int i=0;i<children.getLength();i++) {
+			if(children.item(i).getNodeType() == Node.ELEMENT_NODE) {
+				describeNode(children.item(i), description, files);
+			}
+		}
+		description.append("</>");
+	}
+
+	/**
+	 * Appends the size, modification time and content hash of the given file
+	 */
+	private static void describeFile(File file, StringBuffer description) throws NodeException {
+		if(!file.isFile()) {
+			description.append("missing");
+			return;
+		}
+		description.append(file.length()).append(',').append(file.lastModified()).append(',');
+		try {
+			MessageDigest digest = MessageDigest.getInstance("SHA-256");
+			FileInputStream in = new FileInputStream(file);
+			try {
+				byte[] buffer = new byte[1 << 16];
+				int read;
+				while((read = in.read(buffer)) != -1) {
+					digest.update(buffer, 0, read);
+				}
+			} finally {
+				in.close();
+			}
+			description.append(toHex(digest.digest()));
+		} catch(NoSuchAlgorithmException e) {
+			throw new RuntimeException(e);
+		} catch(IOException e) {
+			throw new NodeException("Could not read '" + file.getAbsolutePath() + "' for the fitness cache: " + e.getMessage());
+		}
+	}
+
+	private static String toHex(byte[] hash) {
+		StringBuffer hex = new StringBuffer(hash.length * 2);
+		for(byte b : hash) {
+			hex.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+		}
+		return hex.toString();
+	}
+
+	/**
+	 * Loads the entries from the given file and saves all further entries there. If the file does not exist, it is created
+	 * @param cacheFile Cache file
+	 */
+	public synchronized void setFile(File cacheFile) throws NodeException {
+		try {
+			if(cacheFile.exists()) {
+				load(cacheFile);
+			}
+			boolean isNew = !cacheFile.exists() || cacheFile.length() == 0;
+			values_to = new FileOutputStream(cacheFile, true);
+			if(isNew) {
+				String sep = System.getProperty("line.separator");
+				values_to.write(("@RELATION 'ES fitness cache'" + sep + sep +
+						"@ATTRIBUTE 'Individual key' STRING" + sep +
+						"@ATTRIBUTE 'Number of fitness values' NUMERIC" + sep +
+						"@ATTRIBUTE 'Fitness value number' NUMERIC" + sep +
+						"@ATTRIBUTE 'Measure id' NUMERIC" + sep +
+						"@ATTRIBUTE 'Measure name' STRING" + sep +
+						"@ATTRIBUTE 'Is for minimizing' {true,false}" + sep +
+						"@ATTRIBUTE 'Value' NUMERIC" + sep + sep +
+						"@DATA" + sep).getBytes("UTF-8"));
+			}
+		} catch(IOException e) {
+			throw new NodeException("Could not open the fitness cache '" + cacheFile.getAbsolutePath() + "': " + e.getMessage());
+		}
+	}
+
+	/**
+	 * Loads the complete entries from the given file. Rows which could not be parsed (e.g. the last row after
+	 * an interrupted run) are skipped
+	 */
+	private void load(File cacheFile) throws IOException {
+		BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(cacheFile), "UTF-8"));
+		int skippedRows = 0;
+		try {
+			String line;
+			boolean isData = false;
+			String currentKey = null;
+			ValidationMeasureDouble[] currentFitness = null;
+			while((line = reader.readLine()) != null) {
+				if(!isData) {
+					isData = line.trim().equalsIgnoreCase("@DATA");
+					continue;
+				}
+				if(line.trim().length() == 0 || line.startsWith("%")) {
+					continue;
+				}
+				List<String> fields = splitRow(line);
+				if(fields == null || fields.size() != 7) {
+					skippedRows++;
+					continue;
+				}
+				try {
+					String key = fields.get(0);
+					int numberOfValues = Integer.parseInt(fields.get(1));
+					int valueNumber = Integer.parseInt(fields.get(2));
+					if(valueNumber == 0) {
+						currentKey = key;
+						currentFitness = new ValidationMeasureDouble[numberOfValues];
+					} else if(!key.equals(currentKey) || currentFitness == null || currentFitness.length != numberOfValues ||
+							currentFitness[valueNumber - 1] == null) {
+						skippedRows++;
+						continue;
+					}
+					ValidationMeasureDouble measure = new ValidationMeasureDouble(Boolean.parseBoolean(fields.get(5)));
+					measure.setId(Integer.parseInt(fields.get(3)));
+					measure.setName(fields.get(4));
+					measure.setValue(Double.valueOf(fields.get(6)));
+					currentFitness[valueNumber] = measure;
+					if(valueNumber == numberOfValues - 1) {
+						fitnessValues.put(currentKey, currentFitness);
+						currentFitness = null;
+					}
+				} catch(RuntimeException e) {
+					skippedRows++;
+					currentFitness = null;
+				}
+			}
+		} finally {
+			reader.close();
+		}
+		if(skippedRows > 0) {
+			AmuseLogger.write(this.getClass().getName(), Level.WARN, skippedRows + " rows of the fitness cache '" +
+					cacheFile.getAbsolutePath() + "' could not be loaded");
+		}
+		AmuseLogger.write(this.getClass().getName(), Level.INFO, fitnessValues.size() + " fitness values loaded from '" +
+				cacheFile.getAbsolutePath() + "'");
+	}
+
+	/**
+	 * Splits an ARFF data row into its values
+	 * @return Values or null if the row is not complete
+	 */
+	private static List<String> splitRow(String line) {
+		List<String> fields = new ArrayList<String>(7);
+		StringBuffer field = new StringBuffer();
+		boolean isQuoted = false;
+		for(int i=0;i<line.length();i++) {
+			char c = line.charAt(i);
+			if(isQuoted) {
+				if(c == '\\' && i + 1 < line.length()) {
+					field.append(line.charAt(++i));
+				} else if(c == '\'') {
+					isQuoted = false;
+				} else {
+					field.append(c);
+				}
+			} else if(c == '\'') {
+				isQuoted = true;
+			} else if(c == ',') {
+				fields.add(field.toString());
+				field = new StringBuffer();
+			} else {
+				field.append(c);
+			}
+		}
+		if(isQuoted) {
+			return null;
+		}
+		fields.add(field.toString());
+		return fields;
+	}
+
+	private static String quote(String s) {
+		return "'" + s.replace("\\", "\\\\").replace("'", "\\'") + "'";
+	}
+
+	/**
+	 * Calculates the key of the given individual
+	 * @param individual ES individual
+	 * @param isEvaluatedOnIndependentTestSet True for the fitness on the independent test set
+	 * @return Hash of the configuration and all representation values
+	 */
+	String getKey(ESIndividual individual, boolean isEvaluatedOnIndependentTestSet) {
+		StringBuffer description = new StringBuffer(configurationDescription);
+		description.append(isEvaluatedOnIndependentTestSet ? "|test" : "|optimization");
+		for(RepresentationInterface representation : individual.getRepresentationList()) {
+			description.append('|').append(representation.getClass().getName()).append('=').append(representation.toString());
+		}
+		try {
+			return toHex(MessageDigest.getInstance("SHA-256").digest(description.toString().getBytes("UTF-8")));
+		} catch(NoSuchAlgorithmException e) {
+			throw new RuntimeException(e);
+		} catch(java.io.UnsupportedEncodingException e) {
+			throw new RuntimeException(e);
+		}
+	}
+
+	/**
+	 * Returns the stored fitness values of the given individual
+	 * @param individual ES individual
+	 * @param isEvaluatedOnIndependentTestSet True for the fitness on the independent test set
+	 * @return Copy of the stored fitness values or null if the individual has not been evaluated yet
+	 */
+	public synchronized ValidationMeasureDouble[] get(ESIndividual individual, boolean isEvaluatedOnIndependentTestSet) {
+		requestNumber++;
+		ValidationMeasureDouble[] fitness = fitnessValues.get(getKey(individual, isEvaluatedOnIndependentTestSet));
+		if(fitness == null) {
+			return null;
+		}
+		hitNumber++;
+		return copy(fitness);
+	}
+
+	/**
+	 * Stores the fitness values of the given individual
+	 * @param individual ES individual
+	 * @param isEvaluatedOnIndependentTestSet True for the fitness on the independent test set
+	 * @param fitness Fitness values of the individual
+	 */
+	public synchronized void put(ESIndividual individual, boolean isEvaluatedOnIndependentTestSet,
+			ValidationMeasureDouble[] fitness) throws NodeException {
+		String key = getKey(individual, isEvaluatedOnIndependentTestSet);
+		if(fitnessValues.containsKey(key)) {
+			return;
+		}
+		fitnessValues.put(key, copy(fitness));
+		if(values_to != null) {
+
+			// All rows of an entry are written at once, so that other runs which share the file do not interleave them
+			StringBuffer rows = new StringBuffer();
+			for(int i=0;i<fitness.length;i++) {
+				rows.append(quote(key) + "," + fitness.length + "," + i + "," + fitness[i].getId() + "," +
+						quote(fitness[i].getName() == null ? "" : fitness[i].getName()) + "," +
+						fitness[i].isForMinimizing() + "," + fitness[i].getValue() + System.getProperty("line.separator"));
+			}
+			try {
+				values_to.write(rows.toString().getBytes("UTF-8"));
+			} catch(IOException e) {
+				throw new NodeException("Could not write to the fitness cache: " + e.getMessage());
+			}
+		}
+	}
+
+	private static ValidationMeasureDouble[] copy(ValidationMeasureDouble[] fitness) {
+		ValidationMeasureDouble[] copy = new ValidationMeasureDouble[fitness.length];
+		for(int i=0;i<fitness.length;i++) {
+			copy[i] = new ValidationMeasureDouble(fitness[i].isForMinimizing());
+			copy[i].setId(fitness[i].getId());
+			copy[i].setName(fitness[i].getName());
+			copy[i].setValue(fitness[i].getValue());
+		}
+		return copy;
+	}
+
+	/**
+	 * @return Number of requested fitness values
+	 */
+	public synchronized long getRequestNumber() {
+		return requestNumber;
+	}
+
+	/**
+	 * @return Number of requested fitness values which were found in the cache
+	 */
+	public synchronized long getHitNumber() {
+		return hitNumber;
+	}
+
+	/**
+	 * @return Rate of requested fitness values which were found in the cache
+	 */
+	public synchronized double getHitRate() {
+		return requestNumber == 0 ? 0d : (double)hitNumber / requestNumber;
+	}
+
+	/**
+	 * Closes the cache file
+	 */
+	public synchronized void close() throws NodeException {
+		if(values_to != null) {
+			try {
+				values_to.close();
+			} catch(IOException e) {
+				throw new NodeException("Could not close the fitness cache: " + e.getMessage());
+			}
+			values_to = null;
+		}
+	}
+
+	/**
+	 * Returns an evaluator which uses this cache and calls the given evaluator only for individuals
+	 * which have not been evaluated yet
+	 * @param evaluator Evaluator of the individuals
+	 * @return Evaluator which uses this cache
+	 */
+	public EvaluationInterface cached(final EvaluationInterface evaluator) {
+		return new EvaluationInterface() {
+			public void initialize(EvolutionaryStrategy strategy, boolean isEvaluatedOnIndependentTestSet) throws NodeException {
+				evaluator.initialize(strategy, isEvaluatedOnIndependentTestSet);
+			}
+			public ValidationMeasureDouble[] getFitness(ESIndividual individual, boolean isEvaluatedOnIndependentTestSet) throws NodeException {
+				ValidationMeasureDouble[] fitness = get(individual, isEvaluatedOnIndependentTestSet);
+				if(fitness == null) {
+					fitness = evaluator.getFitness(individual, isEvaluatedOnIndependentTestSet);
+					put(individual, isEvaluatedOnIndependentTestSet, fitness);
+				}
+				return fitness;
+			}
+			public void close() throws NodeException {
+				evaluator.close();
+			}
+		};
+	}
+
+}
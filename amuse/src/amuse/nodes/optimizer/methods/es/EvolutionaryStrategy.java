@@ -33,6 +33,7 @@ import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Random;
+import java.util.concurrent.Future;
 
 import org.apache.log4j.Level;
 import org.w3c.dom.Node;
@@ -46,6 +47,7 @@ import amuse.interfaces.nodes.methods.AmuseTask;
 import amuse.nodes.optimizer.OptimizationConfiguration;
 import amuse.nodes.optimizer.interfaces.OptimizerInterface;
 import amuse.nodes.optimizer.methods.es.evaluation.interfaces.EvaluationInterface;
+import amuse.nodes.optimizer.methods.es.evaluation.interfaces.ParallelEvaluationInterface;
 import amuse.nodes.optimizer.methods.es.operators.crossover.interfaces.CrossoverInterface;
 import amuse.nodes.optimizer.methods.es.operators.mutation.interfaces.MutationInterface;
 import amuse.nodes.optimizer.methods.es.operators.selection.CommaSelection;
@@ -55,6 +57,7 @@ import amuse.nodes.optimizer.methods.es.operators.selection.interfaces.Selection
 import amuse.nodes.optimizer.methods.es.representation.interfaces.RepresentationInterface;
 import amuse.nodes.validator.interfaces.ValidationMeasureDouble;
 import amuse.preferences.AmusePreferences;
+import amuse.preferences.KeysIntValue;
 import amuse.preferences.KeysStringValue;
 import amuse.util.AmuseLogger;
 import amuse.util.FileOperations;
@@ -126,6 +129,18 @@ public class EvolutionaryStrategy extends AmuseTask implements OptimizerInterfac
 	ESLogger esLogger;
 	private EvaluationInterface fitnessEvaluator;
 	
+	/** Runs the fitness evaluations, with one evaluator for each worker */
+	ESEvaluationPool evaluationPool;
+	
+	/** Fitness values of already evaluated individuals; null if the cache is not used */
+	ESFitnessCache fitnessCache;
+	
+	/** True if the fitness cache is saved next to the ES log, so that later runs reuse it */
+	boolean isFitnessCacheSaved = false;
+	
+	/** Random generator for the selection of parents and the seeds of VNS, so that a run does not depend on the number of evaluation workers */
+	Random random;
+	
 	/*
 	 * (non-Javadoc)
 	 * @see amuse.nodes.optimizer.interfaces.OptimizerInterface#optimize()
@@ -180,6 +195,9 @@ public class EvolutionaryStrategy extends AmuseTask implements OptimizerInterfac
 			}
 			esLogger = new ESLogger(newLog);
 			logFile = newLog.getAbsolutePath();
+			if(fitnessCache != null && isFitnessCacheSaved) {
+				fitnessCache.setFile(new File(folderForResults + File.separator + ESFitnessCache.FILE_NAME));
+			}
 		} else { // ..or continue writing to older log from previous experiment 
 			if(logLocally) {
 				throw new NodeException("Does not support local logging AND loading of an older log at the same time!");
@@ -190,16 +208,14 @@ public class EvolutionaryStrategy extends AmuseTask implements OptimizerInterfac
 					"/optimization_" + ((OptimizationConfiguration)this.getCorrespondingScheduler().getConfiguration()).getContinueOldExperimentFrom() + 
 					"_-1.arff");
 			esLogger = new ESLogger(pathToLogFile);
+			if(fitnessCache != null && isFitnessCacheSaved) {
+				fitnessCache.setFile(new File(pathToLogFile.getParentFile(), ESFitnessCache.FILE_NAME));
+			}
 		}
 			
 		// Calculate the population fitness values for the first time
 		// TODO getContinueOldExperimentFrom is currently not supported
-		for(int i=0;i<popSize;i++) {
-			populationFitnessValues[i] = population[i].getFitness();
-			if(isIndependentTestSetUsed) {
-				populationFitnessValuesOnTestSet[i] = population[i].getFitnessOnIndependentTestSet();
-			}
-		}
+		evaluatePopulation(population, populationFitnessValues, populationFitnessValuesOnTestSet);
 		
 		// Output the log header
 		if(((OptimizationConfiguration)this.getCorrespondingScheduler().getConfiguration()).getContinueOldExperimentFrom().
@@ -209,152 +225,10 @@ public class EvolutionaryStrategy extends AmuseTask implements OptimizerInterfac
 		
 		// ES generation loop
 		for(;currentGeneration<generationLimit && currentEvaluation<evaluationLimit;currentGeneration++) {
-		
-			// -------------------------------------
-			// (I) Select parents for new population
-			// -------------------------------------
-			// TODO Currently this is done randomly; no different strategies are allowed; 
-			ArrayList<Integer> candidateIndices = new ArrayList<Integer>(popSize);
-			for(int i=0;i<popSize;i++) {
-				candidateIndices.add(i);
-			}
-			offspringPopulation = new ESIndividual[offspringPopSize];
-			
-			// -------------------
-			// (II) Make crossover
-			// -------------------
-			if(!crossoverMap.isEmpty()) { 
-				
-				// Estimate the number of required crossover applications required to create the offsprings
-				// (e.g. for (10+5)-ES and crossover with 2 children as output three crossover operations are required).
-				CrossoverInterface ci = crossoverMap.values().iterator().next().get(0);
-				int breedingNumber = new Double(Math.ceil((double)offspringPopSize / ci.getOffspringNumber())).intValue();
-				
-				// Create the offspring population cloning the 1st individiual for representation info
-				for(int j=0;j<offspringPopSize;j++) {
-					offspringPopulation[j] = population[0].clone();
-				}
-				
-				// Run the breedings
-				for(int i=0;i<breedingNumber;i++) {
-					Collections.shuffle(candidateIndices);
-					ESIndividual[] parentPopulation = new ESIndividual[ci.getParentNumber()];
-					
-					// Select the required parent number randomly
-					for(int j=0;j<ci.getParentNumber();j++) {
-						parentPopulation[j] = population[candidateIndices.get(j)].clone();
-					}
-					
-					// Go through each representation
-					for(int j=0;j<parentPopulation[i].getRepresentationList().size();j++) {
-						
-						// Get the crossover which should be proceeded for current representation
-						List<CrossoverInterface> crossoverToProceed = crossoverMap.get(parentPopulation[i].getRepresentationList().get(j).getClass().getName());
-						if(crossoverToProceed != null) {
-							RepresentationInterface[] ri = new RepresentationInterface[ci.getParentNumber()];
-							for(int currentParent=0;currentParent<ci.getParentNumber();currentParent++) {
-								ri[currentParent] = parentPopulation[currentParent].getRepresentationList().get(j);
-							}
-							
-							RepresentationInterface[] offspringRepresentations = crossoverToProceed.get(0).crossover(ri);
-							
-							// Save the new representations for offsprings
-							for(int currentCrossoverOutput=0;currentCrossoverOutput<offspringRepresentations.length;currentCrossoverOutput++) {
-								
-								// Some of the crossover output solutions may be omitted if the strategy offspring number is achieved
-								int currentOverallCrossoverOutput = i * ci.getOffspringNumber() + currentCrossoverOutput;
-								if(currentOverallCrossoverOutput < offspringPopSize) { 
-									offspringPopulation[currentOverallCrossoverOutput].getRepresentationList().
-											set(j, offspringRepresentations[currentCrossoverOutput]);
-								} else break; // Further crossover output is not required!
-							}
-						} else {
-							
-							// Transfer the corresponding parent representation to offsprings if no crossover will be applied for it
-							for(int currentCrossoverOutput=0;currentCrossoverOutput<ci.getOffspringNumber();currentCrossoverOutput++) {
-								int currentOverallCrossoverOutput = breedingNumber*ci.getOffspringNumber() + currentCrossoverOutput;
-								if(currentOverallCrossoverOutput < offspringPopSize) {
-									offspringPopulation[currentOverallCrossoverOutput].getRepresentationList().
-											set(j, parentPopulation[i].getRepresentationList().get(j));
-								} else break;
-							}
-						}
-					}
-				}
-			}
-			
-			// -------------------
-			// (III) Make mutation
-			// -------------------
-			// Select the candidates for mutation randomly (otherwise they have been generated by crossover)
-			if(crossoverMap.isEmpty()) {
-				Collections.shuffle(candidateIndices);
-				for(int i=0;i<offspringPopSize;i++) {
-					offspringPopulation[i] = population[candidateIndices.get(i)].clone();
-				}
-			}
-
-			// Go through offspring population
-			for(int i=0;i<offspringPopSize;i++) {
-				
-				// Go through each representation
-				for(int j=0;j<offspringPopulation[i].getRepresentationList().size();j++) {
-					
-					// Get the list of mutations which should be proceeded for current representation
-					List<MutationInterface> mutationsToProceed = mutationMap.get(offspringPopulation[i].getRepresentationList().get(j).getClass().getName());
-					for(MutationInterface m : mutationsToProceed) {
-						m.mutate(offspringPopulation[i].getRepresentationList().get(j));
-					}
-				}
-				
-				// Fitness after mutation(s) of the current offspring
-				offspringPopulationFitnessValues[i] = offspringPopulation[i].getFitness();
-				if(isIndependentTestSetUsed) {
-					offspringPopulationFitnessValuesOnTestSet[i] = offspringPopulation[i].getFitnessOnIndependentTestSet();
-				}
-			}
-			
-			// Log after the mutation
-			outputLog();
-			
-			// --------------------------------------------
-			// (IV) Make local search if VNS scheme is used
-			// --------------------------------------------
-			if(!vnsMap.isEmpty()) { 
-				
-				// Go through offspring population
-				for(int i=0;i<offspringPopSize;i++) {
-						
-					// Run VNS after each mutation or only after successful mutations?
-					if(esConfiguration.getESParameterByName("Apply VNS only after successful mutations").getAttributes().
-						getNamedItem("booleanValue").getNodeValue().equals("false") || 
-						(esConfiguration.getESParameterByName("Apply VNS only after successful mutations").getAttributes().
-						getNamedItem("booleanValue").getNodeValue().equals("true")) && 
-						
-						// Are we minimizing or maximizing fitness?
-						(isMinimizingFitness && offspringPopulationFitnessValues[i][0].getValue() < populationFitnessValues[i][0].getValue()) ||
-						(!isMinimizingFitness && offspringPopulationFitnessValues[i][0].getValue() > populationFitnessValues[i][0].getValue())) {
-						
-						// Go through each representation
-						for(int j=0;j<offspringPopulation[i].getRepresentationList().size();j++) {
-							
-							// Get the list of mutations which should be proceeded for current representation
-							List<MutationInterface> mutationsToProceed = vnsMap.get(offspringPopulation[i].getRepresentationList().get(j).getClass().getName());
-							if(mutationsToProceed != null) {
-								 runVNS(i, j, mutationsToProceed);
-							}
-						}
-					}
-				}
-			}
-			
-			// --------------------------------------------------------------------------------------------------
-			// (V) Update the parent population and the success number (if the children were better than parents)
-			// --------------------------------------------------------------------------------------------------
-			currentSuccessCounter += selectionOperator.replaceParentPopulation();
+			proceedGeneration();
 			
 			AmuseLogger.write(this.getClass().getName(), Level.DEBUG, "Generation: " + currentGeneration + 
-					" Evaluation: " + currentEvaluation);
+					" Evaluation: " + currentEvaluation + (fitnessCache != null ? " Cache hits: " + fitnessCache.getHitNumber() : ""));
 			
 			// Check if the runtime exit condition is fulfilled
 			if(Calendar.getInstance().getTimeInMillis() - startTime > runTime) {
@@ -364,10 +238,19 @@ public class EvolutionaryStrategy extends AmuseTask implements OptimizerInterfac
 				break;
 			}
 		}
-		fitnessEvaluator.close();
+		evaluationPool.close();
 		if(loggingDelay != -1) {
 			esLogger.logString(delayedLog.toString());
 		}
+		if(fitnessCache != null) {
+			fitnessCache.close();
+			
+			// Comment line, so that the log can still be loaded for continued experiments
+			String hitRate = "Fitness cache: " + fitnessCache.getHitNumber() + " of " + fitnessCache.getRequestNumber() + 
+					" fitness values reused (hit rate " + fitnessCache.getHitRate() + ")";
+			esLogger.logString("% " + hitRate);
+			AmuseLogger.write(this.getClass().getName(), Level.INFO, hitRate);
+		}
 		esLogger.close();
 		
 		if(logLocally) {
@@ -385,92 +268,381 @@ public class EvolutionaryStrategy extends AmuseTask implements OptimizerInterfac
 		AmuseLogger.write(this.getClass().getName(), Level.INFO, "ES optimization finished");
 	}
 
-	private void runVNS(int offspringNumber, int representationToProceed,
-			List<MutationInterface> mutationsToProceed) throws NodeException {
+	/**
+	 * Creates the offspring population, evaluates it and replaces the parent population
+	 * @throws NodeException
+	 */
+	void proceedGeneration() throws NodeException {
 		
-		// Load the current fitness
-		ValidationMeasureDouble[] currentFitness = new ValidationMeasureDouble[numberOfFitnessValues];
-		for(int i=0;i<numberOfFitnessValues;i++) {
-			currentFitness[i] = new ValidationMeasureDouble();
-			currentFitness[i].setValue(new Double(offspringPopulationFitnessValues[offspringNumber][i].getValue()));
-			currentFitness[i].setName(offspringPopulationFitnessValues[offspringNumber][i].getName());
+		// -------------------------------------
+		// (I) Select parents for new population
+		// -------------------------------------
+		// TODO Currently this is done randomly; no different strategies are allowed; 
+		ArrayList<Integer> candidateIndices = new ArrayList<Integer>(popSize);
+		for(int i=0;i<popSize;i++) {
+			candidateIndices.add(i);
 		}
+		offspringPopulation = new ESIndividual[offspringPopSize];
 		
-		// Load the current fitness for the test set
-		ValidationMeasureDouble[] currentFitnessOnTestSet = new ValidationMeasureDouble[numberOfFitnessValues];
-		for(int i=0;i<numberOfFitnessValues;i++) {
-			currentFitnessOnTestSet[i] = new ValidationMeasureDouble();
-			if(isIndependentTestSetUsed) {
-				currentFitnessOnTestSet[i].setValue(new Double(offspringPopulationFitnessValuesOnTestSet[offspringNumber][i].getValue()));
-				currentFitnessOnTestSet[i].setName(offspringPopulationFitnessValuesOnTestSet[offspringNumber][i].getName());
-			} else {
-				currentFitnessOnTestSet[i].setValue(0d);
-				currentFitnessOnTestSet[i].setName("");
+		// -------------------
+		// (II) Make crossover
+		// -------------------
+		if(!crossoverMap.isEmpty()) { 
+			
+			// Estimate the number of required crossover applications required to create the offsprings
+			// (e.g. for (10+5)-ES and crossover with 2 children as output three crossover operations are required).
+			CrossoverInterface ci = crossoverMap.values().iterator().next().get(0);
+			int breedingNumber = new Double(Math.ceil((double)offspringPopSize / ci.getOffspringNumber())).intValue();
+			
+			// Create the offspring population cloning the 1st individiual for representation info
+			for(int j=0;j<offspringPopSize;j++) {
+				offspringPopulation[j] = population[0].clone();
+			}
+			
+			// Run the breedings
+			for(int i=0;i<breedingNumber;i++) {
+				Collections.shuffle(candidateIndices, random);
+				ESIndividual[] parentPopulation = new ESIndividual[ci.getParentNumber()];
+				
+				// Select the required parent number randomly
+				for(int j=0;j<ci.getParentNumber();j++) {
+					parentPopulation[j] = population[candidateIndices.get(j)].clone();
+				}
+				
+				// Go through each representation
+				for(int j=0;j<parentPopulation[i].getRepresentationList().size();j++) {
+					
+					// Get the crossover which should be proceeded for current representation
+					List<CrossoverInterface> crossoverToProceed = crossoverMap.get(parentPopulation[i].getRepresentationList().get(j).getClass().getName());
+					if(crossoverToProceed != null) {
+						RepresentationInterface[] ri = new RepresentationInterface[ci.getParentNumber()];
+						for(int currentParent=0;currentParent<ci.getParentNumber();currentParent++) {
+							ri[currentParent] = parentPopulation[currentParent].getRepresentationList().get(j);
+						}
+						
+						RepresentationInterface[] offspringRepresentations = crossoverToProceed.get(0).crossover(ri);
+						
+						// Save the new representations for offsprings
+						for(int currentCrossoverOutput=0;currentCrossoverOutput<offspringRepresentations.length;currentCrossoverOutput++) {
+							
+							// Some of the crossover output solutions may be omitted if the strategy offspring number is achieved
+							int currentOverallCrossoverOutput = i * ci.getOffspringNumber() + currentCrossoverOutput;
+							if(currentOverallCrossoverOutput < offspringPopSize) { 
+								offspringPopulation[currentOverallCrossoverOutput].getRepresentationList().
+										set(j, offspringRepresentations[currentCrossoverOutput]);
+							} else break; // Further crossover output is not required!
+						}
+					} else {
+						
+						// Transfer the corresponding parent representation to offsprings if no crossover will be applied for it
+						for(int currentCrossoverOutput=0;currentCrossoverOutput<ci.getOffspringNumber();currentCrossoverOutput++) {
+							int currentOverallCrossoverOutput = breedingNumber*ci.getOffspringNumber() + currentCrossoverOutput;
+							if(currentOverallCrossoverOutput < offspringPopSize) {
+								offspringPopulation[currentOverallCrossoverOutput].getRepresentationList().
+										set(j, parentPopulation[i].getRepresentationList().get(j));
+							} else break;
+						}
+					}
+				}
 			}
 		}
 		
-		// TODO If more than two operators are used for VNS local search...
-		// What operator is currently active during VNS?
-		//boolean isLocalSearchForAddingActive = new Random().nextBoolean();
-		boolean isFirstLocalSearchOperatorActive = new Random().nextBoolean();
-		// Was a previous operator successful?
-		boolean hadPreviousOperatorSuccess = true;
+		// -------------------
+		// (III) Make mutation
+		// -------------------
+		// Select the candidates for mutation randomly (otherwise they have been generated by crossover)
+		if(crossoverMap.isEmpty()) {
+			Collections.shuffle(candidateIndices, random);
+			for(int i=0;i<offspringPopSize;i++) {
+				offspringPopulation[i] = population[candidateIndices.get(i)].clone();
+			}
+		}
+
+		// Go through offspring population
+		for(int i=0;i<offspringPopSize;i++) {
+			
+			// Go through each representation
+			for(int j=0;j<offspringPopulation[i].getRepresentationList().size();j++) {
+				
+				// Get the list of mutations which should be proceeded for current representation
+				List<MutationInterface> mutationsToProceed = mutationMap.get(offspringPopulation[i].getRepresentationList().get(j).getClass().getName());
+				for(MutationInterface m : mutationsToProceed) {
+					m.mutate(offspringPopulation[i].getRepresentationList().get(j));
+				}
+			}
+		}
+
+		// Fitness after mutation(s) of the offspring. The mutation operators may adapt their parameters during
+		// mutation, so only the evaluations run concurrently
+		evaluatePopulation(offspringPopulation, offspringPopulationFitnessValues, offspringPopulationFitnessValuesOnTestSet);
 		
-		ESIndividual individual = offspringPopulation[offspringNumber];
-		ESIndividual candidate = individual.clone();
+		// Log after the mutation
+		outputLog();
 		
-		// Proceed VNS so long as the maximum number of evaluations is not achieved
-		while(currentEvaluation < evaluationLimit) {
+		// --------------------------------------------
+		// (IV) Make local search if VNS scheme is used
+		// --------------------------------------------
+		if(!vnsMap.isEmpty()) { 
+			runVNS();
+		}
 		
-			// TODO Currently available for only and exactly two LS operators
-			if(isFirstLocalSearchOperatorActive) {
-				mutationsToProceed.get(0).mutate(candidate.getRepresentationList().get(representationToProceed));
-			} else {
-				mutationsToProceed.get(1).mutate(candidate.getRepresentationList().get(representationToProceed));
-			}
-					
-			ValidationMeasureDouble[] newFitness = candidate.getFitness();
-			ValidationMeasureDouble[] newFitnessOnTestSet = new ValidationMeasureDouble[newFitness.length]; 
+		// --------------------------------------------------------------------------------------------------
+		// (V) Update the parent population and the success number (if the children were better than parents)
+		// --------------------------------------------------------------------------------------------------
+		currentSuccessCounter += selectionOperator.replaceParentPopulation();
+	}
+	
+	/**
+	 * Calculates the fitness values of the given individuals on the evaluation pool. The results are stored 
+	 * and counted in the order of individuals, as if the individuals were evaluated one after another
+	 * @param individuals Individuals to evaluate
+	 * @param fitnessValues Array for the fitness values
+	 * @param fitnessValuesOnTestSet Array for the fitness values on the independent test set (if it is used)
+	 * @throws NodeException
+	 */
+	void evaluatePopulation(ESIndividual[] individuals, ValidationMeasureDouble[][] fitnessValues,
+			ValidationMeasureDouble[][] fitnessValuesOnTestSet) throws NodeException {
+		List<Future<ValidationMeasureDouble[][]>> evaluations = new ArrayList<Future<ValidationMeasureDouble[][]>>(individuals.length);
+		for(final ESIndividual individual : individuals) {
+			evaluations.add(evaluationPool.submit(new ESEvaluationPool.EvaluationTask<ValidationMeasureDouble[][]>() {
+				public ValidationMeasureDouble[][] evaluate(EvaluationInterface evaluator) throws NodeException {
+					ValidationMeasureDouble[][] fitness = new ValidationMeasureDouble[2][];
+					fitness[0] = evaluator.getFitness(individual, false);
+					if(isIndependentTestSetUsed) {
+						fitness[1] = evaluator.getFitness(individual, true);
+					}
+					return fitness;
+				}
+			}));
+		}
+		for(int i=0;i<individuals.length;i++) {
+			ValidationMeasureDouble[][] fitness = ESEvaluationPool.getResult(evaluations.get(i));
+			currentEvaluation++;
+			fitnessValues[i] = fitness[0];
 			if(isIndependentTestSetUsed) {
-				newFitnessOnTestSet = candidate.getFitnessOnIndependentTestSet();
+				fitnessValuesOnTestSet[i] = fitness[1];
+			}
+		}
+	}
+	
+	/**
+	 * Runs the variable neighborhood search for the offspring individuals. The searches proceed in rounds: in each 
+	 * round, the candidates of all unfinished searches are mutated on this thread in the order of offspring individuals, 
+	 * and only their evaluations run concurrently on the evaluation pool. The steps are counted and logged afterwards 
+	 * in the order of offspring individuals, so that the results do not depend on the number of evaluation workers
+	 * @throws NodeException
+	 */
+	private void runVNS() throws NodeException {
+		
+		// Run VNS after each mutation or only after successful mutations?
+		boolean isVNSOnlyAfterSuccessfulMutation = esConfiguration.getESParameterByName("Apply VNS only after successful mutations").
+			getAttributes().getNamedItem("booleanValue").getNodeValue().equals("true");
+		List<VNSSearch> searches = new ArrayList<VNSSearch>(offspringPopSize);
+		for(int i=0;i<offspringPopSize;i++) {
+			if(!isVNSOnlyAfterSuccessfulMutation || isBetter(offspringPopulationFitnessValues[i][0].getValue(), 
+					populationFitnessValues[i][0].getValue())) {
+				searches.add(new VNSSearch(i, random.nextLong()));
+			}
+		}
+		
+		int evaluationsLeft = evaluationLimit - currentEvaluation;
+		List<VNSSearch> activeSearches = new ArrayList<VNSSearch>(searches.size());
+		List<Future<VNSStep>> evaluations = new ArrayList<Future<VNSStep>>(searches.size());
+		while(true) {
+			
+			// The steps of a search beyond the evaluation limit would be discarded by applyVNSSteps, since the steps 
+			// of all previous searches are counted before; the current step numbers of the previous searches are a 
+			// lower bound for their final step numbers
+			activeSearches.clear();
+			int previousSteps = 0;
+			for(VNSSearch search : searches) {
+				if(!search.isFinished() && previousSteps + search.steps.size() < evaluationsLeft) {
+					activeSearches.add(search);
+				}
+				previousSteps += search.steps.size();
+			}
+			if(activeSearches.isEmpty()) {
+				break;
+			}
+			evaluations.clear();
+			for(VNSSearch search : activeSearches) {
+				evaluations.add(evaluationPool.submit(search.mutateCandidate()));
+			}
+			for(int i=0;i<activeSearches.size();i++) {
+				activeSearches.get(i).addStep(ESEvaluationPool.getResult(evaluations.get(i)));
+			}
+		}
+		for(VNSSearch search : searches) {
+			applyVNSSteps(search.offspringNumber, search.steps);
+		}
+	}
+	
+	/**
+	 * Counts and logs the steps of the variable neighborhood search for the given offspring individual
+	 * @param offspringNumber Number of the offspring individual
+	 * @param steps Steps done by the search
+	 * @throws NodeException
+	 */
+	private void applyVNSSteps(int offspringNumber, List<VNSStep> steps) throws NodeException {
+		for(VNSStep step : steps) {
+			
+			// Proceed VNS so long as the maximum number of evaluations is not achieved
+			if(currentEvaluation >= evaluationLimit) {
+				break;
 			}
+			currentEvaluation++;
 			
 			// Set the currently tried solution for logging
-			currentFitness = offspringPopulationFitnessValues[offspringNumber];
-			offspringPopulationFitnessValues[offspringNumber] = newFitness;
+			ValidationMeasureDouble[] currentFitness = offspringPopulationFitnessValues[offspringNumber];
+			ValidationMeasureDouble[] currentFitnessOnTestSet = isIndependentTestSetUsed ? 
+					offspringPopulationFitnessValuesOnTestSet[offspringNumber] : null;
+			offspringPopulationFitnessValues[offspringNumber] = step.fitness;
 			if(isIndependentTestSetUsed) {
-				offspringPopulationFitnessValuesOnTestSet[offspringNumber] = newFitnessOnTestSet;
+				offspringPopulationFitnessValuesOnTestSet[offspringNumber] = step.fitnessOnTestSet;
 			}
 			outputLog();
-			offspringPopulationFitnessValues[offspringNumber] = currentFitness;
-			if(isIndependentTestSetUsed) {
-				offspringPopulationFitnessValuesOnTestSet[offspringNumber] = currentFitnessOnTestSet;
+			
+			// Keep the tried solution only if the individual after local search is better
+			if(!step.isImprovement) {
+				offspringPopulationFitnessValues[offspringNumber] = currentFitness;
+				if(isIndependentTestSetUsed) {
+					offspringPopulationFitnessValuesOnTestSet[offspringNumber] = currentFitnessOnTestSet;
+				}
 			}
+		}
+	}
+	
+	/**
+	 * @return True if the first fitness value is better than the second one
+	 */
+	private boolean isBetter(double fitness, double comparedFitness) {
+		return (isMinimizingFitness && fitness < comparedFitness) || (!isMinimizingFitness && fitness > comparedFitness);
+	}
+	
+	/**
+	 * One evaluated solution of the variable neighborhood search
+	 */
+	private static class VNSStep {
+		ValidationMeasureDouble[] fitness;
+		ValidationMeasureDouble[] fitnessOnTestSet;
+		boolean isImprovement;
+	}
+	
+	/**
+	 * Variable neighborhood search for one offspring individual. The candidates are mutated by the thread of the 
+	 * strategy and evaluated by a worker of the evaluation pool. The search only records its steps; they are applied 
+	 * by applyVNSSteps
+	 */
+	private class VNSSearch {
+		
+		private final int offspringNumber;
+		private final ESIndividual offspring;
+		private final List<VNSStep> steps = new ArrayList<VNSStep>();
+		
+		/** Random generator of the search, so that the search does not depend on the order of evaluations */
+		private final Random rand;
+		
+		private double currentFitness;
+		
+		/** Index of the currently searched representation */
+		private int representation = -1;
+		
+		/** Mutations which are proceeded for the currently searched representation */
+		private List<MutationInterface> mutationsToProceed;
+		
+		/** What operator is currently active during VNS? */
+		private boolean isFirstLocalSearchOperatorActive;
+		
+		/** Was a previous operator successful? */
+		private boolean hadPreviousOperatorSuccess;
+		
+		private ESIndividual individual;
+		private ESIndividual candidate;
+		
+		VNSSearch(int offspringNumber, long seed) {
+			this.offspringNumber = offspringNumber;
+			this.offspring = offspringPopulation[offspringNumber];
+			this.currentFitness = offspringPopulationFitnessValues[offspringNumber][0].getValue();
+			this.rand = new Random(seed);
+			nextRepresentation();
+		}
+		
+		/**
+		 * Goes to the next representation for which VNS operators are set
+		 */
+		private void nextRepresentation() {
+			for(representation++;representation<offspring.getRepresentationList().size();representation++) {
 				
-			// Is the individual after local search better?
-			if((isMinimizingFitness && newFitness[0].getValue() < currentFitness[0].getValue()) || 
-					(!isMinimizingFitness && newFitness[0].getValue() > currentFitness[0].getValue())) {
-				currentFitness = newFitness;
-				offspringPopulationFitnessValues[offspringNumber] = newFitness;
-				if(isIndependentTestSetUsed) {
-					currentFitnessOnTestSet = newFitnessOnTestSet;
-					offspringPopulationFitnessValuesOnTestSet[offspringNumber] = newFitnessOnTestSet;
+				// Get the list of mutations which should be proceeded for current representation
+				mutationsToProceed = vnsMap.get(offspring.getRepresentationList().get(representation).getClass().getName());
+				if(mutationsToProceed != null) {
+					
+					// TODO If more than two operators are used for VNS local search...
+					isFirstLocalSearchOperatorActive = rand.nextBoolean();
+					hadPreviousOperatorSuccess = true;
+					individual = offspring;
+					candidate = individual.clone();
+					return;
 				}
+			}
+		}
+		
+		/**
+		 * @return True if all representations have been searched
+		 */
+		boolean isFinished() {
+			return representation >= offspring.getRepresentationList().size();
+		}
+		
+		/**
+		 * Mutates the candidate with the currently active operator
+		 * @return Task for the evaluation of the mutated candidate
+		 * @throws NodeException
+		 */
+		ESEvaluationPool.EvaluationTask<VNSStep> mutateCandidate() throws NodeException {
+			
+			// TODO Currently available for only and exactly two LS operators
+			MutationInterface m = mutationsToProceed.get(isFirstLocalSearchOperatorActive ? 0 : 1);
+			m.mutate(candidate.getRepresentationList().get(representation));
+			final ESIndividual mutatedCandidate = candidate;
+			return new ESEvaluationPool.EvaluationTask<VNSStep>() {
+				public VNSStep evaluate(EvaluationInterface evaluator) throws NodeException {
+					VNSStep step = new VNSStep();
+					step.fitness = evaluator.getFitness(mutatedCandidate, false);
+					if(isIndependentTestSetUsed) {
+						step.fitnessOnTestSet = evaluator.getFitness(mutatedCandidate, true);
+					}
+					return step;
+				}
+			};
+		}
+		
+		/**
+		 * Records the evaluated candidate and decides how the search goes on
+		 * @param step Evaluation of the candidate from mutateCandidate()
+		 */
+		void addStep(VNSStep step) {
+			step.isImprovement = isBetter(step.fitness[0].getValue(), currentFitness);
+			steps.add(step);
+			
+			// Is the individual after local search better?
+			if(step.isImprovement) {
+				currentFitness = step.fitness[0].getValue();
 				individual = candidate.clone();
 				candidate = individual.clone();
 				hadPreviousOperatorSuccess = true;
 			} else {
 				candidate = individual.clone();
 				
-				// Break if previous operator also wasn't successful
-				if(hadPreviousOperatorSuccess == false) break;
+				// Go to the next representation if previous operator also wasn't successful
+				if(hadPreviousOperatorSuccess == false) {
+					nextRepresentation();
+					return;
+				}
 				hadPreviousOperatorSuccess = false;
 				
 				// Change operator - TODO only for two operators!
-				if(isFirstLocalSearchOperatorActive) {
-					isFirstLocalSearchOperatorActive = false;
-				}
-				else isFirstLocalSearchOperatorActive = true;
+				isFirstLocalSearchOperatorActive = !isFirstLocalSearchOperatorActive;
 			}
 		}
 	}
@@ -610,11 +782,52 @@ public class EvolutionaryStrategy extends AmuseTask implements OptimizerInterfac
 		try {
 			Class<?> evaluationClass = Class.forName(evalString);
 			fitnessEvaluator = (EvaluationInterface)evaluationClass.newInstance();
-			fitnessEvaluator.initialize(this, isIndependentTestSetUsed);
+			List<EvaluationInterface> evaluators = new ArrayList<EvaluationInterface>();
+			evaluators.add(fitnessEvaluator);
+			
+			// Evaluators which can be used concurrently are created for each worker thread
+			if(fitnessEvaluator instanceof ParallelEvaluationInterface) {
+				int workerNumber = Math.max(1, AmusePreferences.getInt(KeysIntValue.MAX_NUMBER_OF_TASK_THREADS));
+				((ParallelEvaluationInterface)fitnessEvaluator).initialize(this, isIndependentTestSetUsed, getEvaluationJobId(0));
+				for(int i=1;i<workerNumber;i++) {
+					ParallelEvaluationInterface evaluator = (ParallelEvaluationInterface)evaluationClass.newInstance();
+					evaluator.initialize(this, isIndependentTestSetUsed, getEvaluationJobId(i));
+					evaluators.add(evaluator);
+				}
+			} else {
+				fitnessEvaluator.initialize(this, isIndependentTestSetUsed);
+			}
+			
+			// Individuals which have been evaluated before during this run are not evaluated again
+			Node useFitnessCache = esConfiguration.getESParameterByName("Use fitness cache");
+			if(useFitnessCache == null || new Boolean(useFitnessCache.getAttributes().getNamedItem("booleanValue").getNodeValue())) {
+				OptimizationConfiguration optimizationConfiguration = (OptimizationConfiguration)this.correspondingScheduler.getConfiguration();
+				fitnessCache = new ESFitnessCache(ESFitnessCache.describeConfiguration(esConfiguration, 
+						getCategoryFiles(optimizationConfiguration.getTrainingInput(), optimizationConfiguration.getOptimizationInput(), 
+						optimizationConfiguration.getTestInput()), evalString, optimizationConfiguration.getTrainingInput(), 
+						optimizationConfiguration.getOptimizationInput(), optimizationConfiguration.getTestInput()));
+				for(int i=0;i<evaluators.size();i++) {
+					evaluators.set(i, fitnessCache.cached(evaluators.get(i)));
+				}
+				
+				// The cache is reused by later runs only on request
+				Node saveFitnessCache = esConfiguration.getESParameterByName("Save fitness cache");
+				isFitnessCacheSaved = saveFitnessCache != null && 
+					new Boolean(saveFitnessCache.getAttributes().getNamedItem("booleanValue").getNodeValue());
+			}
+			evaluationPool = new ESEvaluationPool(evaluators);
 		} catch (Exception e) {
 			throw new NodeException("Could not set up evaluation: " + e.getMessage());
 		}
 		
+		// Set the random generator for parent selection and VNS
+		Long seed = new Long(esConfiguration.getESParameterByName("Random seed").getAttributes().getNamedItem("longValue").getNodeValue());
+		if(seed != -1) {
+			random = new Random(seed);
+		} else {
+			random = new Random();
+		}
+		
 		// Set the VNS operators (variable neighborhood search)
 		vnsMap = new HashMap<String,List<MutationInterface>>();
 		NodeList vnsNodes = esConfiguration.getESParameterByName("List with VNS operators").getChildNodes();
@@ -694,6 +907,42 @@ public class EvolutionaryStrategy extends AmuseTask implements OptimizerInterfac
 				getAttributes().getNamedItem("booleanValue").getNodeValue());
 	}
 	
+	/**
+	 * Returns the music category table and the files of the music categories with the given ids, which contain 
+	 * the ground truth of the optimization
+	 * @param inputs Training, optimization and test input (category id, optionally followed by "[...]")
+	 * @return Files which describe the used music categories
+	 * @throws NodeException
+	 */
+	private List<File> getCategoryFiles(String... inputs) throws NodeException {
+		List<File> categoryFiles = new ArrayList<File>();
+		File categoryTable = new File(AmusePreferences.getMultipleTracksAnnotationTablePath());
+		categoryFiles.add(categoryTable);
+		if(!categoryTable.isFile()) {
+			return categoryFiles;
+		}
+		List<Integer> categoryIds = new ArrayList<Integer>(inputs.length);
+		for(String input : inputs) {
+			try {
+				categoryIds.add(new Double(input.contains("[") ? input.substring(0,input.indexOf("[")) : input).intValue());
+			} catch(NumberFormatException e) {
+				categoryFiles.add(new File(input));
+			}
+		}
+		try {
+			DataSetAbstract categoryTableSet = new ArffDataSet(categoryTable);
+			for(int i=0;i<categoryTableSet.getValueCount();i++) {
+				int id = new Double(categoryTableSet.getAttribute("Id").getValueAt(i).toString()).intValue();
+				if(categoryIds.contains(id)) {
+					categoryFiles.add(new File(categoryTableSet.getAttribute("Path").getValueAt(i).toString()));
+				}
+			}
+		} catch(Exception e) {
+			throw new NodeException("Could not load the music category table: " + e.getMessage());
+		}
+		return categoryFiles;
+	}
+	
 	/*
 	 * (non-Javadoc)
 	 * @see amuse.interfaces.nodes.methods.AmuseTaskInterface#initialize()
@@ -1063,6 +1312,17 @@ public class EvolutionaryStrategy extends AmuseTask implements OptimizerInterfac
 			offspringPopulationFitnessValuesOnTestSet[individualNumber - popSize];
 	}
 
+	/**
+	 * Returns the job id which is used for intermediate data of the given evaluation worker. The first worker
+	 * uses the id of this task; the ids of further workers are negative, so that they do not collide with other tasks
+	 * @param workerNumber Number of the evaluation worker
+	 * @return Job id for the evaluation worker
+	 */
+	long getEvaluationJobId(int workerNumber) {
+		long taskId = this.getCorrespondingScheduler().getTaskId();
+		return workerNumber == 0 ? taskId : -((taskId + 1) * 1000 + workerNumber);
+	}
+
 	/**
 	 * @return the fitnessEvalualor
 	 */
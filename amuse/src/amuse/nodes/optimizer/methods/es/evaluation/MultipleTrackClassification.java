@@ -34,12 +34,12 @@ import org.w3c.dom.NodeList;
 import weka.core.Attribute;
 import weka.core.Instance;
 import weka.core.converters.ArffLoader;
+import amuse.data.BinaryFeatureFile;
 import amuse.data.FeatureTable;
 import amuse.data.FileTable;
 import amuse.data.GroundTruthSourceType;
 import amuse.data.InputFeatureType;
 import amuse.data.MeasureTable;
-import amuse.data.io.ArffDataSet;
 import amuse.data.io.DataSet;
 import amuse.data.io.DataSetAbstract;
 import amuse.data.io.DataSetInput;
@@ -49,7 +49,7 @@ import amuse.interfaces.nodes.NodeException;
 import amuse.nodes.optimizer.OptimizationConfiguration;
 import amuse.nodes.optimizer.methods.es.ESIndividual;
 import amuse.nodes.optimizer.methods.es.EvolutionaryStrategy;
-import amuse.nodes.optimizer.methods.es.evaluation.interfaces.EvaluationInterface;
+import amuse.nodes.optimizer.methods.es.evaluation.interfaces.ParallelEvaluationInterface;
 import amuse.nodes.optimizer.methods.es.parameters.processing.SelectedFeatures;
 import amuse.nodes.processor.ProcessingConfiguration;
 import amuse.nodes.processor.ProcessorNodeScheduler;
@@ -70,7 +70,7 @@ import amuse.util.FileOperations;
  * @author Igor Vatolkin
  * @version $Id$
  */
-public class MultipleTrackClassification implements EvaluationInterface {
+public class MultipleTrackClassification implements ParallelEvaluationInterface {
 
 	//  Parameters from ESConfiguration which are used for decision which AMUSE tasks must be started 
 	boolean isFeatureExtractionRequired = false;
@@ -92,6 +92,9 @@ public class MultipleTrackClassification implements EvaluationInterface {
 	String pathToFeatureDatabase;
 	String pathToProcessingDatabase;
 	String pathToModelDatabase;
+	
+	/** Job id for the intermediate data of this evaluator */
+	long evaluationJobId;
 		
 	/**
 	 * Initializes the Fitness Evaluator with the settings derived from the given individual
@@ -99,6 +102,15 @@ public class MultipleTrackClassification implements EvaluationInterface {
 	 * @param isEvaluatedOnIndependentTestSet Will the optimization process be evaluated additionally on the independent test set?
 	 */
 	public void initialize(EvolutionaryStrategy strategy, boolean isEvaluatedOnIndependentTestSet) {
+		initialize(strategy, isEvaluatedOnIndependentTestSet, strategy.getCorrespondingScheduler().getTaskId());
+	}
+	
+	/*
+	 * (non-Javadoc)
+	 * @see amuse.nodes.optimizer.methods.es.evaluation.interfaces.ParallelEvaluationInterface#initialize(amuse.nodes.optimizer.methods.es.EvolutionaryStrategy, boolean, long)
+	 */
+	public void initialize(EvolutionaryStrategy strategy, boolean isEvaluatedOnIndependentTestSet, long evaluationJobId) {
+		this.evaluationJobId = evaluationJobId;
 		
 		// Nodes: <FE> for feature extraction, <FP> for feature processing, <C> for classification
 		NodeList amuseTasksToOptimize = strategy.getConfiguration().getParametersToOptimize().getChildNodes();
@@ -195,7 +207,7 @@ public class MultipleTrackClassification implements EvaluationInterface {
 		pathToFeatureDatabase = new String(AmusePreferences.get(KeysStringValue.FEATURE_DATABASE));
 		pathToProcessingDatabase = new String(AmusePreferences.get(KeysStringValue.PROCESSED_FEATURE_DATABASE));
 		pathToModelDatabase = new String(strategy.getCorrespondingScheduler().getHomeFolder() +File.separator+ "input" +File.separator +"task_" +
-				strategy.getCorrespondingScheduler().getTaskId() + File.separator+ "Models");
+				evaluationJobId + File.separator+ "Models");
 
 		// Load the processed features directly if no extraction / processing is optimized (only feature selection OR / AND
 		// classification are optimized). It means that the optimization data can be loaded only once for all individuals.
@@ -286,7 +298,7 @@ public class MultipleTrackClassification implements EvaluationInterface {
 		// -------------------------------------
 		if(isFeatureExtractionRequired) {
 			pathToFeatureDatabase = new String(individual.getCorrespondingES().getCorrespondingScheduler().getHomeFolder() + 
-					File.separator + "input" +File.separator + "task_" + individual.getCorrespondingES().getCorrespondingScheduler().getTaskId() +
+					File.separator + "input" +File.separator + "task_" + evaluationJobId +
 					File.separator +"Features");
 			
 			// TODO Run extraction
@@ -299,7 +311,7 @@ public class MultipleTrackClassification implements EvaluationInterface {
 		if(isFeatureProcessingRequired) {
 			
 			pathToProcessingDatabase = new String(individual.getCorrespondingES().getCorrespondingScheduler().getHomeFolder() + 
-					File.separator + "input" +File.separator + "task_" + individual.getCorrespondingES().getCorrespondingScheduler().getTaskId() +
+					File.separator + "input" +File.separator + "task_" + evaluationJobId +
 					File.separator + "Processed_Features");
 			
 			// ------------------------------------------------------------------------------------------------
@@ -406,12 +418,12 @@ public class MultipleTrackClassification implements EvaluationInterface {
 					
 				ProcessorNodeScheduler ps = new ProcessorNodeScheduler(individual.getCorrespondingES().
 					getCorrespondingScheduler().getHomeFolder() + File.separator + "input" +File.separator + "task_" +
-					individual.getCorrespondingES().getCorrespondingScheduler().getTaskId() + File.separator +"processor");
+					evaluationJobId + File.separator +"processor");
 				ps.setCleanInputFolder(false);
 				for(ProcessingConfiguration currentConf : processingTasks) {
 					ps.proceedTask(individual.getCorrespondingES().getCorrespondingScheduler().getHomeFolder() + File.separator + "input" +File.separator + "task_" +
-							individual.getCorrespondingES().getCorrespondingScheduler().getTaskId() + File.separator +"processor",
-					new Long(individual.getCorrespondingES().getCorrespondingScheduler().getTaskId()), currentConf);
+							evaluationJobId + File.separator +"processor",
+					new Long(evaluationJobId), currentConf);
 				}
 				
 				musicFileLoader.reset();
@@ -465,18 +477,18 @@ public class MultipleTrackClassification implements EvaluationInterface {
 				vConf.setModelDatabase(pathToModelDatabase);
 				ValidatorNodeScheduler vs = new ValidatorNodeScheduler(individual.getCorrespondingES().
 					getCorrespondingScheduler().getHomeFolder() + File.separator + "input" + File.separator + "task_" + 
-					individual.getCorrespondingES().getCorrespondingScheduler().getTaskId() + File.separator + "validator");
+					evaluationJobId + File.separator + "validator");
 				vs.setCleanInputFolder(false);
 				vs.setCategoryDescription(categoryForLearningDescription);
 				vs.proceedTask(individual.getCorrespondingES().getCorrespondingScheduler().getHomeFolder(), 
-						new Long(individual.getCorrespondingES().getCorrespondingScheduler().getTaskId()), vConf, false);
+						new Long(evaluationJobId), vConf, false);
 			}
 			
 			// If an independent test set must be used..
 			else {
 				
 				String pathToModels = new String(individual.getCorrespondingES().getCorrespondingScheduler().getHomeFolder() + File.separator + "input" +File.separator + "task_" +
-						individual.getCorrespondingES().getCorrespondingScheduler().getTaskId() + File.separator +"Models"+ File.separator +
+						evaluationJobId + File.separator +"Models"+ File.separator +
 						categoryForLearningDescription + File.separator + classifierDescription + File.separator + processedModel);
 					
 				// Train the model only with the features selected by EA
@@ -513,10 +525,10 @@ public class MultipleTrackClassification implements EvaluationInterface {
 				tConf.setModelDatabase(pathToModelDatabase);
 				TrainerNodeScheduler ts = new TrainerNodeScheduler(individual.getCorrespondingES().
 					getCorrespondingScheduler().getHomeFolder() + File.separator + "input" +File.separator + "task_" +
-					individual.getCorrespondingES().getCorrespondingScheduler().getTaskId() + File.separator + "trainer");
+					evaluationJobId + File.separator + "trainer");
 				ts.setCleanInputFolder(false);
 				ts.proceedTask(individual.getCorrespondingES().getCorrespondingScheduler().getHomeFolder(), 
-					individual.getCorrespondingES().getCorrespondingScheduler().getTaskId(), tConf);
+					evaluationJobId, tConf);
 					
 				// Validate the model only with the features selected by EA
 				DataSet testDataWithOnlySelectedFeatures = new DataSet("TestSet");
@@ -551,18 +563,18 @@ public class MultipleTrackClassification implements EvaluationInterface {
 				vConf.setModelDatabase(pathToModelDatabase);
 				ValidatorNodeScheduler vs = new ValidatorNodeScheduler(individual.getCorrespondingES().
 					getCorrespondingScheduler().getHomeFolder() + File.separator + "input" +File.separator + "task_" +
-					individual.getCorrespondingES().getCorrespondingScheduler().getTaskId() + File.separator + "validator");
+					evaluationJobId + File.separator + "validator");
 				vs.setCleanInputFolder(false);
 				vs.setCategoryDescription(categoryForTestDescription);
 				vs.proceedTask(individual.getCorrespondingES().getCorrespondingScheduler().getHomeFolder(), 
-						new Long(individual.getCorrespondingES().getCorrespondingScheduler().getTaskId()), vConf, false);
+						new Long(evaluationJobId), vConf, false);
 			}
 		} 
 		
 		// (b) ..or using a separate optimization set
 		else {
 			String pathToModels = new String(individual.getCorrespondingES().getCorrespondingScheduler().getHomeFolder() + File.separator + "input" +File.separator + "task_" +
-				individual.getCorrespondingES().getCorrespondingScheduler().getTaskId() + File.separator +"Models"+ File.separator +
+				evaluationJobId + File.separator +"Models"+ File.separator +
 				categoryForLearningDescription + File.separator + classifierDescription + File.separator + processedModel);
 			
 			// Train the model only with the features selected by EA
@@ -599,10 +611,10 @@ public class MultipleTrackClassification implements EvaluationInterface {
 			tConf.setModelDatabase(pathToModelDatabase);
 			TrainerNodeScheduler ts = new TrainerNodeScheduler(individual.getCorrespondingES().
 				getCorrespondingScheduler().getHomeFolder() + File.separator + "input" +File.separator + "task_" +
-				individual.getCorrespondingES().getCorrespondingScheduler().getTaskId() + File.separator + "trainer");
+				evaluationJobId + File.separator + "trainer");
 			ts.setCleanInputFolder(false);
 			ts.proceedTask(individual.getCorrespondingES().getCorrespondingScheduler().getHomeFolder(), 
-				individual.getCorrespondingES().getCorrespondingScheduler().getTaskId(), tConf);
+				evaluationJobId, tConf);
 			
 			// ----------------------------------------
 			// (V) Validate the classification model(s)
@@ -660,11 +672,11 @@ public class MultipleTrackClassification implements EvaluationInterface {
 			vConf.setModelDatabase(pathToModelDatabase);
 			ValidatorNodeScheduler vs = new ValidatorNodeScheduler(individual.getCorrespondingES().
 				getCorrespondingScheduler().getHomeFolder() + File.separator + "input" +File.separator + "task_" +
-				individual.getCorrespondingES().getCorrespondingScheduler().getTaskId() + File.separator + "validator");
+				evaluationJobId + File.separator + "validator");
 			vs.setCleanInputFolder(false);
 			vs.setCategoryDescription(isEvaluatedOnIndependentTestSet ? categoryForTestDescription : categoryForOptimizationDescription);
 			vs.proceedTask(individual.getCorrespondingES().getCorrespondingScheduler().getHomeFolder(), 
-					new Long(individual.getCorrespondingES().getCorrespondingScheduler().getTaskId()), vConf, false);
+					new Long(evaluationJobId), vConf, false);
 		}
 			
 		// ---------------------------------------
@@ -785,7 +797,7 @@ public class MultipleTrackClassification implements EvaluationInterface {
 		// Clean the generated results
 		FileOperations.delete(new File(pathToModelDatabase),true);
 		FileOperations.delete(new File(individual.getCorrespondingES().getCorrespondingScheduler().getHomeFolder() + 
-			File.separator + "input" + File.separator + "task_" + individual.getCorrespondingES().getCorrespondingScheduler().getTaskId() +  File.separator +"Processed_Features"),true);
+			File.separator + "input" + File.separator + "task_" + evaluationJobId +  File.separator +"Processed_Features"),true);
 			
 		ValidationMeasureDouble[] measuresAsArray = new ValidationMeasureDouble[measures.size()];
 		for(int i=0;i<measuresAsArray.length;i++) {
@@ -905,7 +917,7 @@ public class MultipleTrackClassification implements EvaluationInterface {
 			// Load the processed features of the current file
 			for(int currFile = 0;currFile<inputProcessedFeatureFiles.size();currFile++) {
 				AmuseLogger.write(this.getClass().getName(), Level.DEBUG, "Loading processed features of: " + inputProcessedFeatureFiles.get(currFile));
-				DataSetAbstract featuresOfCurrentFile = new ArffDataSet(new File(inputProcessedFeatureFiles.get(currFile)));
+				DataSetAbstract featuresOfCurrentFile = BinaryFeatureFile.loadProcessedFeaturesFromDatabase(new File(inputProcessedFeatureFiles.get(currFile)));
 					
 				// For the first time, attributes must be created!
 				if(data.getAttributeCount() == 0) {
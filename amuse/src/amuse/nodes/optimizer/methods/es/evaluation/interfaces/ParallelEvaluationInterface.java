@@ -0,0 +1,47 @@
+/**
+ * This file is part of AMUSE framework (Advanced MUsic Explorer).
+ *
+ * Copyright 2006-2020 by code authors
+ *
+ * Created at TU Dortmund, Chair of Algorithm Engineering
+ * (Contact: <http://ls11-www.cs.tu-dortmund.de>)
+ *
+ * AMUSE is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * AMUSE is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with AMUSE. If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Creation date: 17.10.2026
+ */
+package amuse.nodes.optimizer.methods.es.evaluation.interfaces;
+
+import amuse.interfaces.nodes.NodeException;
+import amuse.nodes.optimizer.methods.es.EvolutionaryStrategy;
+
+/**
+ * Evaluation functions which implement this interface may be instantiated several times by the ES
+ * so that the fitness of different individuals is calculated concurrently. Each instance is used by
+ * only one thread at a time.
+ *
+ * @version $Id$
+ */
+public interface ParallelEvaluationInterface extends EvaluationInterface {
+
+	/**
+	 * Initializes one of the concurrently used Fitness Evaluators
+	 * @param strategy Corresponding ES
+	 * @param isEvaluatedOnIndependentTestSet Will the optimization process be evaluated additionally on the independent test set?
+	 * @param evaluationJobId Job id which must be used by this evaluator for its intermediate data (e.g. for the folder
+	 * input/task_evaluationJobId), so that the concurrently running evaluators do not share any temp folders
+	 */
+	public void initialize(EvolutionaryStrategy strategy, boolean isEvaluatedOnIndependentTestSet, long evaluationJobId) throws NodeException;
+
+}
@@ -35,7 +35,7 @@ import weka.core.Attribute;
 import weka.core.Instance;
 import weka.core.converters.ArffLoader;
 
-import amuse.data.io.ArffDataSet;
+import amuse.data.BinaryFeatureFile;
 import amuse.data.io.DataSet;
 import amuse.data.io.DataSetAbstract;
 import amuse.data.io.attributes.NumericAttribute;
@@ -225,7 +225,7 @@ public class AsymmetricBitFlipWithCorrelationToTarget extends AsymmetricBitFlip
 					
 			// Load the processed features of the current file
 			for(int currFile = 0;currFile<inputProcessedFeatureFiles.size();currFile++) {
-				DataSetAbstract featuresOfCurrentFile = new ArffDataSet(new File(inputProcessedFeatureFiles.get(currFile)));
+				DataSetAbstract featuresOfCurrentFile = BinaryFeatureFile.loadProcessedFeaturesFromDatabase(new File(inputProcessedFeatureFiles.get(currFile)));
 					
 				// For the first time, attributes must be created!
 				if(data.getAttributeCount() == 0) {
@@ -0,0 +1,358 @@
+/**
+ * This file is part of AMUSE framework (Advanced MUsic Explorer).
+ *
+ * Copyright 2006-2010 by code authors
+ *
+ * Created at TU Dortmund, Chair of Algorithm Engineering
+ * (Contact: <http://ls11-www.cs.tu-dortmund.de>)
+ *
+ * AMUSE is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * AMUSE is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with AMUSE. If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Creation date: 17.10.2026
+ */
+package amuse.nodes.processor;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.nio.charset.Charset;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+import org.apache.log4j.Level;
+
+import amuse.data.Feature;
+import amuse.preferences.AmusePreferences;
+import amuse.preferences.KeysIntValue;
+import amuse.preferences.KeysStringValue;
+import amuse.util.AmuseLogger;
+
+/**
+ * Stores the processed features of a music file in a cache folder, so that the same processing
+ * (e.g. in several validation experiments, optimizer generations or training runs) is done only once.<br/>
+ * An entry is addressed by the SHA-256 hash of the processing description: the feature ids, the
+ * reduction step chain with its parameters, the conversion step, the partition size and overlap, the
+ * path, length and modification time of all raw feature files of the music file (some processing steps
+ * load further features like onset times) and of the further input files of the processing like the tool
+ * tables or the minimal and maximal values of the normalization. If one of them changes, the entry is not
+ * used anymore and is removed by the size based eviction, which deletes the least recently used entries first.
+ *
+ * @version $Id$
+ */
+public class ProcessedFeatureCache {
+
+	/** Changed if the processing results or the stored format change, so that older entries are not used */
+	private static final int VERSION = 2;
+
+	private static final String ENTRY_SUFFIX = ".ser";
+
+	/** Entries used by all processor node schedulers of this JVM */
+	private static final ProcessedFeatureCache sharedCache = new ProcessedFeatureCache(null, 0);
+
+	/** Folder with the cache entries */
+	private volatile File folder;
+
+	/** Maximal size of all entries in bytes; 0 disables the cache */
+	private volatile long maximalSize;
+
+	private long hits = 0;
+	private long misses = 0;
+	private long evictions = 0;
+
+	/**
+	 * Creates a cache
+	 * @param folder Folder with the cache entries
+	 * @param maximalSize Maximal size of all entries in bytes; 0 disables the cache
+	 */
+	public ProcessedFeatureCache(File folder, long maximalSize) {
+		this.folder = folder;
+		this.maximalSize = maximalSize;
+	}
+
+	/**
+	 * Returns the cache shared by this JVM with the folder PROCESSED_FEATURE_CACHE (or the folder
+	 * cache/processedFeatures of Amuse, if it is not set) and the size PROCESSED_FEATURE_CACHE_SIZE_IN_MB
+	 */
+	public static ProcessedFeatureCache getInstance() {
+		String folder = AmusePreferences.get(KeysStringValue.PROCESSED_FEATURE_CACHE);
+		if(!KeysStringValue.PROCESSED_FEATURE_CACHE.isValid(folder)) {
+			folder = AmusePreferences.get(KeysStringValue.AMUSE_PATH) + File.separator + "cache" + File.separator + "processedFeatures";
+		}
+		synchronized(sharedCache) {
+			sharedCache.folder = new File(folder);
+			sharedCache.maximalSize = AmusePreferences.getInt(KeysIntValue.PROCESSED_FEATURE_CACHE_SIZE_IN_MB) * 1048576L;
+		}
+		return sharedCache;
+	}
+
+	/**
+	 * @return True if entries are stored
+	 */
+	public synchronized boolean isEnabled() {
+		return maximalSize > 0 && folder != null;
+	}
+
+	/**
+	 * Creates the key of the processed features
+	 * @param configuration Processing configuration
+	 * @param rawFeatureFolder Folder with the raw features of the music file
+	 * @param inputFiles Further files read by the processing, e.g. the tool tables
+	 * @return Hexadecimal SHA-256 hash of the processing description
+	 */
+	public static String createKey(ProcessingConfiguration configuration, File rawFeatureFolder, List<File> inputFiles) {
+		try {
+			MessageDigest digest = MessageDigest.getInstance("SHA-256");
+			byte[] hash = digest.digest(describe(configuration, rawFeatureFolder, inputFiles).getBytes(Charset.forName("UTF-8")));
+			StringBuilder key = new StringBuilder(2 * hash.length);
+			for(byte b : hash) {
+				key.append(Character.forDigit((b >> 4) & 0xf, 16)).append(Character.forDigit(b & 0xf, 16));
+			}
+			return key.toString();
+		} catch(NoSuchAlgorithmException e) {
+			// Every Java platform supports SHA-256
+			throw new IllegalStateException(e);
+		}
+	}
+
+	/**
+	 * Creates the canonical processing description, which is hashed for the key
+	 */
+	static String describe(ProcessingConfiguration configuration, File rawFeatureFolder, List<File> inputFiles) {
+		StringBuilder description = new StringBuilder();
+		description.append("version=").append(VERSION).append('\n');
+		description.append("features=").append(configuration.getInputFeatureList().getSelectedIds()).append('\n');
+		description.append("reductionSteps=").append(configuration.getReductionSteps()).append('\n');
+		description.append("conversionStep=").append(configuration.getConversionStep()).append('\n');
+		description.append("partitionSize=").append(configuration.getPartitionSize()).append('\n');
+		description.append("partitionOverlap=").append(configuration.getPartitionOverlap()).append('\n');
+		description.append("folder=").append(rawFeatureFolder.getAbsolutePath()).append('\n');
+		File[] rawFeatureFiles = rawFeatureFolder.listFiles();
+		if(rawFeatureFiles != null) {
+			Arrays.sort(rawFeatureFiles);
+			for(File file : rawFeatureFiles) {
+				if(file.getName().endsWith(".arff")) {
+					description.append("file=").append(file.getName()).append(';').append(file.length()).append(';').
+						append(file.lastModified()).append('\n');
+				}
+			}
+		}
+		for(File file : inputFiles) {
+			description.append("input=").append(file.getAbsolutePath()).append(';');
+			if(file.isFile()) {
+				description.append(file.length()).append(';').append(file.lastModified()).append('\n');
+			} else {
+				description.append("missing\n");
+			}
+		}
+		return description.toString();
+	}
+
+	/**
+	 * Loads the processed features
+	 * @param key Key created by createKey()
+	 * @return The stored processed features or null if they are not available
+	 */
+	public Entry get(String key) {
+		if(!isEnabled()) {
+			return null;
+		}
+		File entryFile = getEntryFile(key);
+		if(entryFile.exists()) {
+			ObjectInputStream input = null;
+			try {
+				input = new ObjectInputStream(new BufferedInputStream(new FileInputStream(entryFile)));
+				Entry entry = (Entry)input.readObject();
+
+				// The modification time is used for the eviction of the least recently used entries
+				entryFile.setLastModified(System.currentTimeMillis());
+				synchronized(this) {
+					hits++;
+				}
+				return entry;
+			} catch(Exception e) {
+				AmuseLogger.write(ProcessedFeatureCache.class.getName(), Level.WARN,
+						"Could not load the cached processed features, they are processed again: " + e.getMessage());
+				entryFile.delete();
+			} finally {
+				if(input != null) {
+					try {
+						input.close();
+					} catch(IOException e) {
+						// Nothing to do
+					}
+				}
+			}
+		}
+		synchronized(this) {
+			misses++;
+		}
+		return null;
+	}
+
+	/**
+	 * Stores the processed features and removes the least recently used entries if the maximal size is exceeded
+	 * @param key Key created by createKey()
+	 * @param entry Processed features
+	 */
+	public void put(String key, Entry entry) {
+		if(!isEnabled()) {
+			return;
+		}
+		File entryFile = getEntryFile(key);
+		File temporaryFile = null;
+		try {
+			folder.mkdirs();
+			temporaryFile = File.createTempFile("entry_" + key, ".tmp", folder);
+			ObjectOutputStream output = new ObjectOutputStream(new BufferedOutputStream(new FileOutputStream(temporaryFile)));
+			try {
+				output.writeObject(entry);
+			} finally {
+				output.close();
+			}
+			entryFile.delete();
+			if(!temporaryFile.renameTo(entryFile)) {
+				throw new IOException("Could not rename " + temporaryFile);
+			}
+		} catch(IOException e) {
+			AmuseLogger.write(ProcessedFeatureCache.class.getName(), Level.WARN,
+					"Could not store the processed features in the cache: " + e.getMessage());
+			if(temporaryFile != null) {
+				temporaryFile.delete();
+			}
+			return;
+		}
+		evict();
+	}
+
+	/**
+	 * Removes the least recently used entries until the maximal size is kept
+	 */
+	private synchronized void evict() {
+		File[] entryFiles = folder.listFiles();
+		if(entryFiles == null) {
+			return;
+		}
+		List<File> entries = new ArrayList<File>(entryFiles.length);
+		long size = 0;
+		for(File file : entryFiles) {
+			if(file.getName().endsWith(ENTRY_SUFFIX)) {
+				entries.add(file);
+				size += file.length();
+			}
+		}
+		if(size <= maximalSize) {
+			return;
+		}
+		final long[] lastModified = new long[entries.size()];
+		for(int i=0;i<entries.size();i++) {
+			lastModified[i] = entries.get(i).lastModified();
+		}
+		Integer[] order = new Integer[entries.size()];
+		for(int i=0;i<order.length;i++) {
+			order[i] = i;
+		}
+		Arrays.sort(order, new Comparator<Integer>() {
+			public int compare(Integer a, Integer b) {
+				return lastModified[a] < lastModified[b] ? -1 : (lastModified[a] == lastModified[b] ? 0 : 1);
+			}
+		});
+		for(int i=0;i<order.length && size > maximalSize;i++) {
+			File file = entries.get(order[i]);
+			long length = file.length();
+			if(file.delete()) {
+				size -= length;
+				evictions++;
+				AmuseLogger.write(ProcessedFeatureCache.class.getName(), Level.DEBUG, "Removed from processed feature cache: " + file.getName());
+			}
+		}
+	}
+
+	/**
+	 * Writes the number of hits, misses and evictions to the log
+	 */
+	public synchronized void logStatistics() {
+		AmuseLogger.write(ProcessedFeatureCache.class.getName(), Level.INFO, "Processed feature cache: " + hits + " hits, " +
+				misses + " misses, " + evictions + " evictions");
+	}
+
+	public synchronized long getHits() {
+		return hits;
+	}
+
+	public synchronized long getMisses() {
+		return misses;
+	}
+
+	public synchronized long getEvictions() {
+		return evictions;
+	}
+
+	private File getEntryFile(String key) {
+		return new File(folder, key + ENTRY_SUFFIX);
+	}
+
+	/**
+	 * Processed features of a music file together with the numbers of used time windows and
+	 * feature matrix entries, which are saved in the processed feature files
+	 */
+	public static class Entry implements Serializable {
+
+		private static final long serialVersionUID = 4170832659175628470L;
+
+		private final ArrayList<Feature> features;
+		private final long initialNumberOfUsedRawTimeWindows;
+		private final long finalNumberOfUsedRawTimeWindows;
+		private final long initialNumberOfFeatureMatrixEntries;
+		private final long finalNumberOfFeatureMatrixEntries;
+
+		public Entry(ArrayList<Feature> features, long initialNumberOfUsedRawTimeWindows, long finalNumberOfUsedRawTimeWindows,
+				long initialNumberOfFeatureMatrixEntries, long finalNumberOfFeatureMatrixEntries) {
+			this.features = features;
+			this.initialNumberOfUsedRawTimeWindows = initialNumberOfUsedRawTimeWindows;
+			this.finalNumberOfUsedRawTimeWindows = finalNumberOfUsedRawTimeWindows;
+			this.initialNumberOfFeatureMatrixEntries = initialNumberOfFeatureMatrixEntries;
+			this.finalNumberOfFeatureMatrixEntries = finalNumberOfFeatureMatrixEntries;
+		}
+
+		public ArrayList<Feature> getFeatures() {
+			return features;
+		}
+
+		public long getInitialNumberOfUsedRawTimeWindows() {
+			return initialNumberOfUsedRawTimeWindows;
+		}
+
+		public long getFinalNumberOfUsedRawTimeWindows() {
+			return finalNumberOfUsedRawTimeWindows;
+		}
+
+		public long getInitialNumberOfFeatureMatrixEntries() {
+			return initialNumberOfFeatureMatrixEntries;
+		}
+
+		public long getFinalNumberOfFeatureMatrixEntries() {
+			return finalNumberOfFeatureMatrixEntries;
+		}
+	}
+}
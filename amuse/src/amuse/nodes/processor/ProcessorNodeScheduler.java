@@ -23,10 +23,8 @@
  */ 
 package amuse.nodes.processor;
 
-import java.io.DataOutputStream;
 import java.io.File;
 import java.io.FileInputStream;
-import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.ObjectInputStream;
 import java.util.ArrayList;
@@ -34,13 +32,21 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Properties;
 import java.util.StringTokenizer;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
 
 import org.apache.log4j.Level;
 
-import amuse.data.ArffFeatureLoader;
+import amuse.data.BinaryFeatureFile;
 import amuse.data.Feature;
+import amuse.data.FeatureCache;
 import amuse.data.FeatureTable;
 import amuse.data.io.ArffDataSet;
+import amuse.data.io.ArffWriter;
 import amuse.data.io.DataSetAbstract;
 import amuse.interfaces.nodes.methods.AmuseTask;
 import amuse.interfaces.nodes.TaskConfiguration;
@@ -48,8 +54,11 @@ import amuse.interfaces.nodes.NodeEvent;
 import amuse.interfaces.nodes.NodeException;
 import amuse.interfaces.nodes.NodeScheduler;
 import amuse.nodes.processor.interfaces.DimensionProcessorInterface;
+import amuse.nodes.processor.interfaces.ExternalFileReaderInterface;
 import amuse.nodes.processor.interfaces.MatrixToVectorConverterInterface;
 import amuse.preferences.AmusePreferences;
+import amuse.preferences.KeysBooleanValue;
+import amuse.preferences.KeysIntValue;
 import amuse.preferences.KeysStringValue;
 import amuse.util.AmuseLogger;
 
@@ -90,6 +99,16 @@ public class ProcessorNodeScheduler extends NodeScheduler {
 	/** Saves the processed features if they are not saved in the database */
 	private List<Feature> processedFeatures;
 	
+	/** Rows of the processor algorithm table and of the conversion algorithm table, mapped by algorithm id */
+	private HashMap<Integer,Properties> processorTable = null;
+	private HashMap<Integer,Properties> conversionTable = null;
+	
+	/** Configured adapters of the processing steps and of the conversion step; they are reused for further
+	 * music files as long as the processing chain and the minimal frame size do not change */
+	private List<DimensionProcessorInterface> processingSteps = null;
+	private MatrixToVectorConverterInterface converter = null;
+	private String processingChainOfAdapters = null;
+	
 	/**
 	 * Constructor
 	 */
@@ -145,14 +164,171 @@ public class ProcessorNodeScheduler extends NodeScheduler {
 		// ---------------------------------------
 		// (I): Configure processor node scheduler
 		// ---------------------------------------
+		configureNode(nodeHome, jobId);
+		this.taskConfiguration = processingConfiguration;
+		
+		// The tool tables and the adapters are loaded again, since the tables may have been changed since the previous task
+		this.processorTable = null;
+		this.conversionTable = null;
+		this.processingSteps = null;
+		
+		AmuseLogger.write(this.getClass().getName(), Level.INFO, "Processor node scheduler for " + 
+				((ProcessingConfiguration)this.taskConfiguration).getMusicFileList().getFileAt(0) + " started");
+		
+		// --------------------------------------
+		// (II)-(V) Process the features and save
+		// --------------------------------------
+		if(!proceedMusicFile(saveToFile)) {
+			errorDescriptionBuilder.append(((ProcessingConfiguration)this.taskConfiguration).getMusicFileList().getFileAt(0));
+			this.fireEvent(new NodeEvent(NodeEvent.PROCESSING_FAILED, this));
+			return;
+		}
+		
+		// ----------------------------------------------------------------------------------
+		// (VI) If started directly, remove generated data and fire event for Amuse scheduler
+		// ----------------------------------------------------------------------------------
+		if(this.directStart) {
+			try {
+				this.cleanInputFolder();
+			} catch(NodeException e) {
+				AmuseLogger.write(this.getClass().getName(), Level.ERROR,
+					"Could not remove properly the intermediate results '" + 
+					this.nodeHome + File.separator + "input" + File.separator + "task_'" + this.jobId + "; please delete it manually! (Exception: "+ e.getMessage() + ")");
+			}
+			this.fireEvent(new NodeEvent(NodeEvent.PROCESSING_COMPLETED, this));
+		}
+		
+	}
+
+	/**
+	 * Processes the features of several music files with the same node. The tool tables are loaded only once,
+	 * and the adapters of the processing chain are configured only once per thread and reused for all its
+	 * music files. Failed music files are written to the error description and do not stop the other ones.
+	 * The number of threads is set to the maximum number of task threads
+	 * @param processingConfigurations Configurations with one music file each
+	 */
+	public void proceedBatch(String nodeHome, long jobId, ProcessingConfiguration[] processingConfigurations) {
+		configureNode(nodeHome, jobId);
+		proceedBatch(nodeHome, jobId, processingConfigurations, AmusePreferences.getInt(KeysIntValue.MAX_NUMBER_OF_TASK_THREADS));
+	}
+	
+	/**
+	 * Processes the features of several music files with the given number of threads
+	 * @param processingConfigurations Configurations with one music file each
+	 * @param numberOfThreads Number of music files processed at the same time
+	 */
+	public void proceedBatch(String nodeHome, long jobId, ProcessingConfiguration[] processingConfigurations, int numberOfThreads) {
+		configureNode(nodeHome, jobId);
+		this.processorTable = null;
+		this.conversionTable = null;
+		this.processingSteps = null;
+		if(processingConfigurations.length == 0) {
+			return;
+		}
+		AmuseLogger.write(this.getClass().getName(), Level.INFO, "Processor node scheduler started for " + 
+				processingConfigurations.length + " music files");
+		
+		// Each thread processes its music files with its own scheduler, since the adapters
+		// keep the state of the current music file
+		numberOfThreads = Math.max(1, Math.min(numberOfThreads, processingConfigurations.length));
+		final LinkedBlockingQueue<ProcessorNodeScheduler> idleSchedulers = new LinkedBlockingQueue<ProcessorNodeScheduler>();
+		for(int i=0;i<numberOfThreads;i++) {
+			ProcessorNodeScheduler scheduler;
+			if(i == 0) {
+				scheduler = this;
+			} else {
+				try {
+					scheduler = new ProcessorNodeScheduler(this.nodeHome + File.separator + "input" + File.separator + "task_" + this.jobId);
+				} catch(NodeException e) {
+					AmuseLogger.write(this.getClass().getName(), Level.WARN, 
+							"Could not create further processor node scheduler: " + e.getMessage());
+					break;
+				}
+				scheduler.nodeHome = this.nodeHome;
+				scheduler.jobId = this.jobId;
+				scheduler.directStart = this.directStart;
+			}
+			idleSchedulers.add(scheduler);
+		}
+		
+		// The tool tables are shared by all schedulers
+		loadToolTables();
+		for(ProcessorNodeScheduler scheduler : idleSchedulers) {
+			scheduler.processorTable = this.processorTable;
+			scheduler.conversionTable = this.conversionTable;
+		}
+		
+		ExecutorService executor = Executors.newFixedThreadPool(idleSchedulers.size());
+		List<Future<Boolean>> results = new ArrayList<Future<Boolean>>(processingConfigurations.length);
+		for(int i=0;i<processingConfigurations.length;i++) {
+			final ProcessingConfiguration processingConfiguration = processingConfigurations[i];
+			results.add(executor.submit(new Callable<Boolean>() {
+				public Boolean call() throws Exception {
+					ProcessorNodeScheduler scheduler = idleSchedulers.take();
+					try {
+						scheduler.taskConfiguration = processingConfiguration;
+						AmuseLogger.write(ProcessorNodeScheduler.class.getName(), Level.INFO, "Processor node scheduler for " + 
+								processingConfiguration.getMusicFileList().getFileAt(0) + " started");
+						return scheduler.proceedMusicFile(true);
+					} finally {
+						idleSchedulers.put(scheduler);
+					}
+				}
+			}));
+		}
+		executor.shutdown();
+		
+		int numberOfFailedFiles = 0;
+		for(int i=0;i<processingConfigurations.length;i++) {
+			boolean isProcessed = false;
+			try {
+				isProcessed = results.get(i).get();
+			} catch(InterruptedException e) {
+				executor.shutdownNow();
+				Thread.currentThread().interrupt();
+			} catch(ExecutionException e) {
+				AmuseLogger.write(this.getClass().getName(), Level.ERROR, 
+						"Processing of " + processingConfigurations[i].getMusicFileList().getFileAt(0) + " failed: " + e.getCause());
+			}
+			if(!isProcessed) {
+				if(numberOfFailedFiles > 0) {
+					errorDescriptionBuilder.append("\n");
+				}
+				errorDescriptionBuilder.append(processingConfigurations[i].getMusicFileList().getFileAt(0));
+				numberOfFailedFiles++;
+			}
+		}
+		this.taskConfiguration = processingConfigurations[processingConfigurations.length - 1];
+		AmuseLogger.write(this.getClass().getName(), Level.INFO, "Processor node scheduler finished " + 
+				(processingConfigurations.length - numberOfFailedFiles) + File.separator + processingConfigurations.length + " music files");
+		FeatureCache.getInstance().logStatistics();
+		ProcessedFeatureCache.getInstance().logStatistics();
+		
+		if(numberOfFailedFiles > 0) {
+			this.fireEvent(new NodeEvent(NodeEvent.PROCESSING_FAILED, this));
+			return;
+		}
+		if(this.directStart) {
+			try {
+				this.cleanInputFolder();
+			} catch(NodeException e) {
+				AmuseLogger.write(this.getClass().getName(), Level.ERROR,
+					"Could not remove properly the intermediate results '" + 
+					this.nodeHome + File.separator + "input" + File.separator + "task_'" + this.jobId + "; please delete it manually! (Exception: "+ e.getMessage() + ")");
+			}
+			this.fireEvent(new NodeEvent(NodeEvent.PROCESSING_COMPLETED, this));
+		}
+	}
+	
+	/**
+	 * Sets the node home and the job id and loads the preferences if this node is not started directly
+	 */
+	private void configureNode(String nodeHome, long jobId) {
 		this.nodeHome = nodeHome;
 		if(this.nodeHome.startsWith(AmusePreferences.get(KeysStringValue.AMUSE_PATH))) {
 			this.directStart = true;
 		}
 		this.jobId = new Long(jobId);
-		this.featureIdToWindowNumber = new HashMap<Integer,Long>();
-		this.featureIdToSourceFrameSize = new HashMap<Integer,Integer>();
-		this.taskConfiguration = processingConfiguration;
 		
 		// If this node is started directly, the properties are loaded from AMUSEHOME folder;
 		// if this node is started via command line (e.g. in a grid, the properties are loaded from
@@ -161,10 +337,68 @@ public class ProcessorNodeScheduler extends NodeScheduler {
 			File preferencesFile = new File(this.nodeHome + File.separator + "config" + File.separator + "amuse.properties");
 			AmusePreferences.restoreFromFile(preferencesFile);
 		}
+	}
+	
+	/**
+	 * Loads, processes and saves the features of the music file from the current task configuration
+	 * @param saveToFile If true, the processing results are saved to the processed features database
+	 * @return False if the processing failed
+	 */
+	private boolean proceedMusicFile(boolean saveToFile) {
+		this.featureIdToWindowNumber = new HashMap<Integer,Long>();
+		this.featureIdToSourceFrameSize = new HashMap<Integer,Integer>();
 		
-		AmuseLogger.write(this.getClass().getName(), Level.INFO, "Processor node scheduler for " + 
-				((ProcessingConfiguration)this.taskConfiguration).getMusicFileList().getFileAt(0) + " started");
+		// The processing results of unchanged raw features may be taken from the cache
+		ProcessedFeatureCache cache = ProcessedFeatureCache.getInstance();
+		String cacheKey = null;
+		ArrayList<Feature> rawFeatures = null;
+		List<File> inputFiles = cache.isEnabled() ? getProcessingInputFiles() : null;
+		if(inputFiles != null) {
+			cacheKey = ProcessedFeatureCache.createKey((ProcessingConfiguration)this.taskConfiguration, getRawFeatureFolder(), inputFiles);
+			ProcessedFeatureCache.Entry cachedEntry = cache.get(cacheKey);
+			if(cachedEntry != null) {
+				AmuseLogger.write(this.getClass().getName(), Level.INFO, "Processed features are taken from the cache");
+				rawFeatures = cachedEntry.getFeatures();
+				this.initialNumberOfUsedRawTimeWindows = cachedEntry.getInitialNumberOfUsedRawTimeWindows();
+				this.finalNumberOfUsedRawTimeWindows = cachedEntry.getFinalNumberOfUsedRawTimeWindows();
+				this.initialNumberOfFeatureMatrixEntries = cachedEntry.getInitialNumberOfFeatureMatrixEntries();
+				this.finalNumberOfFeatureMatrixEntries = cachedEntry.getFinalNumberOfFeatureMatrixEntries();
+			}
+		}
 		
+		if(rawFeatures == null) {
+			rawFeatures = processFeatures();
+			if(rawFeatures == null) {
+				return false;
+			}
+			if(cacheKey != null) {
+				cache.put(cacheKey, new ProcessedFeatureCache.Entry(rawFeatures, this.initialNumberOfUsedRawTimeWindows, 
+						this.finalNumberOfUsedRawTimeWindows, this.initialNumberOfFeatureMatrixEntries, this.finalNumberOfFeatureMatrixEntries));
+			}
+		}
+		
+		// ---------------------------------------------------
+		// (V) Save the processed features to feature database
+		// ---------------------------------------------------
+		try {
+			if(saveToFile) {
+				this.saveProcessedFeaturesToDatabase(rawFeatures);
+			} else {
+				this.processedFeatures = rawFeatures;
+			}
+		} catch(NodeException e) {
+			AmuseLogger.write(this.getClass().getName(), Level.ERROR,
+					"Problem(s) occured during saving of processed features to database: " + e.getMessage());
+			return false;
+		}
+		return true;
+	}
+	
+	/**
+	 * Loads the raw features and runs the processing steps and the conversion step
+	 * @return Processed features or null if the processing failed
+	 */
+	private ArrayList<Feature> processFeatures() {
 		// -----------------------------------------------------------
 		// (II) Prepare the first list of all features to be processed 
 		// -----------------------------------------------------------
@@ -174,9 +408,7 @@ public class ProcessorNodeScheduler extends NodeScheduler {
 		} catch(NodeException e) {
 			AmuseLogger.write(this.getClass().getName(), Level.ERROR,
 				"Problem(s) occured during feature list generation: " + e.getMessage());
-			errorDescriptionBuilder.append(((ProcessingConfiguration)this.taskConfiguration).getMusicFileList().getFileAt(0));
-			this.fireEvent(new NodeEvent(NodeEvent.PROCESSING_FAILED, this));
-			return;
+			return null;
 		}
 		
 		// --------------------------------------------------------------------
@@ -187,9 +419,7 @@ public class ProcessorNodeScheduler extends NodeScheduler {
 		} catch(NodeException e) {
 			AmuseLogger.write(this.getClass().getName(), Level.ERROR,
 				"Problem(s) occured during feature processing steps: " + e.getMessage());
-			errorDescriptionBuilder.append(((ProcessingConfiguration)this.taskConfiguration).getMusicFileList().getFileAt(0));
-			this.fireEvent(new NodeEvent(NodeEvent.PROCESSING_FAILED, this));
-			return;
+			return null;
 		}
 		
 		// -------------------------------------------------------------------------
@@ -200,44 +430,12 @@ public class ProcessorNodeScheduler extends NodeScheduler {
 		} catch(NodeException e) {
 			AmuseLogger.write(this.getClass().getName(), Level.ERROR,
 				"Problem(s) occured during conversion from matrix to vector: " + e.getMessage());
-			errorDescriptionBuilder.append(((ProcessingConfiguration)this.taskConfiguration).getMusicFileList().getFileAt(0));
-			this.fireEvent(new NodeEvent(NodeEvent.PROCESSING_FAILED, this));
-			return;
-		}
-		
-		// ---------------------------------------------------
-		// (V) Save the processed features to feature database
-		// ---------------------------------------------------
-		try {
-			if(saveToFile) {
-				this.saveProcessedFeaturesToDatabase(rawFeatures);
-			} else {
-				this.processedFeatures = rawFeatures;
-			}
-		} catch(NodeException e) {
-			AmuseLogger.write(this.getClass().getName(), Level.ERROR,
-					"Problem(s) occured during saving of processed features to database: " + e.getMessage());
-			errorDescriptionBuilder.append(((ProcessingConfiguration)this.taskConfiguration).getMusicFileList().getFileAt(0));
-			this.fireEvent(new NodeEvent(NodeEvent.PROCESSING_FAILED, this));
-			return;
-		}
-		
-		// ----------------------------------------------------------------------------------
-		// (VI) If started directly, remove generated data and fire event for Amuse scheduler
-		// ----------------------------------------------------------------------------------
-		if(this.directStart) {
-			try {
-				this.cleanInputFolder();
-			} catch(NodeException e) {
-				AmuseLogger.write(this.getClass().getName(), Level.ERROR,
-					"Could not remove properly the intermediate results '" + 
-					this.nodeHome + File.separator + "input" + File.separator + "task_'" + this.jobId + "; please delete it manually! (Exception: "+ e.getMessage() + ")");
-			}
-			this.fireEvent(new NodeEvent(NodeEvent.PROCESSING_COMPLETED, this));
+			return null;
 		}
 		
+		return rawFeatures;
 	}
-
+	
 	/*
 	 * (non-Javadoc)
 	 * @see amuse.interfaces.nodes.NodeSchedulerInterface#proceedTask(java.lang.String[])
@@ -267,12 +465,25 @@ public class ProcessorNodeScheduler extends NodeScheduler {
 			e.printStackTrace();
 		}
 		
-		// Proceed the processing task(s)
-		for(int i=0;i<processorConfig.length;i++) {
-			proceedTask(args[0],new Long(args[1]),processorConfig[i]);
-			AmuseLogger.write(this.getClass().getName(), Level.INFO, "Processor node is going to start job " + 
-					(i+1) + File.separator + processorConfig.length);
+		// Proceed the processing task(s) with the same node
+		proceedBatch(args[0],new Long(args[1]),processorConfig);
+	}
+	
+	/**
+	 * Returns the folder with the raw features of the current music file
+	 */
+	private File getRawFeatureFolder() {
+		String relativeName = new String();
+		if(((ProcessingConfiguration)this.taskConfiguration).getMusicFileList().getFileAt(0).startsWith(AmusePreferences.get(KeysStringValue.MUSIC_DATABASE))) {
+			relativeName = ((ProcessingConfiguration)this.taskConfiguration).getMusicFileList().getFileAt(0).substring(AmusePreferences.get(KeysStringValue.MUSIC_DATABASE).length());
+		} else {
+			relativeName = ((ProcessingConfiguration)this.taskConfiguration).getMusicFileList().getFileAt(0);
 		}
+		if(relativeName.charAt(0) == File.separatorChar) {
+			relativeName = relativeName.substring(1);
+		}
+		relativeName = relativeName.substring(0,relativeName.lastIndexOf("."));
+		return new File(AmusePreferences.get(KeysStringValue.FEATURE_DATABASE) + File.separator + relativeName);
 	}
 	
 	/**
@@ -292,26 +503,10 @@ public class ProcessorNodeScheduler extends NodeScheduler {
 		List<Integer> featureIDs = featureSet.getSelectedIds();
 			
 		// Feature files for the current music file
+		File rawFeatureFolder = getRawFeatureFolder();
 		for(int i=0;i<featureIDs.size();i++) {
-					
-			// Calculate the path to feature files
-			String relativeName = new String();
-			if(((ProcessingConfiguration)this.taskConfiguration).getMusicFileList().getFileAt(0).startsWith(AmusePreferences.get(KeysStringValue.MUSIC_DATABASE))) {
-				relativeName = ((ProcessingConfiguration)this.taskConfiguration).getMusicFileList().getFileAt(0).substring(AmusePreferences.get(KeysStringValue.MUSIC_DATABASE).length());
-			} else {
-				relativeName = ((ProcessingConfiguration)this.taskConfiguration).getMusicFileList().getFileAt(0);
-			}
-			if(relativeName.charAt(0) == File.separatorChar) {
-				relativeName = relativeName.substring(1);
-			}
-			relativeName = relativeName.substring(0,relativeName.lastIndexOf("."));
-			if(relativeName.lastIndexOf(File.separator) != -1) {
-				features.add(ArffFeatureLoader.loadFeature(AmusePreferences.get(KeysStringValue.FEATURE_DATABASE) + File.separator + relativeName +
-					relativeName.substring(relativeName.lastIndexOf(File.separator)) + "_" + featureIDs.get(i) + ".arff"));
-			} else {
-				features.add(ArffFeatureLoader.loadFeature(AmusePreferences.get(KeysStringValue.FEATURE_DATABASE) + File.separator + relativeName +
-						File.separator + relativeName + "_" + featureIDs.get(i) + ".arff"));
-			}
+			features.add(FeatureCache.loadFeature(rawFeatureFolder.getPath() + File.separator + rawFeatureFolder.getName() + 
+					"_" + featureIDs.get(i) + ".arff"));
 		}
 		
 		// Check if the all features have been extracted using the same sample rate
@@ -415,18 +610,77 @@ public class ProcessorNodeScheduler extends NodeScheduler {
 		return features;
 	}
 	
+	/**
+	 * Returns the files besides the raw features which are read by the processing: the tool tables
+	 * and the files read by the processing and conversion steps
+	 * @return The files or null if the processing steps could not be configured
+	 */
+	private List<File> getProcessingInputFiles() {
+		try {
+			configureAdaptersForCurrentChain();
+		} catch(NodeException e) {
+			AmuseLogger.write(this.getClass().getName(), Level.WARN,
+				"Processed features are not cached: " + e.getMessage());
+			return null;
+		}
+		List<File> files = new ArrayList<File>();
+		files.add(getProcessorTableFile());
+		files.add(getConversionTableFile());
+		List<Object> adapters = new ArrayList<Object>(this.processingSteps);
+		adapters.add(this.converter);
+		for(Object adapter : adapters) {
+			if(adapter instanceof ExternalFileReaderInterface) {
+				files.addAll(((ExternalFileReaderInterface)adapter).getExternalFiles());
+			}
+		}
+		return files;
+	}
+	
+	/**
+	 * Configures the adapters if they are not configured for the current processing chain and frame size
+	 * @throws NodeException
+	 */
+	private void configureAdaptersForCurrentChain() throws NodeException {
+		String chain = ((ProcessingConfiguration)this.taskConfiguration).getReductionSteps() + "__" + 
+				((ProcessingConfiguration)this.taskConfiguration).getConversionStep() + "__" + this.minimalFrameSize;
+		if(this.processingSteps == null || !chain.equals(this.processingChainOfAdapters)) {
+			configureAdapters();
+			this.processingChainOfAdapters = chain;
+		}
+	}
+	
 	/**
 	 * Starts the methods for feature and/or time dimension processing
 	 * @param rawFeatures Raw music features
 	 * @throws NodeException
 	 */
 	private void proceedProcessingSteps(ArrayList<Feature> rawFeatures) throws NodeException {
+		configureAdaptersForCurrentChain();
+		
+		// Start the adapters
+		for(DimensionProcessorInterface dri : this.processingSteps) {
+			dri.runDimensionProcessing(rawFeatures);
+		}
+		
+		// Calculate the data for pruning rates of raw features usage and matrix processing
+		calculateFinalUsedWindowNumbers(rawFeatures);
+	}
+	
+	/**
+	 * Loads and configures the adapters of all processing steps and of the conversion step
+	 * @throws NodeException
+	 */
+	private void configureAdapters() throws NodeException {
+		this.processingSteps = null;
+		this.converter = null;
+		loadToolTables();
 		
 		// Go through all feature and time dimension reduction steps
 		// Example for reduction step chain:
 		// "0-1[5,15]-3"
 		// Here methods with IDs 0,1,3 are applied one after another; method with ID 1 has a
 		// parameter string "5,15"
+		List<DimensionProcessorInterface> steps = new ArrayList<DimensionProcessorInterface>();
 		StringTokenizer t = new StringTokenizer(((ProcessingConfiguration)this.taskConfiguration).getReductionSteps(),"-");
 		while(t.hasMoreElements()) {
 			
@@ -443,142 +697,91 @@ public class ProcessorNodeScheduler extends NodeScheduler {
 				currentStepParams = null;
 			}
 			
-			// Adapter for a current reduction step
-			Class<?> adapter = null;
-			DimensionProcessorInterface dri = null;
-			
-			// Load the tool table
-			ArffLoader processingToolsLoader = new ArffLoader();
-		    try {
-		    	if(this.directStart) {
-		    		processingToolsLoader.setFile(new File(AmusePreferences.getProcessorAlgorithmTablePath()));
-		    	} else {
-		    		processingToolsLoader.setFile(new File(this.nodeHome + File.separator + "input" + File.separator + "task_" + this.jobId + File.separator + "processorAlgorithmTable.arff"));
-		    	}
-				Instance currentInstance = processingToolsLoader.getNextInstance(processingToolsLoader.getStructure());
-				Attribute idAttribute = processingToolsLoader.getStructure().attribute("Id");
-				while(currentInstance != null) {
-
-					// Load the required adapter class and configure it
-					if(!currentInstance.isMissing(idAttribute) && 
-							currentStepID == new Double(currentInstance.value(idAttribute)).intValue()) {
-						
-						// Attributes with properties of dimension reducer
-						Attribute processorNameAttribute = processingToolsLoader.getStructure().attribute("Name");
-						Attribute adapterClassAttribute = processingToolsLoader.getStructure().attribute("AdapterClass");
-						Attribute homeFolderAttribute = processingToolsLoader.getStructure().attribute("HomeFolder");
-						Attribute processorStartScriptAttribute = processingToolsLoader.getStructure().attribute("StartScript");
-						Attribute inputProcessorBatchAttribute = processingToolsLoader.getStructure().attribute("InputBatch");
-						
-						try {
-							adapter = Class.forName(currentInstance.stringValue(adapterClassAttribute));
-							
-							dri = (DimensionProcessorInterface)adapter.newInstance();
-							Properties processorProperties = new Properties();
-							Integer idOfCurrentProcessor = new Double(currentInstance.value(idAttribute)).intValue();
-							processorProperties.setProperty("id",idOfCurrentProcessor.toString());
-							processorProperties.setProperty("processorName",currentInstance.stringValue(processorNameAttribute));
-							processorProperties.setProperty("processorFolderName",currentInstance.stringValue(homeFolderAttribute));
-							if(directStart) {
-								processorProperties.setProperty("processorFolder",AmusePreferences.get(KeysStringValue.AMUSE_PATH) + File.separator + "tools" + File.separator + currentInstance.stringValue(homeFolderAttribute));
-							} else {
-								processorProperties.setProperty("processorFolder",nodeHome + File.separator + "tools" + File.separator + currentInstance.stringValue(homeFolderAttribute));
-							}
-							processorProperties.setProperty("processorStartScript",currentInstance.stringValue(processorStartScriptAttribute));
-							processorProperties.setProperty("inputProcessorBatch",currentInstance.stringValue(inputProcessorBatchAttribute));
-							processorProperties.setProperty("minimalFrameSize",new Integer(this.minimalFrameSize).toString());
-							((AmuseTask)dri).configure(processorProperties,this,currentStepParams);
-							((AmuseTask)dri).initialize();
-							
-							AmuseLogger.write(this.getClass().getName(), Level.INFO, 
-									"Processor step is configured: " + currentInstance.stringValue(adapterClassAttribute));
-							break;
-						} catch(ClassNotFoundException e) {
-							AmuseLogger.write(this.getClass().getName(), Level.ERROR, 
-									"Processor class cannot be located: " + currentInstance.stringValue(adapterClassAttribute));
-						} catch(IllegalAccessException e) {
-							AmuseLogger.write(this.getClass().getName(), Level.ERROR, 
-									"Processor class or its nullary constructor is not accessible: " + currentInstance.stringValue(adapterClassAttribute));
-						} catch(InstantiationException e) {
-							AmuseLogger.write(this.getClass().getName(), Level.ERROR, 
-									"Instantiation failed for processor class: " + currentInstance.stringValue(adapterClassAttribute));
-						}
-					}
-					currentInstance = processingToolsLoader.getNextInstance(processingToolsLoader.getStructure());
-				}
-				processingToolsLoader.reset();
-		    } catch(IOException e) {
-		    	e.printStackTrace();
-	    		AmuseLogger.write(this.getClass().getName(), Level.FATAL, 
-		    				"Processor table could not be parsed properly: " + e.getMessage());
-	    		System.exit(1);
-		    }
-		
-			// Start the adapter
-			dri.runDimensionProcessing(rawFeatures);
+			AmuseTask dri = createAdapter(this.processorTable, currentStepID, currentStepParams);
+			if(!(dri instanceof DimensionProcessorInterface)) {
+				throw new NodeException("Processor step " + currentStepID + " could not be configured");
+			}
+			dri.initialize();
+			steps.add((DimensionProcessorInterface)dri);
 		}
 		
-		// Calculate the data for pruning rates of raw features usage and matrix processing
-		calculateFinalUsedWindowNumbers(rawFeatures);
-	}
-
-	/**
-	 * Starts the method for partitioning and conversion of matrix to vector
-	 * @param currentListOfFeatureFiles List of feature files to process
-	 * @throws NodeException
-	 */
-	private ArrayList<Feature> proceedMatrix2VectorConversion(ArrayList<Feature> features) throws NodeException {
+		// Conversion step
+		String conversionStep = ((ProcessingConfiguration)this.taskConfiguration).getConversionStep();
 		int stepID;
 		String stepParams = new String();
 		
 		// If parameter string of this step exists
-		if(((ProcessingConfiguration)this.taskConfiguration).getConversionStep().contains("[") && 
-				((ProcessingConfiguration)this.taskConfiguration).getConversionStep().contains("]")) {
-			stepID = new Integer(((ProcessingConfiguration)this.taskConfiguration).getConversionStep().
-					substring(0,((ProcessingConfiguration)this.taskConfiguration).getConversionStep().indexOf("[")));
-			stepParams = ((ProcessingConfiguration)this.taskConfiguration).getConversionStep().
-					substring(((ProcessingConfiguration)this.taskConfiguration).getConversionStep().indexOf("[")+1,
-							((ProcessingConfiguration)this.taskConfiguration).getConversionStep().lastIndexOf("]")); 
+		if(conversionStep.contains("[") && conversionStep.contains("]")) {
+			stepID = new Integer(conversionStep.substring(0,conversionStep.indexOf("[")));
+			stepParams = conversionStep.substring(conversionStep.indexOf("[")+1,conversionStep.lastIndexOf("]")); 
 		} else {
-			stepID = new Integer(((ProcessingConfiguration)this.taskConfiguration).getConversionStep());
+			stepID = new Integer(conversionStep);
 			stepParams = null;
 		}
+		AmuseTask mtvci = createAdapter(this.conversionTable, stepID, stepParams);
+		if(!(mtvci instanceof MatrixToVectorConverterInterface)) {
+			throw new NodeException("Conversion step " + stepID + " could not be configured");
+		}
 		
-			
-		// Adapter for a current reduction step
-		Class<?> adapter = null;
-		MatrixToVectorConverterInterface mtvci = null;
-			
-		// Load the tool table
+		this.processingSteps = steps;
+		this.converter = (MatrixToVectorConverterInterface)mtvci;
+	}
+	
+	/**
+	 * Loads the processor algorithm table and the conversion algorithm table if they are not loaded yet
+	 */
+	private void loadToolTables() {
+		if(this.processorTable == null) {
+			this.processorTable = loadToolTable(getProcessorTableFile());
+		}
+		if(this.conversionTable == null) {
+			this.conversionTable = loadToolTable(getConversionTableFile());
+		}
+	}
+	
+	private File getProcessorTableFile() {
+		if(this.directStart) {
+			return new File(AmusePreferences.getProcessorAlgorithmTablePath());
+		} else {
+			return new File(this.nodeHome + File.separator + "input" + File.separator + "task_" + this.jobId + File.separator + "processorAlgorithmTable.arff");
+		}
+	}
+	
+	private File getConversionTableFile() {
+		if(this.directStart) {
+			return new File(AmusePreferences.getProcessorConversionAlgorithmTablePath());
+		} else {
+			return new File(this.nodeHome + File.separator + "input" + File.separator + "task_" + this.jobId + File.separator + "processorConversionAlgorithmTable.arff");
+		}
+	}
+	
+	/**
+	 * Loads the rows of a processor tool table
+	 * @param tableFile Processor algorithm table or processor conversion algorithm table
+	 * @return Properties of the processor adapters (including the adapter class) mapped by their ids
+	 */
+	private HashMap<Integer,Properties> loadToolTable(File tableFile) {
+		HashMap<Integer,Properties> table = new HashMap<Integer,Properties>();
 		ArffLoader processingToolsLoader = new ArffLoader();
 		try {
-		   	if(this.directStart) {
-		   		processingToolsLoader.setFile(new File(AmusePreferences.getProcessorConversionAlgorithmTablePath()));
-		   	} else {
-		   		processingToolsLoader.setFile(new File(this.nodeHome + File.separator + "input" + File.separator + "task_" + this.jobId + File.separator + "processorConversionAlgorithmTable.arff"));
-		   	}
-			Instance currentInstance = processingToolsLoader.getNextInstance(processingToolsLoader.getStructure());
+			processingToolsLoader.setFile(tableFile);
+			
+			// Attributes with properties of processors
 			Attribute idAttribute = processingToolsLoader.getStructure().attribute("Id");
+			Attribute processorNameAttribute = processingToolsLoader.getStructure().attribute("Name");
+			Attribute adapterClassAttribute = processingToolsLoader.getStructure().attribute("AdapterClass");
+			Attribute homeFolderAttribute = processingToolsLoader.getStructure().attribute("HomeFolder");
+			Attribute processorStartScriptAttribute = processingToolsLoader.getStructure().attribute("StartScript");
+			Attribute inputProcessorBatchAttribute = processingToolsLoader.getStructure().attribute("InputBatch");
+			
+			Instance currentInstance = processingToolsLoader.getNextInstance(processingToolsLoader.getStructure());
 			while(currentInstance != null) {
-
-				// Load the required adapter class and configure it
-				if(!currentInstance.isMissing(idAttribute) && 
-						stepID == new Double(currentInstance.value(idAttribute)).intValue()) {
-						
-					// Attributes with properties of dimension reducer
-					Attribute processorNameAttribute = processingToolsLoader.getStructure().attribute("Name");
-					Attribute adapterClassAttribute = processingToolsLoader.getStructure().attribute("AdapterClass");
-					Attribute homeFolderAttribute = processingToolsLoader.getStructure().attribute("HomeFolder");
-					Attribute processorStartScriptAttribute = processingToolsLoader.getStructure().attribute("StartScript");
-					Attribute inputProcessorBatchAttribute = processingToolsLoader.getStructure().attribute("InputBatch");
-						
-					try {
-						adapter = Class.forName(currentInstance.stringValue(adapterClassAttribute));
-							
-						mtvci = (MatrixToVectorConverterInterface)adapter.newInstance();
+				if(!currentInstance.isMissing(idAttribute)) {
+					Integer idOfCurrentProcessor = new Double(currentInstance.value(idAttribute)).intValue();
+					if(!table.containsKey(idOfCurrentProcessor)) {
 						Properties processorProperties = new Properties();
-						Integer idOfCurrentProcessor = new Double(currentInstance.value(idAttribute)).intValue();
 						processorProperties.setProperty("id",idOfCurrentProcessor.toString());
+						processorProperties.setProperty("adapterClass",currentInstance.stringValue(adapterClassAttribute));
 						processorProperties.setProperty("processorName",currentInstance.stringValue(processorNameAttribute));
 						processorProperties.setProperty("processorFolderName",currentInstance.stringValue(homeFolderAttribute));
 						if(directStart) {
@@ -588,35 +791,68 @@ public class ProcessorNodeScheduler extends NodeScheduler {
 						}
 						processorProperties.setProperty("processorStartScript",currentInstance.stringValue(processorStartScriptAttribute));
 						processorProperties.setProperty("inputProcessorBatch",currentInstance.stringValue(inputProcessorBatchAttribute));
-						processorProperties.setProperty("minimalFrameSize",new Integer(this.minimalFrameSize).toString());
-						((AmuseTask)mtvci).configure(processorProperties,this,stepParams);
-							
-						AmuseLogger.write(this.getClass().getName(), Level.INFO, 
-								"Processor step is configured: " + currentInstance.stringValue(adapterClassAttribute));
-						break;
-					} catch(ClassNotFoundException e) {
-						AmuseLogger.write(this.getClass().getName(), Level.ERROR, 
-								"Processor class cannot be located: " + currentInstance.stringValue(adapterClassAttribute));
-					} catch(IllegalAccessException e) {
-						AmuseLogger.write(this.getClass().getName(), Level.ERROR, 
-								"Processor class or its nullary constructor is not accessible: " + currentInstance.stringValue(adapterClassAttribute));
-					} catch(InstantiationException e) {
-						AmuseLogger.write(this.getClass().getName(), Level.ERROR, 
-								"Instantiation failed for processor class: " + currentInstance.stringValue(adapterClassAttribute));
+						table.put(idOfCurrentProcessor, processorProperties);
 					}
 				}
 				currentInstance = processingToolsLoader.getNextInstance(processingToolsLoader.getStructure());
 			}
 			processingToolsLoader.reset();
-	   } catch(IOException e) {
-		   e.printStackTrace();
-	    	AmuseLogger.write(this.getClass().getName(), Level.FATAL, 
-		   				"Processor table could not be parsed properly: " + e.getMessage());
-    		System.exit(1);
-	    }
-		
-		// Start the adapter
-		return mtvci.runConversion(features, ((ProcessingConfiguration)this.taskConfiguration).getPartitionSize(), 
+		} catch(IOException e) {
+			e.printStackTrace();
+			AmuseLogger.write(this.getClass().getName(), Level.FATAL, 
+					"Processor table could not be parsed properly: " + e.getMessage());
+			System.exit(1);
+		}
+		return table;
+	}
+	
+	/**
+	 * Creates and configures the adapter of a processing or conversion step
+	 * @param table Tool table loaded with loadToolTable()
+	 * @param stepID Id of the step
+	 * @param stepParams Parameter string of the step or null
+	 * @return The configured adapter or null if it could not be created
+	 * @throws NodeException
+	 */
+	private AmuseTask createAdapter(HashMap<Integer,Properties> table, int stepID, String stepParams) throws NodeException {
+		Properties tableRow = table.get(stepID);
+		if(tableRow == null) {
+			return null;
+		}
+		String adapterClass = tableRow.getProperty("adapterClass");
+		try {
+			AmuseTask adapter = (AmuseTask)Class.forName(adapterClass).newInstance();
+			Properties processorProperties = new Properties();
+			processorProperties.putAll(tableRow);
+			processorProperties.remove("adapterClass");
+			processorProperties.setProperty("minimalFrameSize",new Integer(this.minimalFrameSize).toString());
+			adapter.configure(processorProperties,this,stepParams);
+			
+			AmuseLogger.write(this.getClass().getName(), Level.INFO, 
+					"Processor step is configured: " + adapterClass);
+			return adapter;
+		} catch(ClassNotFoundException e) {
+			AmuseLogger.write(this.getClass().getName(), Level.ERROR, 
+					"Processor class cannot be located: " + adapterClass);
+		} catch(IllegalAccessException e) {
+			AmuseLogger.write(this.getClass().getName(), Level.ERROR, 
+					"Processor class or its nullary constructor is not accessible: " + adapterClass);
+		} catch(InstantiationException e) {
+			AmuseLogger.write(this.getClass().getName(), Level.ERROR, 
+					"Instantiation failed for processor class: " + adapterClass);
+		}
+		return null;
+	}
+
+	/**
+	 * Starts the method for partitioning and conversion of matrix to vector
+	 * @param currentListOfFeatureFiles List of feature files to process
+	 * @throws NodeException
+	 */
+	private ArrayList<Feature> proceedMatrix2VectorConversion(ArrayList<Feature> features) throws NodeException {
+		
+		// Start the adapter (it has been configured together with the processing steps)
+		return this.converter.runConversion(features, ((ProcessingConfiguration)this.taskConfiguration).getPartitionSize(), 
 				((ProcessingConfiguration)this.taskConfiguration).getPartitionOverlap(), 
 				((ProcessingConfiguration)this.taskConfiguration).getReductionSteps() + "_" + 
 				((ProcessingConfiguration)this.taskConfiguration).getConversionStep() + "_" + 
@@ -678,40 +914,38 @@ public class ProcessorNodeScheduler extends NodeScheduler {
 						feature_values_save_file.getAbsolutePath() + "' will be overwritten");
 			}
 			
-			FileOutputStream values_to = new FileOutputStream(feature_values_save_file);
-			DataOutputStream values_writer = new DataOutputStream(values_to);
-			String sep = System.getProperty("line.separator");
-			values_writer.writeBytes("@RELATION 'Classifier input'");
-			values_writer.writeBytes(sep);
-			values_writer.writeBytes("%initialNumberOfUsedRawTimeWindows=" + this.initialNumberOfUsedRawTimeWindows);
-			values_writer.writeBytes(sep);
-			values_writer.writeBytes("%finalNumberOfUsedRawTimeWindows=" + this.finalNumberOfUsedRawTimeWindows);
-			values_writer.writeBytes(sep);
-			values_writer.writeBytes("%initalNumberOfFeatureMatrixEntries=" + this.initialNumberOfFeatureMatrixEntries);
-			values_writer.writeBytes(sep);
-			values_writer.writeBytes("%finalNumberOfFeatureMatrixEntries=" + this.finalNumberOfFeatureMatrixEntries);
-			values_writer.writeBytes(sep);
-			values_writer.writeBytes("%finalNumberOfFeatureVectorEntries=" + features.size());
-			values_writer.writeBytes(sep);
+			ArffWriter values_writer = new ArffWriter(feature_values_save_file);
+			values_writer.write("@RELATION 'Classifier input'");
+			values_writer.newLine();
+			values_writer.write("%initialNumberOfUsedRawTimeWindows=" + this.initialNumberOfUsedRawTimeWindows);
+			values_writer.newLine();
+			values_writer.write("%finalNumberOfUsedRawTimeWindows=" + this.finalNumberOfUsedRawTimeWindows);
+			values_writer.newLine();
+			values_writer.write("%initalNumberOfFeatureMatrixEntries=" + this.initialNumberOfFeatureMatrixEntries);
+			values_writer.newLine();
+			values_writer.write("%finalNumberOfFeatureMatrixEntries=" + this.finalNumberOfFeatureMatrixEntries);
+			values_writer.newLine();
+			values_writer.write("%finalNumberOfFeatureVectorEntries=" + features.size());
+			values_writer.newLine();
 			
 			// @deprecated
 			//values_writer.writeBytes("%finalNumberOfUsedTimeWindows=" + this.finalNumberOfUsedTimeWindows);
-			values_writer.writeBytes(sep+sep);
+			values_writer.newLine().newLine();
 			
 			// Save the attributes
 			for(int i=0;i<features.size();i++) {
-				values_writer.writeBytes("@ATTRIBUTE '");
-				values_writer.writeBytes(features.get(i).getHistoryAsString());
-				values_writer.writeBytes("' NUMERIC" + sep);
-			}
-			values_writer.writeBytes("@ATTRIBUTE Unit {milliseconds,samples}");
-			values_writer.writeBytes(sep);
-			values_writer.writeBytes("@ATTRIBUTE Start NUMERIC");
-			values_writer.writeBytes(sep);
-			values_writer.writeBytes("@ATTRIBUTE End NUMERIC");
-			values_writer.writeBytes(sep+sep);
-			values_writer.writeBytes("@DATA");
-			values_writer.writeBytes(sep);
+				values_writer.write("@ATTRIBUTE '");
+				values_writer.write(features.get(i).getHistoryAsString());
+				values_writer.write("' NUMERIC").newLine();
+			}
+			values_writer.write("@ATTRIBUTE Unit {milliseconds,samples}");
+			values_writer.newLine();
+			values_writer.write("@ATTRIBUTE Start NUMERIC");
+			values_writer.newLine();
+			values_writer.write("@ATTRIBUTE End NUMERIC");
+			values_writer.newLine().newLine();
+			values_writer.write("@DATA");
+			values_writer.newLine();
 			
 			// TODO Consider only the partitions up to 6 minutes of a music track; should be a parameter?
 			int numberOfMaxPartitions = features.get(0).getValues().size();
@@ -743,27 +977,44 @@ public class ProcessorNodeScheduler extends NodeScheduler {
 			double partSize = ((ProcessingConfiguration)this.taskConfiguration).getPartitionSize();
 			double stepSize = partSize - ((ProcessingConfiguration)this.taskConfiguration).getPartitionOverlap();
 			
+			// Values and partition boundaries are collected for the ARFF and the binary feature file
+			double[] values = new double[numberOfMaxPartitions * features.size()];
+			double[] partitionStarts = new double[numberOfMaxPartitions];
+			double[] partitionEnds = new double[numberOfMaxPartitions];
+			
 			// Save the data
 			for(int i=0;i<numberOfMaxPartitions;i++) {
 				for(int j=0;j<features.size();j++) {
 				
 					// [0] since the converted features must be single-dimensional!
-					values_writer.writeBytes(features.get(j).getValues().get(i)[0].toString() + ",");
+					values[i * features.size() + j] = features.get(j).getValues().get(i)[0];
 				}
 				double sampleRate = new Integer(features.get(0).getSampleRate()).doubleValue();
 				if(!((ProcessingConfiguration)this.taskConfiguration).getConversionStep().startsWith(new String("1"))) {
 					//values_writer.writeBytes("milliseconds," + features.get(0).getWindows().get(i)*((double)minimalFrameSize/sampleRate*1000d) + "," + 
 						//	(features.get(0).getWindows().get(i)*((double)minimalFrameSize/sampleRate*1000d)+((ProcessingConfiguration)this.taskConfiguration).getPartitionSize()) + sep);
-					values_writer.writeBytes("milliseconds," + (i*stepSize) + "," + (i*stepSize + partSize) + sep);
+					partitionStarts[i] = i*stepSize;
+					partitionEnds[i] = i*stepSize + partSize;
 				} else {
 					
 					// TODO [2/2] For adaptive onset partitions the boundaries are calculated here. A more generic solution
 					// is to change Feature class and allow frames of different sizes (e.g. with a child class)
-					values_writer.writeBytes("milliseconds," + attackStarts[i] * 1000 + "," + releaseEnds[i] * 1000 + sep);
-					
+					partitionStarts[i] = attackStarts[i] * 1000;
+					partitionEnds[i] = releaseEnds[i] * 1000;
 				}
+				values_writer.write(values, i * features.size(), features.size());
+				values_writer.write(",milliseconds,").write(partitionStarts[i]).write(',').write(partitionEnds[i]).newLine();
 			} 
 			values_writer.close();
+			
+			if(AmusePreferences.getBoolean(KeysBooleanValue.WRITE_BINARY_FEATURE_FILES)) {
+				String[] attributeNames = new String[features.size()];
+				for(int j=0;j<features.size();j++) {
+					attributeNames[j] = features.get(j).getHistoryAsString();
+				}
+				BinaryFeatureFile.saveProcessedFeatures(attributeNames, partitionStarts, partitionEnds, values,
+						BinaryFeatureFile.getBinaryFile(feature_values_save_file));
+			}
 		} catch(IOException e) {
 			throw new NodeException("Could not save the processed feature file!");
 		}
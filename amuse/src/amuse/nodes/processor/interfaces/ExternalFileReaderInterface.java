@@ -0,0 +1,43 @@
+/** 
+ * This file is part of AMUSE framework (Advanced MUsic Explorer).
+ * 
+ * Copyright 2006-2010 by code authors
+ * 
+ * Created at TU Dortmund, Chair of Algorithm Engineering
+ * (Contact: <http://ls11-www.cs.tu-dortmund.de>) 
+ *
+ * AMUSE is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * AMUSE is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with AMUSE. If not, see <http://www.gnu.org/licenses/>.
+ * 
+ * Creation date: 17.10.2026
+ */
+package amuse.nodes.processor.interfaces;
+
+import java.io.File;
+import java.util.List;
+
+/**
+ * This interface is implemented by processing and conversion steps which read further files besides
+ * the raw features, so that the processed feature cache notices changes of these files.
+ * 
+ * @version $Id$
+ */
+public interface ExternalFileReaderInterface {
+	
+	/**
+	 * Returns the files read by this step
+	 * @return Files which are read by the processing, also if they do not exist yet
+	 */
+	public List<File> getExternalFiles();
+
+}
@@ -135,8 +135,6 @@ public class GMMConverter extends AmuseTask implements MatrixToVectorConverterIn
 					//numberOfAllPartitions = 360000/overlap;
 				}*/
 				
-				int currentWindow = 0;
-				
 				// Go through all partitions
 				for(int numberOfCurrentPartition=0;numberOfCurrentPartition<numberOfAllPartitions;numberOfCurrentPartition++) {
 					
@@ -144,60 +142,38 @@ public class GMMConverter extends AmuseTask implements MatrixToVectorConverterIn
 					Double partitionStart = Math.floor(new Double(partitionSizeInWindows - overlapSizeInWindows)*new Double(numberOfCurrentPartition));
 					Double partitionEnd = Math.ceil((new Double(partitionSizeInWindows - overlapSizeInWindows)*new Double(numberOfCurrentPartition)+partitionSizeInWindows));
 					
-					// Increment the number of current time window if the lower partition boundary is not achieved
-					for(int k=currentWindow;k<features.get(i).getWindows().size();k++) {
-						if(features.get(i).getWindows().get(k) >= partitionStart) {
-							currentWindow = k;
-							break;
-						}
-					}
+					// Indices of time windows which are in the current partition
+					int[] windowsOfCurrentPartition = features.get(i).getIndicesOfWindows(partitionStart, partitionEnd);
 					
-					// If no features are available for the current partition, go to the next partition
-					if(features.get(i).getWindows().get(currentWindow) > partitionEnd) {
+					// Check if the current partition has any windows
+					if(windowsOfCurrentPartition.length == 0) {
 						continue;
 					}
 					
-					// Create a list with time windows which are in the current partition
-					ArrayList<Double> windowsOfCurrentPartition = new ArrayList<Double>();
-					while(features.get(i).getWindows().get(currentWindow) >= partitionStart && 
-							features.get(i).getWindows().get(currentWindow) < partitionEnd) {
-						windowsOfCurrentPartition.add(features.get(i).getWindows().get(currentWindow));
-						
-						// The last existing window is achieved
-						if(currentWindow == features.get(i).getWindows().size() - 1) {
-							break;
+					// Calculate mean and variance for all feature dimensions in one pass (Welford's method);
+					// NaN values are omitted
+					int[] valueNumbers = new int[numberOfAllSingleFeatures];
+					double[] means = new double[numberOfAllSingleFeatures];
+					double[] sumsOfSquaredDeviations = new double[numberOfAllSingleFeatures];
+					for(int l:windowsOfCurrentPartition) {
+						Double[] valuesOfCurrentWindow = features.get(i).getValues().get(l);
+						for(int k=0;k<numberOfAllSingleFeatures;k++) {
+							double value = valuesOfCurrentWindow[k];
+							if(!Double.isNaN(value)) {
+								valueNumbers[k]++;
+								double deviation = value - means[k];
+								means[k] += deviation / valueNumbers[k];
+								sumsOfSquaredDeviations[k] += deviation * (value - means[k]);
+							}
 						}
-						currentWindow++;
 					}
 					
-					// Check if the current partition has any windows
-					if(windowsOfCurrentPartition.size() == 0) {
-						continue;
-					}
-					
-					// Calculate mean and standard deviation for feature dimensions
 					// Go through all feature dimensions
 					for(int k=0;k<numberOfAllSingleFeatures;k++) {
 						
-						// Number of values (NaN values are omitted!)
-						int valueNumber = 0;
-						
-						// Calculate mean and variance
-						Double mean = 0d;
-						Double variance = 0d;
-						for(Double l:windowsOfCurrentPartition) {
-							if(!Double.isNaN(features.get(i).getValuesFromWindow(l)[k])) {
-								mean += features.get(i).getValuesFromWindow(l)[k];
-								valueNumber++;
-							}
-						}
-						mean /= valueNumber;
-						for(Double l:windowsOfCurrentPartition) {
-							if(!Double.isNaN(features.get(i).getValuesFromWindow(l)[k])) {
-								variance += Math.pow((Double)features.get(i).getValuesFromWindow(l)[k]-mean,2);
-							}
-						}
-						variance /= valueNumber;
+						// If all feature values consist of NaN values, mean and variance are NaN
+						Double mean = valueNumbers[k] > 0 ? means[k] : Double.NaN;
+						Double variance = sumsOfSquaredDeviations[k] / valueNumbers[k];
 								
 						// Add mean and deviation to the new generated features
 						if(numberOfCurrentPartition < numberOfAllPartitions) {
@@ -212,12 +188,6 @@ public class GMMConverter extends AmuseTask implements MatrixToVectorConverterIn
 								newFeatures.get(((saveMeanValues ? 1 : 0) + (saveStddevValues ? 1 : 0))*k+(saveMeanValues ? 1 : 0)).getWindows().add(new Double(partitionStart));
 							}
 						}
-						
-						// Go with the current window back because of overlap (some time windows used in the
-						// current partition may be also used in the next partition)
-						while(features.get(i).getWindows().get(currentWindow) >= partitionStart + (partitionSizeInWindows - overlapSizeInWindows) && currentWindow > 0) {
-							currentWindow--;
-						}
 					}
 				}
 
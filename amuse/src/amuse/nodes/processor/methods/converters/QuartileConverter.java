@@ -138,7 +138,8 @@ public class QuartileConverter extends AmuseTask implements MatrixToVectorConver
 					//numberOfAllPartitions = 360000/overlap;
 				}*/
 				
-				int currentWindow = 0;
+				// Buffer for the feature values of a partition
+				double[] valuesOfCurrentPartition = new double[0];
 				
 				// Go through all partitions
 				for(int numberOfCurrentPartition=0;numberOfCurrentPartition<numberOfAllPartitions;numberOfCurrentPartition++) {
@@ -147,34 +148,11 @@ public class QuartileConverter extends AmuseTask implements MatrixToVectorConver
 					Double partitionStart = Math.floor(new Double(partitionSizeInWindows - overlapSizeInWindows)*new Double(numberOfCurrentPartition));
 					Double partitionEnd = Math.ceil((new Double(partitionSizeInWindows - overlapSizeInWindows)*new Double(numberOfCurrentPartition)+partitionSizeInWindows));
 					
-					// Increment the number of current time window if the lower partition boundary is not achieved
-					for(int k=currentWindow;k<features.get(i).getWindows().size();k++) {
-						if(features.get(i).getWindows().get(k) >= partitionStart) {
-							currentWindow = k;
-							break;
-						}
-					}
-					
-					// If no features are available for the current partition, go to the next partition
-					if(features.get(i).getWindows().get(currentWindow) > partitionEnd) {
-						continue;
-					}
-					
-					// Create a list with time windows which are in the current partition
-					ArrayList<Double> windowsOfCurrentPartition = new ArrayList<Double>();
-					while(features.get(i).getWindows().get(currentWindow) >= partitionStart && 
-							features.get(i).getWindows().get(currentWindow) < partitionEnd) {
-						windowsOfCurrentPartition.add(features.get(i).getWindows().get(currentWindow));
-						
-						// The last existing window is achieved
-						if(currentWindow == features.get(i).getWindows().size() - 1) {
-							break;
-						}
-						currentWindow++;
-					}
+					// Indices of time windows which are in the current partition
+					int[] windowsOfCurrentPartition = features.get(i).getIndicesOfWindows(partitionStart, partitionEnd);
 					
 					// Check if the current partition has any windows
-					if(windowsOfCurrentPartition.size() == 0) {
+					if(windowsOfCurrentPartition.length == 0) {
 						continue;
 					}
 					
@@ -182,20 +160,19 @@ public class QuartileConverter extends AmuseTask implements MatrixToVectorConver
 					// Go through all feature dimensions
 					for(int k=0;k<numberOfAllSingleFeatures;k++) {
 						
-						// Save the feature values for this partition here for sorting
-						ArrayList<Double> featureValuesForThisPartition = new ArrayList<Double>();
-						for(Double l:windowsOfCurrentPartition) {
-							featureValuesForThisPartition.add(features.get(i).getValuesFromWindow(l)[k]);
+						// Save the feature values for this partition here for selection; NaN-values are removed
+						// for quartile calculation (it is also possible that for feature with large source frames
+						// the last smaller frames are filled with NaN-values!)
+						if(valuesOfCurrentPartition.length < windowsOfCurrentPartition.length) {
+							valuesOfCurrentPartition = new double[windowsOfCurrentPartition.length];
 						}
-						
-						// Remove NaN-values for quartile calculation (it is also possible that for feature with
-						// large source frames the last smaller frames are filled with NaN-values!)
-						for(int z=0;z<featureValuesForThisPartition.size();z++) {
-							if(featureValuesForThisPartition.get(z).isNaN()) {
-								featureValuesForThisPartition.remove(z); z--;
+						int valueNumber = 0;
+						for(int l:windowsOfCurrentPartition) {
+							double value = features.get(i).getValues().get(l)[k];
+							if(!Double.isNaN(value)) {
+								valuesOfCurrentPartition[valueNumber++] = value;
 							}
 						}
-						java.util.Collections.sort(featureValuesForThisPartition);
 						
 						Double[] minD = new Double[1]; 
 						Double[] firstQD = new Double[1]; 
@@ -204,15 +181,28 @@ public class QuartileConverter extends AmuseTask implements MatrixToVectorConver
 						Double[] maxD = new Double[1];
 						
 						if(numberOfCurrentPartition < numberOfAllPartitions) {
-							if(featureValuesForThisPartition.size() > 0) {
-								minD[0] = (Double)featureValuesForThisPartition.get(0);
-								int indexOfFirstBoundary = new Double(featureValuesForThisPartition.size()*0.25).intValue();
-								firstQD[0] = (Double)featureValuesForThisPartition.get(indexOfFirstBoundary);
-								int indexOfSecondBoundary = new Double(featureValuesForThisPartition.size()*0.5).intValue();
-								secondQD[0] = (Double)featureValuesForThisPartition.get(indexOfSecondBoundary);
-								int indexOfThirdBoundary = new Double(featureValuesForThisPartition.size()*0.75).intValue();
-								thirdQD[0] = (Double)featureValuesForThisPartition.get(indexOfThirdBoundary);
-								maxD[0] = (Double)featureValuesForThisPartition.get(featureValuesForThisPartition.size()-1);
+							if(valueNumber > 0) {
+								
+								// The quartile bounds are the values which would be found at these indices
+								// after sorting
+								int indexOfFirstBoundary = new Double(valueNumber*0.25).intValue();
+								int indexOfSecondBoundary = new Double(valueNumber*0.5).intValue();
+								int indexOfThirdBoundary = new Double(valueNumber*0.75).intValue();
+								secondQD[0] = select(valuesOfCurrentPartition, 0, valueNumber, indexOfSecondBoundary);
+								firstQD[0] = select(valuesOfCurrentPartition, 0, indexOfSecondBoundary + 1, indexOfFirstBoundary);
+								thirdQD[0] = select(valuesOfCurrentPartition, indexOfSecondBoundary, valueNumber, indexOfThirdBoundary);
+								double min = valuesOfCurrentPartition[0];
+								double max = valuesOfCurrentPartition[0];
+								for(int z=1;z<valueNumber;z++) {
+									if(Double.compare(valuesOfCurrentPartition[z], min) < 0) {
+										min = valuesOfCurrentPartition[z];
+									}
+									if(Double.compare(valuesOfCurrentPartition[z], max) > 0) {
+										max = valuesOfCurrentPartition[z];
+									}
+								}
+								minD[0] = min;
+								maxD[0] = max;
 							} else { // If all feature values consist of NaN values
 								minD[0] = Double.NaN;
 								firstQD[0] = Double.NaN;
@@ -232,12 +222,6 @@ public class QuartileConverter extends AmuseTask implements MatrixToVectorConver
 							newFeatures.get(5*k+4).getValues().add(maxD);
 							newFeatures.get(5*k+4).getWindows().add(new Double(partitionStart));
 						}
-							
-						// Go with the current window back because of overlap (some time windows used in the
-						// current partition may be also used in the next partition)
-						while(features.get(i).getWindows().get(currentWindow) >= partitionStart + (partitionSizeInWindows - overlapSizeInWindows) && currentWindow > 0) {
-							currentWindow--;
-						}
 					}
 				}
 
@@ -253,4 +237,54 @@ public class QuartileConverter extends AmuseTask implements MatrixToVectorConver
 		return endFeatures;
 	}
 
+	/**
+	 * Reorders the given range of values so that the value at index k is the value which would be found
+	 * there after sorting, all values before it are not larger and all values after it are not smaller
+	 * (quickselect; values are compared as in Double.compareTo())
+	 * @param values Values to reorder
+	 * @param from First index of the range (inclusive)
+	 * @param to Last index of the range (exclusive)
+	 * @param k Index of the searched value
+	 * @return The value at index k
+	 */
+	private static double select(double[] values, int from, int to, int k) {
+		int left = from;
+		int right = to - 1;
+		while(left < right) {
+			
+			// Median of three as pivot
+			int middle = (left + right) >>> 1;
+			if(Double.compare(values[middle], values[left]) < 0) swap(values, middle, left);
+			if(Double.compare(values[right], values[left]) < 0) swap(values, right, left);
+			if(Double.compare(values[right], values[middle]) < 0) swap(values, right, middle);
+			double pivot = values[middle];
+			
+			int i = left;
+			int j = right;
+			while(i <= j) {
+				while(Double.compare(values[i], pivot) < 0) i++;
+				while(Double.compare(values[j], pivot) > 0) j--;
+				if(i <= j) {
+					swap(values, i, j);
+					i++;
+					j--;
+				}
+			}
+			if(k <= j) {
+				right = j;
+			} else if(k >= i) {
+				left = i;
+			} else {
+				break;
+			}
+		}
+		return values[k];
+	}
+	
+	private static void swap(double[] values, int i, int j) {
+		double value = values[i];
+		values[i] = values[j];
+		values[j] = value;
+	}
+
 }
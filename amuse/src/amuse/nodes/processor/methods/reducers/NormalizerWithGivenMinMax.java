@@ -27,6 +27,7 @@ import java.io.File;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.StringTokenizer;
 
 import org.apache.log4j.Level;
@@ -38,6 +39,7 @@ import amuse.data.io.DataSetAbstract;
 import amuse.interfaces.nodes.methods.AmuseTask;
 import amuse.interfaces.nodes.NodeException;
 import amuse.nodes.processor.interfaces.DimensionProcessorInterface;
+import amuse.nodes.processor.interfaces.ExternalFileReaderInterface;
 import amuse.preferences.AmusePreferences;
 import amuse.preferences.KeysStringValue;
 import amuse.util.AmuseLogger;
@@ -50,7 +52,7 @@ import amuse.util.AmuseLogger;
  * @author Igor Vatolkin
  * @version $Id$
  */
-public class NormalizerWithGivenMinMax extends AmuseTask implements DimensionProcessorInterface {
+public class NormalizerWithGivenMinMax extends AmuseTask implements DimensionProcessorInterface, ExternalFileReaderInterface {
 
 	/**
 	 * @see amuse.nodes.processor.interfaces.DimensionProcessorInterface#setParameters(String)
@@ -98,6 +100,28 @@ public class NormalizerWithGivenMinMax extends AmuseTask implements DimensionPro
 		AmuseLogger.write(this.getClass().getName(), Level.INFO, "...normalization succeeded");
 	}
 	
+	/**
+	 * @see amuse.nodes.processor.interfaces.ExternalFileReaderInterface#getExternalFiles()
+	 */
+	public List<File> getExternalFiles() {
+		List<File> files = new ArrayList<File>();
+		files.add(getMinMaxFile());
+		return files;
+	}
+	
+	/**
+	 * @return File with the minimal and maximum values of the features
+	 */
+	private File getMinMaxFile() {
+		if(this.correspondingScheduler.getDirectStart()) {
+			return new File(AmusePreferences.get(KeysStringValue.AMUSE_PATH) + 
+				File.separator + "tools" + File.separator + "Normalizer" + File.separator + "featureTableMaxMin.arff");
+		} else {
+			return new File(this.correspondingScheduler.getHomeFolder() + 
+				File.separator + "tools" + File.separator + "Normalizer" + File.separator + "featureTableMaxMin.arff");
+		}
+	}
+	
 	/**
 	 * Load the minimal and maximum values for each feature dimension
 	 * @param mins For minimal values
@@ -107,13 +131,7 @@ public class NormalizerWithGivenMinMax extends AmuseTask implements DimensionPro
 	private void loadMinMaxVals(HashMap<Integer, Double[]> mins, HashMap<Integer, Double[]> maxs) throws NodeException {
 		DataSetAbstract featuresMinMaxSet;
 		try {
-			if(this.correspondingScheduler.getDirectStart()) {
-				featuresMinMaxSet = new ArffDataSet(new File(AmusePreferences.get(KeysStringValue.AMUSE_PATH) + 
-					File.separator + "tools" + File.separator + "Normalizer" + File.separator + "featureTableMaxMin.arff"));
-			} else {
-				featuresMinMaxSet = new ArffDataSet(new File(this.correspondingScheduler.getHomeFolder() + 
-					File.separator + "tools" + File.separator + "Normalizer" + File.separator + "featureTableMaxMin.arff"));
-			}
+			featuresMinMaxSet = new ArffDataSet(getMinMaxFile());
 		} catch (IOException e) {
 			throw new NodeException("Could not load featureTableMaxMin.arff: " + e.getMessage());
 		}
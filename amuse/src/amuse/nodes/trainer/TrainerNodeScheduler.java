@@ -42,6 +42,7 @@ import amuse.data.ModelType.LabelType;
 import amuse.data.ModelType.MethodType;
 import amuse.data.ArffFeatureLoader;
 import amuse.data.Feature;
+import amuse.data.FeatureCache;
 import amuse.data.FeatureTable;
 import amuse.data.FileTable;
 import amuse.data.GroundTruthSourceType;
@@ -58,6 +59,7 @@ import amuse.interfaces.nodes.NodeScheduler;
 import amuse.interfaces.nodes.TaskConfiguration;
 import amuse.interfaces.nodes.methods.AmuseTask;
 import amuse.nodes.classifier.ClassifierNodeScheduler;
+import amuse.nodes.processor.ProcessedFeatureCache;
 import amuse.nodes.processor.ProcessingConfiguration;
 import amuse.nodes.processor.ProcessorNodeScheduler;
 import amuse.nodes.trainer.interfaces.ClassificationPreprocessingInterface;
@@ -526,6 +528,10 @@ public class TrainerNodeScheduler extends NodeScheduler {
 					}
 					
 					
+					// Look up the attributes which are extended for each partition only once
+					amuse.data.io.attributes.Attribute idAttribute = labeledInputForTraining.getAttribute("Id");
+					amuse.data.io.attributes.Attribute numberOfCategoriesAttribute = labeledInputForTraining.getAttribute("NumberOfCategories");
+					
 					// Create the labeled data
 					for(int i=0;i<classifierGroundTruthSet.getValueCount();i++) {
 						Integer end = new Double(classifierGroundTruthSet.getAttribute("End").getValueAt(i).toString()).intValue();
@@ -580,10 +586,10 @@ public class TrainerNodeScheduler extends NodeScheduler {
 								// If any new classification algorithms are integrated into AMUSE, they must
 								// handle this properly!!!
 								Double id = new Double(classifierGroundTruthSet.getAttribute("Id").getValueAt(i).toString());
-								labeledInputForTraining.getAttribute("Id").addValue(id);
+								idAttribute.addValue(id);
 								
 								
-								labeledInputForTraining.getAttribute("NumberOfCategories").addValue(new Double(numberOfCategories));
+								numberOfCategoriesAttribute.addValue(new Double(numberOfCategories));
 								
 								
 								inputInstance = classifierInputLoader.getNextInstance(classifierInputLoader.getStructure());
@@ -705,6 +711,10 @@ public class TrainerNodeScheduler extends NodeScheduler {
 						labeledInputForTraining.addAttribute(new NumericAttribute(classifierGroundTruthSet.getAttribute(5 + category).getName(),new ArrayList<Double>()));
 					}
 					
+					// Look up the attributes which are extended for each partition only once
+					amuse.data.io.attributes.Attribute idAttribute = labeledInputForTraining.getAttribute("Id");
+					amuse.data.io.attributes.Attribute numberOfCategoriesAttribute = labeledInputForTraining.getAttribute("NumberOfCategories");
+					
 					// Create the labeled data
 					for(int i=0;i<classifierGroundTruthSet.getValueCount();i++) {
 						Integer end = new Double(classifierGroundTruthSet.getAttribute("End").getValueAt(i).toString()).intValue();
@@ -774,10 +784,10 @@ public class TrainerNodeScheduler extends NodeScheduler {
 								// If any new classification algorithms are integrated into AMUSE, they must
 								// handle this properly!!!
 								Double id = new Double(classifierGroundTruthSet.getAttribute("Id").getValueAt(i).toString());
-								labeledInputForTraining.getAttribute("Id").addValue(id);
+								idAttribute.addValue(id);
 								
 								
-								labeledInputForTraining.getAttribute("NumberOfCategories").addValue(new Double(numberOfCategories));
+								numberOfCategoriesAttribute.addValue(new Double(numberOfCategories));
 							}
 						} else {
 							// TODO Consider Vocals/Piano-Recognition-Scenario!
@@ -797,6 +807,9 @@ public class TrainerNodeScheduler extends NodeScheduler {
 				}
 			}
 			
+			FeatureCache.getInstance().logStatistics();
+			ProcessedFeatureCache.getInstance().logStatistics();
+			
 			// Replace the ground truth source by the data set input loaded into memory
 			((TrainingConfiguration)this.taskConfiguration).setGroundTruthSource(new DataSetInput(labeledInputForTraining));
 		}
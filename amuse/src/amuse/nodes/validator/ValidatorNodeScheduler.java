@@ -38,6 +38,7 @@ import java.util.Properties;
 import org.apache.log4j.Level;
 
 import amuse.data.Feature;
+import amuse.data.FeatureCache;
 import amuse.data.FileTable;
 import amuse.data.GroundTruthSourceType;
 import amuse.data.InputFeatureType;
@@ -58,6 +59,7 @@ import amuse.interfaces.nodes.TaskConfiguration;
 import amuse.interfaces.nodes.methods.AmuseTask;
 import amuse.nodes.classifier.ClassificationConfiguration;
 import amuse.nodes.classifier.ClassifierNodeScheduler;
+import amuse.nodes.processor.ProcessedFeatureCache;
 import amuse.nodes.processor.ProcessingConfiguration;
 import amuse.nodes.processor.ProcessorNodeScheduler;
 import amuse.nodes.trainer.TrainingConfiguration;
@@ -550,6 +552,10 @@ public class ValidatorNodeScheduler extends NodeScheduler {
 						labeledInputForValidation.addAttribute(new NumericAttribute(validatorGroundTruthSet.getAttribute(5 + category).getName(),new ArrayList<Double>()));
 					}
 					
+					// Look up the attributes which are extended for each partition only once
+					amuse.data.io.attributes.Attribute idAttribute = labeledInputForValidation.getAttribute("Id");
+					amuse.data.io.attributes.Attribute numberOfCategoriesAttribute = labeledInputForValidation.getAttribute("NumberOfCategories");
+					
 					// Create the labeled data
 					for(int i=0;i<validatorGroundTruthSet.getValueCount();i++) {
 						Integer songId = new Double(validatorGroundTruthSet.getAttribute("Id").getValueAt(i).toString()).intValue();
@@ -619,9 +625,9 @@ public class ValidatorNodeScheduler extends NodeScheduler {
 								// If any new classification algorithms are integrated into AMUSE, they must
 								// handle this properly!!!
 								Double id = new Double(validatorGroundTruthSet.getAttribute("Id").getValueAt(i).toString());
-								labeledInputForValidation.getAttribute("Id").addValue(id);
+								idAttribute.addValue(id);
 								
-								labeledInputForValidation.getAttribute("NumberOfCategories").addValue(new Double(numberOfCategories));
+								numberOfCategoriesAttribute.addValue(new Double(numberOfCategories));
 								
 								double startPosition = inputInstance.value(validatorInputLoader.getStructure().attribute("Start"));
 								double endPosition = inputInstance.value(validatorInputLoader.getStructure().attribute("End"));
@@ -775,6 +781,10 @@ public class ValidatorNodeScheduler extends NodeScheduler {
 					int partSize = ((ValidationConfiguration)this.getConfiguration()).getClassificationWindowSize();
 					int partStep = partSize - ((ValidationConfiguration)this.getConfiguration()).getClassificationWindowOverlap();
 					
+					// Look up the attributes which are extended for each partition only once
+					amuse.data.io.attributes.Attribute idAttribute = labeledInputForValidation.getAttribute("Id");
+					amuse.data.io.attributes.Attribute numberOfCategoriesAttribute = labeledInputForValidation.getAttribute("NumberOfCategories");
+					
 					// Create the labeled data
 					for(int i=0;i<validatorGroundTruthSet.getValueCount();i++) {
 						Integer songId = new Double(validatorGroundTruthSet.getAttribute("Id").getValueAt(i).toString()).intValue();
@@ -867,10 +877,10 @@ public class ValidatorNodeScheduler extends NodeScheduler {
 								// If any new classification algorithms are integrated into AMUSE, they must
 								// handle this properly!!!
 								Double id = new Double(validatorGroundTruthSet.getAttribute("Id").getValueAt(i).toString());
-								labeledInputForValidation.getAttribute("Id").addValue(id);
+								idAttribute.addValue(id);
 								
 								
-								labeledInputForValidation.getAttribute("NumberOfCategories").addValue(new Double(numberOfCategories));								
+								numberOfCategoriesAttribute.addValue(new Double(numberOfCategories));								
 							}
 							// Add descriptions of the partitions of the current song
 							Double[] partitionStartsAsArray = new Double[partitionStarts.size()];
@@ -903,6 +913,9 @@ public class ValidatorNodeScheduler extends NodeScheduler {
 				throw new NodeException(e.getMessage());
 			}
 			
+			FeatureCache.getInstance().logStatistics();
+			ProcessedFeatureCache.getInstance().logStatistics();
+			
 			// Replace the ground truth source by the data set input loaded into memory
 			((ValidationConfiguration)this.taskConfiguration).setInputToValidate(new DataSetInput(labeledInputForValidation));
 		} 
@@ -42,6 +42,8 @@ import amuse.util.AmuseLogger;
 public class AmusePreferences {
 
     private static PropertyFileAdapter prefs;
+    /** Split size in kilobytes, replaced by <code>KeysIntValue.SPLIT_SIZE_IN_SECONDS</code> */
+    private static final String OBSOLETE_SPLIT_SIZE_KEY = "INT_SPLIT_SIZE_IN_KB";
     private static final Vector<PreferenceChangeListener> listeners = new Vector<PreferenceChangeListener>();
 
     private static void readyFileAdapter() {
@@ -75,6 +77,18 @@ public class AmusePreferences {
             throw new RuntimeException("Could not load the preferences: " + e.getMessage());
         }
         preloadAllValues();
+        warnAboutObsoleteKeys();
+    }
+
+    /**
+     * Logs a warning for each key in the preferences file which was replaced by another key and is no longer read.
+     */
+    private static void warnAboutObsoleteKeys() {
+        if (prefs.get(OBSOLETE_SPLIT_SIZE_KEY, null) != null) {
+            AmuseLogger.write(AmusePreferences.class.getName(), Level.WARN, OBSOLETE_SPLIT_SIZE_KEY + "="
+                    + prefs.get(OBSOLETE_SPLIT_SIZE_KEY, null) + " is no longer used; music files are split into parts of "
+                    + KeysIntValue.SPLIT_SIZE_IN_SECONDS + "=" + getInt(KeysIntValue.SPLIT_SIZE_IN_SECONDS) + " seconds");
+        }
     }
 
     private static void preloadAllValues() {
@@ -48,7 +48,9 @@ public enum KeysBooleanValue {
     USE_GRID_VALIDATOR,
     USE_GRID_OPTIMIZER,
     MARK_CURRENT_TIME_IN_ANNOTATION_AUDIOSPECTRUM,
-    LOAD_CATEGORY_TABLE_LOCALLY;
+    LOAD_CATEGORY_TABLE_LOCALLY,
+    WRITE_BINARY_FEATURE_FILES,
+    RUN_JAUDIO_IN_PROCESS;
 
     /**
      * This method is used to determine and get default values for any key.
@@ -72,6 +74,10 @@ public enum KeysBooleanValue {
                 return true;
             case LOAD_CATEGORY_TABLE_LOCALLY:
             	return false;
+            case WRITE_BINARY_FEATURE_FILES:
+            	return true;
+            case RUN_JAUDIO_IN_PROCESS:
+            	return true;
             default:
                 AmuseLogger.write(this.getClass().getName(), Level.DEBUG,
                         this.toString() + ": no default value set!");
@@ -111,6 +117,8 @@ public enum KeysBooleanValue {
 		map.put(USE_GRID_OPTIMIZER.toString(), "TRUE to use grid for optimization:");
 		map.put(MARK_CURRENT_TIME_IN_ANNOTATION_AUDIOSPECTRUM.toString(), "TRUE to display a beam on the audio spectrum in the annotation editor that tracks the time:");
 		map.put(LOAD_CATEGORY_TABLE_LOCALLY.toString(), "TRUE to load multiple track annotation table from AMUSE local folder (may be required for the reduction of traffic in grid systems):");
+		map.put(WRITE_BINARY_FEATURE_FILES.toString(), "TRUE to save extracted and processed features also as binary files, which are loaded faster than ARFF files:");
+		map.put(RUN_JAUDIO_IN_PROCESS.toString(), "TRUE to run jAudio in the AMUSE JVM instead of starting a new JVM for each music file:");
 		return map;
 	}
 }
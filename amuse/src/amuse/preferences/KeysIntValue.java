@@ -40,11 +40,23 @@ public enum KeysIntValue {
     MAX_NUMBER_OF_TASK_THREADS,
     NUMBER_OF_JOBS_PER_GRID_MACHINE,
     GUI_LOG_LEVEL,
-    SPLIT_SIZE_IN_KB,
+    SPLIT_SIZE_IN_SECONDS,
+    SPLIT_OVERLAP_IN_SECONDS,
+    SPLIT_ALIGNMENT_IN_SAMPLES,
     DOWNSAMPLING_TARGET_SIZE_IN_HZ,
+    RESAMPLING_QUALITY,
     AUDIOSPECTRUM_WINDOWSIZE,
     AUDIOSPECTRUM_HOPSIZE,
-    YALE_HEAP_SIZE;
+    YALE_HEAP_SIZE,
+    TASK_FOLDER_POLLING_INTERVAL_IN_MS,
+    TASK_FOLDER_DEBOUNCE_IN_MS,
+    TASK_FOLDER_CLAIM_TIMEOUT_IN_S,
+    FEATURE_CACHE_SIZE_IN_MB,
+    PROCESSED_FEATURE_CACHE_SIZE_IN_MB,
+    DECODED_AUDIO_CACHE_SIZE_IN_MB,
+    PYTHON_WORKER_POOL_SIZE,
+    PYTHON_WORKER_TIMEOUT_IN_S,
+    PYTHON_MODEL_CACHE_SIZE;
 
     /**
      * This method is used to determin and get default values for any key.
@@ -62,12 +74,36 @@ public enum KeysIntValue {
         	return 1;
         case GUI_LOG_LEVEL:
             return 0;
-        case SPLIT_SIZE_IN_KB:
-            return 1024 * 20;
+        case SPLIT_SIZE_IN_SECONDS:
+            return 480;
+        case SPLIT_OVERLAP_IN_SECONDS:
+            return 0;
+        case SPLIT_ALIGNMENT_IN_SAMPLES:
+            return 4096;
         case DOWNSAMPLING_TARGET_SIZE_IN_HZ:
             return 1;
+        case RESAMPLING_QUALITY:
+            return 0;
         case YALE_HEAP_SIZE:
         	return 2000;
+        case TASK_FOLDER_POLLING_INTERVAL_IN_MS:
+        	return 1000;
+        case TASK_FOLDER_DEBOUNCE_IN_MS:
+        	return 500;
+        case TASK_FOLDER_CLAIM_TIMEOUT_IN_S:
+        	return 86400;
+        case FEATURE_CACHE_SIZE_IN_MB:
+        	return 256;
+        case PROCESSED_FEATURE_CACHE_SIZE_IN_MB:
+        	return 1024;
+        case DECODED_AUDIO_CACHE_SIZE_IN_MB:
+        	return 2048;
+        case PYTHON_WORKER_POOL_SIZE:
+        	return 2;
+        case PYTHON_WORKER_TIMEOUT_IN_S:
+        	return 1800;
+        case PYTHON_MODEL_CACHE_SIZE:
+        	return 4;
         default:
             AmuseLogger.write(this.getClass().getName(), Level.DEBUG, this.toString() + ": no default value set!");
             return 0;
@@ -91,12 +127,36 @@ public enum KeysIntValue {
         	return value >= 1;
         case GUI_LOG_LEVEL:
             return value >= 0 && value < 3;
-        case SPLIT_SIZE_IN_KB:
+        case SPLIT_SIZE_IN_SECONDS:
+            return value >= 1;
+        case SPLIT_OVERLAP_IN_SECONDS:
+            return value >= 0;
+        case SPLIT_ALIGNMENT_IN_SAMPLES:
             return value >= 1;
         case DOWNSAMPLING_TARGET_SIZE_IN_HZ:
             return (value == 0 || value == 1 || value == 2);
+        case RESAMPLING_QUALITY:
+            return value >= 0 && value < 4;
         case YALE_HEAP_SIZE:
         	return value >= 1;
+        case TASK_FOLDER_POLLING_INTERVAL_IN_MS:
+        	return value >= 1;
+        case TASK_FOLDER_DEBOUNCE_IN_MS:
+        	return value >= 0;
+        case TASK_FOLDER_CLAIM_TIMEOUT_IN_S:
+        	return value >= 0;
+        case FEATURE_CACHE_SIZE_IN_MB:
+        	return value >= 0;
+        case PROCESSED_FEATURE_CACHE_SIZE_IN_MB:
+        	return value >= 0;
+        case DECODED_AUDIO_CACHE_SIZE_IN_MB:
+        	return value >= 0;
+        case PYTHON_WORKER_POOL_SIZE:
+        	return value >= 0;
+        case PYTHON_WORKER_TIMEOUT_IN_S:
+        	return value >= 1;
+        case PYTHON_MODEL_CACHE_SIZE:
+        	return value >= 0;
         default:
             AmuseLogger.write(this.getClass().getName(), Level.DEBUG, this.toString() + ": no validator available!");
             return true;
@@ -127,11 +187,23 @@ public enum KeysIntValue {
 		map.put(MAX_NUMBER_OF_TASK_THREADS.toString(), "Maximum number of parallel task threads:");
 		map.put(NUMBER_OF_JOBS_PER_GRID_MACHINE.toString(), "Number of Amuse jobs to proceed on one grid machine (one grid job):");
 		map.put(GUI_LOG_LEVEL.toString(), "Log level of GUI (0 == Debug, 1 == Info, 2 == Quiet)");
-		map.put(SPLIT_SIZE_IN_KB.toString(), "Size in KB to split music files at.");
+		map.put(SPLIT_SIZE_IN_SECONDS.toString(), "Duration in seconds to split music files at.");
+		map.put(SPLIT_OVERLAP_IN_SECONDS.toString(), "Duration in seconds each part of a split music file overlaps with the next part.");
+		map.put(SPLIT_ALIGNMENT_IN_SAMPLES.toString(), "Number of samples the part boundaries of split music files are aligned to (a multiple of the window sizes of the extractors).");
         map.put(DOWNSAMPLING_TARGET_SIZE_IN_HZ.toString(), "Target sampling rate of wave file. (0 = 44000Hz, 1 = 22050Hz, 2 = 11025HZ)");
+        map.put(RESAMPLING_QUALITY.toString(), "Filter used to reach the target sampling rate. (0 = Halving by Java Sound as in former versions, 1 = Low, 2 = Medium, 3 = High quality polyphase filter; features extracted with a polyphase filter differ from those extracted before)");
 		map.put(AUDIOSPECTRUM_WINDOWSIZE.toString(), "Window size used for the calculation of the audiospectrum in the annotation editor. (0 = 256, 1 = 512, 2 = 1024)");
 		map.put(AUDIOSPECTRUM_HOPSIZE.toString(), "Hop size used for the calculation of the audiospectrum in the annotation editor. (0 = 256, 1 = 512, 2 = 1024)");
 		map.put(YALE_HEAP_SIZE.toString(), "eap size in megabytes for Yale feature extractor (should be increased for long music files)");
+		map.put(TASK_FOLDER_POLLING_INTERVAL_IN_MS.toString(), "Interval in milliseconds to look up the task folders if the file system does not report new files");
+		map.put(TASK_FOLDER_DEBOUNCE_IN_MS.toString(), "Time in milliseconds a new file in a task folder must remain unchanged before it is processed");
+		map.put(TASK_FOLDER_CLAIM_TIMEOUT_IN_S.toString(), "Time in seconds after which a task file or job log claimed by another scheduler is processed again if it is still there (0 recovers only the files of schedulers which are known to have stopped)");
+		map.put(FEATURE_CACHE_SIZE_IN_MB.toString(), "Memory in megabytes for raw features kept in memory between the processing, training, classification and validation steps (0 disables the cache)");
+		map.put(PROCESSED_FEATURE_CACHE_SIZE_IN_MB.toString(), "Disk space in megabytes for cached processing results, which are reused for the same processing of unchanged features (0 disables the cache)");
+		map.put(DECODED_AUDIO_CACHE_SIZE_IN_MB.toString(), "Disk space in megabytes for cached decoded music files, which are read by the Java extractors and the annotation editor without decoding them again (0 disables the cache)");
+		map.put(PYTHON_WORKER_POOL_SIZE.toString(), "Number of Python processes kept running for Python extractors (0 starts a new Python process for each music file)");
+		map.put(PYTHON_WORKER_TIMEOUT_IN_S.toString(), "Time in seconds a Python extractor or classifier may take for one request before its Python process is restarted");
+		map.put(PYTHON_MODEL_CACHE_SIZE.toString(), "Number of models kept loaded by the Python process of Python classifiers (0 starts a new Python process for each classification)");
 		return map;
 	}
 
@@ -56,7 +56,9 @@ public enum KeysStringValue {
     GRID_SCRIPT_OPTIMIZER,
     JAVA_PATH, 
     MATLAB_PATH,
-    PYTHON_PATH;
+    PYTHON_PATH,
+    PROCESSED_FEATURE_CACHE,
+    DECODED_AUDIO_CACHE;
 
     /**
      * This method is used to determine and get default values for any key.
@@ -121,6 +123,10 @@ public enum KeysStringValue {
 	    	return true;
 	    case PYTHON_PATH:
 		return true;
+	    case PROCESSED_FEATURE_CACHE:
+	    case DECODED_AUDIO_CACHE:
+	    	// The folder is created if required
+	    	return !value.equals(getNoValue()) && !value.equals("");
             default:
                 AmuseLogger.write(this.getClass().getName(), Level.DEBUG, this.toString() + ": no validator available!");
                 // If NoValue String is passed return false otherwise return true.
@@ -176,6 +182,8 @@ public enum KeysStringValue {
 		map.put(JAVA_PATH.toString(), "Path to your local java executable:");
 		map.put(MATLAB_PATH.toString(), "Path to your local Matlab executable:");
 		map.put(PYTHON_PATH.toString(), "Path to your local Python3 executable:");
+		map.put(PROCESSED_FEATURE_CACHE.toString(), "Absolute path to folder with cached processing results (if not set, cache/processedFeatures in Amuse folder is used):");
+		map.put(DECODED_AUDIO_CACHE.toString(), "Absolute path to folder with cached decoded music files (if not set, cache/decodedAudio in Amuse folder is used):");
 		return map;
 	}
 }
@@ -44,6 +44,7 @@ import amuse.nodes.trainer.TrainingConfiguration;
 import amuse.nodes.validator.ValidationConfiguration;
 import amuse.preferences.AmusePreferences;
 import amuse.preferences.KeysBooleanValue;
+import amuse.preferences.KeysIntValue;
 import amuse.preferences.KeysStringValue;
 import amuse.scheduler.pluginmanagement.PluginInstaller;
 import amuse.scheduler.pluginmanagement.PluginLoader;
@@ -293,50 +294,39 @@ public class Scheduler implements Runnable {
 	 */
 	private void waitForJobs(Long numberOfJobsToWaitFor) {
 		File inputDir = new File(AmusePreferences.get(KeysStringValue.AMUSE_PATH) + File.separator + "taskinput");
+		TaskFolderWatcher watcher = new TaskFolderWatcher(inputDir, 
+				AmusePreferences.getInt(KeysIntValue.TASK_FOLDER_POLLING_INTERVAL_IN_MS), AmusePreferences.getInt(KeysIntValue.TASK_FOLDER_DEBOUNCE_IN_MS),
+				AmusePreferences.getInt(KeysIntValue.TASK_FOLDER_CLAIM_TIMEOUT_IN_S) * 1000L);
 		
-		// Sleep and look up for finished jobs
-		boolean isReady = false;
+		// Wait for the logs of finished jobs
 		try {
-			while(!isReady) {
-				// If there are no new job log files in input folder, sleep a bit
-				if(inputDir.listFiles().length == 0) {
-					Thread.sleep(1000);
-				} 
-				// If there are any job log files...
-				else {
-					for(int j=0;j<inputDir.listFiles().length;j++) {
-						String fileName = inputDir.listFiles()[j].getPath();
-						
-						if(!fileName.substring(fileName.lastIndexOf(File.separator)+1,fileName.length()).startsWith(".")) {
-						
-							// TODO extract the exact Amuse job ID 
-							AmuseLogger.write(this.getClass().getName(),Level.INFO,
-								"Job " + fileName + " ready");
-	
-							// TODO RELEASE 0.2 The log results from nodes can be saved somewhere if required...
-							
-							// Delete logs
-							if(!inputDir.listFiles()[j].delete()) {
-								AmuseLogger.write(this.getClass().getName(),Level.FATAL,
-										"Log of job " + fileName.substring(fileName.lastIndexOf(".")+1) + 
-										" could not be deleted; Can't calculate properly if all jobs have been finished!");
-								System.exit(1);
-							}
-							// Update the number of currently running jobs
-							numberOfJobsToWaitFor--;
-							
-							// Are all extraction jobs ready? If yes, finish Amuse
-							if(numberOfJobsToWaitFor == 0l) {
-								isReady = true;
-							}
-						}
-					}
+			while(numberOfJobsToWaitFor > 0) {
+				File jobLog = watcher.takeNextFile(-1);
+				String fileName = TaskFolderWatcher.getOriginalName(jobLog);
+				
+				// TODO extract the exact Amuse job ID 
+				AmuseLogger.write(this.getClass().getName(),Level.INFO,
+					"Job " + inputDir.getPath() + File.separator + fileName + " ready");
+
+				// TODO RELEASE 0.2 The log results from nodes can be saved somewhere if required...
+				
+				// Delete logs
+				if(!jobLog.delete()) {
+					AmuseLogger.write(this.getClass().getName(),Level.FATAL,
+							"Log of job " + fileName.substring(fileName.lastIndexOf(".")+1) + 
+							" could not be deleted; Can't calculate properly if all jobs have been finished!");
+					System.exit(1);
 				}
+				
+				// Update the number of currently running jobs
+				numberOfJobsToWaitFor--;
 			}
 		} catch(InterruptedException e) {
 			AmuseLogger.write(this.getClass().getName(),Level.FATAL,"Scheduler interrupted: " + e.getMessage());
 			System.exit(1);
-		}	
+		} finally {
+			watcher.close();
+		}
 	}
 
 	/**
@@ -345,30 +335,36 @@ public class Scheduler implements Runnable {
 	 * @param taskFolder Folder for incoming tasks
 	 */
 	private void waitForTasksInLoopMode(File taskFolder) {
-		// Sleep and look up for new tasks
+		if(!taskFolder.exists()) {
+			AmuseLogger.write(this.getClass().getName(),Level.FATAL, "Task input folder does not exist!");
+			System.exit(1);
+		}
+		TaskFolderWatcher watcher = new TaskFolderWatcher(taskFolder, 
+				AmusePreferences.getInt(KeysIntValue.TASK_FOLDER_POLLING_INTERVAL_IN_MS), AmusePreferences.getInt(KeysIntValue.TASK_FOLDER_DEBOUNCE_IN_MS),
+				AmusePreferences.getInt(KeysIntValue.TASK_FOLDER_CLAIM_TIMEOUT_IN_S) * 1000L);
+		
+		// Wait for new tasks
 		boolean isReady = false;
 		try {
 			while(!isReady) {
-				if(!taskFolder.exists()) {
-					AmuseLogger.write(this.getClass().getName(),Level.FATAL, "Task input folder does not exist!");
-					System.exit(1);
-				}
 				
-				// If there are no new job log files in input folder, sleep a bit
-				if(taskFolder.listFiles().length == 0) {
-					// TODO Amuse configuration parameter
-					Thread.sleep(5000);
+				// Take the next task file; the time is limited, so that a removed task folder is recognized
+				File taskFile = watcher.takeNextFile(AmusePreferences.getInt(KeysIntValue.TASK_FOLDER_POLLING_INTERVAL_IN_MS));
+				if(taskFile == null) {
+					if(!taskFolder.exists()) {
+						AmuseLogger.write(this.getClass().getName(),Level.FATAL, "Task input folder does not exist!");
+						System.exit(1);
+					}
 				} 
-				// If there are any task files...
+				// If there is a task file...
 				else {
-					// Take the first file
-					String fileName = taskFolder.listFiles()[0].getPath();
+					String fileName = taskFolder.getPath() + File.separator + TaskFolderWatcher.getOriginalName(taskFile);
 					AmuseLogger.write(this.getClass().getName(),Level.INFO,
 						"New task " + fileName + " found");
 
 					// Read the task
 					FileReader taskInput = null;
-					taskInput = new FileReader(fileName);
+					taskInput = new FileReader(taskFile);
 					BufferedReader featuresReader = new BufferedReader(taskInput);
 					String line =  new String();
 					line = featuresReader.readLine();
@@ -473,7 +469,7 @@ public class Scheduler implements Runnable {
 					featuresReader.close();
 					
 					// Delete task file
-					if(!taskFolder.listFiles()[0].delete()) {
+					if(!taskFile.delete()) {
 						AmuseLogger.write(this.getClass().getName(),Level.FATAL,
 								"Task " + fileName.substring(fileName.lastIndexOf(".")+1) + 
 								" could not be deleted; Can't calculate properly if all jobs have been finished!");
@@ -490,6 +486,8 @@ public class Scheduler implements Runnable {
 		} catch(IOException e) {
 			AmuseLogger.write(this.getClass().getName(),Level.FATAL,"Scheduler error: " + e.getMessage());
 			System.exit(1);
+		} finally {
+			watcher.close();
 		}
 	}
 	
@@ -0,0 +1,362 @@
+/**
+ * This file is part of AMUSE framework (Advanced MUsic Explorer).
+ *
+ * Copyright 2006-2020 by code authors
+ *
+ * Created at TU Dortmund, Chair of Algorithm Engineering
+ * (Contact: <http://ls11-www.cs.tu-dortmund.de>)
+ *
+ * AMUSE is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * AMUSE is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with AMUSE. If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Creation date: 17.10.2026
+ */
+package amuse.scheduler;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.lang.management.ManagementFactory;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.log4j.Level;
+
+import amuse.util.AmuseLogger;
+
+/**
+ * Waits for new files in a task folder. The folder is watched with the file system notifications
+ * and additionally looked up in the given polling interval, since e.g. network file systems do not
+ * report changes made by other machines. A new file is returned only after it has not been changed
+ * for the debounce time, and it is claimed by renaming it to a hidden file, so that several schedulers
+ * may take their tasks from the same folder without processing a file twice.<br/>
+ * While a scheduler runs, it holds a lock on its instance file in the folder. When a watcher is created,
+ * files claimed by a scheduler whose instance file is not locked anymore (since it has stopped) or claimed
+ * before the claim timeout are renamed back, so that they are processed again.
+ *
+ * @version $Id$
+ */
+public class TaskFolderWatcher {
+
+	/** Prefix of claimed files; files starting with "." are ignored by all task folder watchers */
+	private static final String CLAIMED_FILE_PREFIX = ".claimed_";
+
+	/** Prefix of the instance files which are locked by running schedulers */
+	private static final String INSTANCE_FILE_PREFIX = ".instance_";
+
+	private static final String INSTANCE_FILE_SUFFIX = ".lock";
+
+	/** Distinguishes the claimed files of different schedulers; does not contain "_" */
+	private static final String INSTANCE_ID = ManagementFactory.getRuntimeMXBean().getName().replaceAll("[^A-Za-z0-9.-]", "-") +
+		"-" + Long.toHexString(System.nanoTime());
+
+	/** Locks of the instance files of this scheduler mapped by the folders; they are released when the JVM exits */
+	private static final HashMap<File,FileLock> instanceLocks = new HashMap<File,FileLock>();
+
+	/** Folder with the incoming files */
+	private final File folder;
+
+	/** Interval for the look up of the folder if no notification arrives */
+	private final long pollingInterval;
+
+	/** Time in ms a file must remain unchanged before it is claimed */
+	private final long debounceTime;
+
+	/** Time in ms after which files claimed by other schedulers are recovered; 0 recovers only files of stopped schedulers */
+	private final long claimTimeout;
+
+	/** Notifications about the folder; null if the file system does not support them */
+	private WatchService watchService = null;
+
+	/** Last seen size and modification time of the unclaimed files and the time when they were seen first */
+	private final HashMap<String,long[]> seenFiles = new HashMap<String,long[]>();
+
+	/**
+	 * Creates a watcher which recovers only the files claimed by stopped schedulers
+	 * @param folder Folder with the incoming files
+	 * @param pollingInterval Interval in ms for the look up of the folder if no notification arrives
+	 * @param debounceTime Time in ms a file must remain unchanged before it is claimed
+	 */
+	public TaskFolderWatcher(File folder, long pollingInterval, long debounceTime) {
+		this(folder, pollingInterval, debounceTime, 0);
+	}
+
+	/**
+	 * Standard constructor
+	 * @param folder Folder with the incoming files
+	 * @param pollingInterval Interval in ms for the look up of the folder if no notification arrives
+	 * @param debounceTime Time in ms a file must remain unchanged before it is claimed
+	 * @param claimTimeout Time in ms after which files claimed by other schedulers are recovered;
+	 * 0 recovers only the files of stopped schedulers
+	 */
+	public TaskFolderWatcher(File folder, long pollingInterval, long debounceTime, long claimTimeout) {
+		this.folder = folder;
+		this.pollingInterval = Math.max(1, pollingInterval);
+		this.debounceTime = Math.max(0, debounceTime);
+		this.claimTimeout = Math.max(0, claimTimeout);
+		lockInstanceFile();
+		recoverStaleClaims();
+		try {
+			watchService = FileSystems.getDefault().newWatchService();
+			folder.toPath().register(watchService, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY);
+		} catch(IOException e) {
+			closeWatchService();
+			AmuseLogger.write(this.getClass().getName(), Level.WARN, "Could not watch the folder '" + folder +
+					"', looking it up every " + this.pollingInterval + " ms: " + e.getMessage());
+		} catch(UnsupportedOperationException e) {
+			closeWatchService();
+		}
+	}
+
+	/**
+	 * Waits for the next file and claims it
+	 * @param timeout Maximum time in ms to wait; if negative, waits until a file is found
+	 * @return The claimed file (which must be deleted by the caller after processing) or null if no file was found
+	 * before the timeout
+	 * @throws InterruptedException If the current thread was interrupted
+	 */
+	public File takeNextFile(long timeout) throws InterruptedException {
+		long endTime = System.currentTimeMillis() + timeout;
+		while(true) {
+			long waitTime = pollingInterval;
+			File[] files = folder.listFiles();
+			if(files != null) {
+				Arrays.sort(files);
+				long currentTime = System.currentTimeMillis();
+				HashMap<String,long[]> currentFiles = new HashMap<String,long[]>();
+				for(File file : files) {
+					if(file.getName().startsWith(".") || file.isDirectory()) {
+						continue;
+					}
+					long[] state = seenFiles.get(file.getName());
+					if(state == null || state[0] != file.length() || state[1] != file.lastModified()) {
+						state = new long[]{file.length(), file.lastModified(), currentTime};
+					}
+					currentFiles.put(file.getName(), state);
+					if(currentTime - state[2] < debounceTime) {
+						waitTime = Math.min(waitTime, state[2] + debounceTime - currentTime);
+						continue;
+					}
+					File claimedFile = claim(file);
+					if(claimedFile != null) {
+						currentFiles.remove(file.getName());
+						seenFiles.clear();
+						seenFiles.putAll(currentFiles);
+						return claimedFile;
+					}
+				}
+				seenFiles.clear();
+				seenFiles.putAll(currentFiles);
+			}
+			if(timeout >= 0) {
+				long remainingTime = endTime - System.currentTimeMillis();
+				if(remainingTime <= 0) {
+					return null;
+				}
+				waitTime = Math.min(waitTime, remainingTime);
+			}
+			waitForChanges(Math.max(1, waitTime));
+		}
+	}
+
+	/**
+	 * Waits for a notification about the folder or the given time if notifications are not available
+	 */
+	private void waitForChanges(long waitTime) throws InterruptedException {
+		if(watchService == null) {
+			Thread.sleep(waitTime);
+			return;
+		}
+		WatchKey key = watchService.poll(waitTime, TimeUnit.MILLISECONDS);
+		while(key != null) {
+			key.pollEvents();
+			key.reset();
+			key = watchService.poll();
+		}
+	}
+
+	/**
+	 * Renames the given file to a hidden file of this scheduler
+	 * @return The renamed file or null if the file has been claimed by another scheduler
+	 */
+	private File claim(File file) {
+		File claimedFile = new File(folder, CLAIMED_FILE_PREFIX + INSTANCE_ID + "_" + file.getName());
+		if(!move(file, claimedFile)) {
+			return null;
+		}
+
+		// The modification time is the claim time for the claim timeout
+		claimedFile.setLastModified(System.currentTimeMillis());
+		return claimedFile;
+	}
+
+	/**
+	 * Renames the given file atomically
+	 * @return False if the file does not exist anymore or could not be renamed
+	 */
+	private boolean move(File file, File target) {
+		try {
+			Files.move(file.toPath(), target.toPath(), StandardCopyOption.ATOMIC_MOVE);
+			return true;
+		} catch(NoSuchFileException e) {
+			return false;
+		} catch(AtomicMoveNotSupportedException e) {
+			return file.renameTo(target);
+		} catch(IOException e) {
+			AmuseLogger.write(this.getClass().getName(), Level.WARN, "Could not rename '" + file + "': " + e.getMessage());
+			return false;
+		}
+	}
+
+	/**
+	 * Locks the instance file of this scheduler in the folder, so that other schedulers know that its claimed files
+	 * are still processed
+	 */
+	private void lockInstanceFile() {
+		File instanceFile = new File(folder, INSTANCE_FILE_PREFIX + INSTANCE_ID + INSTANCE_FILE_SUFFIX);
+		synchronized(instanceLocks) {
+			if(instanceLocks.containsKey(instanceFile.getAbsoluteFile())) {
+				return;
+			}
+			try {
+				FileChannel channel = new RandomAccessFile(instanceFile, "rw").getChannel();
+				FileLock lock = channel.tryLock();
+				if(lock == null) {
+					channel.close();
+					return;
+				}
+				instanceLocks.put(instanceFile.getAbsoluteFile(), lock);
+				instanceFile.deleteOnExit();
+			} catch(IOException e) {
+				AmuseLogger.write(this.getClass().getName(), Level.WARN, "Could not lock '" + instanceFile + 
+						"', claimed files are recovered by other schedulers only after the claim timeout: " + e.getMessage());
+			}
+		}
+	}
+
+	/**
+	 * Renames the files claimed by stopped schedulers or before the claim timeout back to their original names
+	 */
+	private void recoverStaleClaims() {
+		File[] files = folder.listFiles();
+		if(files == null) {
+			return;
+		}
+		HashMap<String,Boolean> stoppedInstances = new HashMap<String,Boolean>();
+		long currentTime = System.currentTimeMillis();
+		for(File file : files) {
+			String name = file.getName();
+			int separator = name.indexOf('_', CLAIMED_FILE_PREFIX.length());
+			if(!name.startsWith(CLAIMED_FILE_PREFIX) || separator == -1) {
+				continue;
+			}
+			String instanceId = name.substring(CLAIMED_FILE_PREFIX.length(), separator);
+			if(instanceId.equals(INSTANCE_ID)) {
+				continue;
+			}
+			Boolean isStopped = stoppedInstances.get(instanceId);
+			if(isStopped == null) {
+				isStopped = isStopped(instanceId);
+				stoppedInstances.put(instanceId, isStopped);
+			}
+			if(!isStopped && (claimTimeout == 0 || currentTime - file.lastModified() < claimTimeout)) {
+				continue;
+			}
+			File originalFile = new File(folder, name.substring(separator + 1));
+			if(originalFile.exists()) {
+				AmuseLogger.write(this.getClass().getName(), Level.WARN, "Could not recover '" + file + "': '" + 
+						originalFile + "' exists");
+			} else if(move(file, originalFile)) {
+				AmuseLogger.write(this.getClass().getName(), Level.WARN, "Recovered '" + originalFile + 
+						"', which was claimed by " + (isStopped ? "a stopped scheduler" : "a scheduler before the claim timeout"));
+			}
+		}
+
+		// The instance files of stopped schedulers are not needed anymore
+		for(Map.Entry<String,Boolean> instance : stoppedInstances.entrySet()) {
+			if(instance.getValue()) {
+				new File(folder, INSTANCE_FILE_PREFIX + instance.getKey() + INSTANCE_FILE_SUFFIX).delete();
+			}
+		}
+	}
+
+	/**
+	 * Checks if the scheduler with the given instance id has stopped
+	 * @return True if its instance file exists, but is not locked anymore; false if it is locked or unknown
+	 */
+	private boolean isStopped(String instanceId) {
+		File instanceFile = new File(folder, INSTANCE_FILE_PREFIX + instanceId + INSTANCE_FILE_SUFFIX);
+		if(!instanceFile.isFile()) {
+			return false;
+		}
+		try {
+			RandomAccessFile file = new RandomAccessFile(instanceFile, "rw");
+			try {
+				FileLock lock = file.getChannel().tryLock();
+				if(lock == null) {
+					return false;
+				}
+				lock.release();
+				return true;
+			} finally {
+				file.close();
+			}
+		} catch(OverlappingFileLockException e) {
+			// The instance file is locked by this JVM
+			return false;
+		} catch(IOException e) {
+			return false;
+		}
+	}
+
+	/**
+	 * Returns the original name of a claimed file
+	 * @param claimedFile File returned by takeNextFile()
+	 * @return Name of the file before it was claimed
+	 */
+	public static String getOriginalName(File claimedFile) {
+		return claimedFile.getName().substring(CLAIMED_FILE_PREFIX.length() + INSTANCE_ID.length() + 1);
+	}
+
+	/**
+	 * Stops watching the folder
+	 */
+	public void close() {
+		closeWatchService();
+	}
+
+	private void closeWatchService() {
+		if(watchService != null) {
+			try {
+				watchService.close();
+			} catch(IOException e) {
+				AmuseLogger.write(this.getClass().getName(), Level.WARN, "Could not close the watch service: " + e.getMessage());
+			}
+			watchService = null;
+		}
+	}
+
+}
@@ -5,18 +5,15 @@ import java.awt.Graphics2D;
 import java.awt.image.BufferedImage;
 import java.io.File;
 import java.io.IOException;
-import javax.sound.sampled.AudioFormat;
-import javax.sound.sampled.AudioInputStream;
-import javax.sound.sampled.AudioSystem;
+import java.nio.FloatBuffer;
 
 import org.apache.log4j.Level;
 
 import amuse.preferences.AmusePreferences;
 import amuse.preferences.KeysIntValue;
-import amuse.preferences.KeysStringValue;
 import amuse.util.AmuseLogger;
-import amuse.util.FileOperations;
-import amuse.util.audio.AudioFileConversion;
+import amuse.util.audio.DecodedAudioCache;
+import amuse.util.audio.DecodedAudioCache.DecodedAudio;
 import jAudioFeatureExtractor.AudioFeatures.MagnitudeSpectrum;
 
 /**
@@ -37,69 +34,38 @@ public class AudioSpectrumModel {
 		sampleRate = 0;
 		audiospectrumImage = new BufferedImage(1, 1, BufferedImage.TYPE_INT_RGB);
 		
-		File musicFile = pMusicFile;
-		
-		// Convert the file to WAV if neccessary
-		if(!pMusicFile.getAbsolutePath().toLowerCase().endsWith("wav")){
-			musicFile = convertFileToWAV(pMusicFile);
-		}
-		calculateAudioSpectrumImage(musicFile);
-		
-		// Delete any generated files
-		if(musicFile != pMusicFile){
-			FileOperations.delete(musicFile);
-		}
-	}
-	
-	private File convertFileToWAV(File musicFile) throws IOException{
+		// Mp3 files are decoded only once for the annotation editor and the extractors
+		DecodedAudio audio;
 		try {
-			String musicFilePath = AmusePreferences.get(KeysStringValue.AMUSE_PATH)
-					+ File.separator 
-					+ "config" 
-					+ File.separator 
-					+ "annotation" 
-					+ File.separator 
-					+ "temp.wav";
-			AudioFileConversion.convertMp3ToWave(musicFile, new File(musicFilePath));
-			return new File(musicFilePath);
+			audio = DecodedAudioCache.getInstance().get(pMusicFile, 0, 1);
 		} catch(IOException e) {
 			AmuseLogger.write(this.getClass().getName(), Level.ERROR,
 				"Audio decoding error: " + e.getMessage());
 			throw e;
 		}
+		calculateAudioSpectrumImage(audio);
 	}
 	
-	private void calculateAudioSpectrumImage(File musicFile){
-		AudioInputStream decodedStream = null;
+	private void calculateAudioSpectrumImage(DecodedAudio audio){
 		final int WINDOWSIZE = (int) Math.pow(2, AmusePreferences.getInt(KeysIntValue.AUDIOSPECTRUM_WINDOWSIZE) + 8);
 		final int HOPSIZE = (int) Math.pow(2, AmusePreferences.getInt(KeysIntValue.AUDIOSPECTRUM_HOPSIZE) + 8);
 		try {
-			
-			AudioInputStream stream = AudioSystem.getAudioInputStream(musicFile);
-			AudioFormat format = stream.getFormat();
-			AudioFormat decodedFormat = new AudioFormat(AudioFormat.Encoding.PCM_SIGNED,
-					format.getSampleRate(),
-					8,
-					1,
-					1 * 2,
-					format.getFrameRate(),
-					true);
-			decodedStream = AudioSystem.getAudioInputStream(decodedFormat, stream);
-			byte[] byte_samples = new byte[(int)stream.getFrameLength() * decodedFormat.getSampleSizeInBits() / 8];
-			sampleRate = decodedStream.getFormat().getSampleRate();
-			decodedStream.read(byte_samples);
+			FloatBuffer samples = audio.getSamples();
+			int numberOfSamples = audio.getFrames();
+			sampleRate = audio.getSampleRate();
 			
 			MagnitudeSpectrum magSpec = new MagnitudeSpectrum();
-			double[][] magnitudeSpectrum = new double[(byte_samples.length - WINDOWSIZE) / HOPSIZE + 1][WINDOWSIZE / 2];
-			audiospectrumImage = new BufferedImage((byte_samples.length - WINDOWSIZE) / HOPSIZE + 1, WINDOWSIZE / 2, BufferedImage.TYPE_INT_RGB);
+			double[][] magnitudeSpectrum = new double[(numberOfSamples - WINDOWSIZE) / HOPSIZE + 1][WINDOWSIZE / 2];
+			audiospectrumImage = new BufferedImage((numberOfSamples - WINDOWSIZE) / HOPSIZE + 1, WINDOWSIZE / 2, BufferedImage.TYPE_INT_RGB);
 			Graphics2D imageGraphics = audiospectrumImage.createGraphics();
 			double min = 1;
 			double max = 0;
-			for(int windowStart = 0; windowStart < byte_samples.length - WINDOWSIZE; windowStart += HOPSIZE){
+			for(int windowStart = 0; windowStart < numberOfSamples - WINDOWSIZE; windowStart += HOPSIZE){
 
+				// The samples are scaled to the range of the 8 bit samples used before
 				double[] window = new double[WINDOWSIZE];
 				for(int i = 0; i < WINDOWSIZE; i++){
-					window[i] = byte_samples[i + windowStart];
+					window[i] = samples.get(i + windowStart) * 128;
 				}
 				double[] windowFreqs = magSpec.extractFeature(window, -1., new double[][]{});
 				for(int i = 0; i < windowFreqs.length; i++){
@@ -66,6 +66,12 @@ public class GeneralAmuseSettings extends AmuseSettingsPageBody {
 		settings.add(new PathSelectionPanel("Model Database", KeysStringValue.MODEL_DATABASE));
 		settings.add(new PathSelectionPanel("Measure Database", KeysStringValue.MEASURE_DATABASE));
 		settings.add(new PathSelectionPanel("Optimization Database", KeysStringValue.OPTIMIZATION_DATABASE));
+		settings.add(new BooleanSelectionPanel("Save Features also as Binary Files", KeysBooleanValue.WRITE_BINARY_FEATURE_FILES));
+		settings.add(new TextFieldWithValidation("Feature cache size in megabytes", KeysIntValue.FEATURE_CACHE_SIZE_IN_MB));
+		settings.add(new PathSelectionPanel("Processed Feature Cache", KeysStringValue.PROCESSED_FEATURE_CACHE));
+		settings.add(new TextFieldWithValidation("Processed feature cache size in megabytes", KeysIntValue.PROCESSED_FEATURE_CACHE_SIZE_IN_MB));
+		settings.add(new PathSelectionPanel("Decoded Audio Cache", KeysStringValue.DECODED_AUDIO_CACHE));
+		settings.add(new TextFieldWithValidation("Decoded audio cache size in megabytes", KeysIntValue.DECODED_AUDIO_CACHE_SIZE_IN_MB));
 		for (EditableAmuseSettingInterface singlePref : settings) {
 			internalPanel.add(singlePref.getPanel());
 			watchForChanges(singlePref);
@@ -94,6 +100,8 @@ public class GeneralAmuseSettings extends AmuseSettingsPageBody {
                 settings.add(new BooleanSelectionPanel("Use Downsamling", KeysBooleanValue.USE_DOWNSAMPLING));
                 String [] valuesKHZ = {"44100Hz", "22050Hz", "11025Hz"};
                 settings.add(new ListSelectionPanel("Select Target Sampling Rate", valuesKHZ, KeysIntValue.DOWNSAMPLING_TARGET_SIZE_IN_HZ));
+                String [] valuesQuality = {"Halving (Java Sound)", "Low", "Medium", "High"};
+                settings.add(new ListSelectionPanel("Select Resampling Quality", valuesQuality, KeysIntValue.RESAMPLING_QUALITY));
 		settings.add(new BooleanSelectionPanel("Reduce Stereo to Mono", KeysBooleanValue.REDUCE_TO_MONO));
                 for (EditableAmuseSettingInterface singlePref : settings) {
 			internalPanel.add(singlePref.getPanel(), "wrap");
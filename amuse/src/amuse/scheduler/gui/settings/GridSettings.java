@@ -53,6 +53,9 @@ public class GridSettings extends AmuseSettingsPageBody {
 		settings.add(new CheckBoxTextField("Validator Script", KeysStringValue.GRID_SCRIPT_VALIDATOR, KeysBooleanValue.USE_GRID_VALIDATOR));
 		settings.add(new CheckBoxTextField("Optimizer Script", KeysStringValue.GRID_SCRIPT_OPTIMIZER, KeysBooleanValue.USE_GRID_OPTIMIZER));
 		settings.add(new TextFieldWithValidation("Number of jobs per grid machine", KeysIntValue.NUMBER_OF_JOBS_PER_GRID_MACHINE));
+		settings.add(new TextFieldWithValidation("Polling interval of task folders in milliseconds", KeysIntValue.TASK_FOLDER_POLLING_INTERVAL_IN_MS));
+		settings.add(new TextFieldWithValidation("Debounce time of new task files in milliseconds", KeysIntValue.TASK_FOLDER_DEBOUNCE_IN_MS));
+		settings.add(new TextFieldWithValidation("Timeout of claimed task files in seconds", KeysIntValue.TASK_FOLDER_CLAIM_TIMEOUT_IN_S));
 		for (EditableAmuseSettingInterface singlePref : settings) {
 			panel.add(singlePref.getPanel(), "wrap");
 			watchForChanges(singlePref);
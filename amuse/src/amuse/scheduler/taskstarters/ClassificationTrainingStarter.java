@@ -148,19 +148,7 @@ public class ClassificationTrainingStarter extends AmuseTaskStarter {
 	
 			    // Prepare trainer node scheduler arguments and start it as thread
 	   	    	trainerThread.setThreadParameters(AmusePreferences.get(KeysStringValue.AMUSE_PATH) + File.separator + "config" + File.separator + "node" + File.separator + "trainer", this.jobCounter, trainerConfig);
-			    Thread newTrainerThread = new Thread(trainerThread);
-			    // TODO Timeout einbauen
-			    while (this.nodeSchedulers.size() >= AmusePreferences.getInt(KeysIntValue.MAX_NUMBER_OF_TASK_THREADS)) {
-					try {
-					    Thread.sleep(1000);
-					} catch (InterruptedException e) {
-					    throw new SchedulerException(this.getClass().getName() + " was interrupted: " + e.getMessage());
-					}
-			    }
-			    this.connectSchedulerToErrorDescriptionList(trainerThread);
-			    nodeSchedulers.add(trainerThread);
-			    trainerThread.addListener(this);
-			    newTrainerThread.start();
+			    this.startNodeScheduler(trainerThread);
 			}
 			this.jobCounter++;
 		}
@@ -168,14 +156,8 @@ public class ClassificationTrainingStarter extends AmuseTaskStarter {
 		// If the node schedulers are started directly (and not e.g. as grid scripts), wait until all jobs are ready
 		if(this.startNodeDirectly) {
 			
-			// TODO Timeout einbauen!
-			while(this.nodeSchedulers.size() > 0) {
-				try {
-					Thread.sleep(1000);
-				} catch (InterruptedException e) {
-					throw new SchedulerException(this.getClass().getName() + " was interrupted: " + e.getMessage());
-				}
-			}
+			// Wait until all jobs are ready
+			this.waitForNodeSchedulers();
 		} 
 		
 		return this.jobCounter;
@@ -30,7 +30,6 @@ import java.io.IOException;
 import java.io.ObjectOutputStream;
 import java.util.ArrayList;
 import java.util.HashMap;
-import java.util.List;
 import java.util.Properties;
 
 import org.apache.log4j.Level;
@@ -45,11 +44,11 @@ import amuse.interfaces.nodes.TaskConfiguration;
 import amuse.interfaces.nodes.methods.AmuseTask;
 import amuse.interfaces.scheduler.AmuseTaskStarter;
 import amuse.interfaces.scheduler.SchedulerException;
+import amuse.nodes.extractor.BaseScriptConverter;
 import amuse.nodes.extractor.ExtractionConfiguration;
 import amuse.nodes.extractor.ExtractorNodeScheduler;
 import amuse.nodes.extractor.interfaces.ExtractorInterface;
 import amuse.preferences.AmusePreferences;
-import amuse.preferences.KeysIntValue;
 import amuse.preferences.KeysStringValue;
 import amuse.util.AmuseLogger;
 
@@ -75,15 +74,8 @@ public class FeatureExtractionStarter extends AmuseTaskStarter {
     public long startTask(TaskConfiguration[] taskConfiguration, Properties props) throws SchedulerException {
     	
     	// For the comparison of feature tables: each new feature table means that the base extraction scripts
-    	// should be updated. 
-    	// TODO: if the extraction is done via grid, the following error may occur:
-    	// (1) feature 1 should be extracted from 1st music file -> base script is converted, so that only feature 1
-    	// will be extracted
-    	// (2) job is added to grid, however all pcs are busy
-    	// (3) features 2 and 3 should be extracted from 2nd music file -> base script is converted, only features 2
-    	// and 3 will be extracted
-    	// (4) job added to grid
-    	// (5) pcs are now free, both jobs use the scripts which extract features 2 and 3!!
+    	// should be converted. The converted scripts are saved in an own folder for each feature table, so that
+    	// jobs waiting in the grid queue still find the scripts for their features (see BaseScriptConverter)
     	FeatureTable previousFeatureTable = null;
     	
     	// Generate and proceed Amuse jobs
@@ -104,10 +96,8 @@ public class FeatureExtractionStarter extends AmuseTaskStarter {
 			
 			
 			// If the extractor node scheduler will be started via grid or batch script...
-			// Here the Amuse parameter "numberOfJobsPerGridMachine" is ignored since the conversion of base
-			// scripts is done here and not on the grid machine! 
-			// TODO Provide conversion in ExtractorNodeScheduler? (consider also previous TODO) 
-			// Then it will be done very often!
+			// Here the Amuse parameter "numberOfJobsPerGridMachine" is ignored. The base scripts are converted
+			// here; the ExtractorNodeScheduler converts them only if the grid machine does not share the tools folder 
 			if (!this.startNodeDirectly) {
 				
 		   	   	// Create a separate job for each music file
@@ -201,20 +191,7 @@ public class FeatureExtractionStarter extends AmuseTaskStarter {
 		
 				    // Prepare extractor node scheduler arguments and start it as thread
 				    extractorThread.setThreadParameters(AmusePreferences.get(KeysStringValue.AMUSE_PATH) + sep + "config" + sep + "node" + sep + "extractor", this.jobCounter, extractorConfigWithOneFile);
-				    Thread newExtractorThread = new Thread(extractorThread);
-				    // TODO Timeout einbauen
-				    while (this.nodeSchedulers.size() >= AmusePreferences.getInt(KeysIntValue.MAX_NUMBER_OF_TASK_THREADS)) {
-						try {
-						    Thread.sleep(1000);
-						} catch (InterruptedException e) {
-						    throw new SchedulerException(this.getClass().getName() + " was interrupted: " + e.getMessage());
-						}
-				    }
-				    this.connectSchedulerToErrorDescriptionList(extractorThread);
-
-				    nodeSchedulers.add(extractorThread);
-				    extractorThread.addListener(this);
-				    newExtractorThread.start();
+				    this.startNodeScheduler(extractorThread);
 				    this.jobCounter++;
 				}
 			}
@@ -223,14 +200,7 @@ public class FeatureExtractionStarter extends AmuseTaskStarter {
 		// If the node schedulers are started directly (and not e.g. as grid scripts), wait until all jobs are ready
 		if (this.startNodeDirectly) {
 			// Wait until all jobs are ready
-			// TODO Timeout einbauen!
-			while (this.nodeSchedulers.size() > 0) {
-			    try {
-			    	Thread.sleep(1000);
-				} catch (InterruptedException e) {
-					throw new SchedulerException(this.getClass().getName() + " was interrupted: " + e.getMessage());
-				}
-			}
+			this.waitForNodeSchedulers();
 		}
 		
 		return this.jobCounter;
@@ -246,11 +216,7 @@ public class FeatureExtractionStarter extends AmuseTaskStarter {
     	// ---------------------------------------------
 		// (I) Load the mapping of features to extractor
 		// ---------------------------------------------
-		HashMap<Integer, Integer> feature2Tool = new HashMap<Integer, Integer>();
-		List<Integer> indices = featureTable.getSelectedIds();
-		for (int j = 0; j < indices.size(); j++) {
-		    feature2Tool.put(indices.get(j), featureTable.getFeatureByID(indices.get(j)).getExtractorId());
-		}
+		HashMap<Integer, Integer> feature2Tool = BaseScriptConverter.createFeatureToToolMap(featureTable);
 		AmuseLogger.write(this.getClass().getName(), Level.DEBUG, "Feature table loaded");
     	
 		// --------------------------------------
@@ -283,9 +249,9 @@ public class FeatureExtractionStarter extends AmuseTaskStarter {
 						((AmuseTask) ead).configure(extractorProperties, null, null);
 		
 						// Convert the base script
-						ead.convertBaseScript(feature2Tool, featureTable);
+						File convertedScriptFolder = BaseScriptConverter.prepare(ead, feature2Tool, featureTable);
 						AmuseLogger.write(this.getClass().getName(), Level.DEBUG, extractorNameAttribute.getValueAt(i)
-							+ " base script converted");
+							+ " base script converted to " + convertedScriptFolder);
 				    } catch (ClassNotFoundException e) {
 				    	AmuseLogger.write(this.getClass().getName(), Level.ERROR, "Extractor class cannot be located: "
 				    		+ adapterClassAttribute.getValueAt(i));
@@ -182,19 +182,7 @@ public class FeatureProcessingStarter extends AmuseTaskStarter {
 	
 			    // Prepare processor node scheduler arguments and start it as thread
 	   	    	processorThread.setThreadParameters(AmusePreferences.get(KeysStringValue.AMUSE_PATH) + File.separator + "config" + File.separator + "node" + File.separator + "processor", this.jobCounter, processorConfig);
-			    Thread newProcessorThread = new Thread(processorThread);
-			    // TODO Timeout einbauen
-			    while (this.nodeSchedulers.size() >= AmusePreferences.getInt(KeysIntValue.MAX_NUMBER_OF_TASK_THREADS)) {
-					try {
-					    Thread.sleep(1000);
-					} catch (InterruptedException e) {
-					    throw new SchedulerException(this.getClass().getName() + " was interrupted: " + e.getMessage());
-					}
-			    }
-			    this.connectSchedulerToErrorDescriptionList(processorThread);
-			    nodeSchedulers.add(processorThread);
-			    processorThread.addListener(this); 
-			    newProcessorThread.start();
+			    this.startNodeScheduler(processorThread);
 			}
 			this.jobCounter++;
 		}
@@ -202,14 +190,8 @@ public class FeatureProcessingStarter extends AmuseTaskStarter {
 		// If the node schedulers are started directly (and not e.g. as grid scripts), wait until all jobs are ready
 		if (this.startNodeDirectly) {
 			
-			// TODO Timeout einbauen!
-			while (this.nodeSchedulers.size() > 0) {
-			    try {
-					Thread.sleep(1000);
-			    } catch (InterruptedException e) {
-					throw new SchedulerException(this.getClass().getName() + " was interrupted: " + e.getMessage());
-			    }
-			}
+			// Wait until all jobs are ready
+			this.waitForNodeSchedulers();
 		}
 		
 		return this.jobCounter;
@@ -70,6 +70,14 @@ public class ExternalProcessBuilder {
     	pb.redirectOutput(ProcessBuilder.Redirect.INHERIT);
     }
 
+    /**
+     * Keeps the error output apart from the output, e.g. if the output is used for communication
+     * with the started process
+     */
+    public void keepErrorStreamSeparate() {
+    	pb.redirectErrorStream(false);
+    }
+
     public static ExternalProcessBuilder buildJavaProcess(List<String> javaProperties, List<String> classPath, List<String> command) {
 		OSType os = determineOS();
 		String delim = ":";
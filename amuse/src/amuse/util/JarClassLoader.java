@@ -59,6 +59,20 @@ public class JarClassLoader extends URLClassLoader {
        // this.addURL(url);
     }
 
+    /**
+     * Creates a new JarClassLoader for the specified urls, which loads
+     * only the classes of the jar files and of the given parent.
+     *
+     * @param urls the urls of the jar files
+     * @param parent the parent class loader, e.g. the parent of the
+     *        system class loader to isolate the jar files from the
+     *        class path of AMUSE
+     */
+    public JarClassLoader(URL[] urls, ClassLoader parent) {
+        super(urls, parent);
+        this.url = urls[0];
+    }
+
     /**
      * Returns the name of the jar file main class, or null if
      * no "Main-Class" manifest attributes was defined.
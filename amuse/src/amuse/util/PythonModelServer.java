@@ -0,0 +1,288 @@
+/**
+ * This file is part of AMUSE framework (Advanced MUsic Explorer).
+ *
+ * Copyright 2006-2010 by code authors
+ *
+ * Created at TU Dortmund, Chair of Algorithm Engineering
+ * (Contact: <http://ls11-www.cs.tu-dortmund.de>)
+ *
+ * AMUSE is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * AMUSE is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with AMUSE. If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Creation date: 17.10.2026
+ */
+package amuse.util;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+
+import org.apache.log4j.Level;
+
+import amuse.interfaces.nodes.NodeException;
+import amuse.preferences.AmusePreferences;
+import amuse.preferences.KeysIntValue;
+import amuse.preferences.KeysStringValue;
+
+/**
+ * Predicts feature matrices with models which are kept loaded in a resident Python process running
+ * tools/PythonWorker/amuseModelServer.py. The models are loaded by a loader script of the classifier tool
+ * and the least recently used models are unloaded if more than INT_PYTHON_MODEL_CACHE_SIZE models are used.
+ * The requests are framed as for the extractor workers (see <code>PythonProcess</code>), followed by the
+ * matrices as raw little-endian doubles instead of ARFF files. Each request also sends the size
+ * and modification time of the model, so that a model which is saved again at the same path (e.g. during
+ * optimization) is loaded again.<br/>
+ * If the process crashes or exceeds the timeout of a request, it is destroyed and started again for the
+ * next request. The servers are shared by all adapters of this JVM and shut down with it.
+ *
+ * @version $Id$
+ */
+public class PythonModelServer {
+
+	/** Time in milliseconds the server may take to exit after the exit request */
+	private static final long EXIT_TIMEOUT = 2000;
+
+	/** Servers shared by the adapters, the key is the command of the server */
+	private static final Map<String, PythonModelServer> servers = new HashMap<String, PythonModelServer>();
+
+	private final List<String> command;
+	private final File workingDirectory;
+	private final long timeout;
+
+	/** Threads which exchange the requests and log the error output of the server */
+	private final ExecutorService threads = PythonProcess.createThreads("AmusePythonModelServer");
+
+	/** Server process; null if it has not been started or was destroyed */
+	private PythonProcess process = null;
+
+	private boolean isShutdown = false;
+
+	/**
+	 * Returns the server for the given loader script, which is created on first use with the cache size and
+	 * the timeout given by <code>AmusePreferences</code>
+	 * @param loaderScript Python script defining load_model(path) and
+	 * predict(model, values, rows, columns, parameters), see amuseModelServer.py
+	 * @return Shared server
+	 */
+	public static synchronized PythonModelServer getServer(File loaderScript) {
+		List<String> command = new ArrayList<String>();
+		command.add(AmusePreferences.get(KeysStringValue.PYTHON_PATH));
+		command.add(AmusePreferences.get(KeysStringValue.AMUSE_PATH) + File.separator + "tools" + File.separator +
+				"PythonWorker" + File.separator + "amuseModelServer.py");
+		command.add(Integer.toString(AmusePreferences.getInt(KeysIntValue.PYTHON_MODEL_CACHE_SIZE)));
+		command.add(loaderScript.getAbsolutePath());
+		String key = command.toString();
+		PythonModelServer server = servers.get(key);
+		if(server == null) {
+			if(servers.isEmpty()) {
+				PythonProcess.addShutdownTask(new Runnable() {
+					public void run() {
+						shutdownAll();
+					}
+				});
+			}
+			server = new PythonModelServer(command, loaderScript.getAbsoluteFile().getParentFile(),
+					AmusePreferences.getInt(KeysIntValue.PYTHON_WORKER_TIMEOUT_IN_S) * 1000L);
+			servers.put(key, server);
+		}
+		return server;
+	}
+
+	/**
+	 * Shuts down all shared servers
+	 */
+	public static synchronized void shutdownAll() {
+		for(PythonModelServer server : servers.values()) {
+			server.shutdown();
+		}
+		servers.clear();
+	}
+
+	/**
+	 * @param command Command which starts the server, e.g. the Python interpreter, amuseModelServer.py,
+	 * the number of cached models and the loader script
+	 * @param workingDirectory Working directory of the server
+	 * @param timeout Time in milliseconds a request may take
+	 */
+	public PythonModelServer(List<String> command, File workingDirectory, long timeout) {
+		this.command = new ArrayList<String>(command);
+		this.workingDirectory = workingDirectory;
+		this.timeout = timeout;
+	}
+
+	/**
+	 * Predicts the rows of the matrix with the given model; the server is started if it is not running
+	 * @param modelPath Path of the model, which is loaded by the server if it is not cached
+	 * @param data Feature matrix, all rows must have the same length
+	 * @param parameters Further parameters of the loader script
+	 * @return Predictions for the rows of the matrix
+	 * @throws NodeException If the prediction fails or the server crashes or exceeds the timeout
+	 */
+	public synchronized double[][] predict(String modelPath, double[][] data, List<String> parameters) throws NodeException {
+		if(isShutdown) {
+			throw new NodeException("Python model server is shut down");
+		}
+		final List<String> header = new ArrayList<String>();
+		header.add("PREDICT");
+		header.add(modelPath);
+		header.add(getModelVersion(new File(modelPath)));
+		header.add(Integer.toString(data.length));
+		header.add(Integer.toString(data.length > 0 ? data[0].length : 0));
+		header.addAll(parameters);
+		final ByteBuffer matrix = toBytes(data);
+		String invalidField = PythonProcess.findLineBreak(header);
+		if(invalidField != null) {
+			throw new NodeException("Model path or parameter contains a line break: " + invalidField);
+		}
+
+		try {
+			if(!isRunning()) {
+				start();
+			}
+			final PythonProcess server = process;
+			List<String> response = exchange(new Callable<List<String>>() {
+				public List<String> call() throws IOException {
+					server.write(header);
+					server.write(matrix.array());
+					server.flush();
+					return server.read();
+				}
+			});
+			if(!response.get(0).equals("OK")) {
+
+				// The description of the error may contain line breaks
+				StringBuilder description = new StringBuilder();
+				for(String line : response.subList(1, response.size())) {
+					description.append('\n').append(line);
+				}
+				throw new NodeException("Prediction with " + modelPath + " failed: " + response.get(0) + description);
+			}
+			final int rows = Integer.parseInt(response.get(1));
+			final int columns = Integer.parseInt(response.get(2));
+			return exchange(new Callable<double[][]>() {
+				public double[][] call() throws IOException {
+					return readMatrix(server, rows, columns);
+				}
+			});
+		} catch(IOException e) {
+			throw new NodeException("Python model server failed to predict with " + modelPath + ": " + e.getMessage());
+		}
+	}
+
+	/**
+	 * Describes the saved state of the model: the size and the latest modification time of the model file or of
+	 * all files in the model folder
+	 * @param model Model file or folder
+	 * @return Version of the model, which changes if the model is saved again
+	 */
+	static String getModelVersion(File model) {
+		if(!model.exists()) {
+			return "-";
+		}
+		long[] sizeAndTime = new long[2];
+		addSizeAndTime(model, sizeAndTime);
+		return sizeAndTime[0] + ":" + sizeAndTime[1];
+	}
+
+	private static void addSizeAndTime(File file, long[] sizeAndTime) {
+		sizeAndTime[1] = Math.max(sizeAndTime[1], file.lastModified());
+		File[] children = file.listFiles();
+		if(children == null) {
+			sizeAndTime[0] += file.length();
+		} else {
+			for(File child : children) {
+				addSizeAndTime(child, sizeAndTime);
+			}
+		}
+	}
+
+	/**
+	 * Stops the server
+	 */
+	public synchronized void shutdown() {
+		isShutdown = true;
+		if(isRunning()) {
+			process.stop(EXIT_TIMEOUT);
+		}
+		destroy();
+		threads.shutdown();
+	}
+
+	/**
+	 * @return True if the server process is running
+	 */
+	synchronized boolean isRunning() {
+		return process != null && process.isRunning();
+	}
+
+	/**
+	 * Starts the server, which runs the loader before it is ready
+	 */
+	private void start() throws IOException {
+		destroy();
+		process = new PythonProcess(command, workingDirectory, threads, "Python model server", timeout);
+	}
+
+	private void destroy() {
+		if(process != null) {
+			process.destroy();
+			process = null;
+		}
+	}
+
+	/**
+	 * Runs the communication with the server and destroys it if it fails or exceeds the timeout
+	 */
+	private <T> T exchange(Callable<T> task) throws IOException {
+		try {
+			return process.exchange(task, timeout);
+		} catch(IOException e) {
+			process = null;
+			throw e;
+		}
+	}
+
+	private static double[][] readMatrix(PythonProcess server, int rows, int columns) throws IOException {
+		byte[] payload = new byte[8 * rows * columns];
+		server.readFully(payload);
+		ByteBuffer buffer = ByteBuffer.wrap(payload).order(ByteOrder.LITTLE_ENDIAN);
+		double[][] matrix = new double[rows][columns];
+		for(int i=0;i<rows;i++) {
+			for(int j=0;j<columns;j++) {
+				matrix[i][j] = buffer.getDouble();
+			}
+		}
+		return matrix;
+	}
+
+	private static ByteBuffer toBytes(double[][] data) throws NodeException {
+		int columns = data.length > 0 ? data[0].length : 0;
+		ByteBuffer buffer = ByteBuffer.allocate(8 * data.length * columns).order(ByteOrder.LITTLE_ENDIAN);
+		for(double[] row : data) {
+			if(row.length != columns) {
+				throw new NodeException("Rows of the feature matrix differ in length");
+			}
+			for(double value : row) {
+				buffer.putDouble(value);
+			}
+		}
+		return buffer;
+	}
+}
@@ -0,0 +1,288 @@
+/**
+ * This file is part of AMUSE framework (Advanced MUsic Explorer).
+ *
+ * Copyright 2006-2010 by code authors
+ *
+ * Created at TU Dortmund, Chair of Algorithm Engineering
+ * (Contact: <http://ls11-www.cs.tu-dortmund.de>)
+ *
+ * AMUSE is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * AMUSE is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with AMUSE. If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Creation date: 17.10.2026
+ */
+package amuse.util;
+
+import java.io.BufferedReader;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.log4j.Level;
+
+/**
+ * Resident Python process of tools/PythonWorker, which exchanges messages over its stdin and stdout as defined
+ * by amuseWorker.py: a 4 byte big-endian length followed by UTF-8 text, whose fields are separated by line breaks.
+ * The error output of the process is written to the log. Used by <code>PythonWorkerPool</code> and
+ * <code>PythonModelServer</code>.
+ *
+ * @version $Id$
+ */
+class PythonProcess {
+
+	/** Tasks which shut down the Python processes when the JVM exits */
+	private static final List<Runnable> shutdownTasks = new ArrayList<Runnable>();
+
+	private final Process process;
+	private final DataOutputStream requests;
+	private final DataInputStream responses;
+
+	/** Name of the process in log and error messages */
+	private final String name;
+
+	/** Threads which exchange the messages and log the error output */
+	private final ExecutorService threads;
+
+	/**
+	 * Starts the process and waits until it is ready
+	 * @param command Command which starts the process, e.g. the Python interpreter and the script
+	 * @param workingDirectory Working directory of the process or null
+	 * @param threads Threads created with createThreads()
+	 * @param name Name of the process in log and error messages
+	 * @param timeout Time in milliseconds the process may take to answer READY
+	 * @throws IOException If the process could not be started or is not ready in time
+	 */
+	PythonProcess(List<String> command, File workingDirectory, ExecutorService threads, String name, long timeout) throws IOException {
+		this.threads = threads;
+		this.name = name;
+		ExternalProcessBuilder builder = new ExternalProcessBuilder(command);
+		builder.keepErrorStreamSeparate();
+		if(workingDirectory != null) {
+			builder.setWorkingDirectory(workingDirectory);
+		}
+		process = builder.start();
+		requests = new DataOutputStream(process.getOutputStream());
+		responses = new DataInputStream(process.getInputStream());
+		threads.submit(new Runnable() {
+			public void run() {
+				logErrorOutput();
+			}
+		});
+
+		// The modules or the loader are imported before the process is ready
+		List<String> response = exchange(new Callable<List<String>>() {
+			public List<String> call() throws IOException {
+				return read();
+			}
+		}, timeout);
+		if(!response.get(0).equals("READY")) {
+			destroy();
+			throw new IOException("Unexpected start-up response " + response.get(0));
+		}
+		AmuseLogger.write(PythonProcess.class.getName(), Level.DEBUG, name + " started: " + command);
+	}
+
+	/**
+	 * Creates the daemon threads for the processes
+	 * @param threadName Prefix of the thread names
+	 */
+	static ExecutorService createThreads(final String threadName) {
+		return Executors.newCachedThreadPool(new ThreadFactory() {
+			private final AtomicInteger threadNumber = new AtomicInteger(1);
+			public Thread newThread(Runnable r) {
+				Thread thread = new Thread(r, threadName + "-" + threadNumber.getAndIncrement());
+				thread.setDaemon(true);
+				return thread;
+			}
+		});
+	}
+
+	/**
+	 * Runs the given task when the JVM exits
+	 */
+	static void addShutdownTask(Runnable task) {
+		synchronized(shutdownTasks) {
+			if(shutdownTasks.isEmpty()) {
+				Runtime.getRuntime().addShutdownHook(new Thread() {
+					public void run() {
+						List<Runnable> tasks;
+						synchronized(shutdownTasks) {
+							tasks = new ArrayList<Runnable>(shutdownTasks);
+						}
+						for(Runnable shutdownTask : tasks) {
+							shutdownTask.run();
+						}
+					}
+				});
+			}
+			shutdownTasks.add(task);
+		}
+	}
+
+	/**
+	 * Looks for fields which cannot be sent, since they contain the field separator
+	 * @return The first field with a line break or null if all fields can be sent
+	 */
+	static String findLineBreak(List<String> fields) {
+		for(String field : fields) {
+			if(field.indexOf('\n') != -1) {
+				return field;
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Sends the message and waits for the response
+	 * @param timeout Time in milliseconds the process may take to answer
+	 * @throws IOException If the process crashes or does not answer within the timeout; the process is destroyed then
+	 */
+	List<String> request(final List<String> fields, long timeout) throws IOException {
+		return exchange(new Callable<List<String>>() {
+			public List<String> call() throws IOException {
+				write(fields);
+				flush();
+				return read();
+			}
+		}, timeout);
+	}
+
+	/**
+	 * Runs the communication with the process and destroys it if it fails or exceeds the timeout
+	 */
+	<T> T exchange(Callable<T> task, long timeout) throws IOException {
+		Future<T> result = threads.submit(task);
+		try {
+			return result.get(timeout, TimeUnit.MILLISECONDS);
+		} catch(TimeoutException e) {
+			destroy();
+			throw new IOException("No response within " + timeout + " ms");
+		} catch(ExecutionException e) {
+			destroy();
+			throw new IOException(name + " exited: " + e.getCause());
+		} catch(InterruptedException e) {
+			destroy();
+			throw new IOException("Interrupted while waiting for the " + name);
+		}
+	}
+
+	/**
+	 * Writes a message without flushing it
+	 */
+	void write(List<String> fields) throws IOException {
+		StringBuilder message = new StringBuilder();
+		for(int i=0;i<fields.size();i++) {
+			if(i > 0) {
+				message.append('\n');
+			}
+			message.append(fields.get(i));
+		}
+		byte[] payload = message.toString().getBytes("UTF-8");
+		requests.writeInt(payload.length);
+		requests.write(payload);
+	}
+
+	/**
+	 * Writes raw data after a message without flushing it
+	 */
+	void write(byte[] data) throws IOException {
+		requests.write(data);
+	}
+
+	void flush() throws IOException {
+		requests.flush();
+	}
+
+	/**
+	 * Reads the next message
+	 * @return Fields of the message
+	 */
+	List<String> read() throws IOException {
+		int length = responses.readInt();
+		byte[] payload = new byte[length];
+		responses.readFully(payload);
+		return Arrays.asList(new String(payload, "UTF-8").split("\n", -1));
+	}
+
+	/**
+	 * Reads raw data after a message
+	 */
+	void readFully(byte[] data) throws IOException {
+		responses.readFully(data);
+	}
+
+	/**
+	 * @return True if the process has not exited
+	 */
+	boolean isRunning() {
+		try {
+			process.exitValue();
+			return false;
+		} catch(IllegalThreadStateException e) {
+			return true;
+		}
+	}
+
+	/**
+	 * Asks the process to exit and destroys it if it does not exit in time
+	 * @param exitTimeout Time in milliseconds the process may take to exit
+	 */
+	void stop(long exitTimeout) {
+		try {
+			exchange(new Callable<Integer>() {
+				public Integer call() throws Exception {
+					write(Arrays.asList("EXIT"));
+					flush();
+					return process.waitFor();
+				}
+			}, exitTimeout);
+		} catch(IOException e) {
+			AmuseLogger.write(PythonProcess.class.getName(), Level.DEBUG, name + " did not exit and is destroyed");
+		}
+		destroy();
+	}
+
+	void destroy() {
+		process.destroy();
+	}
+
+	private void logErrorOutput() {
+		BufferedReader errors = new BufferedReader(new InputStreamReader(process.getErrorStream()));
+		try {
+			String line;
+			while((line = errors.readLine()) != null) {
+				AmuseLogger.write(PythonProcess.class.getName(), Level.DEBUG, line);
+			}
+		} catch(IOException e) {
+			// The process was destroyed
+		} finally {
+			try {
+				errors.close();
+			} catch(IOException e) {}
+		}
+	}
+}
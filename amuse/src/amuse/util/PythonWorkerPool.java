@@ -0,0 +1,246 @@
+/**
+ * This file is part of AMUSE framework (Advanced MUsic Explorer).
+ *
+ * Copyright 2006-2010 by code authors
+ *
+ * Created at TU Dortmund, Chair of Algorithm Engineering
+ * (Contact: <http://ls11-www.cs.tu-dortmund.de>)
+ *
+ * AMUSE is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * AMUSE is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with AMUSE. If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Creation date: 17.10.2026
+ */
+package amuse.util;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Semaphore;
+
+import org.apache.log4j.Level;
+
+import amuse.interfaces.nodes.NodeException;
+import amuse.preferences.AmusePreferences;
+import amuse.preferences.KeysIntValue;
+import amuse.preferences.KeysStringValue;
+
+/**
+ * Runs Python scripts in long-lived Python processes, so that the interpreter is started and the required
+ * modules are imported only once. Each worker process runs tools/PythonWorker/amuseWorker.py, which receives
+ * the scripts and their arguments over stdin and answers over stdout (see <code>PythonProcess</code>). A worker which does not answer a health
+ * check, crashes or exceeds the timeout of a request is destroyed and replaced by a new one.<br/>
+ * The pools are shared by all adapters of this JVM and shut down with it.
+ *
+ * @version $Id$
+ */
+public class PythonWorkerPool {
+
+	/** Time in milliseconds a worker may take to answer a health check */
+	private static final long HEALTH_CHECK_TIMEOUT = 10000;
+
+	/** Time in milliseconds a worker may take to exit after the exit request */
+	private static final long EXIT_TIMEOUT = 2000;
+
+	/** Pools shared by the adapters, the key is the command of the workers */
+	private static final Map<String, PythonWorkerPool> pools = new HashMap<String, PythonWorkerPool>();
+
+	private final List<String> command;
+	private final File workingDirectory;
+	private final long timeout;
+
+	/** Workers which are not used at the moment */
+	private final ConcurrentLinkedQueue<PythonProcess> idleWorkers = new ConcurrentLinkedQueue<PythonProcess>();
+
+	/** Limits the number of workers */
+	private final Semaphore permits;
+
+	/** Threads which wait for the responses and log the error output of the workers */
+	private final ExecutorService readers = PythonProcess.createThreads("AmusePythonWorker");
+
+	private volatile boolean isShutdown = false;
+
+	/**
+	 * Returns the pool for the given worker configuration, which is created on first use with the size and the
+	 * timeout given by <code>AmusePreferences</code>
+	 * @param workingDirectory Working directory of the workers
+	 * @param modules Modules the workers import at start-up
+	 * @return Shared pool
+	 */
+	public static synchronized PythonWorkerPool getPool(File workingDirectory, List<String> modules) {
+		List<String> command = new ArrayList<String>();
+		command.add(AmusePreferences.get(KeysStringValue.PYTHON_PATH));
+		command.add(AmusePreferences.get(KeysStringValue.AMUSE_PATH) + File.separator + "tools" + File.separator +
+				"PythonWorker" + File.separator + "amuseWorker.py");
+		command.addAll(modules);
+		String key = command.toString() + workingDirectory.getAbsolutePath();
+		PythonWorkerPool pool = pools.get(key);
+		if(pool == null) {
+			if(pools.isEmpty()) {
+				PythonProcess.addShutdownTask(new Runnable() {
+					public void run() {
+						shutdownAll();
+					}
+				});
+			}
+			pool = new PythonWorkerPool(command, workingDirectory,
+					AmusePreferences.getInt(KeysIntValue.PYTHON_WORKER_POOL_SIZE),
+					AmusePreferences.getInt(KeysIntValue.PYTHON_WORKER_TIMEOUT_IN_S) * 1000L);
+			pools.put(key, pool);
+		}
+		return pool;
+	}
+
+	/**
+	 * Shuts down all shared pools
+	 */
+	public static synchronized void shutdownAll() {
+		for(PythonWorkerPool pool : pools.values()) {
+			pool.shutdown();
+		}
+		pools.clear();
+	}
+
+	/**
+	 * @param command Command which starts a worker, e.g. the Python interpreter, amuseWorker.py and the modules
+	 * to import
+	 * @param workingDirectory Working directory of the workers
+	 * @param size Maximal number of workers
+	 * @param timeout Time in milliseconds a script may run
+	 */
+	public PythonWorkerPool(List<String> command, File workingDirectory, int size, long timeout) {
+		if(size < 1) {
+			throw new IllegalArgumentException("At least one worker is required");
+		}
+		this.command = new ArrayList<String>(command);
+		this.workingDirectory = workingDirectory;
+		this.permits = new Semaphore(size, true);
+		this.timeout = timeout;
+	}
+
+	/**
+	 * Runs the script as __main__ in a worker; waits if all workers are busy
+	 * @param script Python script
+	 * @param arguments Arguments of the script
+	 * @throws NodeException If the script fails or the worker crashes or exceeds the timeout
+	 */
+	public void run(String script, List<String> arguments) throws NodeException {
+		List<String> request = new ArrayList<String>();
+		request.add("RUN");
+		request.add(script);
+		request.addAll(arguments);
+		String invalidField = PythonProcess.findLineBreak(request);
+		if(invalidField != null) {
+			throw new NodeException("Python script or argument contains a line break: " + invalidField);
+		}
+
+		PythonProcess worker = acquire();
+		boolean isResponding = false;
+		List<String> response;
+		try {
+			response = worker.request(request, timeout);
+			isResponding = true;
+		} catch(IOException e) {
+			throw new NodeException("Python worker failed to run " + script + ": " + e.getMessage());
+		} finally {
+			release(worker, isResponding);
+		}
+		if(!response.get(0).equals("OK")) {
+
+			// The description of the error may contain line breaks
+			StringBuilder description = new StringBuilder();
+			for(String line : response.subList(1, response.size())) {
+				description.append('\n').append(line);
+			}
+			throw new NodeException("Python script " + script + " failed: " + response.get(0) + description);
+		}
+	}
+
+	/**
+	 * Stops all idle workers; busy workers are stopped after their current request
+	 */
+	public void shutdown() {
+		isShutdown = true;
+		PythonProcess worker;
+		while((worker = idleWorkers.poll()) != null) {
+			worker.stop(EXIT_TIMEOUT);
+		}
+		readers.shutdown();
+	}
+
+	/**
+	 * @return Number of started workers which are not used at the moment
+	 */
+	int getNumberOfIdleWorkers() {
+		return idleWorkers.size();
+	}
+
+	/**
+	 * Returns a responding worker and starts a new one if required
+	 */
+	private PythonProcess acquire() throws NodeException {
+		try {
+			permits.acquire();
+		} catch(InterruptedException e) {
+			throw new NodeException("Interrupted while waiting for a Python worker");
+		}
+		try {
+			if(isShutdown) {
+				throw new NodeException("Python workers are shut down");
+			}
+			PythonProcess worker;
+			while((worker = idleWorkers.poll()) != null) {
+				if(isResponding(worker)) {
+					return worker;
+				}
+				AmuseLogger.write(this.getClass().getName(), Level.WARN, "Python worker does not respond and is restarted");
+				worker.destroy();
+			}
+			return new PythonProcess(command, workingDirectory, readers, "Python worker", timeout);
+		} catch(IOException e) {
+			permits.release();
+			throw new NodeException("Could not start Python worker: " + e.getMessage());
+		} catch(NodeException e) {
+			permits.release();
+			throw e;
+		}
+	}
+
+	private void release(PythonProcess worker, boolean isResponding) {
+		if(!isResponding) {
+			worker.destroy();
+		} else if(isShutdown) {
+			worker.stop(EXIT_TIMEOUT);
+		} else {
+			idleWorkers.add(worker);
+		}
+		permits.release();
+	}
+
+	/**
+	 * @return True if the worker answers a health check
+	 */
+	private static boolean isResponding(PythonProcess worker) {
+		try {
+			return worker.request(Arrays.asList("PING"), HEALTH_CHECK_TIMEOUT).get(0).equals("PONG");
+		} catch(IOException e) {
+			return false;
+		}
+	}
+}
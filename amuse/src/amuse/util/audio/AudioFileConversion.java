@@ -23,6 +23,7 @@
  */
 package amuse.util.audio;
 
+import amuse.data.datasets.WavePartTableSet;
 import amuse.interfaces.nodes.NodeException;
 import amuse.preferences.AmusePreferences;
 import amuse.preferences.KeysBooleanValue;
@@ -39,8 +40,15 @@ import java.io.BufferedInputStream;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileOutputStream;
+import java.io.FilterInputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.PushbackInputStream;
 import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
 import java.util.logging.Logger;
 
 /**
@@ -54,107 +62,63 @@ public class AudioFileConversion {
    public enum KHz {
 	   KHz11, KHz22, KHz44
    }
-    public static void convertFile(File musicFile, File targetFile, KHz khz, boolean isReduceToMono, boolean isDownSamplingActive) throws IOException {
-	int targetKHZ;
-        if (khz == KHz.KHz44) {
-            targetKHZ = 44100;
-        } else if (khz == KHz.KHz22) {
-            targetKHZ = 22050;
-        } else if (khz == KHz.KHz11) {
-            targetKHZ = 11025;
-        } else {
-            targetKHZ = 44100;
-        }
-        boolean isOriginal = true;
-        AudioFileFormat audioFileFormat = null;
-        File wavFile = new File(targetFile.getParent() + File.separator + "tmp_" + musicFile.getName());
-        // ---------------------------------------------------------------------
-        // I.: Try to get AudioFileFormat:
-        // ---------------------------------------------------------------------
-        try {
-            audioFileFormat = AudioSystem.getAudioFileFormat(musicFile);
-        } catch (UnsupportedAudioFileException ex) {
-            // If no wave file is given, this exception is generated. However the conversion mp3->wave can
-            // be done!
-            // throw new NodeException("Could not convert audio file: " + ex.getMessage());
-        } catch (IOException ex) {
-            throw new IOException("Error accessing file to process: " + ex.getMessage());
-        }
 
-        // ---------------------------------------------------------------------
-        // II.: Try to convert mp3 to wave if needed:
-        // ---------------------------------------------------------------------
-        if (audioFileFormat == null || audioFileFormat.getType() != Type.WAVE) { // If not wave already, convert to wave
-            try {
-                AmuseLogger.write(AudioFileConversion.class.getName(), Level.INFO, "Converting " + musicFile.getName() + " to wave.");
-                convertMp3ToWave(musicFile, wavFile);
-                isOriginal = false;
-            } catch (IOException ex) {
-                throw new IOException("Error converting audio file " + musicFile.getName() + ": " + ex.getMessage());
-            }
-        } else {
+    /**
+     * Filters to reach the target sampling rate: HALVING halves the rate with Java Sound until it is not above
+     * the target, the other values resample to exactly the target rate with the <class>PolyphaseResampler</class>.
+     */
+    public enum Resampling {
+        HALVING, POLYPHASE_LOW, POLYPHASE_MEDIUM, POLYPHASE_HIGH
+    }
 
-            // wavFile is now the file to process.
-            wavFile = musicFile;
-        }
+    /** Size of the buffers between the decoding, the conversion and the written files */
+    private static final int BUFFER_SIZE = 1 << 20;
 
-        // ---------------------------------------------------------------------
-        // III.: Try to reduce audio quality:
-        // ---------------------------------------------------------------------
+    /**
+     * Converts the given music file to wave in one pass: mp3 files are decoded in memory and the samples are
+     * streamed through the down-sampling and the reduction to mono directly into the target file.
+     *
+     * @param musicFile The music file to convert (wave or mp3).
+     * @param targetFile The wave file to write.
+     * @param khz Target sampling rate if down-sampling is active.
+     * @param isReduceToMono True if stereo files should be reduced to mono.
+     * @param isDownSamplingActive True if the sampling rate should be reduced.
+     * @throws IOException
+     */
+    public static void convertFile(File musicFile, File targetFile, KHz khz, boolean isReduceToMono, boolean isDownSamplingActive) throws IOException {
+        convertFile(musicFile, targetFile, khz, isReduceToMono, isDownSamplingActive, getResamplingFromSettings());
+    }
+
+    /**
+     * Converts the given music file to wave like convertFile(File, File, KHz, boolean, boolean) with the given
+     * filter instead of the one stored in <class>AmusePreferences</class>.
+     *
+     * @param resampling Filter to reach the target sampling rate.
+     */
+    public static void convertFile(File musicFile, File targetFile, KHz khz, boolean isReduceToMono, boolean isDownSamplingActive, Resampling resampling) throws IOException {
+        AudioInputStream stream = openConvertedStream(musicFile, khz, isReduceToMono, isDownSamplingActive, resampling);
         try {
-            AudioFormat format = AudioSystem.getAudioFileFormat(wavFile).getFormat();
-            AmuseLogger.write(AudioFileConversion.class.getName(), Level.DEBUG, "Starting: "+wavFile.getName() + " "+ (int)format.getFrameRate()+"kHz, "+format.getChannels());
-            fileCopy(wavFile, targetFile);
-            if (!isDownSamplingActive) {
-		targetKHZ = (int) format.getFrameRate();
-	    }
-            if (!isReduceToMono && format.getChannels() == 1) {
-		AmuseLogger.write(AudioFileConversion.class.getName(), Level.WARN, "Target is stereo, but this file is mono already: " + wavFile.getName());
-	    }
-            if (isDownSamplingActive && targetKHZ > format.getFrameRate()) {
-		AmuseLogger.write(AudioFileConversion.class.getName(), Level.WARN, "Target is " + targetKHZ + "kHz, but this file is at " + (int) format.getFrameRate() + "kHz already: " + wavFile.getName());
-	    }
-            sampleToTargetSize(targetFile, targetKHZ, isReduceToMono);
-            format = AudioSystem.getAudioFileFormat(targetFile).getFormat();
-            AmuseLogger.write(AudioFileConversion.class.getName(), Level.DEBUG, "Result: "+targetFile.getName() + " "+ (int)format.getFrameRate()+"kHz, "+format.getChannels());
-            if (isDownSamplingActive && format.getFrameRate() != 44100f && format.getFrameRate() != 22050f && format.getFrameRate() != 11025f) {
-                AmuseLogger.write(AudioFileConversion.class.getName(), Level.WARN, "This file has no standard frame rate: \"" + wavFile + "\"");
-            }
-            deleteConvertedFile(wavFile, isOriginal);
+            writeWaveFile(stream, targetFile);
         } catch (IOException ex) {
-            ex.printStackTrace();
-            AmuseLogger.write(AudioFileConversion.class.getName(), Level.ERROR, "Unable to perform down-sampling: " + ex.getMessage());
-            fileCopy(wavFile, targetFile);
-            deleteConvertedFile(wavFile, isOriginal);
+            AmuseLogger.write(AudioFileConversion.class.getName(), Level.ERROR, "Unable to convert " + musicFile.getName() + ": " + ex.getMessage());
             throw ex;
-        } catch (UnsupportedAudioFileException ex) {
-            fileCopy(wavFile, targetFile);
-            deleteConvertedFile(wavFile, isOriginal);
-            AmuseLogger.write(AudioFileConversion.class.getName(), Level.ERROR, "Unsupported Audio-File: \"" + ex.getLocalizedMessage() + "\"");
-            throw new IOException(ex.getMessage());
+        } finally {
+            stream.close();
         }
-
     }
+
     public static void convertWithSettings(File musicFile, File targetFile) throws IOException {
         boolean isReduceToMono = AmusePreferences.getBoolean(KeysBooleanValue.REDUCE_TO_MONO);
         boolean isDownSamplingActive = AmusePreferences.getBoolean(KeysBooleanValue.USE_DOWNSAMPLING);
-        int targetKHZ = AmusePreferences.getInt(KeysIntValue.DOWNSAMPLING_TARGET_SIZE_IN_HZ);
-	KHz khz;
-        if (targetKHZ == 0) {
-            khz = KHz.KHz44;
-        } else if (targetKHZ == 1) {
-            khz = KHz.KHz22;
-        } else if (targetKHZ == 2) {
-            khz = KHz.KHz11;
-        } else {
-            khz = KHz.KHz44;
-        }
-	convertFile(musicFile, targetFile, khz, isReduceToMono, isDownSamplingActive);
+        convertFile(musicFile, targetFile, getKHzFromSettings(), isReduceToMono, isDownSamplingActive);
     }
 
     /**
      * This method is used primarily by <class>ExtractorNodeScheduler</class> to prepare the feature extraction of the current music file.
      * The given file will be converted to wave, downsampled and split according to the settings stored in <class>AmusePreferences</class>.
+     * The parts are written directly into their folders without temporary files. The part boundaries are aligned to
+     * SPLIT_ALIGNMENT_IN_SAMPLES frames and each part overlaps the next one by SPLIT_OVERLAP_IN_SECONDS; the parts are
+     * described in the file <class>WavePartTableSet</class>.FILE_NAME of the target folder.
      *
      * @param targetDir The parent folder to place the processed music file into.
      * @param musicFile The music file to process.
@@ -168,47 +132,46 @@ public class AudioFileConversion {
             throw new NodeException("Path to music file or target directory is not properly set!");
         }
         boolean isSplittingEnabled = AmusePreferences.getBoolean(KeysBooleanValue.SPLIT_WAVE);
-        int splitSize = AmusePreferences.getInt(KeysIntValue.SPLIT_SIZE_IN_KB);
-        File wavFile = new File(targetDir.getAbsolutePath() + File.separator +
-                musicFile.getName().substring(0, musicFile.getName().lastIndexOf('.')) + ".wav");
-        File targetFile = new File(targetDir.getAbsolutePath() + File.separator + "1" + File.separator + wavFile.getName());
-
-        // Create targetDir if necessary
-        if (!new File(targetDir.getAbsolutePath() + File.separator + "1").exists()) {
-            new File(targetDir.getAbsolutePath() + File.separator + "1").mkdirs();
-        }
+        int splitSize = AmusePreferences.getInt(KeysIntValue.SPLIT_SIZE_IN_SECONDS);
+        int overlap = AmusePreferences.getInt(KeysIntValue.SPLIT_OVERLAP_IN_SECONDS);
+        int alignment = AmusePreferences.getInt(KeysIntValue.SPLIT_ALIGNMENT_IN_SAMPLES);
+        boolean isReduceToMono = AmusePreferences.getBoolean(KeysBooleanValue.REDUCE_TO_MONO);
+        boolean isDownSamplingActive = AmusePreferences.getBoolean(KeysBooleanValue.USE_DOWNSAMPLING);
+        final File partsDir = targetDir.getAbsoluteFile();
+        final String wavName = musicFile.getName().substring(0, musicFile.getName().lastIndexOf('.')) + ".wav";
+        PartFiles partFiles = new PartFiles() {
+            public File getPartFile(int part) {
+                File partDir = new File(partsDir, String.valueOf(part));
+                if (!partDir.exists()) { // Create the folder of the part if necessary.
+                    partDir.mkdirs();
+                }
+                return new File(partDir, wavName);
+            }
+        };
         try {
-            convertWithSettings(musicFile, targetFile);
-        } catch (IOException e) {
-            throw new NodeException(e.getMessage());
-        }
-        // Again wavFile is now the current file to process.
-        wavFile = targetFile;
-
-        // ---------------------------------------------------------------------
-        // IV.II: Try splitting wave file and copy into according directories.
-        // ---------------------------------------------------------------------
-        if (isSplittingEnabled) {
-            int index = 1;
-            int splitFileCount = 1;
-
+            AudioInputStream stream = openConvertedStream(musicFile, getKHzFromSettings(), isReduceToMono, isDownSamplingActive, getResamplingFromSettings());
+            WavePartTableSet parts;
             try {
-                splitFileCount = splitWaveFile(wavFile, splitSize);
-            } catch (IOException ex) {
-                AmuseLogger.write(AudioFileConversion.class.getName(), Level.ERROR, "Unable to split " + wavFile.getName() + ": " + ex.getMessage());
-            }
-
-            while (index <= splitFileCount) {
-                // Create folders if necessary:
-                if (!new File(targetDir.getAbsolutePath() + File.separator + index).exists()) { // Create targetDir if necessary.
-                    new File(targetDir.getAbsolutePath() + File.separator + index).mkdirs();
+                float sampleRate = stream.getFormat().getFrameRate();
+                if (isSplittingEnabled) {
+                    // The parts contain whole blocks of frames, so that the windows of the extractors are not cut
+                    long partFrames = Math.max(1, (long) (splitSize * sampleRate) / alignment) * alignment;
+                    long overlapFrames = (long) Math.ceil(overlap * sampleRate / alignment) * alignment;
+                    parts = writeWaveParts(stream, partFrames, overlapFrames, partFiles);
+                } else {
+                    File partFile = partFiles.getPartFile(1);
+                    writeWaveFile(stream, partFile);
+                    long frames = AudioSystem.getAudioFileFormat(partFile).getFrameLength();
+                    parts = new WavePartTableSet(Collections.singletonList(frames), Collections.singletonList(0L), sampleRate);
                 }
-                File src = new File(wavFile.getAbsolutePath() + "." + index);
-                File dest = new File(targetDir.getAbsolutePath() + File.separator + index + File.separator + wavFile.getName());
-                fileCopy(src, dest);
-                src.delete();
-                index++;
+            } finally {
+                stream.close();
             }
+            parts.saveToArffFile(new File(partsDir, WavePartTableSet.FILE_NAME));
+        } catch (UnsupportedAudioFileException e) {
+            throw new NodeException("Unable to read converted " + musicFile.getName() + ": " + e.getMessage());
+        } catch (IOException e) {
+            throw new NodeException("Unable to convert " + musicFile.getName() + ": " + e.getMessage());
         }
     }
 
@@ -221,74 +184,78 @@ public class AudioFileConversion {
      * @return The count of files created.
      * @throws java.io.IOException
      */
-    public static int splitWaveFile(File waveFile, int splitSize) throws IOException {
-        int part = 1;
-        AudioInputStream ais = null;
-        FileInputStream tmpFis = null;
-        BufferedInputStream tmpBis = null;
-        File tempOutputFile = null;
-        FileOutputStream tmpOutputStream = null;
-        
+    public static int splitWaveFile(final File waveFile, int splitSize) throws IOException {
         if (waveFile.length() < 1024 * splitSize) {
         	
-        	// Also when the file is not splitted, processFile() expects that file ends with ".1"
-        	// (see the line with "while (index <= splitFileCount) {") 
-        	fileCopy(waveFile, getNextSplitFile(waveFile, part));
+        	// Also when the file is not splitted, the part ends with ".1"
+        	fileCopy(waveFile, getNextSplitFile(waveFile, 1));
         	return 1;
         }
+        AudioInputStream ais = null;
         try {
-            tempOutputFile = new File(waveFile.getParentFile().getAbsolutePath() + File.separator + ".tmp_" + waveFile.getName());
-            tmpOutputStream = new FileOutputStream(tempOutputFile);
-            tmpFis = new FileInputStream(waveFile);
-            tmpBis = new BufferedInputStream(tmpFis);
-            ais = AudioSystem.getAudioInputStream(tmpBis);
-            // Size to split at in Byte.
-            int maxSize = 1024 * splitSize;
-            File currentOutputFile = getNextSplitFile(waveFile, part);
-            currentOutputFile.createNewFile();
-            AudioFormat format = ais.getFormat();
-            byte[] buffer = new byte[1024];
-            int bytesWritten = 0;
-            while (ais.read(buffer) > -1) {
-                if (bytesWritten > maxSize) {
-                    AudioInputStream tais = new AudioInputStream(new FileInputStream(tempOutputFile), format, tempOutputFile.length() / format.getFrameSize());
-                    AudioSystem.write(tais, Type.WAVE, currentOutputFile);
-                    tmpOutputStream.close();
-                    tempOutputFile.delete();
-                    tempOutputFile.createNewFile();
-                    tmpOutputStream = new FileOutputStream(tempOutputFile);
-                    part++;
-                    currentOutputFile = getNextSplitFile(waveFile, part);
-                    currentOutputFile.createNewFile();
-                    bytesWritten = 0;
+            ais = AudioSystem.getAudioInputStream(new BufferedInputStream(new FileInputStream(waveFile), BUFFER_SIZE));
+            long partFrames = 1024L * (splitSize + 1) / ais.getFormat().getFrameSize();
+            return writeWaveParts(ais, partFrames, 0, new PartFiles() {
+                public File getPartFile(int part) {
+                    return getNextSplitFile(waveFile, part);
                 }
-                tmpOutputStream.write(buffer);
-                bytesWritten += 1024;
-            }
-            tmpOutputStream.close();
-            AudioInputStream tais = new AudioInputStream(new FileInputStream(tempOutputFile), format, tempOutputFile.length() / format.getFrameSize());
-            AudioSystem.write(tais, Type.WAVE, currentOutputFile);
-            tais.close();
+            }).getNumberOfParts();
         } catch (UnsupportedAudioFileException ex) {
             throw new IOException(ex);
         } finally {
             if (ais != null) {
                 ais.close();
             }
-            if (tmpBis != null) {
-                tmpBis.close();
-            }
-            if (tmpFis != null) {
-                tmpFis.close();
-            }
-            if (tmpOutputStream != null) {
-                tmpOutputStream.close();
+        }
+    }
+
+    /**
+     * Writes the stream into wave files of partFrames frames each followed by the first overlapFrames frames of
+     * the next part; the last part takes the rest. A part which would lie completely in the overlap of the previous
+     * part is not written, the previous part is the last one then.
+     *
+     * @param stream The audio to split.
+     * @param partFrames The number of frames of each part without the overlap.
+     * @param overlapFrames The number of frames of the next part contained in each part.
+     * @param partFiles Provides the file of each part.
+     * @return The description of the written parts.
+     * @throws IOException
+     */
+    private static WavePartTableSet writeWaveParts(AudioInputStream stream, long partFrames, long overlapFrames, PartFiles partFiles) throws IOException {
+        AudioFormat format = stream.getFormat();
+        int frameSize = format.getFrameSize();
+        long partSize = partFrames * frameSize;
+        int overlapSize = (int) (overlapFrames * frameSize);
+        PushbackInputStream input = new PushbackInputStream(stream, overlapSize + frameSize);
+        byte[] nextFrame = new byte[frameSize];
+        List<Long> lengths = new ArrayList<Long>();
+        List<Long> overlaps = new ArrayList<Long>();
+        boolean hasMoreData;
+        do {
+            // The length is written into the header after the part, since the last part may be shorter
+            PartInputStream partInput = new PartInputStream(input, partSize, overlapSize);
+            writeWaveFile(new AudioInputStream(partInput, format, AudioSystem.NOT_SPECIFIED), partFiles.getPartFile(lengths.size() + 1));
+            byte[] overlap = partInput.getOverlap();
+
+            // Some converted streams are closed after their end, so they are not read again if the part is not full
+            hasMoreData = false;
+            if (partInput.isFull()) {
+                int read = input.read(nextFrame, 0, frameSize);
+                if (read > 0) {
+                    input.unread(nextFrame, 0, read);
+                    input.unread(overlap);
+                    hasMoreData = true;
+                }
             }
-            if (tempOutputFile.exists()) {
-                tempOutputFile.delete();
+            if (hasMoreData) {
+                lengths.add(partFrames);
+                overlaps.add(overlapFrames);
+            } else {
+                lengths.add(partInput.getReadBytes() / frameSize);
+                overlaps.add(0L);
             }
-        }
-        return part;
+        } while (hasMoreData);
+        return new WavePartTableSet(lengths, overlaps, format.getFrameRate());
     }
 
     /**
@@ -307,15 +274,6 @@ public class AudioFileConversion {
         }
     }
 
-    private static void deleteConvertedFile(File wavFile, boolean original) {
-        if (!original) {
-            boolean success = wavFile.delete();
-            if (!success) {
-		wavFile.deleteOnExit();
-	    }
-        }
-    }
-
     private static void fileCopy(File srcFile, File destFile) {
     	FileInputStream srcChannelFIS = null;
     	FileOutputStream dstChannelFOS = null;
@@ -394,15 +352,231 @@ public class AudioFileConversion {
         processFile(destFolder, musicFile);
     }
 
-    private static void sampleToTargetSize(File file, int targetKHZ, boolean isReduceToMono) throws UnsupportedAudioFileException, IOException {
-        AudioFormat format = AudioSystem.getAudioFileFormat(file).getFormat();
-        File tmpFile = new File(file.getParent() + File.separator + "tmp_" + file.getName());
-        fileCopy(file, tmpFile);
-        float hz = format.getSampleRate();
-        while (hz > targetKHZ) {
-		    hz = hz / 2;
-		}
-	        SampleRateConverter.changeFormat(tmpFile, file, hz, isReduceToMono);
-	        tmpFile.delete();
-	    }
+    /**
+     * Writes the stream as wave file. An existing file is deleted first, since not every
+     * wave writer truncates the file.
+     */
+    private static void writeWaveFile(AudioInputStream stream, File file) throws IOException {
+        if (file.exists() && !file.delete()) {
+            throw new IOException("Unable to replace " + file.getAbsolutePath());
+        }
+        AudioSystem.write(stream, Type.WAVE, file);
+    }
+
+    private static KHz getKHzFromSettings() {
+        int targetKHZ = AmusePreferences.getInt(KeysIntValue.DOWNSAMPLING_TARGET_SIZE_IN_HZ);
+        if (targetKHZ == 1) {
+            return KHz.KHz22;
+        } else if (targetKHZ == 2) {
+            return KHz.KHz11;
+        }
+        return KHz.KHz44;
+    }
+
+    private static Resampling getResamplingFromSettings() {
+        return Resampling.values()[AmusePreferences.getInt(KeysIntValue.RESAMPLING_QUALITY)];
+    }
+
+    /**
+     * Opens the music file as PCM stream; if it is not a wave file, it is decoded as mp3.
+     */
+    static AudioInputStream openPcmStream(File musicFile) throws IOException {
+        AudioFileFormat audioFileFormat = null;
+        try {
+            audioFileFormat = AudioSystem.getAudioFileFormat(musicFile);
+        } catch (UnsupportedAudioFileException ex) {
+            // If no wave file is given, this exception is generated. However the file can be decoded as mp3!
+        } catch (IOException ex) {
+            throw new IOException("Error accessing file to process: " + ex.getMessage());
+        }
+        InputStream input = new BufferedInputStream(new FileInputStream(musicFile), BUFFER_SIZE);
+        try {
+            if (audioFileFormat == null || audioFileFormat.getType() != Type.WAVE) {
+                AmuseLogger.write(AudioFileConversion.class.getName(), Level.INFO, "Decoding " + musicFile.getName() + ".");
+                Mp3DecodingInputStream decodedStream = new Mp3DecodingInputStream(input);
+                return new AudioInputStream(decodedStream, decodedStream.getFormat(), AudioSystem.NOT_SPECIFIED);
+            }
+            return AudioSystem.getAudioInputStream(input);
+        } catch (UnsupportedAudioFileException ex) {
+            input.close();
+            throw new IOException("Unsupported audio file " + musicFile.getName() + ": " + ex.getMessage());
+        } catch (IOException ex) {
+            input.close();
+            throw new IOException("Error converting audio file " + musicFile.getName() + ": " + ex.getMessage());
+        }
+    }
+
+    /**
+     * Opens the music file as PCM stream, which is down-sampled and reduced to mono if required. With HALVING the
+     * sampling rate is halved until it is not above the target rate, otherwise a higher rate is resampled to the
+     * target rate.
+     */
+    private static AudioInputStream openConvertedStream(File musicFile, KHz khz, boolean isReduceToMono, boolean isDownSamplingActive, Resampling resampling) throws IOException {
+        int targetKHZ;
+        if (khz == KHz.KHz22) {
+            targetKHZ = 22050;
+        } else if (khz == KHz.KHz11) {
+            targetKHZ = 11025;
+        } else {
+            targetKHZ = 44100;
+        }
+        AudioInputStream source = openPcmStream(musicFile);
+        try {
+            AudioFormat format = source.getFormat();
+            AmuseLogger.write(AudioFileConversion.class.getName(), Level.DEBUG, "Starting: "+musicFile.getName() + " "+ (int)format.getFrameRate()+"kHz, "+format.getChannels());
+            if (!isDownSamplingActive) {
+                targetKHZ = (int) format.getFrameRate();
+            }
+            if (!isReduceToMono && format.getChannels() == 1) {
+                AmuseLogger.write(AudioFileConversion.class.getName(), Level.WARN, "Target is stereo, but this file is mono already: " + musicFile.getName());
+            }
+            if (isDownSamplingActive && targetKHZ > format.getFrameRate()) {
+                AmuseLogger.write(AudioFileConversion.class.getName(), Level.WARN, "Target is " + targetKHZ + "kHz, but this file is at " + (int) format.getFrameRate() + "kHz already: " + musicFile.getName());
+            }
+            AudioInputStream stream;
+            if (resampling != Resampling.HALVING && format.getSampleRate() > targetKHZ) {
+                PolyphaseResampler.Quality quality = PolyphaseResampler.Quality.values()[resampling.ordinal() - 1];
+                ResamplingInputStream resampledStream = new ResamplingInputStream(source, targetKHZ, isReduceToMono, quality);
+                stream = new AudioInputStream(resampledStream, resampledStream.getFormat(), resampledStream.getFrameLength());
+            } else {
+                float hz = format.getSampleRate();
+                while (hz > targetKHZ) {
+                    hz = hz / 2;
+                }
+
+                // The sampling rate is changed before the channels are mixed as by the SampleRateConverter
+                stream = changeSampling(source, hz, false);
+                if (isReduceToMono) {
+                    stream = changeSampling(stream, hz, true);
+                }
+            }
+            format = stream.getFormat();
+            AmuseLogger.write(AudioFileConversion.class.getName(), Level.DEBUG, "Result: "+musicFile.getName() + " "+ (int)format.getFrameRate()+"kHz, "+format.getChannels());
+            if (isDownSamplingActive && format.getFrameRate() != 44100f && format.getFrameRate() != 22050f && format.getFrameRate() != 11025f) {
+                AmuseLogger.write(AudioFileConversion.class.getName(), Level.WARN, "This file has no standard frame rate: \"" + musicFile + "\"");
+            }
+            return stream;
+        } catch (IOException ex) {
+            source.close();
+            throw ex;
+        }
+    }
+
+    /**
+     * Converts the stream to the given sampling rate and to mono if required, keeping the other
+     * properties of the format.
+     */
+    private static AudioInputStream changeSampling(AudioInputStream source, float targetSampleRate, boolean toMono) throws IOException {
+        AudioFormat sourceFormat = source.getFormat();
+        if (!SampleRateConverter.isPcm(sourceFormat.getEncoding())) {
+            throw new IOException("Encoding of source audio data is not PCM; conversion not possible");
+        }
+        AudioFormat targetFormat = new AudioFormat(
+                sourceFormat.getEncoding(),
+                targetSampleRate,
+                sourceFormat.getSampleSizeInBits(),
+                toMono ? 1 : sourceFormat.getChannels(),
+                sourceFormat.getFrameSize(),
+                targetSampleRate,
+                sourceFormat.isBigEndian());
+        try {
+            return AudioSystem.getAudioInputStream(targetFormat, source);
+        } catch (IllegalArgumentException ex) {
+            throw new IOException("Unable to perform down-sampling: " + ex.getMessage());
+        }
+    }
+
+    /**
+     * Provides the files to write the split parts of a wave file to.
+     */
+    private interface PartFiles {
+        File getPartFile(int part);
+    }
+
+    /**
+     * Reads at most the given number of bytes and the following overlap from the underlying stream, which is not
+     * closed. The read bytes of the overlap are kept, so that they can be read again for the next part.
+     */
+    private static class PartInputStream extends FilterInputStream {
+
+        private final long size;
+        private long remaining;
+        private final byte[] overlap;
+
+        PartInputStream(InputStream in, long size, int overlapSize) {
+            super(in);
+            this.size = size;
+            this.remaining = size + overlapSize;
+            this.overlap = new byte[overlapSize];
+        }
+
+        public int read() throws IOException {
+            byte[] b = new byte[1];
+            int read = read(b, 0, 1);
+            return read == 1 ? b[0] & 0xff : -1;
+        }
+
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (remaining <= 0) {
+                return -1;
+            }
+            long position = getReadBytes();
+            int read = in.read(b, off, (int) Math.min(len, remaining));
+            if (read > 0) {
+                remaining -= read;
+                keepOverlap(b, off, position, read);
+            }
+            return read;
+        }
+
+        public long skip(long n) throws IOException {
+            byte[] b = new byte[(int) Math.min(n, BUFFER_SIZE)];
+            int read = read(b, 0, b.length);
+            return read > 0 ? read : 0;
+        }
+
+        public int available() throws IOException {
+            if (remaining <= 0) {
+                return 0;
+            }
+            return (int) Math.min(in.available(), remaining);
+        }
+
+        public boolean markSupported() {
+            return false;
+        }
+
+        /**
+         * @return True if the given number of bytes and the overlap have been read
+         */
+        boolean isFull() {
+            return remaining == 0;
+        }
+
+        /**
+         * @return Number of read bytes including the overlap
+         */
+        long getReadBytes() {
+            return size + overlap.length - remaining;
+        }
+
+        /**
+         * @return The read bytes of the overlap
+         */
+        byte[] getOverlap() {
+            int read = (int) Math.max(0, getReadBytes() - size);
+            return Arrays.copyOf(overlap, read);
+        }
+
+        private void keepOverlap(byte[] b, int off, long position, int read) {
+            long first = Math.max(position, size);
+            long end = position + read;
+            if (first < end) {
+                System.arraycopy(b, (int) (off + first - position), overlap, (int) (first - size), (int) (end - first));
+            }
+        }
+
+        public void close() {
+        }
+    }
 }
@@ -0,0 +1,528 @@
+/**
+ * This file is part of AMUSE framework (Advanced MUsic Explorer).
+ *
+ * Copyright 2006-2010 by code authors
+ *
+ * Created at TU Dortmund, Chair of Algorithm Engineering
+ * (Contact: <http://ls11-www.cs.tu-dortmund.de>)
+ *
+ * AMUSE is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * AMUSE is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with AMUSE. If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Creation date: 17.10.2026
+ */
+package amuse.util.audio;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+import javax.sound.sampled.AudioFormat;
+import javax.sound.sampled.AudioInputStream;
+import javax.sound.sampled.AudioSystem;
+
+import org.apache.log4j.Level;
+
+import amuse.preferences.AmusePreferences;
+import amuse.preferences.KeysIntValue;
+import amuse.preferences.KeysStringValue;
+import amuse.util.AmuseLogger;
+
+/**
+ * Stores the decoded samples of music files in a cache folder, so that a wave or mp3 file read by several
+ * extractors, parts or the annotation editor is decoded only once.<br/>
+ * An entry holds the samples of one music file in one target format (sampling rate and number of channels)
+ * as little-endian floats in [-1, 1), which are memory-mapped by the readers. The entry file is addressed by
+ * the SHA-256 hash of the content of the music file and the target format, so that the copies of a music file
+ * in the work folders of several jobs or parts share one entry and a changed music file gets a new entry; the
+ * header contains the length and the beginning of the content hash, which are checked again when it is mapped.
+ * Entries are written to a temporary file and renamed, so that concurrent readers (also of other JVMs) see
+ * either the complete old or the complete new entry. If the maximal size is exceeded, the least recently
+ * used entries are deleted, but never the entry which was just written; mappings of deleted entries stay
+ * valid on systems which allow this. Samples which alone exceed the maximal size are not stored.
+ *
+ * @version $Id$
+ */
+public class DecodedAudioCache {
+
+	/** Changed if the decoding or the stored format change, so that older entries are not used */
+	private static final int VERSION = 2;
+
+	private static final int MAGIC = 0x414d4441;
+
+	/** Magic number, version, source length, beginning of the source content hash, sampling rate, channels, frames */
+	private static final int HEADER_SIZE = 40;
+
+	private static final String ENTRY_SUFFIX = ".pcm";
+
+	/** Number of bytes of the music file which are hashed at once */
+	private static final int HASH_BLOCK_SIZE = 65536;
+
+	/** Number of frames which are decoded at once */
+	private static final int BLOCK_FRAMES = 8192;
+
+	/** Entries used by all extractors and the annotation editor of this JVM */
+	private static final DecodedAudioCache sharedCache = new DecodedAudioCache(null, 0);
+
+	/** Locks which prevent that an entry is decoded by several threads at the same time */
+	private final Object[] decodingLocks = new Object[64];
+
+	/** Folder with the cache entries */
+	private volatile File folder;
+
+	/** Maximal size of all entries in bytes; 0 disables the cache */
+	private volatile long maximalSize;
+
+	private long hits = 0;
+	private long misses = 0;
+	private long evictions = 0;
+
+	/**
+	 * Creates a cache
+	 * @param folder Folder with the cache entries
+	 * @param maximalSize Maximal size of all entries in bytes; 0 disables the cache
+	 */
+	public DecodedAudioCache(File folder, long maximalSize) {
+		this.folder = folder;
+		this.maximalSize = maximalSize;
+		for(int i=0;i<decodingLocks.length;i++) {
+			decodingLocks[i] = new Object();
+		}
+	}
+
+	/**
+	 * Returns the cache shared by this JVM with the folder DECODED_AUDIO_CACHE (or the folder
+	 * cache/decodedAudio of Amuse, if it is not set) and the size DECODED_AUDIO_CACHE_SIZE_IN_MB
+	 */
+	public static DecodedAudioCache getInstance() {
+		String folder = AmusePreferences.get(KeysStringValue.DECODED_AUDIO_CACHE);
+		if(!KeysStringValue.DECODED_AUDIO_CACHE.isValid(folder)) {
+			folder = AmusePreferences.get(KeysStringValue.AMUSE_PATH) + File.separator + "cache" + File.separator + "decodedAudio";
+		}
+		synchronized(sharedCache) {
+			sharedCache.folder = new File(folder);
+			sharedCache.maximalSize = AmusePreferences.getInt(KeysIntValue.DECODED_AUDIO_CACHE_SIZE_IN_MB) * 1048576L;
+		}
+		return sharedCache;
+	}
+
+	/**
+	 * @return True if entries are stored
+	 */
+	public synchronized boolean isEnabled() {
+		return maximalSize > 0 && folder != null;
+	}
+
+	/**
+	 * Returns the decoded samples of the music file, which are decoded if no valid entry is available.
+	 * If the cache is disabled, the samples are decoded into a temporary file, which is deleted after mapping.
+	 * @param musicFile Wave or mp3 file
+	 * @param sampleRate Sampling rate of the samples; 0 keeps the rate of the music file, other rates are
+	 * reached with the high quality <class>PolyphaseResampler</class>
+	 * @param channels Number of channels of the samples; 1 averages the channels, 0 keeps the channels of the
+	 * music file
+	 * @return The samples, which may be used by several threads
+	 * @throws IOException If the music file cannot be decoded to the target format
+	 */
+	public DecodedAudio get(File musicFile, int sampleRate, int channels) throws IOException {
+		if(!musicFile.isFile()) {
+			throw new IOException("Music file not found: " + musicFile);
+		}
+		if(!isEnabled()) {
+			File temporaryFile = File.createTempFile("decoded", ENTRY_SUFFIX);
+			try {
+				long length = musicFile.length();
+				decode(musicFile, sampleRate, channels, temporaryFile, length, 0);
+				return map(temporaryFile, musicFile, length, 0);
+			} finally {
+				if(!temporaryFile.delete()) {
+					temporaryFile.deleteOnExit();
+				}
+			}
+		}
+		long length = musicFile.length();
+		byte[] contentHash = hashContent(musicFile);
+		long contentId = ByteBuffer.wrap(contentHash).getLong();
+		String key = createKey(contentHash, sampleRate, channels);
+		File entryFile = getEntryFile(key);
+
+		// Valid entries are read without locking, so that any number of threads can read them at the same time
+		DecodedAudio audio = load(entryFile, musicFile, length, contentId);
+		if(audio == null) {
+			synchronized(decodingLocks[(key.hashCode() & 0x7fffffff) % decodingLocks.length]) {
+				audio = load(entryFile, musicFile, length, contentId);
+				if(audio == null) {
+					audio = decodeEntry(musicFile, sampleRate, channels, length, contentId, key, entryFile);
+				}
+			}
+		}
+		return audio;
+	}
+
+	/**
+	 * Creates the key of an entry
+	 * @param contentHash SHA-256 hash of the content of the music file
+	 * @return Hexadecimal SHA-256 hash of the content hash and the target format
+	 */
+	static String createKey(byte[] contentHash, int sampleRate, int channels) {
+		String description = "version=" + VERSION + "\ncontent=" + toHex(contentHash) + "\nsampleRate=" + sampleRate +
+			"\nchannels=" + channels + "\n";
+		return toHex(createDigest().digest(description.getBytes(Charset.forName("UTF-8"))));
+	}
+
+	/**
+	 * Hashes the content of the music file, which is much faster than decoding it
+	 * @return SHA-256 hash of the content
+	 */
+	static byte[] hashContent(File musicFile) throws IOException {
+		MessageDigest digest = createDigest();
+		FileInputStream input = new FileInputStream(musicFile);
+		try {
+			byte[] block = new byte[HASH_BLOCK_SIZE];
+			int read;
+			while((read = input.read(block)) != -1) {
+				digest.update(block, 0, read);
+			}
+		} finally {
+			input.close();
+		}
+		return digest.digest();
+	}
+
+	private static MessageDigest createDigest() {
+		try {
+			return MessageDigest.getInstance("SHA-256");
+		} catch(NoSuchAlgorithmException e) {
+			// Every Java platform supports SHA-256
+			throw new IllegalStateException(e);
+		}
+	}
+
+	private static String toHex(byte[] hash) {
+		StringBuilder hex = new StringBuilder(2 * hash.length);
+		for(byte b : hash) {
+			hex.append(Character.forDigit((b >> 4) & 0xf, 16)).append(Character.forDigit(b & 0xf, 16));
+		}
+		return hex.toString();
+	}
+
+	/**
+	 * Maps the entry if it belongs to the current content of the music file
+	 * @return The samples or null if no valid entry is available
+	 */
+	private DecodedAudio load(File entryFile, File musicFile, long length, long contentId) {
+		if(!entryFile.exists()) {
+			return null;
+		}
+		try {
+			DecodedAudio audio = map(entryFile, musicFile, length, contentId);
+
+			// The modification time is used for the eviction of the least recently used entries
+			entryFile.setLastModified(System.currentTimeMillis());
+			synchronized(this) {
+				hits++;
+			}
+			return audio;
+		} catch(IOException e) {
+			AmuseLogger.write(DecodedAudioCache.class.getName(), Level.DEBUG,
+					"Cached samples of " + musicFile.getName() + " are not used: " + e.getMessage());
+			return null;
+		}
+	}
+
+	/**
+	 * Decodes the music file into a new entry
+	 */
+	private DecodedAudio decodeEntry(File musicFile, int sampleRate, int channels, long length, long contentId, String key,
+			File entryFile) throws IOException {
+		synchronized(this) {
+			misses++;
+		}
+		folder.mkdirs();
+		File temporaryFile = File.createTempFile("entry_" + key, ".tmp", folder);
+		try {
+			decode(musicFile, sampleRate, channels, temporaryFile, length, contentId);
+			if(temporaryFile.length() > maximalSize) {
+				AmuseLogger.write(DecodedAudioCache.class.getName(), Level.DEBUG,
+						"Decoded samples of " + musicFile.getName() + " exceed the cache size and are not stored");
+				return map(temporaryFile, musicFile, length, contentId);
+			}
+			entryFile.delete();
+			if(temporaryFile.renameTo(entryFile)) {
+				DecodedAudio audio = map(entryFile, musicFile, length, contentId);
+				evict(entryFile);
+				return audio;
+			}
+
+			// The old entry may still be mapped by another reader on systems which do not allow to delete it
+			AmuseLogger.write(DecodedAudioCache.class.getName(), Level.WARN,
+					"Could not store the decoded samples of " + musicFile.getName() + " in the cache: could not rename " + temporaryFile);
+			return map(temporaryFile, musicFile, length, contentId);
+		} finally {
+			if(temporaryFile.exists() && !temporaryFile.delete()) {
+				temporaryFile.deleteOnExit();
+			}
+		}
+	}
+
+	/**
+	 * Decodes the music file and writes the header and the samples to the given file
+	 * @param length Length of the music file
+	 * @param contentId Beginning of the content hash of the music file
+	 */
+	private static void decode(File musicFile, int sampleRate, int channels, File file, long length, long contentId) throws IOException {
+		AudioInputStream stream = openStream(musicFile, sampleRate, channels);
+		FileOutputStream output = new FileOutputStream(file);
+		try {
+			FileChannel channel = output.getChannel();
+			AudioFormat format = stream.getFormat();
+			int sourceChannels = format.getChannels();
+			int targetChannels = channels == 1 ? 1 : sourceChannels;
+			channel.position(HEADER_SIZE);
+			byte[] bytes = new byte[BLOCK_FRAMES * 2 * sourceChannels];
+			ByteBuffer samples = ByteBuffer.allocate(BLOCK_FRAMES * 4 * targetChannels).order(ByteOrder.LITTLE_ENDIAN);
+			long frames = 0;
+			int remainder = 0;
+			while(true) {
+				int read = stream.read(bytes, remainder, bytes.length - remainder);
+				if(read == -1) {
+					break;
+				}
+				int available = remainder + read;
+				int blockFrames = available / (2 * sourceChannels);
+				samples.clear();
+				for(int i=0;i<blockFrames;i++) {
+					if(targetChannels == sourceChannels) {
+						for(int c=0;c<sourceChannels;c++) {
+							samples.putFloat(toSample(bytes, 2 * (i * sourceChannels + c)) / 32768f);
+						}
+					} else {
+						int sum = 0;
+						for(int c=0;c<sourceChannels;c++) {
+							sum += toSample(bytes, 2 * (i * sourceChannels + c));
+						}
+						samples.putFloat((float)(sum / (32768.0 * sourceChannels)));
+					}
+				}
+				samples.flip();
+				while(samples.hasRemaining()) {
+					channel.write(samples);
+				}
+				frames += blockFrames;
+
+				// Bytes of an incomplete frame are kept for the next block
+				remainder = available - blockFrames * 2 * sourceChannels;
+				System.arraycopy(bytes, blockFrames * 2 * sourceChannels, bytes, 0, remainder);
+			}
+			if(frames * targetChannels * 4 > Integer.MAX_VALUE - HEADER_SIZE) {
+				throw new IOException("Music file is too long to be mapped: " + musicFile.getName());
+			}
+			ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+			header.putInt(MAGIC).putInt(VERSION).putLong(length).putLong(contentId);
+			header.putFloat(format.getSampleRate()).putInt(targetChannels).putLong(frames);
+			header.flip();
+			channel.position(0);
+			while(header.hasRemaining()) {
+				channel.write(header);
+			}
+		} finally {
+			output.close();
+			stream.close();
+		}
+	}
+
+	/**
+	 * Opens the music file as 16 bit little-endian PCM stream with the target sampling rate; the channels are
+	 * already averaged if the stream is resampled
+	 */
+	private static AudioInputStream openStream(File musicFile, int sampleRate, int channels) throws IOException {
+		AudioInputStream source = AudioFileConversion.openPcmStream(musicFile);
+		try {
+			AudioFormat format = source.getFormat();
+			if(channels != 0 && channels != 1 && channels != format.getChannels()) {
+				throw new IOException("Cannot convert " + format.getChannels() + " channels of " + musicFile.getName() +
+						" to " + channels + " channels");
+			}
+			if(sampleRate != 0 && sampleRate != (int)format.getSampleRate()) {
+				ResamplingInputStream resampledStream = new ResamplingInputStream(source, sampleRate, channels == 1,
+						PolyphaseResampler.Quality.HIGH);
+				return new AudioInputStream(resampledStream, resampledStream.getFormat(), resampledStream.getFrameLength());
+			}
+			AudioFormat pcmFormat = new AudioFormat(format.getSampleRate(), 16, format.getChannels(), true, false);
+			if(!format.matches(pcmFormat)) {
+				source = AudioSystem.getAudioInputStream(pcmFormat, source);
+			}
+			return source;
+		} catch(IllegalArgumentException e) {
+			source.close();
+			throw new IOException("Unable to convert " + musicFile.getName() + " to 16 bit PCM: " + e.getMessage());
+		} catch(IOException e) {
+			source.close();
+			throw e;
+		}
+	}
+
+	private static int toSample(byte[] bytes, int position) {
+		return (short)((bytes[position] & 0xff) | (bytes[position + 1] << 8));
+	}
+
+	/**
+	 * Maps the samples of the given file after checking its header against the length and content hash of the music file
+	 */
+	private static DecodedAudio map(File file, File musicFile, long length, long contentId) throws IOException {
+		RandomAccessFile input = new RandomAccessFile(file, "r");
+		try {
+			FileChannel channel = input.getChannel();
+			long size = channel.size();
+			if(size < HEADER_SIZE || size > Integer.MAX_VALUE) {
+				throw new IOException("Invalid size " + size);
+			}
+			ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size).order(ByteOrder.LITTLE_ENDIAN);
+			if(buffer.getInt() != MAGIC || buffer.getInt() != VERSION) {
+				throw new IOException("Unknown format");
+			}
+			if(buffer.getLong() != length || buffer.getLong() != contentId) {
+				throw new IOException("Entry of another content of " + musicFile.getName());
+			}
+			float sampleRate = buffer.getFloat();
+			int channels = buffer.getInt();
+			long frames = buffer.getLong();
+			if(channels < 1 || HEADER_SIZE + frames * channels * 4 != size) {
+				throw new IOException("Incomplete entry");
+			}
+			return new DecodedAudio(buffer.asFloatBuffer(), sampleRate, channels, (int)frames);
+		} finally {
+			// The mapping stays valid after the file is closed
+			input.close();
+		}
+	}
+
+	/**
+	 * Removes the least recently used entries except the given one until the maximal size is kept
+	 */
+	private synchronized void evict(File keptEntryFile) {
+		File[] entryFiles = folder.listFiles();
+		if(entryFiles == null) {
+			return;
+		}
+		List<File> entries = new ArrayList<File>(entryFiles.length);
+		long size = 0;
+		for(File file : entryFiles) {
+			if(file.getName().endsWith(ENTRY_SUFFIX)) {
+				if(!file.equals(keptEntryFile)) {
+					entries.add(file);
+				}
+				size += file.length();
+			}
+		}
+		if(size <= maximalSize) {
+			return;
+		}
+		final long[] lastModified = new long[entries.size()];
+		for(int i=0;i<entries.size();i++) {
+			lastModified[i] = entries.get(i).lastModified();
+		}
+		Integer[] order = new Integer[entries.size()];
+		for(int i=0;i<order.length;i++) {
+			order[i] = i;
+		}
+		Arrays.sort(order, new Comparator<Integer>() {
+			public int compare(Integer a, Integer b) {
+				return lastModified[a] < lastModified[b] ? -1 : (lastModified[a] == lastModified[b] ? 0 : 1);
+			}
+		});
+		for(int i=0;i<order.length && size > maximalSize;i++) {
+			File file = entries.get(order[i]);
+			long length = file.length();
+			if(file.delete()) {
+				size -= length;
+				evictions++;
+				AmuseLogger.write(DecodedAudioCache.class.getName(), Level.DEBUG, "Removed from decoded audio cache: " + file.getName());
+			}
+		}
+	}
+
+	/**
+	 * Writes the number of hits, misses and evictions to the log
+	 */
+	public synchronized void logStatistics() {
+		AmuseLogger.write(DecodedAudioCache.class.getName(), Level.INFO, "Decoded audio cache: " + hits + " hits, " +
+				misses + " misses, " + evictions + " evictions");
+	}
+
+	public synchronized long getHits() {
+		return hits;
+	}
+
+	public synchronized long getMisses() {
+		return misses;
+	}
+
+	public synchronized long getEvictions() {
+		return evictions;
+	}
+
+	private File getEntryFile(String key) {
+		return new File(folder, key + ENTRY_SUFFIX);
+	}
+
+	/**
+	 * Decoded samples of a music file; the samples of the frames are interleaved by channel
+	 */
+	public static class DecodedAudio {
+
+		private final FloatBuffer samples;
+		private final float sampleRate;
+		private final int channels;
+		private final int frames;
+
+		DecodedAudio(FloatBuffer samples, float sampleRate, int channels, int frames) {
+			this.samples = samples;
+			this.sampleRate = sampleRate;
+			this.channels = channels;
+			this.frames = frames;
+		}
+
+		/**
+		 * @return Read-only view of the samples with its own position, so that each reader should get its own view
+		 */
+		public FloatBuffer getSamples() {
+			return samples.duplicate();
+		}
+
+		public float getSampleRate() {
+			return sampleRate;
+		}
+
+		public int getChannels() {
+			return channels;
+		}
+
+		public int getFrames() {
+			return frames;
+		}
+	}
+}
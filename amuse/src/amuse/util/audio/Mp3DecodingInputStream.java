@@ -0,0 +1,212 @@
+/**
+ * This file is part of AMUSE framework (Advanced MUsic Explorer).
+ *
+ * Copyright 2006-2010 by code authors
+ *
+ * Created at TU Dortmund, Chair of Algorithm Engineering
+ * (Contact: <http://ls11-www.cs.tu-dortmund.de>)
+ *
+ * AMUSE is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * AMUSE is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with AMUSE. If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Creation date: 17.10.2026
+ */
+package amuse.util.audio;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+import javax.sound.sampled.AudioFormat;
+
+import javazoom.jl.decoder.Bitstream;
+import javazoom.jl.decoder.Decoder;
+import javazoom.jl.decoder.Header;
+import javazoom.jl.decoder.JavaLayerException;
+import javazoom.jl.decoder.Obuffer;
+
+/**
+ * Decodes an mp3 stream frame by frame with the javazoom library to 16 bit little-endian PCM. The samples are
+ * the same as in the wave files written by the javazoom <class>Converter</class>, but no file is written.
+ *
+ * @version $Id$
+ */
+public class Mp3DecodingInputStream extends InputStream {
+
+	private final Bitstream bitstream;
+	private final Decoder decoder = new Decoder();
+	private final PcmBuffer output;
+	private final AudioFormat format;
+
+	/** Header of the first frame, which is read to find out the format */
+	private Header firstHeader;
+
+	/** Decoded bytes of the current frame */
+	private byte[] frame = new byte[0];
+	private int position = 0;
+	private int length = 0;
+	private boolean finished = false;
+
+	/**
+	 * @param input Stream with the mp3 data
+	 * @throws IOException If no mp3 frame is found
+	 */
+	public Mp3DecodingInputStream(InputStream input) throws IOException {
+		this.bitstream = new Bitstream(input);
+		try {
+			this.firstHeader = bitstream.readFrame();
+		} catch(JavaLayerException e) {
+			throw new IOException("Could not read mp3 frame: " + e.getMessage());
+		}
+		if(firstHeader == null) {
+			throw new IOException("No mp3 frame found");
+		}
+		int channels = (firstHeader.mode() == Header.SINGLE_CHANNEL) ? 1 : 2;
+		this.format = new AudioFormat(firstHeader.frequency(), 16, channels, true, false);
+		this.output = new PcmBuffer(channels);
+		decoder.setOutputBuffer(output);
+	}
+
+	/**
+	 * @return Format of the decoded samples as given by the first frame
+	 */
+	public AudioFormat getFormat() {
+		return format;
+	}
+
+	public int read() throws IOException {
+		while(position == length) {
+			if(!decodeNextFrame()) {
+				return -1;
+			}
+		}
+		return frame[position++] & 0xff;
+	}
+
+	public int read(byte[] b, int off, int len) throws IOException {
+		if(len == 0) {
+			return 0;
+		}
+		int read = 0;
+		while(read < len) {
+			if(position == length && !decodeNextFrame()) {
+				break;
+			}
+			int count = Math.min(len - read, length - position);
+			System.arraycopy(frame, position, b, off + read, count);
+			position += count;
+			read += count;
+		}
+		return read == 0 ? -1 : read;
+	}
+
+	public int available() {
+		return length - position;
+	}
+
+	public void close() throws IOException {
+		try {
+			bitstream.close();
+		} catch(JavaLayerException e) {
+			throw new IOException(e.getMessage());
+		}
+	}
+
+	/**
+	 * Decodes the next frame
+	 * @return False if the stream has no further frames
+	 */
+	private boolean decodeNextFrame() throws IOException {
+		if(finished) {
+			return false;
+		}
+		try {
+			Header header = firstHeader;
+			firstHeader = null;
+			if(header == null) {
+				header = bitstream.readFrame();
+			}
+			if(header == null) {
+				finished = true;
+				return false;
+			}
+			decoder.decodeFrame(header, bitstream);
+			bitstream.closeFrame();
+		} catch(JavaLayerException e) {
+			throw new IOException("Could not decode mp3 frame: " + e.getMessage());
+		}
+		length = output.copyTo(this);
+		position = 0;
+		return true;
+	}
+
+	/**
+	 * Collects the interleaved samples of a frame like the <class>WaveFileObuffer</class> of the javazoom
+	 * library, so that the samples are clipped in the same way
+	 */
+	private static class PcmBuffer extends Obuffer {
+
+		private final short[] buffer = new short[OBUFFERSIZE];
+		private final int[] bufferp;
+		private final int channels;
+
+		/** Number of samples of the last written frame */
+		private int samples = 0;
+
+		PcmBuffer(int channels) {
+			this.channels = channels;
+			this.bufferp = new int[channels];
+			resetPositions();
+		}
+
+		public void append(int channel, short value) {
+			buffer[bufferp[channel]] = value;
+			bufferp[channel] += channels;
+		}
+
+		public void write_buffer(int val) {
+			samples = bufferp[0];
+			resetPositions();
+		}
+
+		public void close() {
+		}
+
+		public void clear_buffer() {
+		}
+
+		public void set_stop_flag() {
+		}
+
+		private void resetPositions() {
+			for(int i=0;i<channels;i++) {
+				bufferp[i] = i;
+			}
+		}
+
+		/**
+		 * Writes the samples as little-endian bytes into the frame array of the stream
+		 * @return Number of bytes
+		 */
+		int copyTo(Mp3DecodingInputStream stream) {
+			if(stream.frame.length < 2 * samples) {
+				stream.frame = new byte[2 * samples];
+			}
+			byte[] frame = stream.frame;
+			for(int i=0;i<samples;i++) {
+				frame[2 * i] = (byte)buffer[i];
+				frame[2 * i + 1] = (byte)(buffer[i] >> 8);
+			}
+			return 2 * samples;
+		}
+	}
+}
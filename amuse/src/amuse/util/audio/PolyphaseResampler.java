@@ -0,0 +1,310 @@
+/**
+ * This file is part of AMUSE framework (Advanced MUsic Explorer).
+ *
+ * Copyright 2006-2010 by code authors
+ *
+ * Created at TU Dortmund, Chair of Algorithm Engineering
+ * (Contact: <http://ls11-www.cs.tu-dortmund.de>)
+ *
+ * AMUSE is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * AMUSE is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with AMUSE. If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Creation date: 17.10.2026
+ */
+package amuse.util.audio;
+
+/**
+ * Changes the sampling rate of interleaved float samples by a rational factor with a Kaiser windowed
+ * sinc filter. The sampling rates are reduced to the up-sampling factor L and the down-sampling factor M;
+ * each output sample is computed with one of L precomputed filter phases, so that only the required input
+ * samples are multiplied. The cut-off frequency is placed below the Nyquist frequency of the lower rate,
+ * so that the stop-band starts at it.<br/>
+ * The samples are given in blocks of any size to process(); after the last block flush() returns the
+ * remaining samples. The output has ceil(input frames * L / M) frames and is not delayed, i.e. output
+ * frame n belongs to the time n / target rate of the input.
+ *
+ * @version $Id$
+ */
+public class PolyphaseResampler {
+
+	/**
+	 * Quality levels with the number of zero crossings of the sinc on each side and the stop-band attenuation
+	 */
+	public enum Quality {
+		LOW(16, 60), MEDIUM(32, 80), HIGH(64, 100);
+
+		private final int zeroCrossings;
+		private final double stopBandAttenuation;
+
+		private Quality(int zeroCrossings, double stopBandAttenuation) {
+			this.zeroCrossings = zeroCrossings;
+			this.stopBandAttenuation = stopBandAttenuation;
+		}
+
+		/**
+		 * @return Attenuation of the stop-band in dB
+		 */
+		public double getStopBandAttenuation() {
+			return stopBandAttenuation;
+		}
+
+		/**
+		 * @return Width of the transition band relative to the Nyquist frequency of the lower rate
+		 * (Kaiser's estimate for the filter length)
+		 */
+		public double getTransitionWidth() {
+			return (stopBandAttenuation - 7.95) / (2.285 * 2 * zeroCrossings * Math.PI);
+		}
+
+		/**
+		 * @return Highest passed frequency relative to the Nyquist frequency of the lower rate
+		 */
+		public double getPassBandEdge() {
+			return 1 - getTransitionWidth();
+		}
+	}
+
+	/** Maximal number of precomputed filter phases; further phases are interpolated */
+	private static final int MAX_PHASES = 4096;
+
+	private final int channels;
+	private final int upFactor;
+	private final int downFactor;
+
+	/** Number of input frames used on each side of an output frame */
+	private final int halfLength;
+
+	/** Coefficients of the filter phases for the fractional positions 0, 1/phases, ..., 1 */
+	private final float[][] phases;
+
+	/** Interleaved input frames which are still needed; the first halfLength frames are zeros at the beginning */
+	private float[] buffer;
+	private int bufferedFrames;
+
+	/** Position of the next output frame: buffer frame and fractional part in 1/upFactor */
+	private int center;
+	private int phase = 0;
+
+	private long inputFrames = 0;
+	private long outputFrames = 0;
+
+	/**
+	 * @param sourceRate Sampling rate of the input
+	 * @param targetRate Sampling rate of the output
+	 * @param channels Number of interleaved channels
+	 * @param quality Quality level
+	 */
+	public PolyphaseResampler(int sourceRate, int targetRate, int channels, Quality quality) {
+		if(sourceRate <= 0 || targetRate <= 0 || channels <= 0) {
+			throw new IllegalArgumentException("Sampling rates and channels must be positive");
+		}
+		int gcd = gcd(sourceRate, targetRate);
+		this.upFactor = targetRate / gcd;
+		this.downFactor = sourceRate / gcd;
+		this.channels = channels;
+
+		// For down-sampling the filter is stretched, so that its cut-off frequency is below the target Nyquist frequency
+		double ratio = Math.min(1d, (double)upFactor / downFactor);
+		double cutOff = ratio * (1 - quality.getTransitionWidth() / 2);
+		this.halfLength = (int)Math.ceil(quality.zeroCrossings / ratio);
+		double beta = kaiserBeta(quality.stopBandAttenuation);
+
+		int numberOfPhases = Math.min(upFactor, MAX_PHASES);
+		this.phases = new float[numberOfPhases + 1][];
+		for(int p=0;p<=numberOfPhases;p++) {
+			phases[p] = createPhase((double)p / numberOfPhases, cutOff, beta);
+		}
+
+		this.buffer = new float[4 * halfLength * channels];
+		this.bufferedFrames = halfLength;
+		this.center = halfLength;
+	}
+
+	/**
+	 * @return Up-sampling factor L of the reduced rate ratio
+	 */
+	public int getUpFactor() {
+		return upFactor;
+	}
+
+	/**
+	 * @return Down-sampling factor M of the reduced rate ratio
+	 */
+	public int getDownFactor() {
+		return downFactor;
+	}
+
+	/**
+	 * @param frames Number of input frames given to the next process() call (0 for flush())
+	 * @return Maximal number of output frames written by this call
+	 */
+	public int getMaxOutputFrames(int frames) {
+		return (int)(((long)(bufferedFrames - center + frames + halfLength) * upFactor) / downFactor) + 1;
+	}
+
+	/**
+	 * Resamples the next block of interleaved input frames
+	 * @param input Interleaved samples
+	 * @param offset Index of the first sample of the block
+	 * @param frames Number of frames of the block
+	 * @param output Array for the interleaved output frames with space for getMaxOutputFrames(frames) frames
+	 * @param outputOffset Index of the first output sample
+	 * @return Number of written output frames
+	 */
+	public int process(float[] input, int offset, int frames, float[] output, int outputOffset) {
+		append(input, offset, frames);
+		inputFrames += frames;
+		return produce(output, outputOffset, Long.MAX_VALUE);
+	}
+
+	/**
+	 * Returns the output frames which depend on the last input frames; the input is continued with zeros
+	 * @param output Array for the interleaved output frames with space for getMaxOutputFrames(0) frames
+	 * @param outputOffset Index of the first output sample
+	 * @return Number of written output frames
+	 */
+	public int flush(float[] output, int outputOffset) {
+		append(new float[halfLength * channels], 0, halfLength);
+		long totalOutputFrames = (inputFrames * upFactor + downFactor - 1) / downFactor;
+		return produce(output, outputOffset, totalOutputFrames);
+	}
+
+	/**
+	 * Computes the output frames whose input frames are available
+	 */
+	private int produce(float[] output, int outputOffset, long totalOutputFrames) {
+		int written = 0;
+		int taps = 2 * halfLength;
+		float[] interpolated = phases.length - 1 < upFactor ? new float[taps] : null;
+		while(center + halfLength < bufferedFrames && outputFrames < totalOutputFrames) {
+			float[] coefficients = getPhase(interpolated);
+			int first = (center - halfLength + 1) * channels;
+			int out = outputOffset + written * channels;
+			for(int c=0;c<channels;c++) {
+				float sum = 0f;
+				for(int k=0, i=first+c;k<taps;k++, i+=channels) {
+					sum += coefficients[k] * buffer[i];
+				}
+				output[out + c] = sum;
+			}
+			written++;
+			outputFrames++;
+			phase += downFactor;
+			center += phase / upFactor;
+			phase %= upFactor;
+		}
+
+		// Remove the frames which are not needed for the next output frames
+		int unused = Math.min(center - halfLength + 1, bufferedFrames);
+		if(unused > 0) {
+			System.arraycopy(buffer, unused * channels, buffer, 0, (bufferedFrames - unused) * channels);
+			bufferedFrames -= unused;
+			center -= unused;
+		}
+		return written;
+	}
+
+	private float[] getPhase(float[] interpolated) {
+		if(interpolated == null) {
+			return phases[phase];
+		}
+		double position = (double)phase * (phases.length - 1) / upFactor;
+		int lower = (int)position;
+		float weight = (float)(position - lower);
+		float[] a = phases[lower];
+		float[] b = phases[lower + 1];
+		for(int k=0;k<interpolated.length;k++) {
+			interpolated[k] = a[k] + weight * (b[k] - a[k]);
+		}
+		return interpolated;
+	}
+
+	private void append(float[] input, int offset, int frames) {
+		int required = (bufferedFrames + frames) * channels;
+		if(required > buffer.length) {
+			float[] newBuffer = new float[Math.max(required, 2 * buffer.length)];
+			System.arraycopy(buffer, 0, newBuffer, 0, bufferedFrames * channels);
+			buffer = newBuffer;
+		}
+		System.arraycopy(input, offset, buffer, bufferedFrames * channels, frames * channels);
+		bufferedFrames += frames;
+	}
+
+	/**
+	 * Creates the coefficients for an output frame between the input frames center and center + 1
+	 * @param fraction Position after the center frame in input frames
+	 * @param cutOff Cut-off frequency relative to the input Nyquist frequency
+	 * @param beta Parameter of the Kaiser window
+	 */
+	private float[] createPhase(double fraction, double cutOff, double beta) {
+		int taps = 2 * halfLength;
+		double[] values = new double[taps];
+		double sum = 0;
+		for(int k=0;k<taps;k++) {
+			// Distance between the output frame and the input frame center - halfLength + 1 + k
+			double distance = halfLength - 1 - k + fraction;
+			double x = distance / halfLength;
+			double window = Math.abs(x) >= 1 ? 0 : bessel(beta * Math.sqrt(1 - x * x)) / bessel(beta);
+			values[k] = cutOff * sinc(cutOff * distance) * window;
+			sum += values[k];
+		}
+
+		// The gain for constant signals is exactly 1
+		float[] coefficients = new float[taps];
+		for(int k=0;k<taps;k++) {
+			coefficients[k] = (float)(values[k] / sum);
+		}
+		return coefficients;
+	}
+
+	private static double sinc(double x) {
+		if(x == 0) {
+			return 1;
+		}
+		return Math.sin(Math.PI * x) / (Math.PI * x);
+	}
+
+	/**
+	 * Modified Bessel function of the first kind and order zero
+	 */
+	private static double bessel(double x) {
+		double sum = 1;
+		double term = 1;
+		for(int k=1;k<100 && term > sum * 1e-16;k++) {
+			term *= (x / (2 * k)) * (x / (2 * k));
+			sum += term;
+		}
+		return sum;
+	}
+
+	/**
+	 * Kaiser's estimate of the window parameter for the given stop-band attenuation in dB
+	 */
+	private static double kaiserBeta(double attenuation) {
+		if(attenuation > 50) {
+			return 0.1102 * (attenuation - 8.7);
+		} else if(attenuation > 21) {
+			return 0.5842 * Math.pow(attenuation - 21, 0.4) + 0.07886 * (attenuation - 21);
+		}
+		return 0;
+	}
+
+	private static int gcd(int a, int b) {
+		while(b != 0) {
+			int t = a % b;
+			a = b;
+			b = t;
+		}
+		return a;
+	}
+}
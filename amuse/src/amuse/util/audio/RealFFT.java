@@ -0,0 +1,174 @@
+/**
+ * This file is part of AMUSE framework (Advanced MUsic Explorer).
+ *
+ * Copyright 2006-2010 by code authors
+ *
+ * Created at TU Dortmund, Chair of Algorithm Engineering
+ * (Contact: <http://ls11-www.cs.tu-dortmund.de>)
+ *
+ * AMUSE is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * AMUSE is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with AMUSE. If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Creation date: 17.10.2026
+ */
+package amuse.util.audio;
+
+/**
+ * Fast Fourier transform of real signals whose length is a power of two. The N real samples are transformed
+ * as N/2 complex samples with an iterative radix-2 transform, whose result is split into the spectrum of the
+ * real signal. The bit reversal and the twiddle factors are computed once, so that a transform does not
+ * allocate memory; an instance must not be used by several threads at the same time.<br/>
+ * The spectrum X[0], ..., X[N/2] is stored in place of the samples: data[2k] and data[2k+1] are the real and
+ * the imaginary part of X[k] for 0 &lt; k &lt; N/2, data[0] is X[0] and data[1] is X[N/2], which are real.
+ *
+ * @version $Id$
+ */
+public class RealFFT {
+
+	/** Number of real samples */
+	private final int size;
+
+	/** Number of complex samples of the inner transform */
+	private final int half;
+
+	/** Index of the complex sample which is swapped with the sample at the index */
+	private final int[] bitReversal;
+
+	/** Twiddle factors of the inner transform: cos and sin of 2 pi j / half */
+	private final double[] cos;
+	private final double[] sin;
+
+	/** Twiddle factors for the split into the real spectrum: cos and sin of 2 pi k / size */
+	private final double[] splitCos;
+	private final double[] splitSin;
+
+	/**
+	 * @param size Number of real samples, a power of two of at least 2
+	 */
+	public RealFFT(int size) {
+		if(size < 2 || Integer.bitCount(size) != 1) {
+			throw new IllegalArgumentException("FFT size must be a power of two of at least 2: " + size);
+		}
+		this.size = size;
+		this.half = size / 2;
+
+		bitReversal = new int[half];
+		int bits = Integer.numberOfTrailingZeros(half);
+		for(int i=0;i<half;i++) {
+			bitReversal[i] = bits == 0 ? 0 : Integer.reverse(i) >>> (32 - bits);
+		}
+		cos = new double[Math.max(1, half / 2)];
+		sin = new double[cos.length];
+		for(int j=0;j<cos.length;j++) {
+			cos[j] = Math.cos(2 * Math.PI * j / half);
+			sin[j] = Math.sin(2 * Math.PI * j / half);
+		}
+		splitCos = new double[half / 2 + 1];
+		splitSin = new double[splitCos.length];
+		for(int k=0;k<splitCos.length;k++) {
+			splitCos[k] = Math.cos(2 * Math.PI * k / size);
+			splitSin[k] = Math.sin(2 * Math.PI * k / size);
+		}
+	}
+
+	/**
+	 * @return Number of real samples
+	 */
+	public int getSize() {
+		return size;
+	}
+
+	/**
+	 * Replaces the samples by their spectrum in the layout described above
+	 * @param data Real samples, at least getSize() values
+	 */
+	public void transform(double[] data) {
+		transformComplex(data);
+
+		// X[0] and X[N/2] follow from the sums of the even and the odd samples
+		double even = data[0];
+		double odd = data[1];
+		data[0] = even + odd;
+		data[1] = even - odd;
+
+		// X[k] = E[k] + exp(-2 pi i k / N) O[k] with the spectra E of the even and O of the odd samples,
+		// which are separated with the complex spectrum Z[k] and Z[N/2-k]; X[N/2-k] is computed at the same time
+		for(int k=1;k<=half/2;k++) {
+			int mirrored = half - k;
+			double zr = data[2 * k];
+			double zi = data[2 * k + 1];
+			double yr = data[2 * mirrored];
+			double yi = data[2 * mirrored + 1];
+			double er = 0.5 * (zr + yr);
+			double ei = 0.5 * (zi - yi);
+			double or = 0.5 * (zi + yi);
+			double oi = -0.5 * (zr - yr);
+			double tr = splitCos[k] * or + splitSin[k] * oi;
+			double ti = splitCos[k] * oi - splitSin[k] * or;
+			data[2 * k] = er + tr;
+			data[2 * k + 1] = ei + ti;
+			data[2 * mirrored] = er - tr;
+			data[2 * mirrored + 1] = ti - ei;
+		}
+	}
+
+	/**
+	 * Computes the magnitudes of a spectrum returned by transform()
+	 * @param spectrum Spectrum in the layout described above
+	 * @param magnitudes Array for the magnitudes |X[0]|, ..., |X[N/2]|, at least getSize() / 2 + 1 values
+	 */
+	public void magnitudes(double[] spectrum, double[] magnitudes) {
+		magnitudes[0] = Math.abs(spectrum[0]);
+		magnitudes[half] = Math.abs(spectrum[1]);
+		for(int k=1;k<half;k++) {
+			double re = spectrum[2 * k];
+			double im = spectrum[2 * k + 1];
+			magnitudes[k] = Math.sqrt(re * re + im * im);
+		}
+	}
+
+	/**
+	 * Transforms the interleaved complex samples in place
+	 */
+	private void transformComplex(double[] data) {
+		for(int i=0;i<half;i++) {
+			int j = bitReversal[i];
+			if(j > i) {
+				double re = data[2 * i];
+				double im = data[2 * i + 1];
+				data[2 * i] = data[2 * j];
+				data[2 * i + 1] = data[2 * j + 1];
+				data[2 * j] = re;
+				data[2 * j + 1] = im;
+			}
+		}
+		for(int length=2;length<=half;length<<=1) {
+			int halfLength = length / 2;
+			int step = half / length;
+			for(int start=0;start<half;start+=length) {
+				for(int j=0;j<halfLength;j++) {
+					double c = cos[j * step];
+					double s = sin[j * step];
+					int a = 2 * (start + j);
+					int b = a + length;
+					double vr = data[b] * c + data[b + 1] * s;
+					double vi = data[b + 1] * c - data[b] * s;
+					data[b] = data[a] - vr;
+					data[b + 1] = data[a + 1] - vi;
+					data[a] += vr;
+					data[a + 1] += vi;
+				}
+			}
+		}
+	}
+}
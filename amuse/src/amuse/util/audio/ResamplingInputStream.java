@@ -0,0 +1,221 @@
+/**
+ * This file is part of AMUSE framework (Advanced MUsic Explorer).
+ *
+ * Copyright 2006-2010 by code authors
+ *
+ * Created at TU Dortmund, Chair of Algorithm Engineering
+ * (Contact: <http://ls11-www.cs.tu-dortmund.de>)
+ *
+ * AMUSE is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * AMUSE is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with AMUSE. If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Creation date: 17.10.2026
+ */
+package amuse.util.audio;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+import javax.sound.sampled.AudioFormat;
+import javax.sound.sampled.AudioInputStream;
+import javax.sound.sampled.AudioSystem;
+
+/**
+ * Resamples a PCM stream with the <class>PolyphaseResampler</class> and reduces it to mono if required.
+ * The samples are read block by block as 16 bit little-endian PCM, the channels are averaged for mono and
+ * the result is rounded to 16 bit little-endian PCM again.
+ *
+ * @version $Id$
+ */
+public class ResamplingInputStream extends InputStream {
+
+	/** Number of source frames which are resampled at once */
+	private static final int BLOCK_FRAMES = 8192;
+
+	private final AudioInputStream source;
+	private final PolyphaseResampler resampler;
+	private final AudioFormat format;
+	private final long frameLength;
+	private final int sourceChannels;
+	private final int channels;
+
+	private final byte[] sourceBytes;
+	private final float[] samples;
+	private float[] resampled = new float[0];
+
+	/** Converted bytes of the current block */
+	private byte[] block = new byte[0];
+	private int position = 0;
+	private int length = 0;
+
+	private boolean sourceFinished = false;
+	private boolean finished = false;
+
+	/**
+	 * @param source PCM stream; formats other than 16 bit signed little-endian are converted by Java Sound
+	 * @param targetRate Sampling rate of this stream
+	 * @param isReduceToMono True if the channels should be averaged
+	 * @param quality Quality of the resampling filter
+	 * @throws IOException If the source cannot be converted to 16 bit PCM
+	 */
+	public ResamplingInputStream(AudioInputStream source, int targetRate, boolean isReduceToMono, PolyphaseResampler.Quality quality) throws IOException {
+		AudioFormat sourceFormat = source.getFormat();
+		AudioFormat pcmFormat = new AudioFormat(sourceFormat.getSampleRate(), 16, sourceFormat.getChannels(), true, false);
+		if(!sourceFormat.matches(pcmFormat)) {
+			try {
+				source = AudioSystem.getAudioInputStream(pcmFormat, source);
+			} catch(IllegalArgumentException e) {
+				throw new IOException("Unable to convert audio data to 16 bit PCM: " + e.getMessage());
+			}
+		}
+		this.source = source;
+		this.sourceChannels = sourceFormat.getChannels();
+		this.channels = isReduceToMono ? 1 : sourceChannels;
+		this.resampler = new PolyphaseResampler((int)sourceFormat.getSampleRate(), targetRate, channels, quality);
+		this.format = new AudioFormat(targetRate, 16, channels, true, false);
+		long sourceFrames = source.getFrameLength();
+		if(sourceFrames == AudioSystem.NOT_SPECIFIED) {
+			this.frameLength = AudioSystem.NOT_SPECIFIED;
+		} else {
+			this.frameLength = (sourceFrames * resampler.getUpFactor() + resampler.getDownFactor() - 1) / resampler.getDownFactor();
+		}
+		this.sourceBytes = new byte[BLOCK_FRAMES * 2 * sourceChannels];
+		this.samples = new float[BLOCK_FRAMES * channels];
+	}
+
+	/**
+	 * @return Format of the resampled stream
+	 */
+	public AudioFormat getFormat() {
+		return format;
+	}
+
+	/**
+	 * @return Number of resampled frames or AudioSystem.NOT_SPECIFIED if the length of the source is unknown
+	 */
+	public long getFrameLength() {
+		return frameLength;
+	}
+
+	public int read() throws IOException {
+		while(position == length) {
+			if(!resampleNextBlock()) {
+				return -1;
+			}
+		}
+		return block[position++] & 0xff;
+	}
+
+	public int read(byte[] b, int off, int len) throws IOException {
+		if(len == 0) {
+			return 0;
+		}
+		int read = 0;
+		while(read < len) {
+			if(position == length && !resampleNextBlock()) {
+				break;
+			}
+			int count = Math.min(len - read, length - position);
+			System.arraycopy(block, position, b, off + read, count);
+			position += count;
+			read += count;
+		}
+		return read == 0 ? -1 : read;
+	}
+
+	public int available() {
+		return length - position;
+	}
+
+	public void close() throws IOException {
+		source.close();
+	}
+
+	/**
+	 * Reads and resamples the next block of the source
+	 * @return False if the stream has no further samples
+	 */
+	private boolean resampleNextBlock() throws IOException {
+		if(finished) {
+			return false;
+		}
+		int frameSize = 2 * sourceChannels;
+		int bytes = 0;
+
+		// Some converted streams are closed after their end, so they are not read again
+		while(!sourceFinished && bytes < sourceBytes.length) {
+			int read = source.read(sourceBytes, bytes, sourceBytes.length - bytes);
+			if(read == -1) {
+				sourceFinished = true;
+			} else {
+				bytes += read;
+			}
+		}
+		int frames = bytes / frameSize;
+		toFloat(frames);
+
+		// The bound covers also the frames returned by flush()
+		int maxFrames = resampler.getMaxOutputFrames(frames);
+		if(resampled.length < maxFrames * channels) {
+			resampled = new float[maxFrames * channels];
+		}
+		int outputFrames = resampler.process(samples, 0, frames, resampled, 0);
+		if(sourceFinished) {
+			outputFrames += resampler.flush(resampled, outputFrames * channels);
+			finished = true;
+		}
+		toBytes(outputFrames * channels);
+		return length > 0 || !finished;
+	}
+
+	/**
+	 * Converts the read frames to float samples and averages the channels if required
+	 */
+	private void toFloat(int frames) {
+		if(channels == sourceChannels) {
+			for(int i=0;i<frames*channels;i++) {
+				samples[i] = ((sourceBytes[2 * i] & 0xff) | (sourceBytes[2 * i + 1] << 8)) / 32768f;
+			}
+		} else {
+			for(int f=0;f<frames;f++) {
+				float sum = 0f;
+				for(int c=0;c<sourceChannels;c++) {
+					int i = f * sourceChannels + c;
+					sum += ((sourceBytes[2 * i] & 0xff) | (sourceBytes[2 * i + 1] << 8)) / 32768f;
+				}
+				samples[f] = sum / sourceChannels;
+			}
+		}
+	}
+
+	/**
+	 * Rounds and clips the resampled samples to the bytes of the current block
+	 */
+	private void toBytes(int numberOfSamples) {
+		if(block.length < 2 * numberOfSamples) {
+			block = new byte[2 * numberOfSamples];
+		}
+		for(int i=0;i<numberOfSamples;i++) {
+			int value = Math.round(resampled[i] * 32768f);
+			if(value > Short.MAX_VALUE) {
+				value = Short.MAX_VALUE;
+			} else if(value < Short.MIN_VALUE) {
+				value = Short.MIN_VALUE;
+			}
+			block[2 * i] = (byte)value;
+			block[2 * i + 1] = (byte)(value >> 8);
+		}
+		position = 0;
+		length = 2 * numberOfSamples;
+	}
+}
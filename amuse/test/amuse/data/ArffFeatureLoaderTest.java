@@ -0,0 +1,327 @@
+/**
+ * This file is part of AMUSE framework (Advanced MUsic Explorer).
+ *
+ * Copyright 2006-2010 by code authors
+ *
+ * Created at TU Dortmund, Chair of Algorithm Engineering
+ * (Contact: <http://ls11-www.cs.tu-dortmund.de>)
+ *
+ * AMUSE is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * AMUSE is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with AMUSE. If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Creation date: 17.10.2026
+ */
+
+package amuse.data;
+
+import amuse.interfaces.nodes.NodeException;
+import amuse.util.FileOperations;
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.FileReader;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Locale;
+import java.util.Random;
+import java.util.StringTokenizer;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * Compares the feature loader with the former line based loader on feature
+ * files in different formats.
+ *
+ * @version $Id$
+ */
+public class ArffFeatureLoaderTest {
+
+    private static final File featureFolder = new File("test/featureloader/");
+
+    @BeforeClass
+    public static void setUpClass() {
+        featureFolder.mkdirs();
+    }
+
+    @AfterClass
+    public static void tearDownClass() {
+        FileOperations.delete(featureFolder, true);
+    }
+
+    @Test
+    public void testParseDouble() {
+        Random random = new Random(3);
+        String[] fixed = {"0", "-0", "0.0", "-0.0", "1", "1.", ".5", "+2.5", "1e5", "1E-5", "-1.5e+3", "123456789012345678",
+            "1234567890123456789", "0.1", "0.30000000000000004", "4.9E-324", "1.7976931348623157E308", "1e400", "1e-400",
+            "9007199254740993", "100.500", "0.000123", " 7 ", "Infinity", "-Infinity", "1d", "0x1p3", "2.2250738585072014E-308"};
+        for (String value : fixed) {
+            assertParsed(value);
+        }
+        for (int i = 0; i < 100000; i++) {
+            double value = Double.longBitsToDouble(random.nextLong());
+            if (Double.isNaN(value)) {
+                continue;
+            }
+            assertParsed(Double.toString(value));
+            double scaled = random.nextGaussian() * Math.pow(10, random.nextInt(20) - 10);
+            assertParsed(Double.toString(scaled));
+            assertParsed(String.format(Locale.ENGLISH, "%.6f", scaled));
+            assertParsed(String.format(Locale.ENGLISH, "%.8e", scaled));
+            assertParsed(Integer.toString(random.nextInt()));
+        }
+        assertTrue(Double.isNaN(parse("?")));
+        assertTrue(Double.isNaN(parse("NaN")));
+        assertTrue(Double.isNaN(parse("nan")));
+    }
+
+    @Test
+    public void testSameFeaturesAsFormerLoader() throws Exception {
+        Random random = new Random(5);
+        String[] lineSeparators = {"\n", "\r\n"};
+        for (int i = 0; i < 40; i++) {
+            int dimensions = 1 + random.nextInt(12);
+            boolean withWindowNumber = i % 4 != 3;
+            String lineSeparator = lineSeparators[i % 2];
+            StringBuilder content = new StringBuilder();
+            content.append("@RELATION 'Music feature'").append(lineSeparator);
+            content.append("%rows=").append(dimensions).append(lineSeparator);
+            content.append("%columns=").append(100 + i).append(lineSeparator);
+            content.append("%sample_rate=22050").append(lineSeparator);
+            content.append("%window_size=").append(512 * (1 + i % 3)).append(lineSeparator).append(lineSeparator);
+            for (int d = 0; d < dimensions; d++) {
+                content.append(i % 2 == 0 ? "@ATTRIBUTE 'Spectral centroid' NUMERIC" : "@attribute \"MFCC\" NUMERIC").append(lineSeparator);
+            }
+            if (withWindowNumber) {
+                content.append(i % 3 == 0 ? "@ATTRIBUTE WindowNumber NUMERIC" : "@attribute 'WindowNumber' numeric").append(lineSeparator);
+            }
+            content.append(lineSeparator).append("@DATA").append(lineSeparator);
+            for (int w = 1; w <= 100 + i; w++) {
+                if (w % 37 == 0) {
+                    content.append("% comment").append(lineSeparator).append(lineSeparator);
+                }
+                for (int d = 0; d < dimensions; d++) {
+                    content.append(randomValue(random)).append(",");
+                }
+                if (withWindowNumber) {
+                    content.append(w % 5 == 0 ? w + ".0" : Integer.toString(w));
+                }
+                content.append(lineSeparator);
+            }
+            File file = write("feature_" + i + ".arff", content.toString());
+
+            assertFeaturesEqual(loadWithFormerLoader(file.getPath()), ArffFeatureLoader.loadFeature(file.getPath()));
+        }
+    }
+
+    @Test
+    public void testMissingValues() throws Exception {
+        File file = write("missing_3.arff", "@ATTRIBUTE 'Zero crossing rate' NUMERIC\n@ATTRIBUTE WindowNumber NUMERIC\n@DATA\n"
+                + "?,1\nNaN,2\n0.5,3");
+        Feature feature = ArffFeatureLoader.loadFeature(file.getPath());
+        assertEquals(3, feature.getId());
+        assertEquals("Zero crossing rate", feature.getDescription());
+        assertEquals(3, feature.getValues().size());
+        assertTrue(feature.getValues().get(0)[0].isNaN());
+        assertTrue(feature.getValues().get(1)[0].isNaN());
+        assertEquals(0.5, feature.getValues().get(2)[0], 0d);
+        assertEquals(3d, feature.getWindows().get(2), 0d);
+    }
+
+    @Test(expected = NodeException.class)
+    public void testMissingDataSection() throws Exception {
+        ArffFeatureLoader.loadFeature(write("nodata_1.arff", "@ATTRIBUTE 'Feature' NUMERIC\n").getPath());
+    }
+
+    @Test
+    public void testLargeFeature() throws Exception {
+        Random random = new Random(9);
+        StringBuilder content = new StringBuilder("%columns=50000\n%sample_rate=22050\n%window_size=512\n");
+        for (int d = 0; d < 13; d++) {
+            content.append("@ATTRIBUTE 'MFCC' NUMERIC\n");
+        }
+        content.append("@ATTRIBUTE WindowNumber NUMERIC\n@DATA\n");
+        for (int w = 1; w <= 50000; w++) {
+            for (int d = 0; d < 13; d++) {
+                content.append(d % 2 == 0 ? Double.toString(random.nextGaussian()) : String.format(Locale.ENGLISH, "%.6f", random.nextGaussian())).append(",");
+            }
+            content.append(w).append("\n");
+        }
+        File file = write("large_1.arff", content.toString());
+
+        // The file is larger than the read buffer, so values are also split between buffer refills
+        Feature feature = ArffFeatureLoader.loadFeature(file.getPath());
+        assertEquals(50000, feature.getValues().size());
+        assertEquals(13, feature.getValues().get(0).length);
+        assertFeaturesEqual(loadWithFormerLoader(file.getPath()), feature);
+    }
+
+    private static String randomValue(Random random) {
+        switch (random.nextInt(8)) {
+            case 0:
+                return "NaN";
+            case 1:
+                return String.format(Locale.ENGLISH, "%.6f", random.nextGaussian());
+            case 2:
+                return String.format(Locale.ENGLISH, "%.4E", random.nextGaussian() * 1e-9);
+            case 3:
+                return Integer.toString(random.nextInt(1000) - 500);
+            case 4:
+                return random.nextBoolean() ? "0.0" : "-0.0";
+            case 5:
+                return " " + random.nextDouble() + " ";
+            default:
+                return Double.toString(random.nextGaussian() * Math.pow(10, random.nextInt(10)));
+        }
+    }
+
+    private static void assertParsed(String value) {
+        assertEquals(value, Double.doubleToLongBits(Double.parseDouble(value)), Double.doubleToLongBits(parse(value)));
+    }
+
+    private static double parse(String value) {
+        byte[] bytes = ("," + value + ",").getBytes();
+        return ArffFeatureLoader.parseDouble(bytes, 1, bytes.length - 1);
+    }
+
+    private static File write(String fileName, String content) throws IOException {
+        File file = new File(featureFolder, fileName);
+        FileOutputStream output = new FileOutputStream(file);
+        output.write(content.getBytes("UTF-8"));
+        output.close();
+        return file;
+    }
+
+    private static void assertFeaturesEqual(Feature expected, Feature actual) {
+        assertEquals(expected.getId(), actual.getId());
+        assertEquals(expected.getDescription(), actual.getDescription());
+        assertEquals(expected.getSourceFrameSize(), actual.getSourceFrameSize());
+        assertEquals(expected.getSampleRate(), actual.getSampleRate());
+        assertEquals(expected.getWindows(), actual.getWindows());
+        assertEquals(expected.getValues().size(), actual.getValues().size());
+        for (int w = 0; w < expected.getValues().size(); w++) {
+            assertEquals(expected.getValues().get(w).length, actual.getValues().get(w).length);
+            for (int d = 0; d < expected.getValues().get(w).length; d++) {
+                assertEquals(Double.doubleToLongBits(expected.getValues().get(w)[d]),
+                        Double.doubleToLongBits(actual.getValues().get(w)[d]));
+            }
+        }
+    }
+
+    /**
+     * The loader as it was before the data section was parsed from bytes
+     */
+    private static Feature loadWithFormerLoader(String featureFile) throws NodeException {
+        ArrayList<Double[]> values;
+        ArrayList<Double> windows;
+        int numberOfValues = 0;
+        int sourceFrameSize = -1;
+        int sampleRate = -1;
+        String featureName = new String();
+        
+        FileReader featureInput = null;
+        try {
+            featureInput = new FileReader(featureFile);
+        } catch(FileNotFoundException e) {
+            throw new NodeException("Could not open the feature file: " + e.getMessage());
+        }
+        BufferedReader featureReader = new BufferedReader(featureInput);
+        
+        boolean nameFound = false;
+        
+        boolean windowNumberAttributeExisting = false;
+        
+        int dimensionNumber = 0;
+        try {
+            String line = featureReader.readLine();
+            while(!line.toLowerCase().startsWith(new String("@data"))) {
+                if(line.toLowerCase().startsWith(new String("%columns="))) {
+                    numberOfValues = new Integer(line.substring(9));
+                } else if (line.toLowerCase().startsWith(new String("%window_size="))) {
+                    sourceFrameSize = new Integer(line.substring(13)); 
+                } else if (line.toLowerCase().startsWith(new String("%sample_rate="))) {
+                    sampleRate = new Integer(line.substring(13));
+                } else if(line.toLowerCase().startsWith(new String("@attribute"))) {
+                    String lineTrimmed = line.replace("'", "");
+                    lineTrimmed = lineTrimmed.replace("\"", "");
+                    if(lineTrimmed.toLowerCase().startsWith(new String("@attribute windownumber"))) {
+                        windowNumberAttributeExisting = true;
+                    }
+                    if(!nameFound) {
+                        featureName = line.substring(line.indexOf(" ")+1,line.lastIndexOf(" "));
+                        if(featureName.startsWith("'")) {
+                            featureName = featureName.substring(1,featureName.length());
+                        }
+                        if(featureName.endsWith("'")) {
+                            featureName = featureName.substring(0,featureName.length()-1);
+                        }
+                        nameFound = true;
+                    }
+                    dimensionNumber++;
+                }
+                
+                line = featureReader.readLine();
+            }
+            
+            // Initialize the array lists
+            values = new ArrayList<Double[]>(numberOfValues);
+            windows = new ArrayList<Double>(numberOfValues);
+            
+            // Window number (the last attribute) does not count as feature dimension!
+            if(windowNumberAttributeExisting) {
+                dimensionNumber--;
+            }
+            
+            line = featureReader.readLine();
+            while(line != null) {
+                if(!line.equals("") && !line.startsWith("%")) {
+                    
+                    // Proceed the attributes
+                    StringTokenizer t = new StringTokenizer(line,",");
+                    Double[] valuesOfCurrentWindow = new Double[dimensionNumber];
+                    for(int i=0;i<dimensionNumber;i++) {
+                        String val = t.nextToken();
+                        if(val.toUpperCase().equals("NAN")) {
+                            val = "NaN";
+                        }
+                        valuesOfCurrentWindow[i] = new Double(val);
+                    }
+                    
+                    // Add time window of this feature (last attribute)
+                    if(windowNumberAttributeExisting) {
+                        windows.add(new Double(t.nextToken()));
+                    } else {
+                        windows.add(-1d);
+                    }
+                    values.add(valuesOfCurrentWindow);
+                }
+                line = featureReader.readLine();
+            }
+            
+            featureReader.close();
+            
+        } catch(IOException e) {
+            throw new NodeException("Could not read from the feature file: " + e.getMessage());
+        }
+        
+        // Create the Feature object and set the frame size
+        ArrayList<Integer> id = new ArrayList<Integer>(1);
+        id.add(new Integer(featureFile.substring(featureFile.lastIndexOf("_")+1,featureFile.lastIndexOf("."))));
+        Feature loadedFeature = new Feature(id, featureName, values, windows);
+        loadedFeature.setSourceFrameSize(sourceFrameSize);
+        loadedFeature.setSampleRate(sampleRate);
+        return loadedFeature;
+    }
+}
@@ -0,0 +1,260 @@
+/**
+ * This file is part of AMUSE framework (Advanced MUsic Explorer).
+ *
+ * Copyright 2006-2010 by code authors
+ *
+ * Created at TU Dortmund, Chair of Algorithm Engineering
+ * (Contact: <http://ls11-www.cs.tu-dortmund.de>)
+ *
+ * AMUSE is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * AMUSE is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with AMUSE. If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Creation date: 17.10.2026
+ */
+
+package amuse.data;
+
+import amuse.data.io.ArffDataSet;
+import amuse.data.io.DataSetAbstract;
+import amuse.util.FileOperations;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.Locale;
+import java.util.Random;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * Converts feature files and processed feature files to binary feature files
+ * and checks that the same values are loaded from both formats.
+ *
+ * @version $Id$
+ */
+public class BinaryFeatureFileTest {
+
+    private static final File testFolder = new File("test/binaryfeatures/");
+
+    @Before
+    public void setUp() {
+        testFolder.mkdirs();
+    }
+
+    @After
+    public void tearDown() {
+        FileOperations.delete(testFolder, true);
+    }
+
+    @Test
+    public void testFeatureRoundTrip() throws Exception {
+        File arffFile = new File(testFolder, "song_12.arff");
+        writeFeature(arffFile, 3, 500, true, new Random(1));
+        Feature expected = ArffFeatureLoader.loadFeatureFromArff(arffFile.getPath());
+
+        BinaryFeatureFile.convert(arffFile);
+        File binaryFile = BinaryFeatureFile.getBinaryFile(arffFile);
+        assertEquals(new File(testFolder, "song_12.bin"), binaryFile);
+        assertTrue(BinaryFeatureFile.isUpToDate(arffFile));
+        assertFeaturesEqual(expected, BinaryFeatureFile.loadFeature(binaryFile));
+        assertFeaturesEqual(expected, ArffFeatureLoader.loadFeature(arffFile.getPath()));
+    }
+
+    @Test
+    public void testFeatureWithoutWindowNumbers() throws Exception {
+        File arffFile = new File(testFolder, "song_419.arff");
+        writeFeature(arffFile, 1, 20, false, new Random(2));
+        Feature expected = ArffFeatureLoader.loadFeatureFromArff(arffFile.getPath());
+        BinaryFeatureFile.convert(arffFile);
+        assertFeaturesEqual(expected, BinaryFeatureFile.loadFeature(BinaryFeatureFile.getBinaryFile(arffFile)));
+    }
+
+    @Test
+    public void testSpecialValues() throws Exception {
+        double[] specialValues = {Double.NaN, 0d, -0d, Double.MIN_VALUE, Double.MAX_VALUE, -Double.MAX_VALUE,
+                Double.POSITIVE_INFINITY, Double.NEGATIVE_INFINITY, 1e-300, 0.1, 123456789.123456789};
+        ArrayList<Double[]> values = new ArrayList<Double[]>();
+        ArrayList<Double> windows = new ArrayList<Double>();
+        for (int i = 0; i < specialValues.length; i++) {
+            values.add(new Double[]{specialValues[i], -specialValues[i]});
+            windows.add(i + 0.5);
+        }
+        ArrayList<Integer> ids = new ArrayList<Integer>();
+        ids.add(7);
+        ids.add(8);
+        Feature expected = new Feature(ids, "Sp\u00e9cial feature", values, windows);
+        expected.setSampleRate(44100);
+        expected.setSourceFrameSize(1024);
+
+        File binaryFile = new File(testFolder, "special.bin");
+        BinaryFeatureFile.saveFeature(expected, binaryFile);
+        Feature loaded = BinaryFeatureFile.loadFeature(binaryFile);
+        assertFeaturesEqual(expected, loaded);
+        assertEquals(ids, loaded.getIds());
+    }
+
+    @Test
+    public void testProcessedFeaturesRoundTrip() throws Exception {
+        File arffFile = new File(testFolder, "song_1__2__1000ms_500ms.arff");
+        writeProcessedFeatures(arffFile, 4, 50, new Random(3));
+        DataSetAbstract expected = new ArffDataSet(arffFile);
+
+        BinaryFeatureFile.convert(arffFile);
+        assertDataSetsEqual(expected, BinaryFeatureFile.loadProcessedFeatures(BinaryFeatureFile.getBinaryFile(arffFile)));
+        assertDataSetsEqual(expected, BinaryFeatureFile.loadProcessedFeaturesFromDatabase(arffFile));
+    }
+
+    @Test
+    public void testNewerArffFileIsPreferred() throws Exception {
+        File arffFile = new File(testFolder, "song_4.arff");
+        writeFeature(arffFile, 2, 100, true, new Random(4));
+        BinaryFeatureFile.convert(arffFile);
+
+        // The ARFF file is changed after the binary file has been saved
+        writeFeature(arffFile, 2, 100, true, new Random(5));
+        arffFile.setLastModified(BinaryFeatureFile.getBinaryFile(arffFile).lastModified() + 2000);
+        assertFalse(BinaryFeatureFile.isUpToDate(arffFile));
+        assertFeaturesEqual(ArffFeatureLoader.loadFeatureFromArff(arffFile.getPath()),
+                ArffFeatureLoader.loadFeature(arffFile.getPath()));
+    }
+
+    @Test
+    public void testDamagedBinaryFileIsIgnored() throws Exception {
+        File arffFile = new File(testFolder, "song_5.arff");
+        writeFeature(arffFile, 2, 100, true, new Random(6));
+        BinaryFeatureFile.convert(arffFile);
+        File binaryFile = BinaryFeatureFile.getBinaryFile(arffFile);
+        RandomAccessFile truncatedFile = new RandomAccessFile(binaryFile, "rw");
+        truncatedFile.setLength(truncatedFile.length() / 2);
+        truncatedFile.close();
+        binaryFile.setLastModified(arffFile.lastModified() + 2000);
+
+        try {
+            BinaryFeatureFile.loadFeature(binaryFile);
+            fail("Damaged binary file is loaded");
+        } catch (IOException e) {
+            // Expected
+        }
+        assertFeaturesEqual(ArffFeatureLoader.loadFeatureFromArff(arffFile.getPath()),
+                ArffFeatureLoader.loadFeature(arffFile.getPath()));
+    }
+
+    @Test
+    public void testConverterTool() throws Exception {
+        File folder = new File(testFolder, "database" + File.separator + "album" + File.separator + "song");
+        folder.mkdirs();
+        writeFeature(new File(folder, "song_1.arff"), 1, 10, true, new Random(7));
+        writeFeature(new File(folder, "song_2.arff"), 2, 10, true, new Random(8));
+        FileWriter writer = new FileWriter(new File(folder, "song_3.arff"));
+        writer.write("@RELATION 'Music feature'\n@ATTRIBUTE 'Chord' STRING\n@DATA\nC-major\n");
+        writer.close();
+
+        BinaryFeatureFile.main(new String[]{new File(testFolder, "database").getPath()});
+        assertTrue(new File(folder, "song_1.bin").exists());
+        assertTrue(new File(folder, "song_2.bin").exists());
+        assertFalse(new File(folder, "song_3.bin").exists());
+    }
+
+    private static void writeFeature(File file, int dimensions, int windows, boolean withWindowNumbers, Random random)
+            throws IOException {
+        FileWriter writer = new FileWriter(file);
+        writer.write("@RELATION 'Music feature'\n");
+        writer.write("%rows=" + dimensions + "\n%columns=" + windows + "\n%sample_rate=22050\n%window_size=512\n\n");
+        for (int d = 0; d < dimensions; d++) {
+            writer.write("@ATTRIBUTE 'Test feature' NUMERIC\n");
+        }
+        if (withWindowNumbers) {
+            writer.write("@ATTRIBUTE WindowNumber NUMERIC\n");
+        }
+        writer.write("\n@DATA\n");
+        for (int w = 1; w <= windows; w++) {
+            for (int d = 0; d < dimensions; d++) {
+                if (d > 0) {
+                    writer.write(",");
+                }
+                writer.write(randomValue(random));
+            }
+            writer.write(withWindowNumbers ? "," + w + "\n" : "\n");
+        }
+        writer.close();
+    }
+
+    private static void writeProcessedFeatures(File file, int numberOfFeatures, int partitions, Random random)
+            throws IOException {
+        FileWriter writer = new FileWriter(file);
+        writer.write("@RELATION 'Classifier input'\n%initialNumberOfUsedRawTimeWindows=100\n\n");
+        for (int f = 0; f < numberOfFeatures; f++) {
+            writer.write("@ATTRIBUTE 'Quartile" + f + "(Feature " + f + ")' NUMERIC\n");
+        }
+        writer.write("@ATTRIBUTE Unit {milliseconds,samples}\n@ATTRIBUTE Start NUMERIC\n@ATTRIBUTE End NUMERIC\n\n@DATA\n");
+        for (int p = 0; p < partitions; p++) {
+            for (int f = 0; f < numberOfFeatures; f++) {
+                writer.write(randomValue(random) + ",");
+            }
+            writer.write("milliseconds," + (p * 500d) + "," + (p * 500d + 1000d) + "\n");
+        }
+        writer.close();
+    }
+
+    private static String randomValue(Random random) {
+        switch (random.nextInt(6)) {
+            case 0:
+                return "NaN";
+            case 1:
+                return "?";
+            case 2:
+                return Integer.toString(random.nextInt(1000) - 500);
+            case 3:
+                return String.format(Locale.US, "%.6f", random.nextGaussian());
+            default:
+                return Double.toString(random.nextGaussian() * Math.pow(10, random.nextInt(20) - 10));
+        }
+    }
+
+    private static void assertFeaturesEqual(Feature expected, Feature actual) {
+        assertEquals(expected.getIds(), actual.getIds());
+        assertEquals(expected.getDescription(), actual.getDescription());
+        assertEquals(expected.getDimension(), actual.getDimension());
+        assertEquals(expected.getSampleRate(), actual.getSampleRate());
+        assertEquals(expected.getSourceFrameSize(), actual.getSourceFrameSize());
+        assertEquals(expected.getWindows(), actual.getWindows());
+        assertEquals(expected.getValues().size(), actual.getValues().size());
+        for (int w = 0; w < expected.getValues().size(); w++) {
+            assertEquals(expected.getDimension(), actual.getValues().get(w).length);
+            for (int d = 0; d < expected.getDimension(); d++) {
+                assertEquals(Double.doubleToRawLongBits(expected.getValues().get(w)[d]),
+                        Double.doubleToRawLongBits(actual.getValues().get(w)[d]));
+            }
+        }
+    }
+
+    private static void assertDataSetsEqual(DataSetAbstract expected, DataSetAbstract actual) throws Exception {
+        assertEquals(expected.getAttributeNames(), actual.getAttributeNames());
+        assertEquals(expected.getValueCount(), actual.getValueCount());
+        for (int a = 0; a < expected.getAttributeCount(); a++) {
+            for (int v = 0; v < expected.getValueCount(); v++) {
+                Object expectedValue = expected.getAttribute(a).getValueAt(v);
+                Object actualValue = actual.getAttribute(a).getValueAt(v);
+                if (expectedValue instanceof Double) {
+                    assertEquals(Double.doubleToRawLongBits((Double) expectedValue),
+                            Double.doubleToRawLongBits((Double) actualValue));
+                } else {
+                    assertEquals(expectedValue, actualValue);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,177 @@
+/**
+ * This file is part of AMUSE framework (Advanced MUsic Explorer).
+ *
+ * Copyright 2006-2010 by code authors
+ *
+ * Created at TU Dortmund, Chair of Algorithm Engineering
+ * (Contact: <http://ls11-www.cs.tu-dortmund.de>)
+ *
+ * AMUSE is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * AMUSE is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with AMUSE. If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Creation date: 17.10.2026
+ */
+
+package amuse.data;
+
+import amuse.util.FileOperations;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * Checks that the feature cache returns independent copies of the loaded
+ * features, loads changed feature files again and removes the least
+ * recently used features if its size is exceeded.
+ *
+ * @version $Id$
+ */
+public class FeatureCacheTest {
+
+    private static final File testFolder = new File("test/featurecache/");
+
+    @Before
+    public void setUp() {
+        testFolder.mkdirs();
+    }
+
+    @After
+    public void tearDown() {
+        FileOperations.delete(testFolder, true);
+    }
+
+    @Test
+    public void testHitsReturnCopies() throws Exception {
+        File file = writeFeature("song_1.arff", 100, 1);
+        FeatureCache cache = new FeatureCache(1 << 20);
+
+        Feature first = cache.getFeature(file.getPath());
+        assertEquals(0, cache.getHits());
+        assertEquals(1, cache.getMisses());
+        assertEquals(1, cache.getNumberOfFeatures());
+
+        // The processing steps change the loaded features
+        first.getValues().get(0)[0] = -1d;
+        first.getWindows().remove(1);
+
+        Feature second = cache.getFeature(file.getPath());
+        assertEquals(1, cache.getHits());
+        assertNotSame(first, second);
+        assertFeaturesEqual(ArffFeatureLoader.loadFeatureFromArff(file.getPath()), second);
+    }
+
+    @Test
+    public void testChangedFileIsLoadedAgain() throws Exception {
+        File file = writeFeature("song_2.arff", 100, 1);
+        FeatureCache cache = new FeatureCache(1 << 20);
+        cache.getFeature(file.getPath());
+
+        // Same length, but a later modification time
+        long lastModified = file.lastModified();
+        writeFeature("song_2.arff", 100, 7);
+        file.setLastModified(lastModified + 2000);
+        Feature changed = cache.getFeature(file.getPath());
+        assertEquals(1, cache.getInvalidations());
+        assertEquals(2, cache.getMisses());
+        assertEquals(0, cache.getHits());
+        assertFeaturesEqual(ArffFeatureLoader.loadFeatureFromArff(file.getPath()), changed);
+
+        // Other length, but the same modification time
+        lastModified = file.lastModified();
+        writeFeature("song_2.arff", 120, 7);
+        file.setLastModified(lastModified);
+        changed = cache.getFeature(file.getPath());
+        assertEquals(2, cache.getInvalidations());
+        assertEquals(120, changed.getValues().size());
+
+        cache.getFeature(file.getPath());
+        assertEquals(1, cache.getHits());
+        assertEquals(1, cache.getNumberOfFeatures());
+    }
+
+    @Test
+    public void testLeastRecentlyUsedFeatureIsRemoved() throws Exception {
+        File first = writeFeature("song_3.arff", 1000, 1);
+        File second = writeFeature("song_4.arff", 1000, 2);
+        File third = writeFeature("song_5.arff", 1000, 3);
+
+        // Measure the size of one feature
+        FeatureCache cache = new FeatureCache(1 << 20);
+        cache.getFeature(first.getPath());
+        long featureSize = cache.getSize();
+        assertTrue(featureSize >= 2 * 1000 * 8);
+
+        cache = new FeatureCache(2 * featureSize + featureSize / 2);
+        cache.getFeature(first.getPath());
+        cache.getFeature(second.getPath());
+        cache.getFeature(first.getPath());
+        cache.getFeature(third.getPath());
+        assertEquals(1, cache.getEvictions());
+        assertEquals(2, cache.getNumberOfFeatures());
+        assertTrue(cache.getSize() <= 2 * featureSize + featureSize / 2);
+
+        // The second feature has been removed
+        cache.getFeature(first.getPath());
+        cache.getFeature(third.getPath());
+        assertEquals(3, cache.getHits());
+        cache.getFeature(second.getPath());
+        assertEquals(4, cache.getMisses());
+
+        // Reducing the size removes further features
+        cache.setMaximalSize(featureSize);
+        assertEquals(1, cache.getNumberOfFeatures());
+    }
+
+    @Test
+    public void testDisabledCache() throws Exception {
+        File file = writeFeature("song_6.arff", 10, 1);
+        FeatureCache cache = new FeatureCache(0);
+        cache.getFeature(file.getPath());
+        cache.getFeature(file.getPath());
+        assertEquals(0, cache.getHits());
+        assertEquals(2, cache.getMisses());
+        assertEquals(0, cache.getNumberOfFeatures());
+        assertEquals(0, cache.getSize());
+    }
+
+    private static File writeFeature(String name, int windows, int seed) throws IOException {
+        File file = new File(testFolder, name);
+        FileWriter writer = new FileWriter(file);
+        writer.write("@RELATION 'Music feature'\n%rows=2\n%columns=" + windows + "\n%sample_rate=22050\n%window_size=512\n\n");
+        writer.write("@ATTRIBUTE 'Test feature' NUMERIC\n@ATTRIBUTE 'Test feature' NUMERIC\n");
+        writer.write("@ATTRIBUTE WindowNumber NUMERIC\n\n@DATA\n");
+        for (int w = 1; w <= windows; w++) {
+            writer.write((w * seed % 10) + ".5," + (w % 10) + ".25," + w + "\n");
+        }
+        writer.close();
+        return file;
+    }
+
+    private static void assertFeaturesEqual(Feature expected, Feature actual) {
+        assertEquals(expected.getIds(), actual.getIds());
+        assertEquals(expected.getDescription(), actual.getDescription());
+        assertEquals(expected.getDimension(), actual.getDimension());
+        assertEquals(expected.getSampleRate(), actual.getSampleRate());
+        assertEquals(expected.getSourceFrameSize(), actual.getSourceFrameSize());
+        assertEquals(expected.getHistoryAsString(), actual.getHistoryAsString());
+        assertEquals(expected.getWindows(), actual.getWindows());
+        assertEquals(expected.getValues().size(), actual.getValues().size());
+        for (int w = 0; w < expected.getValues().size(); w++) {
+            assertArrayEquals(expected.getValues().get(w), actual.getValues().get(w));
+        }
+    }
+}
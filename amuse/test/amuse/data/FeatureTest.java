@@ -0,0 +1,99 @@
+/**
+ * This file is part of AMUSE framework (Advanced MUsic Explorer).
+ *
+ * Copyright 2006-2010 by code authors
+ *
+ * Created at TU Dortmund, Chair of Algorithm Engineering
+ * (Contact: <http://ls11-www.cs.tu-dortmund.de>)
+ *
+ * AMUSE is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * AMUSE is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with AMUSE. If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Creation date: 17.10.2026
+ */
+
+package amuse.data;
+
+import java.util.ArrayList;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * Checks the look up of feature values by time windows for contiguous,
+ * pruned, fractional and unsorted time windows.
+ *
+ * @version $Id$
+ */
+public class FeatureTest {
+
+    @Test
+    public void testContiguousWindows() {
+        Feature feature = createFeature(1, 2, 3, 4, 5);
+        assertEquals(0, feature.getIndexOfWindow(1));
+        assertEquals(4, feature.getIndexOfWindow(5));
+        assertEquals(-1, feature.getIndexOfWindow(6));
+        assertEquals(-1, feature.getIndexOfWindow(2.5));
+        assertEquals(3d, feature.getValuesFromWindow(3)[0], 0d);
+        assertArrayEquals(new int[]{1, 2}, feature.getIndicesOfWindows(2, 4));
+        assertArrayEquals(new int[]{0, 1, 2, 3, 4}, feature.getIndicesOfWindows(0, 10));
+        assertArrayEquals(new int[0], feature.getIndicesOfWindows(6, 10));
+        assertArrayEquals(new int[0], feature.getIndicesOfWindows(3, 3));
+    }
+
+    @Test
+    public void testPrunedAndFractionalWindows() {
+        Feature feature = createFeature(2, 3, 7, 7.5, 10, 20);
+        assertEquals(2, feature.getIndexOfWindow(7));
+        assertEquals(3, feature.getIndexOfWindow(7.5));
+        assertEquals(5, feature.getIndexOfWindow(20));
+        assertEquals(-1, feature.getIndexOfWindow(4));
+        assertArrayEquals(new int[]{2, 3}, feature.getIndicesOfWindows(4, 10));
+        assertArrayEquals(new int[]{3, 4}, feature.getIndicesOfWindows(7.5, 11));
+    }
+
+    @Test
+    public void testChangedAndUnsortedWindows() {
+        Feature feature = createFeature(1, 2, 3);
+        assertEquals(2, feature.getIndexOfWindow(3));
+
+        // Windows are added after the first look up
+        feature.getWindows().add(4d);
+        feature.getValues().add(new Double[]{4d});
+        assertEquals(3, feature.getIndexOfWindow(4));
+
+        // The first window of a complete song is changed
+        feature.getWindows().set(0, 5d);
+        assertEquals(0, feature.getIndexOfWindow(5));
+        assertArrayEquals(new int[]{1, 2, 3}, feature.getIndicesOfWindows(2, 5));
+        assertArrayEquals(new int[]{0, 1, 2, 3}, feature.getIndicesOfWindows(0, 10));
+    }
+
+    @Test
+    public void testDuplicateWindowsReturnFirstValues() {
+        Feature feature = createFeature(1, 2, 2, 3);
+        assertEquals(1, feature.getIndexOfWindow(2));
+        assertArrayEquals(new int[]{1, 2}, feature.getIndicesOfWindows(2, 3));
+    }
+
+    private static Feature createFeature(double... windows) {
+        ArrayList<Double[]> values = new ArrayList<Double[]>();
+        ArrayList<Double> windowList = new ArrayList<Double>();
+        for (double window : windows) {
+            values.add(new Double[]{window});
+            windowList.add(window);
+        }
+        ArrayList<Integer> ids = new ArrayList<Integer>();
+        ids.add(0);
+        return new Feature(ids, "Test feature", values, windowList);
+    }
+}
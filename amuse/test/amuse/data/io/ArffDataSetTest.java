@@ -0,0 +1,156 @@
+/**
+ * This file is part of AMUSE framework (Advanced MUsic Explorer).
+ *
+ * Copyright 2006-2010 by code authors
+ *
+ * Created at TU Dortmund, Chair of Algorithm Engineering
+ * (Contact: <http://ls11-www.cs.tu-dortmund.de>)
+ *
+ * AMUSE is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * AMUSE is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with AMUSE. If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Creation date: 17.10.2026
+ */
+
+package amuse.data.io;
+
+import amuse.data.io.attributes.Attribute;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.Random;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * Tests the block-indexed random row access of ArffDataSet on a generated
+ * processed-feature like file.
+ *
+ * @version $Id$
+ */
+public class ArffDataSetTest {
+
+    private static final int rowCount = 200000;
+    private static final int linesPerBlock = 1024;
+    private static File file;
+
+    @BeforeClass
+    public static void setUpClass() throws IOException {
+        file = File.createTempFile("arffDataSetTest", ".arff");
+        BufferedWriter writer = new BufferedWriter(new FileWriter(file));
+        writer.write("%@Comment=Generated for ArffDataSetTest\n");
+        writer.write("@RELATION 'Processed features'\n\n");
+        writer.write("@ATTRIBUTE 'Feature 1' NUMERIC\n");
+        writer.write("@ATTRIBUTE 'Feature 2' NUMERIC\n");
+        writer.write("@ATTRIBUTE 'Path' STRING\n");
+        writer.write("@ATTRIBUTE 'Category' {'a','b'}\n\n");
+        writer.write("@DATA\n");
+        for (int i = 0; i < rowCount; i++) {
+            // Empty and comment lines must not shift the row numbering:
+            if (i % 1000 == 0) {
+                writer.write("\n% comment line\n");
+            }
+            writer.write(i + "," + (i % 7 == 0 ? "?" : String.valueOf(i * 0.5)) + ",'track" + (i % 3) + ".mp3',"
+                    + (i % 2 == 0 ? "a" : "b") + (i % 5 == 0 ? "\r\n" : "\n"));
+        }
+        writer.close();
+    }
+
+    @AfterClass
+    public static void tearDownClass() {
+        file.delete();
+    }
+
+    @Test
+    public void testRandomAccess() throws IOException {
+        ArffDataSet dataSet = new ArffDataSet(file, linesPerBlock, 2);
+        assertEquals(rowCount, dataSet.getValueCount());
+        Attribute first = dataSet.getAttribute("Feature 1");
+        Attribute second = dataSet.getAttribute("Feature 2");
+        Attribute path = dataSet.getAttribute("Path");
+        Attribute category = dataSet.getAttribute("Category");
+        Random random = new Random(42);
+        for (int n = 0; n < 2000; n++) {
+            int i = random.nextInt(rowCount);
+            assertEquals((double) i, (Double) first.getValueAt(i), 0d);
+            if (i % 7 == 0) {
+                assertTrue(Double.isNaN((Double) second.getValueAt(i)));
+            } else {
+                assertEquals(i * 0.5, (Double) second.getValueAt(i), 0d);
+            }
+            assertEquals("track" + (i % 3) + ".mp3", path.getValueAt(i));
+            assertEquals(i % 2 == 0 ? "a" : "b", category.getValueAt(i));
+        }
+        // Last row and block boundaries:
+        assertEquals((double) (rowCount - 1), (Double) first.getValueAt(rowCount - 1), 0d);
+        assertEquals((double) linesPerBlock, (Double) first.getValueAt(linesPerBlock), 0d);
+        assertEquals((double) (linesPerBlock - 1), (Double) first.getValueAt(linesPerBlock - 1), 0d);
+    }
+
+    @Test
+    public void testWalkingAttributesInTurn() throws IOException {
+        ArffDataSet dataSet = new ArffDataSet(file, linesPerBlock);
+        double sum = 0;
+        for (String name : new String[] {"Feature 1", "Feature 2"}) {
+            Attribute attribute = dataSet.getAttribute(name);
+            for (int i = 0; i < 10 * linesPerBlock; i++) {
+                double value = (Double) attribute.getValueAt(i);
+                if (!Double.isNaN(value)) {
+                    sum += value;
+                }
+            }
+        }
+        double expected = 0;
+        for (int i = 0; i < 10 * linesPerBlock; i++) {
+            expected += i + (i % 7 == 0 ? 0 : i * 0.5);
+        }
+        assertEquals(expected, sum, 0d);
+    }
+
+    @Test
+    public void testBlockIndex() throws IOException {
+        ArffDataSet dataSet = new ArffDataSet(file, linesPerBlock, 1);
+        long[] offsets = dataSet.getBlockOffsets();
+        assertEquals((rowCount + linesPerBlock - 1) / linesPerBlock, offsets.length);
+        // Every offset points to the start of the first row of its block
+        RandomAccessFile randomAccessFile = new RandomAccessFile(file, "r");
+        try {
+            for (int block = 0; block < offsets.length; block++) {
+                if (block > 0) {
+                    assertTrue(offsets[block] > offsets[block - 1]);
+                }
+                randomAccessFile.seek(offsets[block]);
+                String line = randomAccessFile.readLine();
+                assertTrue(line, line.startsWith(block * linesPerBlock + ","));
+            }
+        } finally {
+            randomAccessFile.close();
+        }
+
+        // With a single resident block, each of these accesses loads its block from the index
+        Attribute first = dataSet.getAttribute("Feature 1");
+        Attribute second = dataSet.getAttribute("Feature 2");
+        for (int i : new int[] {rowCount - 1, 0, rowCount / 2 + 3, linesPerBlock, rowCount - linesPerBlock}) {
+            assertEquals((double) i, (Double) first.getValueAt(i), 0d);
+            if (i % 7 == 0) {
+                assertTrue(Double.isNaN((Double) second.getValueAt(i)));
+            } else {
+                assertEquals(i * 0.5, (Double) second.getValueAt(i), 0d);
+            }
+        }
+    }
+}
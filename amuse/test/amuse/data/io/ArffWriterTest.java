@@ -0,0 +1,200 @@
+/**
+ * This file is part of AMUSE framework (Advanced MUsic Explorer).
+ *
+ * Copyright 2006-2010 by code authors
+ *
+ * Created at TU Dortmund, Chair of Algorithm Engineering
+ * (Contact: <http://ls11-www.cs.tu-dortmund.de>)
+ *
+ * AMUSE is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * AMUSE is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with AMUSE. If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Creation date: 17.10.2026
+ */
+
+package amuse.data.io;
+
+import amuse.data.io.attributes.Attribute;
+import amuse.data.io.attributes.NominalAttribute;
+import amuse.data.io.attributes.NumericAttribute;
+import amuse.data.io.attributes.StringAttribute;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * Compares the number formatting of ArffWriter with Double.toString() and the
+ * ARFF files written by ArffDataSet with the output of the former
+ * StringBuilder based implementation.
+ *
+ * @version $Id$
+ */
+public class ArffWriterTest {
+
+    private static File folder;
+
+    @BeforeClass
+    public static void setUpClass() throws IOException {
+        folder = Files.createTempDirectory("arffWriterTest").toFile();
+    }
+
+    @AfterClass
+    public static void tearDownClass() {
+        for (File file : folder.listFiles()) {
+            file.delete();
+        }
+        folder.delete();
+    }
+
+    @Test
+    public void testSpecialValues() throws IOException {
+        double[] values = {0d, -0d, 1d, -1d, 0.1, 0.5, 100d, 1e7, 1e-3, 9.999999e-4, 1234567.0, 1.0E-5,
+                Double.NaN, Double.POSITIVE_INFINITY, Double.NEGATIVE_INFINITY, Double.MIN_VALUE,
+                Double.MAX_VALUE, Double.MIN_NORMAL, -Double.MAX_VALUE, 22050d, 0.3};
+        for (double value : values) {
+            assertEquals(Double.toString(value), ArffWriter.toString(value));
+        }
+        assertEquals("0.002", ArffWriter.toString(2e-3));
+        assertEquals("1.0E23", ArffWriter.toString(1e23));
+        assertEquals("9.9E-324", ArffWriter.toString(2 * Double.MIN_VALUE));
+    }
+
+    @Test
+    public void testShortestRoundTrip() {
+        Random random = new Random(13);
+        int differences = 0;
+        for (int n = 0; n < 1000000; n++) {
+            double value;
+            switch (n % 4) {
+                case 0:
+                    value = Double.longBitsToDouble(random.nextLong());
+                    break;
+                case 1:
+                    value = random.nextGaussian();
+                    break;
+                case 2:
+                    value = random.nextGaussian() * Math.pow(10, random.nextInt(40) - 20);
+                    break;
+                default:
+                    value = random.nextInt() / 1000d;
+            }
+            String expected = Double.toString(value);
+            String actual = ArffWriter.toString(value);
+            if (!expected.equals(actual)) {
+                differences++;
+                assertEquals(actual, Double.doubleToLongBits(value), Double.doubleToLongBits(Double.parseDouble(actual)));
+                assertTrue(expected + " / " + actual, actual.length() <= expected.length());
+            }
+            if (n % 4 == 1) {
+                assertEquals(expected, actual);
+            }
+        }
+        System.out.println("Doubles written shorter than by Double.toString(): " + differences + " of 1000000");
+    }
+
+    @Test
+    public void testIntegersAndText() throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        ArffWriter writer = new ArffWriter(bytes, Charset.forName("UTF-8"), "\r\n");
+        writer.write(0L).write(',').write(-7L).write(',').write(Long.MIN_VALUE).write(',').write(Long.MAX_VALUE).newLine();
+        writer.writeLine("'Spécial'");
+        writer.write(new double[]{9d, 1.5, -2.25, Double.NaN}, 1, 3).newLine();
+        writer.close();
+        assertEquals("0,-7," + Long.MIN_VALUE + "," + Long.MAX_VALUE + "\r\n'Spécial'\r\n1.5,-2.25,NaN\r\n",
+                new String(bytes.toByteArray(), "UTF-8"));
+    }
+
+    @Test
+    public void testLongLinesAcrossBuffer() throws IOException {
+        StringBuilder line = new StringBuilder();
+        for (int i = 0; i < 100000; i++) {
+            line.append((char) ('a' + i % 26));
+        }
+        File file = new File(folder, "long.arff");
+        ArffWriter writer = new ArffWriter(file, ArffWriter.LATIN1, "\n");
+        for (int i = 0; i < 3; i++) {
+            writer.writeLine(line.toString()).write((double) i);
+        }
+        writer.close();
+        String expected = line + "\n0.0" + line + "\n1.0" + line + "\n2.0";
+        assertEquals(expected, new String(Files.readAllBytes(file.toPath()), "ISO-8859-1"));
+    }
+
+    @Test
+    public void testSavedDataSetIsUnchanged() throws Exception {
+        Random random = new Random(3);
+        int rows = 5000;
+        List<Double> numbers = new ArrayList<Double>();
+        List<Double> integers = new ArrayList<Double>();
+        List<String> categories = new ArrayList<String>();
+        List<String> paths = new ArrayList<String>();
+        for (int i = 0; i < rows; i++) {
+            numbers.add(i % 10 == 0 ? Double.NaN : random.nextGaussian() * Math.pow(10, random.nextInt(6) - 3));
+            integers.add((double) (random.nextInt() / (1 + random.nextInt(1000))));
+            categories.add(random.nextBoolean() ? "a" : "b");
+            paths.add("/music/it's " + i + "\\track.mp3");
+        }
+        ArffDataSet dataSet = new ArffDataSet("Test set");
+        dataSet.addAttribute(new NumericAttribute("Feature", numbers));
+        dataSet.addAttribute(new NumericAttribute("Id", integers));
+        dataSet.addAttribute(new NominalAttribute("Category", Arrays.asList("a", "b"), categories));
+        dataSet.addAttribute(new StringAttribute("Path", paths));
+
+        File file = new File(folder, "dataset.arff");
+        dataSet.saveToArffFile(file);
+        assertEquals(formerOutput(dataSet), new String(Files.readAllBytes(file.toPath()), Charset.defaultCharset()));
+    }
+
+    @Test
+    public void testLargeIntegersAreNotClipped() throws Exception {
+        ArffDataSet dataSet = new ArffDataSet("Large values");
+        dataSet.addAttribute(new NumericAttribute("Value", new double[]{3e9, -1e12, 1e19, 0.5}));
+        File file = new File(folder, "large.arff");
+        dataSet.saveToArffFile(file);
+        ArffDataSet loaded = new ArffDataSet(file);
+        assertEquals(3e9, (Double) loaded.getAttribute(0).getValueAt(0), 0d);
+        assertEquals(-1e12, (Double) loaded.getAttribute(0).getValueAt(1), 0d);
+        assertEquals(1e19, (Double) loaded.getAttribute(0).getValueAt(2), 0d);
+        assertEquals(0.5, (Double) loaded.getAttribute(0).getValueAt(3), 0d);
+    }
+
+    /**
+     * Output of ArffDataSet.saveToArffFile() before ArffWriter was used
+     */
+    private static String formerOutput(ArffDataSet dataSet) throws IOException {
+        StringBuilder output = new StringBuilder();
+        output.append("@RELATION \"" + dataSet.getName() + "\"\n\n");
+        for (int a = 0; a < dataSet.getAttributeCount(); a++) {
+            output.append(dataSet.getAttribute(a).getHeaderStr() + "\n");
+        }
+        output.append("\n@DATA\n");
+        for (int i = 0; i < dataSet.getValueCount(); i++) {
+            for (int a = 0; a < dataSet.getAttributeCount(); a++) {
+                Attribute attribute = dataSet.getAttribute(a);
+                output.append(attribute.getValueStrAt(i));
+                output.append(a == dataSet.getAttributeCount() - 1 ? "\n" : ",");
+            }
+        }
+        return output.toString();
+    }
+}
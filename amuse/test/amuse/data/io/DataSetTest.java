@@ -306,4 +306,80 @@ public class DataSetTest {
     	timePassed = after.getTime() - before.getTime();
     	System.out.println("Finished reading values after " + (double)timePassed / 1000 + " seconds!");
     }
-}
\ No newline at end of file
+
+    @Test
+    public void testAttributeNameOrdering() {
+        DataSet instance = new DataSet("Ordering");
+        String[] names = {"c", "a", "b", "Id", "NumberOfCategories"};
+        for (String atrName : names) {
+            instance.addAttribute(NumericAttribute.createFromDouble(atrName, 0));
+            // Lookups between additions must not get out of sync
+            assertEquals(instance.getAttributeCount() - 1, instance.getAttributeIndex(atrName));
+        }
+        assertEquals(java.util.Arrays.asList(names), instance.getAttributeNames());
+        for (int i = 0; i < names.length; i++) {
+            assertEquals(i, instance.getAttributeIndex(names[i]));
+            assertSame(instance.getAttribute(i), instance.getAttribute(names[i]));
+        }
+        assertEquals(-1, instance.getAttributeIndex("d"));
+        boolean thrown = false;
+        try {
+            instance.getAttributeNames().add("d");
+        } catch (UnsupportedOperationException ex) {
+            thrown = true;
+        }
+        assertTrue("Attribute names must not be modifiable", thrown);
+    }
+
+    @Test
+    public void testDuplicateAttributeNames() {
+        DataSet instance = new DataSet("Duplicates");
+        NumericAttribute first = NumericAttribute.createFromDouble("Feature", 1);
+        NumericAttribute second = NumericAttribute.createFromDouble("Feature", 2);
+        instance.addAttribute(first);
+        instance.addAttribute(NumericAttribute.createFromDouble("Other", 3));
+        instance.addAttribute(second);
+        // As before, the first attribute with the given name is returned
+        assertSame(first, instance.getAttribute("Feature"));
+        assertEquals(0, instance.getAttributeIndex("Feature"));
+        assertEquals(0, instance.getAttributeIndex(first));
+        assertEquals(2, instance.getAttributeIndex(second));
+        assertEquals(3, instance.getAttributeNames().size());
+        assertEquals("Feature", instance.getAttributeNames().get(2));
+    }
+
+    @Test
+    public void testAttributeNamesAreCaseSensitive() {
+        DataSet instance = new DataSet("Case");
+        instance.addAttribute(NumericAttribute.createFromDouble("Id", 1));
+        instance.addAttribute(NumericAttribute.createFromDouble("ID", 2));
+        assertEquals(0, instance.getAttributeIndex("Id"));
+        assertEquals(1, instance.getAttributeIndex("ID"));
+        assertEquals(-1, instance.getAttributeIndex("id"));
+        assertEquals(new Double(2), instance.getAttribute("ID").getValueAt(0));
+        boolean thrown = false;
+        try {
+            instance.getAttribute("id");
+        } catch (DataSetException ex) {
+            thrown = true;
+        }
+        assertTrue(thrown);
+    }
+
+    @Test
+    public void testAttributeIndexAfterLoading() throws IOException {
+        File arffFile = File.createTempFile("dataSetTest", ".arff");
+        try {
+            DataSet instance = new DataSet("Loaded");
+            instance.addAttribute(NumericAttribute.createFromDouble("b", 1));
+            instance.addAttribute(NumericAttribute.createFromDouble("a", 2));
+            instance.saveToArffFile(arffFile);
+            ArffDataSet loaded = new ArffDataSet(arffFile);
+            assertEquals(instance.getAttributeNames(), loaded.getAttributeNames());
+            assertEquals(1, loaded.getAttributeIndex("a"));
+            assertEquals(new Double(2), loaded.getAttribute("a").getValueAt(0));
+        } finally {
+            arffFile.delete();
+        }
+    }
+}
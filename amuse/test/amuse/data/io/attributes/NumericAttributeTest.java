@@ -24,6 +24,7 @@
 
 package amuse.data.io.attributes;
 
+import amuse.data.io.DataSet;
 import amuse.data.io.attributes.NumericAttribute;
 import java.util.List;
 import java.util.Vector;
@@ -110,4 +111,82 @@ public class NumericAttributeTest {
         result = instance.getValueStrAt(index);
         assertEquals(expResult, result);
     }
-}
\ No newline at end of file
+
+    @Test
+    public void testPrimitiveAccessors() {
+        NumericAttribute instance = new NumericAttribute(name, new double[] {1, 2.5});
+        instance.addDouble(Double.NaN);
+        instance.addValue(new Double(4));
+        instance.setDouble(0, -1);
+        assertEquals(4, instance.getValueCount());
+        assertEquals(-1d, instance.getDouble(0), 0d);
+        assertEquals(new Double(2.5), instance.getValueAt(1));
+        assertTrue(Double.isNaN(instance.getDouble(2)));
+        assertEquals("NaN", instance.getValueStrAt(2));
+        assertEquals("4", instance.getValueStrAt(3));
+        double[] array = instance.toArray();
+        assertEquals(4, array.length);
+        // The array must be a copy
+        array[3] = 5;
+        assertEquals(4d, instance.getDouble(3), 0d);
+        assertEquals(new NumericAttribute(instance).getValues(), instance.getValues());
+        boolean thrown = false;
+        try {
+            instance.getDouble(4);
+        } catch (IndexOutOfBoundsException e) {
+            thrown = true;
+        }
+        assertTrue(thrown);
+    }
+
+    @Test
+    public void testPrimitiveStorageRoundTrip() throws Exception {
+        double[] special = {Double.NaN, -0d, 0d, Double.MIN_VALUE, Double.MAX_VALUE, Double.POSITIVE_INFINITY,
+            Double.NEGATIVE_INFINITY, 0.1, -1e-300};
+        // More values than the initial capacity, so the column has to grow
+        double[] expected = new double[10000];
+        NumericAttribute instance = new NumericAttribute(name, new double[0]);
+        for (int i = 0; i < expected.length; i++) {
+            expected[i] = i < special.length ? special[i] : i * 0.25 - 17;
+            if (i % 3 == 0) {
+                instance.addDouble(expected[i]);
+            } else {
+                instance.addValue(new Double(expected[i]));
+            }
+        }
+        assertStored(expected, instance);
+
+        // Replace values through the Object based and the primitive setters
+        instance.setValueAt(10, Double.NaN);
+        expected[10] = Double.NaN;
+        instance.setValueAt(11, "?");
+        expected[11] = Double.NaN;
+        instance.setValueAt(12, null);
+        expected[12] = Double.NaN;
+        instance.setValueAt(13, "2.75");
+        expected[13] = 2.75;
+        instance.setValueAt(0, new Double(-0d));
+        expected[0] = -0d;
+        instance.setDouble(expected.length - 1, Double.NaN);
+        expected[expected.length - 1] = Double.NaN;
+        assertStored(expected, instance);
+        assertStored(expected, new NumericAttribute(instance));
+        assertStored(expected, new NumericAttribute(name, instance.getValues()));
+
+        // The same values are returned through a data set
+        DataSet dataSet = new DataSet("RoundTrip");
+        dataSet.addAttribute(instance);
+        assertStored(expected, (NumericAttribute) dataSet.getAttribute(name));
+    }
+
+    private static void assertStored(double[] expected, NumericAttribute attribute) {
+        assertEquals(expected.length, attribute.getValueCount());
+        double[] array = attribute.toArray();
+        for (int i = 0; i < expected.length; i++) {
+            long bits = Double.doubleToLongBits(expected[i]);
+            assertEquals("Value " + i, bits, Double.doubleToLongBits(attribute.getDouble(i)));
+            assertEquals("Value " + i, bits, Double.doubleToLongBits(attribute.getValueAt(i)));
+            assertEquals("Value " + i, bits, Double.doubleToLongBits(array[i]));
+        }
+    }
+}
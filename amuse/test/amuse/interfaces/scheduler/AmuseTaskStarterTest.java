@@ -0,0 +1,156 @@
+/**
+ * This file is part of AMUSE framework (Advanced MUsic Explorer).
+ *
+ * Copyright 2006-2010 by code authors
+ *
+ * Created at TU Dortmund, Chair of Algorithm Engineering
+ * (Contact: <http://ls11-www.cs.tu-dortmund.de>)
+ *
+ * AMUSE is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * AMUSE is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with AMUSE. If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Creation date: 17.10.2026
+ */
+
+package amuse.interfaces.scheduler;
+
+import amuse.interfaces.nodes.NodeEvent;
+import amuse.interfaces.nodes.NodeException;
+import amuse.interfaces.nodes.NodeScheduler;
+import amuse.interfaces.nodes.TaskConfiguration;
+import amuse.preferences.AmusePreferences;
+import amuse.preferences.KeysIntValue;
+import amuse.util.FileOperations;
+import java.io.File;
+import java.util.Properties;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.AfterClass;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * Starts many node schedulers which do nothing and checks that the task
+ * starter neither loses time between the tasks nor exceeds the maximum
+ * number of task threads.
+ *
+ * @version $Id$
+ */
+public class AmuseTaskStarterTest {
+
+    private static final File nodeFolder = new File("test/taskstarter/");
+    private static final AtomicInteger runningTasks = new AtomicInteger(0);
+    private static final AtomicInteger maxRunningTasks = new AtomicInteger(0);
+
+    @AfterClass
+    public static void tearDownClass() throws Exception {
+        FileOperations.delete(nodeFolder, true);
+    }
+
+    @Test
+    public void testManyShortTasks() throws Exception {
+        int numberOfTasks = 1000;
+        int maxNumberOfTaskThreads = Math.max(1, AmusePreferences.getInt(KeysIntValue.MAX_NUMBER_OF_TASK_THREADS));
+        NoOpTaskStarter starter = new NoOpTaskStarter(numberOfTasks, -1);
+
+        long startTime = System.currentTimeMillis();
+        assertEquals(numberOfTasks, starter.startTask(new TaskConfiguration[0], new Properties()));
+        long runTime = System.currentTimeMillis() - startTime;
+
+        // Polling once a second took about numberOfTasks / maxNumberOfTaskThreads seconds
+        assertTrue("Tasks took " + runTime + " ms", runTime < 100L * numberOfTasks / maxNumberOfTaskThreads);
+        assertTrue(maxRunningTasks.get() <= maxNumberOfTaskThreads);
+        assertEquals(numberOfTasks, starter.errorDescriptionsList.size());
+        assertTrue(starter.nodeSchedulers.isEmpty());
+        for (StringBuilder errorDescription : starter.errorDescriptionsList) {
+            assertEquals("", errorDescription.toString());
+        }
+    }
+
+    @Test
+    public void testFailedTaskIsReported() throws Exception {
+        NoOpTaskStarter starter = new NoOpTaskStarter(10, 3);
+        starter.startTask(new TaskConfiguration[0], new Properties());
+
+        int numberOfErrors = 0;
+        for (StringBuilder errorDescription : starter.errorDescriptionsList) {
+            if (errorDescription.length() > 0) {
+                numberOfErrors++;
+                assertTrue(errorDescription.toString().startsWith("Job 3"));
+            }
+        }
+        assertEquals(1, numberOfErrors);
+        assertTrue(starter.nodeSchedulers.isEmpty());
+    }
+
+    /**
+     * Starts the given number of node schedulers directly
+     */
+    private static class NoOpTaskStarter extends AmuseTaskStarter {
+
+        private final int numberOfTasks;
+        private final long failingJob;
+
+        NoOpTaskStarter(int numberOfTasks, long failingJob) throws SchedulerException {
+            super("taskstarter", 0, false);
+            this.numberOfTasks = numberOfTasks;
+            this.failingJob = failingJob;
+        }
+
+        public long startTask(TaskConfiguration[] taskConfiguration, Properties props) throws SchedulerException {
+            for (int i = 0; i < numberOfTasks; i++) {
+                NoOpNodeScheduler scheduler;
+                try {
+                    scheduler = new NoOpNodeScheduler(jobCounter == failingJob);
+                } catch (NodeException e) {
+                    throw new SchedulerException(e.getMessage());
+                }
+                scheduler.setThreadParameters(nodeFolder.getPath(), jobCounter, null);
+                startNodeScheduler(scheduler);
+                jobCounter++;
+            }
+            waitForNodeSchedulers();
+            return jobCounter;
+        }
+    }
+
+    /**
+     * Node scheduler which only reports that it is ready
+     */
+    private static class NoOpNodeScheduler extends NodeScheduler {
+
+        private final boolean fails;
+
+        NoOpNodeScheduler(boolean fails) throws NodeException {
+            super(nodeFolder.getPath());
+            this.fails = fails;
+        }
+
+        public void proceedTask(String[] args) {
+        }
+
+        public void proceedTask(String homeFolder, long jobId, TaskConfiguration taskConfiguration) {
+            int running = runningTasks.incrementAndGet();
+            int max;
+            while (running > (max = maxRunningTasks.get()) && !maxRunningTasks.compareAndSet(max, running)) {
+            }
+            runningTasks.decrementAndGet();
+            if (fails) {
+                throw new IllegalStateException("Simulated failure");
+            }
+            fireEvent(new NodeEvent(NodeEvent.EXTRACTION_COMPLETED, this));
+        }
+
+        protected void removeInputFolder() {
+        }
+    }
+}
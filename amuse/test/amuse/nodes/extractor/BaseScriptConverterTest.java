@@ -0,0 +1,240 @@
+/**
+ * This file is part of AMUSE framework (Advanced MUsic Explorer).
+ *
+ * Copyright 2006-2010 by code authors
+ *
+ * Created at TU Dortmund, Chair of Algorithm Engineering
+ * (Contact: <http://ls11-www.cs.tu-dortmund.de>)
+ *
+ * AMUSE is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * AMUSE is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with AMUSE. If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Creation date: 17.10.2026
+ */
+
+package amuse.nodes.extractor;
+
+import amuse.data.Feature;
+import amuse.data.FeatureTable;
+import amuse.interfaces.nodes.NodeException;
+import amuse.interfaces.nodes.methods.AmuseTask;
+import amuse.nodes.extractor.interfaces.ExtractorInterface;
+import amuse.util.FileOperations;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * Prepares the base script of a stub extractor concurrently for several
+ * feature tables and checks that each table gets its own completely
+ * converted script, which is converted only once.
+ *
+ * @version $Id$
+ */
+public class BaseScriptConverterTest {
+
+    private static final File toolFolder = new File("test/converters/stub/").getAbsoluteFile();
+
+    /** Number of conversions done by the stub adapters */
+    private static final AtomicInteger conversions = new AtomicInteger();
+
+    @Before
+    public void setUp() throws IOException {
+        conversions.set(0);
+        toolFolder.mkdirs();
+        writeFile(new File(toolFolder, "base.txt"), "1\n2\n3\n4\n5\n6\n");
+    }
+
+    @After
+    public void tearDown() {
+        FileOperations.delete(toolFolder.getParentFile(), true);
+    }
+
+    @Test
+    public void testConcurrentConversionsOfDifferentFeatureTables() throws Exception {
+        final List<FeatureTable> featureTables = new ArrayList<FeatureTable>();
+        featureTables.add(createFeatureTable(1));
+        featureTables.add(createFeatureTable(2, 3));
+        featureTables.add(createFeatureTable(1, 2, 3, 4));
+        featureTables.add(createFeatureTable(5, 6));
+
+        ExecutorService executor = Executors.newFixedThreadPool(16);
+        List<Future<File>> results = new ArrayList<Future<File>>();
+        final List<Integer> tableOfResult = new ArrayList<Integer>();
+        for (int i = 0; i < 64; i++) {
+            final FeatureTable featureTable = featureTables.get(i % featureTables.size());
+            tableOfResult.add(i % featureTables.size());
+            results.add(executor.submit(new Callable<File>() {
+                public File call() throws Exception {
+                    StubAdapter adapter = createAdapter();
+                    File folder = BaseScriptConverter.prepare(adapter,
+                            BaseScriptConverter.createFeatureToToolMap(featureTable), featureTable);
+                    assertEquals(folder.getPath(), adapter.getProperties().getProperty("convertedScriptFolder"));
+
+                    // The script is complete as soon as it can be used
+                    assertEquals(expectedScript(featureTable), read(new File(folder, "modified.txt")));
+                    return folder;
+                }
+            }));
+        }
+        executor.shutdown();
+
+        HashMap<Integer, File> folderOfTable = new HashMap<Integer, File>();
+        for (int i = 0; i < results.size(); i++) {
+            File folder = results.get(i).get();
+            File folderOfSameTable = folderOfTable.get(tableOfResult.get(i));
+            if (folderOfSameTable == null) {
+                folderOfTable.put(tableOfResult.get(i), folder);
+            } else {
+                assertEquals(folderOfSameTable, folder);
+            }
+        }
+        assertEquals(featureTables.size(), new HashSet<File>(folderOfTable.values()).size());
+        assertEquals(featureTables.size(), conversions.get());
+
+        // No temporary folders remain
+        File convertedScriptsFolder = new File(toolFolder, BaseScriptConverter.CONVERTED_SCRIPTS_FOLDER);
+        assertEquals(featureTables.size(), convertedScriptsFolder.list().length);
+
+        // Already converted scripts are used again
+        FeatureTable featureTable = featureTables.get(1);
+        File folder = BaseScriptConverter.prepare(createAdapter(), BaseScriptConverter.createFeatureToToolMap(featureTable), featureTable);
+        assertEquals(folderOfTable.get(1), folder);
+        assertEquals(featureTables.size(), conversions.get());
+    }
+
+    @Test
+    public void testKeyChangesWithBaseScript() throws Exception {
+        FeatureTable featureTable = createFeatureTable(1, 2);
+        HashMap<Integer, Integer> feature2Tool = BaseScriptConverter.createFeatureToToolMap(featureTable);
+        String key = BaseScriptConverter.createKey(createAdapter(), feature2Tool, featureTable);
+        assertEquals(64, key.length());
+        assertEquals(key, BaseScriptConverter.createKey(createAdapter(), feature2Tool, featureTable));
+
+        Set<String> keys = new HashSet<String>();
+        keys.add(key);
+        writeFile(new File(toolFolder, "base.txt"), "1\n2\n");
+        keys.add(BaseScriptConverter.createKey(createAdapter(), feature2Tool, featureTable));
+        StubAdapter otherTool = createAdapter();
+        otherTool.getProperties().setProperty("id", "8");
+        keys.add(BaseScriptConverter.createKey(otherTool, feature2Tool, featureTable));
+        assertEquals(3, keys.size());
+    }
+
+    @Test(expected = NodeException.class)
+    public void testMissingBaseScript() throws Exception {
+        new File(toolFolder, "base.txt").delete();
+        FeatureTable featureTable = createFeatureTable(1);
+        BaseScriptConverter.prepare(createAdapter(), BaseScriptConverter.createFeatureToToolMap(featureTable), featureTable);
+    }
+
+    private static StubAdapter createAdapter() throws NodeException {
+        Properties properties = new Properties();
+        properties.setProperty("id", "7");
+        properties.setProperty("extractorName", "Stub");
+        properties.setProperty("extractorFolder", toolFolder.getPath());
+        properties.setProperty("inputExtractorBaseBatch", "base.txt");
+        properties.setProperty("inputExtractorBatch", "modified.txt");
+        StubAdapter adapter = new StubAdapter();
+        adapter.configure(properties, null, null);
+        return adapter;
+    }
+
+    private static FeatureTable createFeatureTable(int... featureIds) {
+        List<Feature> features = new ArrayList<Feature>();
+        for (int id : featureIds) {
+            features.add(new Feature(id, "Feature " + id, 1, 7, "WindowedNumeric"));
+        }
+        return new FeatureTable(features);
+    }
+
+    private static String expectedScript(FeatureTable featureTable) {
+        StringBuilder script = new StringBuilder();
+        for (Feature feature : featureTable.getFeatures()) {
+            script.append(feature.getId()).append('\n');
+        }
+        return script.toString();
+    }
+
+    private static String read(File file) throws IOException {
+        return new String(Files.readAllBytes(file.toPath()), "UTF-8");
+    }
+
+    private static void writeFile(File file, String content) throws IOException {
+        FileWriter writer = new FileWriter(file);
+        writer.write(content);
+        writer.close();
+    }
+
+    /**
+     * Writes the ids of the features to extract line by line and slowly,
+     * so that unfinished scripts would be seen by other threads
+     */
+    public static class StubAdapter extends AmuseTask implements ExtractorInterface {
+
+        public void setParameters(String parameterString) {
+        }
+
+        public void initialize() {
+        }
+
+        public void setFilenames(String musicFile, String outputFeatureFile, Integer currentPart) {
+        }
+
+        public void convertBaseScript(HashMap<Integer, Integer> feature2Tool, FeatureTable featureTable) throws NodeException {
+            conversions.incrementAndGet();
+            List<Integer> ids = new ArrayList<Integer>(feature2Tool.keySet());
+            Collections.sort(ids);
+            try {
+                FileWriter writer = new FileWriter(new File(properties.getProperty("convertedScriptFolder"),
+                        properties.getProperty("inputExtractorBatch")));
+                try {
+                    for (Integer id : ids) {
+                        writer.write(id + "\n");
+                        writer.flush();
+                        Thread.sleep(20);
+                    }
+                } finally {
+                    writer.close();
+                }
+            } catch (IOException e) {
+                throw new NodeException(e.getMessage());
+            } catch (InterruptedException e) {
+                throw new NodeException(e.getMessage());
+            }
+        }
+
+        public void extractFeatures() {
+        }
+
+        public void convertOutput() {
+        }
+    }
+}
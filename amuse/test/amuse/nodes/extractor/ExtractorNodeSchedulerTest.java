@@ -0,0 +1,389 @@
+/**
+ * This file is part of AMUSE framework (Advanced MUsic Explorer).
+ *
+ * Copyright 2006-2010 by code authors
+ *
+ * Created at TU Dortmund, Chair of Algorithm Engineering
+ * (Contact: <http://ls11-www.cs.tu-dortmund.de>)
+ *
+ * AMUSE is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * AMUSE is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with AMUSE. If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Creation date: 17.10.2026
+ */
+
+package amuse.nodes.extractor;
+
+import amuse.data.Feature;
+import amuse.data.FeatureTable;
+import amuse.data.FileTable;
+import amuse.data.datasets.WavePartTableSet;
+import amuse.interfaces.nodes.NodeException;
+import amuse.interfaces.nodes.methods.AmuseTask;
+import amuse.nodes.extractor.interfaces.ExtractorInterface;
+import amuse.util.FileOperations;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * Extracts the features of a music file split into several parts with two
+ * stub extractors once sequentially and once in parallel and compares the
+ * consolidated feature files.
+ *
+ * @version $Id$
+ */
+public class ExtractorNodeSchedulerTest {
+
+    private static final File testFolder = new File("test/extractor/").getAbsoluteFile();
+    private static final int numberOfParts = 3;
+    private static final int numberOfWindows = 5;
+
+    /** Number of extractions running at the moment and at most */
+    private static final AtomicInteger runningExtractions = new AtomicInteger();
+    private static final AtomicInteger maximalRunningExtractions = new AtomicInteger();
+
+    /** Number of temporary files changed by other extractions */
+    private static final AtomicInteger changedTemporaryFiles = new AtomicInteger();
+
+    /** Folders for temporary files used by the extractions */
+    private static final Set<String> workFolders = Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+
+    @Before
+    public void setUp() {
+        runningExtractions.set(0);
+        maximalRunningExtractions.set(0);
+        changedTemporaryFiles.set(0);
+        workFolders.clear();
+    }
+
+    @After
+    public void tearDown() {
+        FileOperations.delete(testFolder, true);
+    }
+
+    @Test
+    public void testParallelExtractionEqualsSequentialExtraction() throws Exception {
+        File sequentialDatabase = extract(1, 1);
+        assertEquals(1, maximalRunningExtractions.get());
+        assertEquals(2 * numberOfParts, workFolders.size());
+
+        setUp();
+        File parallelDatabase = extract(2, 4);
+        assertTrue("At most " + maximalRunningExtractions.get() + " extractions at the same time",
+                maximalRunningExtractions.get() > 1);
+        assertTrue(maximalRunningExtractions.get() <= 4);
+        assertEquals(2 * numberOfParts, workFolders.size());
+        assertEquals(0, changedTemporaryFiles.get());
+
+        File sequentialFeatures = new File(sequentialDatabase, "album" + File.separator + "song");
+        File parallelFeatures = new File(parallelDatabase, "album" + File.separator + "song");
+        String[] featureFiles = sequentialFeatures.list();
+        Arrays.sort(featureFiles);
+        String[] parallelFeatureFiles = parallelFeatures.list();
+        Arrays.sort(parallelFeatureFiles);
+        assertArrayEquals(featureFiles, parallelFeatureFiles);
+        assertTrue(Arrays.asList(featureFiles).containsAll(Arrays.asList("song_1.arff", "song_2.arff", "song_3.arff")));
+        for (String featureFile : featureFiles) {
+            assertArrayEquals(featureFile, Files.readAllBytes(new File(sequentialFeatures, featureFile).toPath()),
+                    Files.readAllBytes(new File(parallelFeatures, featureFile).toPath()));
+        }
+
+        // The parts are consolidated in their order
+        List<String> lines = Files.readAllLines(new File(parallelFeatures, "song_3.arff").toPath());
+        assertTrue(lines.contains("%columns=" + numberOfParts * numberOfWindows));
+        int dataStart = lines.indexOf("@DATA") + 1;
+        assertEquals(numberOfParts * numberOfWindows, lines.size() - dataStart);
+        for (int i = 0; i < numberOfParts * numberOfWindows; i++) {
+            int part = i / numberOfWindows + 1;
+            assertEquals((part * 100 + i % numberOfWindows + 1) + ".3," + (i + 1), lines.get(dataStart + i));
+        }
+    }
+
+    @Test
+    public void testSplitFeaturesAreNumberedSeamlessly() throws Exception {
+        // A signal of 45 windows is split into parts of 12 windows, each followed by 4 windows of the next part
+        int windows = 45;
+        int partWindows = 12;
+        int overlapWindows = 4;
+        List<String> partContents = new ArrayList<String>();
+        List<Long> lengths = new ArrayList<Long>();
+        List<Long> overlaps = new ArrayList<Long>();
+        for (int start = 0; start < windows; start += partWindows) {
+            boolean isLastPart = start + partWindows + overlapWindows >= windows;
+            int length = isLastPart ? windows - start : partWindows;
+            int overlap = isLastPart ? 0 : overlapWindows;
+            StringBuilder content = new StringBuilder();
+            for (int w = start; w < start + length + overlap; w++) {
+                content.append(signal(w)).append('\n');
+            }
+            partContents.add(content.toString());
+            lengths.add((long) length * SignalStubAdapter.windowSize);
+            overlaps.add((long) overlap * SignalStubAdapter.windowSize);
+            if (isLastPart) {
+                break;
+            }
+        }
+        assertEquals(4, partContents.size());
+
+        List<Feature> features = new ArrayList<Feature>();
+        features.add(new Feature(1, "Signal", 1, 0, "WindowedNumeric"));
+        features.add(new Feature(419, "Onset times", 1, 0, "Event"));
+        File featureDatabase = extract(3, 2, SignalStubAdapter.class, partContents,
+                new WavePartTableSet(lengths, overlaps, SignalStubAdapter.sampleRate), features);
+        File featureFolder = new File(featureDatabase, "album" + File.separator + "song");
+
+        // Each window is contained once with its number in the music file
+        List<String> lines = Files.readAllLines(new File(featureFolder, "song_1.arff").toPath());
+        assertTrue(lines.contains("%columns=" + windows));
+        int dataStart = lines.indexOf("@DATA") + 1;
+        assertEquals(windows, lines.size() - dataStart);
+        for (int w = 0; w < windows; w++) {
+            assertEquals(signal(w) + "," + (w + 1), lines.get(dataStart + w));
+        }
+
+        // The event times are shifted by the starts of the parts
+        lines = Files.readAllLines(new File(featureFolder, "song_419.arff").toPath());
+        assertTrue(lines.contains("%columns=" + windows));
+        dataStart = lines.indexOf("@DATA") + 1;
+        assertEquals(windows, lines.size() - dataStart);
+        for (int w = 0; w < windows; w++) {
+            assertEquals((double) w * SignalStubAdapter.windowSize / SignalStubAdapter.sampleRate,
+                    Double.parseDouble(lines.get(dataStart + w)), 1e-9);
+        }
+    }
+
+    /**
+     * @return Value of the synthetic signal in the given window
+     */
+    private static int signal(int window) {
+        return (window * 7) % 23;
+    }
+
+    /**
+     * Extracts the features of the split music file with the stub extractors
+     * @return Feature database with the consolidated features
+     */
+    private static File extract(long jobId, int numberOfThreads) throws IOException, NodeException {
+        List<String> partContents = new ArrayList<String>();
+        List<Long> lengths = new ArrayList<Long>();
+        for (int part = 1; part <= numberOfParts; part++) {
+            partContents.add("part " + part);
+            lengths.add(512L * numberOfWindows);
+        }
+        List<Feature> features = new ArrayList<Feature>();
+        features.add(new Feature(1, "Feature 1", 1, 0, "WindowedNumeric"));
+        features.add(new Feature(2, "Feature 2", 1, 0, "WindowedNumeric"));
+        features.add(new Feature(3, "Feature 3", 1, 1, "WindowedNumeric"));
+        return extract(jobId, numberOfThreads, StubAdapter.class, partContents,
+                new WavePartTableSet(lengths, Collections.nCopies(numberOfParts, 0L), 22050), features);
+    }
+
+    /**
+     * Extracts the features of the split music file with the given stub extractor
+     * @param partContents Contents of the wave file of each part
+     * @param parts Description of the parts
+     * @return Feature database with the consolidated features
+     */
+    private static File extract(long jobId, int numberOfThreads, Class<?> adapterClass, List<String> partContents,
+            WavePartTableSet parts, List<Feature> features) throws IOException, NodeException {
+        File taskFolder = new File(testFolder, "input" + File.separator + "task_" + jobId);
+        for (int part = 1; part <= partContents.size(); part++) {
+            File partFolder = new File(taskFolder, String.valueOf(part));
+            partFolder.mkdirs();
+            writeFile(new File(partFolder, "song.wav"), partContents.get(part - 1));
+        }
+        parts.saveToArffFile(new File(taskFolder, WavePartTableSet.FILE_NAME));
+        for (String tool : new String[]{"stubA", "stubB"}) {
+            File toolFolder = new File(testFolder, "tools" + File.separator + tool);
+            toolFolder.mkdirs();
+            writeFile(new File(toolFolder, "base.xml"), "all features");
+        }
+        writeFile(new File(taskFolder, "featureExtractorToolTable.arff"), "@RELATION extractors\n\n"
+                + "@ATTRIBUTE Id NUMERIC\n@ATTRIBUTE Name STRING\n@ATTRIBUTE AdapterClass STRING\n"
+                + "@ATTRIBUTE HomeFolder STRING\n@ATTRIBUTE StartScript STRING\n@ATTRIBUTE InputBaseBatch STRING\n"
+                + "@ATTRIBUTE InputBatch STRING\n\n@DATA\n"
+                + "0, \"StubA\", \"" + adapterClass.getName() + "\", \"stubA\", \"-1\", \"base.xml\", \"modified.xml\"\n"
+                + "1, \"StubB\", \"" + adapterClass.getName() + "\", \"stubB\", \"-1\", \"base.xml\", \"modified.xml\"\n"
+                + "2, \"Unused\", \"" + adapterClass.getName() + "\", \"unused\", \"-1\", \"base.xml\", \"modified.xml\"\n");
+
+        ExtractionConfiguration configuration = new ExtractionConfiguration(
+                new FileTable(Arrays.asList(new File("album" + File.separator + "song.mp3"))), new FeatureTable(features));
+        File featureDatabase = new File(testFolder, "features_" + jobId);
+        configuration.setFeatureDatabase(featureDatabase.getPath());
+
+        ExtractorNodeScheduler scheduler = new ExtractorNodeScheduler(taskFolder.getPath());
+        scheduler.setThreadParameters(testFolder.getPath(), jobId, configuration);
+        scheduler.configureFeatureExtractors();
+        scheduler.setDecodedMusicFile("album" + File.separator + "song.wav", partContents.size());
+        scheduler.startFeatureExtractors(numberOfThreads);
+        return featureDatabase;
+    }
+
+    private static void writeFile(File file, String content) throws IOException {
+        FileWriter writer = new FileWriter(file);
+        writer.write(content);
+        writer.close();
+    }
+
+    /**
+     * Writes the features of its extractor to the part folder. The later parts are
+     * finished first, so that the consolidation does not depend on the finishing order
+     */
+    public static class StubAdapter extends AmuseTask implements ExtractorInterface {
+
+        private String outputFeatureFile;
+        private int currentPart;
+
+        public void setParameters(String parameterString) {
+        }
+
+        public void initialize() {
+        }
+
+        public void setFilenames(String musicFile, String outputFeatureFile, Integer currentPart) throws NodeException {
+            this.outputFeatureFile = outputFeatureFile;
+            this.currentPart = currentPart;
+            assertTrue(new File(musicFile).exists());
+        }
+
+        public void convertBaseScript(HashMap<Integer, Integer> feature2Tool, FeatureTable featureTable) {
+        }
+
+        public void extractFeatures() throws NodeException {
+            int running = runningExtractions.incrementAndGet();
+            int maximum;
+            do {
+                maximum = maximalRunningExtractions.get();
+            } while (running > maximum && !maximalRunningExtractions.compareAndSet(maximum, running));
+            try {
+                String workFolder = properties.getProperty("extractorWorkFolder");
+                workFolders.add(workFolder);
+                assertEquals(workFolder, new File(outputFeatureFile).getParent());
+
+                // Script and output of the tool in the folder for temporary files
+                String script = properties.getProperty("id") + "_" + currentPart;
+                File scriptFile = new File(workFolder, properties.getProperty("inputExtractorBatch"));
+                writeFile(scriptFile, script);
+                writeFile(new File(outputFeatureFile), script);
+                Thread.sleep(40 * (numberOfParts - currentPart + 1));
+                if (!script.equals(new String(Files.readAllBytes(scriptFile.toPath()), "UTF-8"))) {
+                    changedTemporaryFiles.incrementAndGet();
+                }
+
+                File folder = new File(correspondingScheduler.getHomeFolder() + File.separator + "input" + File.separator
+                        + "task_" + correspondingScheduler.getTaskId() + File.separator + currentPart + File.separator
+                        + properties.getProperty("extractorFolderName"));
+                folder.mkdirs();
+                FeatureTable featureTable = ((ExtractionConfiguration) correspondingScheduler.getConfiguration()).getFeatureTable();
+                for (Feature feature : featureTable.getFeatures()) {
+                    if (String.valueOf(feature.getExtractorId()).equals(properties.getProperty("id"))) {
+                        writeFeature(new File(folder, "song_" + feature.getId() + ".arff"), feature);
+                    }
+                }
+            } catch (IOException e) {
+                throw new NodeException(e.getMessage());
+            } catch (InterruptedException e) {
+                throw new NodeException(e.getMessage());
+            } finally {
+                runningExtractions.decrementAndGet();
+            }
+        }
+
+        public void convertOutput() {
+        }
+
+        private void writeFeature(File file, Feature feature) throws IOException {
+            StringBuilder content = new StringBuilder("@RELATION 'Music feature'\n%rows=1\n%columns=" + numberOfWindows
+                    + "\n%sample_rate=22050\n%window_size=512\n\n@ATTRIBUTE '" + feature.getDescription()
+                    + "' NUMERIC\n@ATTRIBUTE WindowNumber NUMERIC\n\n@DATA\n");
+            for (int w = 1; w <= numberOfWindows; w++) {
+                content.append(currentPart * 100 + w).append('.').append(feature.getId()).append(',').append(w).append('\n');
+            }
+            writeFile(file, content.toString());
+        }
+    }
+
+    /**
+     * Extracts the synthetic signal of the part file, one value per window, as
+     * windowed feature and the start times of the windows as event times
+     */
+    public static class SignalStubAdapter extends AmuseTask implements ExtractorInterface {
+
+        static final int windowSize = 512;
+        static final int sampleRate = 22050;
+
+        private String musicFile;
+        private int currentPart;
+
+        public void setParameters(String parameterString) {
+        }
+
+        public void initialize() {
+        }
+
+        public void setFilenames(String musicFile, String outputFeatureFile, Integer currentPart) {
+            this.musicFile = musicFile;
+            this.currentPart = currentPart;
+        }
+
+        public void convertBaseScript(HashMap<Integer, Integer> feature2Tool, FeatureTable featureTable) {
+        }
+
+        public void extractFeatures() throws NodeException {
+            try {
+                List<String> signal = Files.readAllLines(new File(musicFile).toPath());
+                File folder = new File(correspondingScheduler.getHomeFolder() + File.separator + "input" + File.separator
+                        + "task_" + correspondingScheduler.getTaskId() + File.separator + currentPart + File.separator
+                        + properties.getProperty("extractorFolderName"));
+                folder.mkdirs();
+                FeatureTable featureTable = ((ExtractionConfiguration) correspondingScheduler.getConfiguration()).getFeatureTable();
+                for (Feature feature : featureTable.getFeatures()) {
+                    StringBuilder content = new StringBuilder("@RELATION 'Music feature'\n%rows=1\n%columns=" + signal.size()
+                            + "\n%sample_rate=" + sampleRate + "\n%window_size=" + windowSize + "\n\n@ATTRIBUTE '"
+                            + feature.getDescription() + "' NUMERIC\n");
+                    if (feature.getId() == 419) {
+                        content.append("\n@DATA\n");
+                        for (int w = 0; w < signal.size(); w++) {
+                            content.append((double) w * windowSize / sampleRate).append('\n');
+                        }
+                    } else {
+                        content.append("@ATTRIBUTE WindowNumber NUMERIC\n\n@DATA\n");
+                        for (int w = 0; w < signal.size(); w++) {
+                            content.append(signal.get(w)).append(',').append(w + 1).append('\n');
+                        }
+                    }
+                    writeFile(new File(folder, "song_" + feature.getId() + ".arff"), content.toString());
+                }
+            } catch (IOException e) {
+                throw new NodeException(e.getMessage());
+            }
+        }
+
+        public void convertOutput() {
+        }
+    }
+}
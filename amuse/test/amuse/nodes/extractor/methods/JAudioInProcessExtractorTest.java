@@ -0,0 +1,218 @@
+/**
+ * This file is part of AMUSE framework (Advanced MUsic Explorer).
+ *
+ * Copyright 2006-2010 by code authors
+ *
+ * Created at TU Dortmund, Chair of Algorithm Engineering
+ * (Contact: <http://ls11-www.cs.tu-dortmund.de>)
+ *
+ * AMUSE is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * AMUSE is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with AMUSE. If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Creation date: 17.10.2026
+ */
+package amuse.nodes.extractor.methods;
+
+import amuse.interfaces.nodes.NodeException;
+import amuse.util.FileOperations;
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Properties;
+import java.util.regex.Matcher;
+import javax.sound.sampled.AudioFileFormat;
+import javax.sound.sampled.AudioFormat;
+import javax.sound.sampled.AudioInputStream;
+import javax.sound.sampled.AudioSystem;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * Extracts the features of the jAudio base script from generated music
+ * files in this JVM and with jAudio started in a new JVM, as done by the
+ * adapter before, and compares the written ARFF files.
+ *
+ * @version $Id$
+ */
+public class JAudioInProcessExtractorTest {
+
+    private static final File folder = new File("test/jaudio").getAbsoluteFile();
+
+    private static final File jAudioFolder = new File("tools/jAudio").getAbsoluteFile();
+
+    /** Ids of the features of the jAudio base script */
+    private static final int[] featureIds = {0, 1, 4, 6, 14, 21, 22, 24, 28, 402, 405, 407};
+
+    private File convertedScript;
+
+    @Before
+    public void setUp() throws Exception {
+        folder.mkdirs();
+        Properties properties = new Properties();
+        properties.setProperty("extractorFolder", jAudioFolder.getPath());
+        properties.setProperty("extractorName", "jAudio");
+        properties.setProperty("inputExtractorBaseBatch", "jAudioBase512.xml");
+        properties.setProperty("inputExtractorBatch", "jAudioBatch.xml");
+        properties.setProperty("convertedScriptFolder", folder.getPath());
+        JAudioAdapter adapter = new JAudioAdapter();
+        adapter.configure(properties, null, null);
+        HashMap<Integer, Integer> feature2Tool = new HashMap<Integer, Integer>();
+        for (int id : featureIds) {
+            feature2Tool.put(id, 0);
+        }
+        adapter.convertBaseScript(feature2Tool, null);
+        convertedScript = new File(folder, "jAudioBatch.xml");
+    }
+
+    @After
+    public void tearDown() {
+        FileOperations.delete(folder, true);
+    }
+
+    @Test
+    public void testOutputEqualsExternalProcess() throws Exception {
+        List<File> musicFiles = new ArrayList<File>();
+        musicFiles.add(writeWave(new File(folder, "first.wav"), 440, 1234, 4));
+        musicFiles.add(writeWave(new File(folder, "second.wav"), 310, 2750, 3));
+        List<byte[]> expected = new ArrayList<byte[]>();
+        for (File musicFile : musicFiles) {
+            File output = new File(folder, "process_" + musicFile.getName() + ".arff");
+            extractInNewJvm(musicFile, output);
+            expected.add(Files.readAllBytes(output.toPath()));
+        }
+
+        // The batch is reused, so the first file is extracted again after the second one
+        JAudioInProcessExtractor extractor = new JAudioInProcessExtractor(jAudioFolder);
+        int part = 0;
+        for (int i : Arrays.asList(0, 1, 0)) {
+            File output = new File(folder, "inprocess_" + musicFiles.get(i).getName() + ".arff");
+            extractInThisJvm(extractor, musicFiles.get(i), output, ++part);
+            assertArrayEquals(musicFiles.get(i).getName(), expected.get(i), Files.readAllBytes(output.toPath()));
+
+            // The batch scripts of different parts are written to different folders, but share one parsed batch
+            assertEquals(1, extractor.getIdleBatchCount());
+        }
+    }
+
+    @Test
+    public void testIdleBatchesAreBounded() throws Exception {
+        File musicFile = writeWave(new File(folder, "bounded.wav"), 440, 1234, 1);
+        JAudioInProcessExtractor extractor = new JAudioInProcessExtractor(jAudioFolder);
+        for (int i = 0; i < 12; i++) {
+            // Another converted script for each extraction, as for different feature sets
+            File script = new File(folder, "converted_" + i + File.separator + convertedScript.getName());
+            script.getParentFile().mkdirs();
+            Files.copy(convertedScript.toPath(), script.toPath());
+            File batchFile = writeBatch(musicFile, new File(folder, "definitions.xml"), new File(folder, "bounded.arff"), i);
+            extractor.extract(batchFile, script, musicFile.getPath(), new File(folder, "definitions.xml").getPath(),
+                    new File(folder, "bounded.arff").getPath());
+        }
+        assertEquals(8, extractor.getIdleBatchCount());
+    }
+
+    @Test
+    public void testMissingJarsAreReported() {
+        try {
+            new JAudioInProcessExtractor(folder);
+            fail("Missing jAudio jars are not reported");
+        } catch (NodeException e) {
+            System.out.println(e.getMessage());
+        }
+    }
+
+    @Test
+    public void testSpeed() throws Exception {
+        File musicFile = writeWave(new File(folder, "speed.wav"), 440, 1234, 10);
+        File output = new File(folder, "speed.arff");
+        long before = System.currentTimeMillis();
+        for (int i = 0; i < 3; i++) {
+            extractInNewJvm(musicFile, output);
+        }
+        long process = System.currentTimeMillis() - before;
+
+        JAudioInProcessExtractor extractor = JAudioInProcessExtractor.getExtractor(jAudioFolder);
+        before = System.currentTimeMillis();
+        for (int i = 0; i < 3; i++) {
+            extractInThisJvm(extractor, musicFile, output, i);
+        }
+        long inProcess = System.currentTimeMillis() - before;
+        System.out.println("3 jAudio extractions of 10 s in new JVMs: " + process + " ms, in this JVM: " + inProcess + " ms");
+    }
+
+    /**
+     * Extracts the features with jAudio started by the command line as done by the adapter
+     */
+    private void extractInNewJvm(File musicFile, File output) throws Exception {
+        File batchFile = writeBatch(musicFile, new File(folder, "processDefinitions.xml"), output, 0);
+        StringBuilder classPath = new StringBuilder();
+        for (String jar : new String[]{"jhall.jar", "mp3plugin.jar", "tritonus_remaining-0.3.6.jar", "tritonus_share-0.3.6.jar", "jAudio.jar", "xerces.jar"}) {
+            classPath.append(new File(jAudioFolder, jar).getPath()).append(File.pathSeparator);
+        }
+        String java = System.getProperty("java.home") + File.separator + "bin" + File.separator + "java";
+        Process process = new ProcessBuilder(java, "-Xmx1024m", "-classpath", classPath.toString(), "jAudioFE", "-b", batchFile.getPath())
+                .directory(jAudioFolder).redirectErrorStream(true).redirectOutput(new File(folder, "process.log")).start();
+        assertEquals(0, process.waitFor());
+        assertTrue(new String(Files.readAllBytes(output.toPath()), "UTF-8").contains("@DATA"));
+    }
+
+    /**
+     * Extracts the features in this JVM with a batch script for the music file as saved by the adapter
+     * in the work folder of the given part
+     */
+    private void extractInThisJvm(JAudioInProcessExtractor extractor, File musicFile, File output, int part) throws Exception {
+        File definitions = new File(folder, "definitions.xml");
+        File batchFile = writeBatch(musicFile, definitions, output, part);
+        extractor.extract(batchFile, convertedScript, musicFile.getPath(), definitions.getPath(), output.getPath());
+    }
+
+    /**
+     * Saves the converted script with the given music file and destinations in the work folder of the given part
+     */
+    private File writeBatch(File musicFile, File definitions, File output, int part) throws IOException {
+        String script = new String(Files.readAllBytes(convertedScript.toPath()), "UTF-8");
+        script = script.replaceFirst("<file>[^<]*</file>", Matcher.quoteReplacement("<file>" + musicFile.getPath() + "</file>"));
+        script = script.replaceFirst("<destination>[^<]*</destination>(\\s*)<destination>[^<]*</destination>",
+                Matcher.quoteReplacement("<destination>" + definitions.getPath() + "</destination>\n<destination>" + output.getPath() + "</destination>"));
+        File batchFile = new File(folder, "work_" + part + File.separator + "batch.xml");
+        batchFile.getParentFile().mkdirs();
+        FileWriter writer = new FileWriter(batchFile);
+        writer.write(script);
+        writer.close();
+        return batchFile;
+    }
+
+    private static File writeWave(File file, double frequency, double secondFrequency, int seconds) throws IOException {
+        int sampleRate = 22050;
+        int frames = sampleRate * seconds;
+        byte[] data = new byte[frames * 2];
+        for (int i = 0; i < frames; i++) {
+            double envelope = 0.5 + 0.5 * Math.sin(2 * Math.PI * 2 * i / sampleRate);
+            int value = (int) (envelope * (8000 * Math.sin(2 * Math.PI * frequency * i / sampleRate)
+                    + 3000 * Math.sin(2 * Math.PI * secondFrequency * i / sampleRate)));
+            data[2 * i] = (byte) value;
+            data[2 * i + 1] = (byte) (value >> 8);
+        }
+        AudioInputStream stream = new AudioInputStream(new ByteArrayInputStream(data),
+                new AudioFormat(sampleRate, 16, 1, true, false), frames);
+        AudioSystem.write(stream, AudioFileFormat.Type.WAVE, file);
+        return file;
+    }
+}
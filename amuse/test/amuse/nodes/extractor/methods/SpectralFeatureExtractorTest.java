@@ -0,0 +1,271 @@
+/**
+ * This file is part of AMUSE framework (Advanced MUsic Explorer).
+ *
+ * Copyright 2006-2010 by code authors
+ *
+ * Created at TU Dortmund, Chair of Algorithm Engineering
+ * (Contact: <http://ls11-www.cs.tu-dortmund.de>)
+ *
+ * AMUSE is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * AMUSE is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with AMUSE. If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Creation date: 17.10.2026
+ */
+package amuse.nodes.extractor.methods;
+
+import amuse.nodes.extractor.ExtractorNodeScheduler;
+import amuse.preferences.AmusePreferences;
+import amuse.preferences.KeysIntValue;
+import amuse.preferences.KeysStringValue;
+import amuse.util.FileOperations;
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Properties;
+import java.util.Random;
+import javax.sound.sampled.AudioFileFormat;
+import javax.sound.sampled.AudioFormat;
+import javax.sound.sampled.AudioInputStream;
+import javax.sound.sampled.AudioSystem;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * Extracts the features from generated sine tones, noise and impulses and
+ * compares them with their analytic values.
+ *
+ * @version $Id$
+ */
+public class SpectralFeatureExtractorTest {
+
+    private static final File folder = new File("test/spectral").getAbsoluteFile();
+
+    private static final int sampleRate = 22050;
+
+    private static final int windowSize = 512;
+
+    private static final int[] featureIds = {50, 51, 52, 53, 54, 55, 264};
+
+    private SpectralFeatureExtractor adapter;
+
+    private String decodedAudioCachePath;
+
+    private int decodedAudioCacheSize;
+
+    @Before
+    public void setUp() throws Exception {
+        folder.mkdirs();
+        decodedAudioCachePath = AmusePreferences.get(KeysStringValue.DECODED_AUDIO_CACHE);
+        decodedAudioCacheSize = AmusePreferences.getInt(KeysIntValue.DECODED_AUDIO_CACHE_SIZE_IN_MB);
+        AmusePreferences.put(KeysStringValue.DECODED_AUDIO_CACHE, new File(folder, "cache").getPath());
+        AmusePreferences.putInt(KeysIntValue.DECODED_AUDIO_CACHE_SIZE_IN_MB, 64);
+        HashMap<Integer, Integer> feature2Tool = new HashMap<Integer, Integer>();
+        for (int id : featureIds) {
+            feature2Tool.put(id, 3);
+        }
+        adapter = createAdapter(feature2Tool);
+    }
+
+    @After
+    public void tearDown() {
+        AmusePreferences.put(KeysStringValue.DECODED_AUDIO_CACHE, decodedAudioCachePath);
+        AmusePreferences.putInt(KeysIntValue.DECODED_AUDIO_CACHE_SIZE_IN_MB, decodedAudioCacheSize);
+        FileOperations.delete(folder, true);
+    }
+
+    @Test
+    public void testSine() throws Exception {
+        // 40 periods in each window, so that the tone is in the middle of bin 40
+        double frequency = 40.0 * sampleRate / windowSize;
+        double[] signal = new double[2 * sampleRate];
+        for (int i = 0; i < signal.length; i++) {
+            signal[i] = 0.5 * Math.sin(2 * Math.PI * frequency * i / sampleRate + 0.3);
+        }
+        extract("sine", signal);
+
+        int windows = (signal.length + windowSize - 1) / windowSize;
+        for (int id : featureIds) {
+            List<String> lines = Files.readAllLines(getFeatureFile("sine", id).toPath());
+            assertTrue(lines.contains("%columns=" + windows));
+            assertTrue(lines.contains("%sample_rate=" + sampleRate));
+            assertTrue(lines.contains("%window_size=" + windowSize));
+        }
+
+        // The last window is filled with zeros
+        for (int w = 0; w < windows - 1; w++) {
+            assertEquals(80.0 / windowSize, read("sine", 50)[w][0], 1.5 / windowSize);
+            assertEquals(0.5 / Math.sqrt(2), read("sine", 51)[w][0], 1e-3);
+            assertEquals(frequency, read("sine", 52)[w][0], 2);
+
+            // The Hann window spreads the tone to bins 39, 40 and 41 with the magnitudes 1/4, 1/2 and 1/4
+            assertEquals(41.0 * sampleRate / windowSize, read("sine", 53)[w][0], 1e-9);
+            assertEquals(0, read("sine", 54)[w][0], w == 0 ? 0 : 1e-4);
+
+            // Bins 40 and 41 belong to A, bin 39 to G#
+            double[] chroma = read("sine", 264)[w];
+            assertEquals(12, chroma.length);
+            assertEquals(1, chroma[9], 1e-9);
+            assertEquals(0.25 * 0.25 / (0.5 * 0.5 + 0.25 * 0.25), chroma[8], 1e-3);
+        }
+    }
+
+    @Test
+    public void testWhiteNoise() throws Exception {
+        Random random = new Random(5);
+        double[] signal = new double[10 * sampleRate];
+        for (int i = 0; i < signal.length; i++) {
+            signal[i] = 0.1 * random.nextGaussian();
+        }
+        extract("noise", signal);
+
+        // The expected magnitude spectrum is flat, so its centroid and rolloff depend only on the sampling rate
+        int windows = signal.length / windowSize;
+        assertEquals(0.5, mean("noise", 50, windows), 0.01);
+        assertEquals(0.1, mean("noise", 51, windows), 0.002);
+        assertEquals(sampleRate / 4.0, mean("noise", 52, windows), 0.02 * sampleRate / 4);
+        assertEquals(0.85 * sampleRate / 2, mean("noise", 53, windows), 0.02 * sampleRate / 2);
+    }
+
+    @Test
+    public void testImpulses() throws Exception {
+        // An impulse in each window at a quarter of the window, where the Hann window is 1/2
+        double[] signal = new double[20 * windowSize];
+        for (int i = windowSize / 4; i < signal.length; i += windowSize) {
+            signal[i] = 0.5;
+        }
+        extract("impulses", signal);
+
+        // All bins have the magnitude 1/4, so all mel bands have the energy 1/16 and the MFCCs except
+        // the first are 0
+        for (int w = 0; w < signal.length / windowSize; w++) {
+            assertEquals(0, read("impulses", 50)[w][0], 0);
+            assertEquals(0.5 / Math.sqrt(windowSize), read("impulses", 51)[w][0], 1e-12);
+            assertEquals(sampleRate / 4.0, read("impulses", 52)[w][0], 1e-9);
+            assertEquals(218.0 * sampleRate / windowSize, read("impulses", 53)[w][0], 1e-9);
+            assertEquals(0, read("impulses", 54)[w][0], 1e-20);
+            double[] mfcc = read("impulses", 55)[w];
+            assertEquals(13, mfcc.length);
+            assertEquals(Math.sqrt(40) * Math.log(1.0 / 16), mfcc[0], 1e-9);
+            for (int i = 1; i < mfcc.length; i++) {
+                assertEquals(0, mfcc[i], 1e-9);
+            }
+        }
+    }
+
+    @Test
+    public void testOnlyFeaturesOfExtractorAreWritten() throws Exception {
+        HashMap<Integer, Integer> feature2Tool = new HashMap<Integer, Integer>();
+        feature2Tool.put(51, 3);
+        feature2Tool.put(52, 1);
+        adapter = createAdapter(feature2Tool);
+        extract("rms", new double[3 * windowSize]);
+        String[] files = getFeatureFile("rms", 51).getParentFile().list();
+        assertEquals(1, files.length);
+        assertEquals("rms_51.arff", files[0]);
+    }
+
+    @Test
+    public void testSpeed() throws Exception {
+        Random random = new Random(9);
+        double[] signal = new double[30 * sampleRate];
+        for (int i = 0; i < signal.length; i++) {
+            signal[i] = 0.3 * Math.sin(2 * Math.PI * 440 * i / sampleRate) + 0.05 * random.nextGaussian();
+        }
+        File musicFile = writeWave(new File(folder, "speed.wav"), signal);
+        adapter.setFilenames(musicFile.getPath(), null, 1);
+        adapter.extractFeatures();
+        int tracks = 10;
+        long before = System.currentTimeMillis();
+        for (int i = 0; i < tracks; i++) {
+            adapter.extractFeatures();
+        }
+        long time = System.currentTimeMillis() - before;
+        System.out.println(tracks + " tracks of 30 s with " + featureIds.length + " features: " + time + " ms, "
+                + (tracks * 1000.0 / Math.max(1, time)) + " tracks per second");
+    }
+
+    private SpectralFeatureExtractor createAdapter(HashMap<Integer, Integer> feature2Tool) throws Exception {
+        Properties properties = new Properties();
+        properties.setProperty("id", "3");
+        properties.setProperty("extractorName", "AmuseSpectral");
+        properties.setProperty("extractorFolderName", "AmuseSpectral");
+        properties.setProperty("extractorFolder", new File("tools/AmuseSpectral").getAbsolutePath());
+        properties.setProperty("inputExtractorBaseBatch", "spectralBase.xml");
+        properties.setProperty("inputExtractorBatch", "spectralBaseModified.xml");
+        properties.setProperty("convertedScriptFolder", folder.getPath());
+        ExtractorNodeScheduler scheduler = new ExtractorNodeScheduler(folder.getPath());
+        scheduler.setThreadParameters(folder.getPath(), 1, null);
+        SpectralFeatureExtractor spectralAdapter = new SpectralFeatureExtractor();
+        spectralAdapter.configure(properties, scheduler, null);
+        spectralAdapter.convertBaseScript(feature2Tool, null);
+        return spectralAdapter;
+    }
+
+    private void extract(String name, double[] signal) throws Exception {
+        File musicFile = writeWave(new File(folder, name + ".wav"), signal);
+        adapter.setFilenames(musicFile.getPath(), null, 1);
+        adapter.extractFeatures();
+    }
+
+    private static File getFeatureFile(String name, int id) {
+        return new File(folder, "input" + File.separator + "task_1" + File.separator + "1" + File.separator
+                + "AmuseSpectral" + File.separator + name + "_" + id + ".arff");
+    }
+
+    /**
+     * @return Values of the windows without the window numbers
+     */
+    private static double[][] read(String name, int id) throws IOException {
+        List<String> lines = Files.readAllLines(getFeatureFile(name, id).toPath());
+        List<double[]> rows = new ArrayList<double[]>();
+        for (String line : lines.subList(lines.indexOf("@DATA") + 1, lines.size())) {
+            String[] values = line.split(",");
+            assertEquals(rows.size() + 1, Integer.parseInt(values[values.length - 1]));
+            double[] row = new double[values.length - 1];
+            for (int i = 0; i < row.length; i++) {
+                row[i] = Double.parseDouble(values[i]);
+            }
+            rows.add(row);
+        }
+        return rows.toArray(new double[rows.size()][]);
+    }
+
+    private static double mean(String name, int id, int windows) throws IOException {
+        double[][] values = read(name, id);
+        double sum = 0;
+        for (int w = 0; w < windows; w++) {
+            sum += values[w][0];
+        }
+        return sum / windows;
+    }
+
+    private static File writeWave(File file, double[] signal) throws IOException {
+        byte[] data = new byte[2 * signal.length];
+        for (int i = 0; i < signal.length; i++) {
+            int value = (int) Math.round(signal[i] * 32768);
+            value = Math.max(Short.MIN_VALUE, Math.min(Short.MAX_VALUE, value));
+            data[2 * i] = (byte) value;
+            data[2 * i + 1] = (byte) (value >> 8);
+        }
+        AudioInputStream stream = new AudioInputStream(new ByteArrayInputStream(data),
+                new AudioFormat(sampleRate, 16, 1, true, false), signal.length);
+        AudioSystem.write(stream, AudioFileFormat.Type.WAVE, file);
+        return file;
+    }
+}
@@ -0,0 +1,298 @@
+/**
+ * This file is part of AMUSE framework (Advanced MUsic Explorer).
+ *
+ * Copyright 2006-2010 by code authors
+ *
+ * Created at TU Dortmund, Chair of Algorithm Engineering
+ * (Contact: <http://ls11-www.cs.tu-dortmund.de>)
+ *
+ * AMUSE is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * AMUSE is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with AMUSE. If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Creation date: 17.10.2026
+ */
+
+package amuse.nodes.optimizer.methods.es;
+
+import amuse.nodes.optimizer.methods.es.evaluation.interfaces.EvaluationInterface;
+import amuse.nodes.optimizer.methods.es.representation.BinaryVector;
+import amuse.nodes.optimizer.methods.es.representation.IntegerValue;
+import amuse.nodes.optimizer.methods.es.representation.IntegerVector;
+import amuse.nodes.validator.interfaces.ValidationMeasureDouble;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * Checks that the fitness cache returns exactly the stored fitness values
+ * and only for the same individual and evaluation configuration.
+ *
+ * @version $Id$
+ */
+public class ESFitnessCacheTest {
+
+    private static File configFile;
+    private static ESConfiguration esConfiguration;
+    private static EvolutionaryStrategy es;
+    private static final List<File> noFiles = new ArrayList<File>();
+
+    @BeforeClass
+    public static void setUpClass() throws Exception {
+        configFile = File.createTempFile("esConfiguration", ".xml");
+        FileWriter writer = new FileWriter(configFile);
+        writer.write("<esConfiguration>\n"
+                + "  <problemParametersToOptimize/>\n"
+                + "  <problemParametersConstant>\n"
+                + "    <optimizationParameter name=\"Measure table\" fileValue=\"measures.arff\"/>\n"
+                + "  </problemParametersConstant>\n"
+                + "  <esParameters/>\n"
+                + "  <output/>\n"
+                + "</esConfiguration>\n");
+        writer.close();
+        esConfiguration = new ESConfiguration(configFile.getAbsolutePath());
+        es = new EvolutionaryStrategy();
+        es.esConfiguration = esConfiguration;
+    }
+
+    @AfterClass
+    public static void tearDownClass() {
+        configFile.delete();
+    }
+
+    @Test
+    public void testHitReturnsStoredFitnessVector() throws Exception {
+        ESFitnessCache cache = new ESFitnessCache(ESFitnessCache.describeConfiguration(esConfiguration, noFiles, "1", "2", "-1"));
+        ValidationMeasureDouble[] fitness = createFitness();
+        cache.put(createIndividual(true, 3), false, fitness);
+
+        assertFitnessEquals(fitness, cache.get(createIndividual(true, 3), false));
+        assertEquals(1, cache.getHitNumber());
+        assertEquals(1, cache.getRequestNumber());
+    }
+
+    @Test
+    public void testMissForOtherIndividualOrConfiguration() throws Exception {
+        ESFitnessCache cache = new ESFitnessCache(ESFitnessCache.describeConfiguration(esConfiguration, noFiles, "1", "2", "-1"));
+        cache.put(createIndividual(true, 3), false, createFitness());
+
+        assertNull(cache.get(createIndividual(false, 3), false));
+        assertNull(cache.get(createIndividual(true, 4), false));
+        assertNull(cache.get(createIndividual(true, 3), true));
+        assertEquals(0.0, cache.getHitRate(), 0.0);
+
+        ESFitnessCache otherCache = new ESFitnessCache(ESFitnessCache.describeConfiguration(esConfiguration, noFiles, "1", "5", "-1"));
+        assertFalse(cache.getKey(createIndividual(true, 3), false).equals(otherCache.getKey(createIndividual(true, 3), false)));
+    }
+
+    @Test
+    public void testMissForChangedReferencedFile() throws Exception {
+        File groundTruth = File.createTempFile("groundTruth", ".arff");
+        File measureTable = File.createTempFile("measureTable", ".arff");
+        File otherConfigFile = File.createTempFile("esConfiguration", ".xml");
+        try {
+            write(groundTruth, "@RELATION 'Ground truth'\n@DATA\n1\n");
+            write(measureTable, "@RELATION 'Measures'\n@DATA\n1\n");
+            write(otherConfigFile, "<esConfiguration>\n"
+                    + "  <problemParametersToOptimize/>\n"
+                    + "  <problemParametersConstant>\n"
+                    + "    <optimizationParameter name=\"Measure table\" fileValue=\"" + measureTable.getAbsolutePath() + "\"/>\n"
+                    + "  </problemParametersConstant>\n"
+                    + "  <esParameters/>\n"
+                    + "  <output/>\n"
+                    + "</esConfiguration>\n");
+            ESConfiguration otherConfiguration = new ESConfiguration(otherConfigFile.getAbsolutePath());
+            List<File> referencedFiles = Arrays.asList(groundTruth);
+            String configuration = ESFitnessCache.describeConfiguration(otherConfiguration, referencedFiles, "1", "2", "-1");
+            assertEquals(configuration, ESFitnessCache.describeConfiguration(otherConfiguration, referencedFiles, "1", "2", "-1"));
+
+            // Changed ground truth at the same path
+            write(groundTruth, "@RELATION 'Ground truth'\n@DATA\n0\n");
+            String changedGroundTruth = ESFitnessCache.describeConfiguration(otherConfiguration, referencedFiles, "1", "2", "-1");
+            assertFalse(configuration.equals(changedGroundTruth));
+
+            // Changed file which is referenced by a parameter
+            write(measureTable, "@RELATION 'Measures'\n@DATA\n2\n");
+            assertFalse(changedGroundTruth.equals(ESFitnessCache.describeConfiguration(otherConfiguration, referencedFiles, "1", "2", "-1")));
+        } finally {
+            groundTruth.delete();
+            measureTable.delete();
+            otherConfigFile.delete();
+        }
+    }
+
+    @Test
+    public void testMissForOtherParametersToOptimize() throws Exception {
+        File otherConfigFile = File.createTempFile("esConfiguration", ".xml");
+        try {
+            write(otherConfigFile, "<esConfiguration>\n"
+                    + "  <problemParametersToOptimize>\n"
+                    + "    <optimizationParameter name=\"Selected features\" intValue=\"2\"/>\n"
+                    + "  </problemParametersToOptimize>\n"
+                    + "  <problemParametersConstant>\n"
+                    + "    <optimizationParameter name=\"Measure table\" fileValue=\"measures.arff\"/>\n"
+                    + "  </problemParametersConstant>\n"
+                    + "  <esParameters/>\n"
+                    + "  <output/>\n"
+                    + "</esConfiguration>\n");
+            ESConfiguration otherConfiguration = new ESConfiguration(otherConfigFile.getAbsolutePath());
+            assertFalse(ESFitnessCache.describeConfiguration(esConfiguration, noFiles, "1", "2", "-1").equals(
+                    ESFitnessCache.describeConfiguration(otherConfiguration, noFiles, "1", "2", "-1")));
+        } finally {
+            otherConfigFile.delete();
+        }
+    }
+
+    @Test
+    public void testContinuedRunHitsSavedCache() throws Exception {
+        File file = File.createTempFile("fitnessCache", ".arff");
+        file.delete();
+        File firstConfigFile = File.createTempFile("esConfiguration", ".xml");
+        File continuedConfigFile = File.createTempFile("esConfiguration", ".xml");
+        try {
+            write(firstConfigFile, createConfiguration(1, 100));
+            write(continuedConfigFile, createConfiguration(2, 500));
+            ValidationMeasureDouble[] fitness = createFitness();
+            ESFitnessCache cache = new ESFitnessCache(ESFitnessCache.describeConfiguration(
+                    new ESConfiguration(firstConfigFile.getAbsolutePath()), noFiles, "1", "2", "-1"));
+            cache.setFile(file);
+            cache.put(createIndividual(true, 3), false, fitness);
+            cache.close();
+
+            // The run is continued with another seed and a larger evaluation limit
+            ESFitnessCache continuedCache = new ESFitnessCache(ESFitnessCache.describeConfiguration(
+                    new ESConfiguration(continuedConfigFile.getAbsolutePath()), noFiles, "1", "2", "-1"));
+            continuedCache.setFile(file);
+            assertFitnessEquals(fitness, continuedCache.get(createIndividual(true, 3), false));
+            assertEquals(1, continuedCache.getHitNumber());
+            continuedCache.close();
+        } finally {
+            file.delete();
+            firstConfigFile.delete();
+            continuedConfigFile.delete();
+        }
+    }
+
+    private static String createConfiguration(long seed, int evaluations) {
+        return "<esConfiguration>\n"
+                + "  <problemParametersToOptimize/>\n"
+                + "  <problemParametersConstant>\n"
+                + "    <optimizationParameter name=\"Measure table\" fileValue=\"measures.arff\"/>\n"
+                + "  </problemParametersConstant>\n"
+                + "  <esParameters>\n"
+                + "    <optimizationParameter name=\"Random seed\" longValue=\"" + seed + "\"/>\n"
+                + "    <optimizationParameter name=\"Number of evaluations\" intValue=\"" + evaluations + "\"/>\n"
+                + "  </esParameters>\n"
+                + "  <output/>\n"
+                + "</esConfiguration>\n";
+    }
+
+    private static void write(File file, String content) throws IOException {
+        FileWriter writer = new FileWriter(file);
+        writer.write(content);
+        writer.close();
+    }
+
+    @Test
+    public void testEntriesAreLoadedFromFile() throws Exception {
+        File file = File.createTempFile("fitnessCache", ".arff");
+        file.delete();
+        ValidationMeasureDouble[] fitness = createFitness();
+        String configuration = ESFitnessCache.describeConfiguration(esConfiguration, noFiles, "1", "2", "-1");
+
+        ESFitnessCache cache = new ESFitnessCache(configuration);
+        cache.setFile(file);
+        cache.put(createIndividual(true, 3), true, fitness);
+        cache.close();
+
+        // Simulates a row which was not written completely
+        FileWriter writer = new FileWriter(file, true);
+        writer.write("'abc',2,0,1,'Accura");
+        writer.close();
+
+        ESFitnessCache loadedCache = new ESFitnessCache(configuration);
+        loadedCache.setFile(file);
+        assertFitnessEquals(fitness, loadedCache.get(createIndividual(true, 3), true));
+        assertNull(loadedCache.get(createIndividual(true, 3), false));
+        loadedCache.close();
+        file.delete();
+    }
+
+    @Test
+    public void testCachedEvaluatorIsCalledOnce() throws Exception {
+        ESFitnessCache cache = new ESFitnessCache("");
+        CountingEvaluation evaluation = new CountingEvaluation();
+        EvaluationInterface cached = cache.cached(evaluation);
+
+        ValidationMeasureDouble[] first = cached.getFitness(createIndividual(true, 3), false);
+        ValidationMeasureDouble[] second = cached.getFitness(createIndividual(true, 3), false);
+        assertEquals(1, evaluation.calls);
+        assertFitnessEquals(first, second);
+        cached.getFitness(createIndividual(false, 3), false);
+        assertEquals(2, evaluation.calls);
+    }
+
+    private static ESIndividual createIndividual(boolean firstBit, int value) {
+        ESIndividual individual = new ESIndividual(es);
+        individual.getRepresentationList().add(new BinaryVector(esConfiguration, new Boolean[]{firstBit, false, true}));
+        individual.getRepresentationList().add(new IntegerVector(esConfiguration, new Integer[]{1, 2}));
+        individual.getRepresentationList().add(new IntegerValue(esConfiguration, value, 10, 0));
+        return individual;
+    }
+
+    private static ValidationMeasureDouble[] createFitness() {
+        ValidationMeasureDouble[] fitness = new ValidationMeasureDouble[2];
+        fitness[0] = new ValidationMeasureDouble(true);
+        fitness[0].setId(104);
+        fitness[0].setName("Mean squared error, 'weighted'");
+        fitness[0].setValue(0.1 + 0.2);
+        fitness[1] = new ValidationMeasureDouble(false);
+        fitness[1].setId(200);
+        fitness[1].setName("Accuracy");
+        fitness[1].setValue(Double.MIN_VALUE);
+        return fitness;
+    }
+
+    private static void assertFitnessEquals(ValidationMeasureDouble[] expected, ValidationMeasureDouble[] actual) {
+        assertNotNull(actual);
+        assertEquals(expected.length, actual.length);
+        for (int i = 0; i < expected.length; i++) {
+            assertEquals(expected[i].getId(), actual[i].getId());
+            assertEquals(expected[i].getName(), actual[i].getName());
+            assertEquals(expected[i].isForMinimizing(), actual[i].isForMinimizing());
+            assertEquals(Double.doubleToLongBits(expected[i].getValue()), Double.doubleToLongBits(actual[i].getValue()));
+        }
+    }
+
+    private static class CountingEvaluation implements EvaluationInterface {
+
+        int calls = 0;
+
+        public void initialize(EvolutionaryStrategy strategy, boolean isEvaluatedOnIndependentTestSet) {
+        }
+
+        public ValidationMeasureDouble[] getFitness(ESIndividual individual, boolean isEvaluatedOnIndependentTestSet) {
+            calls++;
+            return createFitness();
+        }
+
+        public void close() {
+        }
+    }
+}
@@ -0,0 +1,251 @@
+/**
+ * This file is part of AMUSE framework (Advanced MUsic Explorer).
+ *
+ * Copyright 2006-2010 by code authors
+ *
+ * Created at TU Dortmund, Chair of Algorithm Engineering
+ * (Contact: <http://ls11-www.cs.tu-dortmund.de>)
+ *
+ * AMUSE is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * AMUSE is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with AMUSE. If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Creation date: 17.10.2026
+ */
+
+package amuse.nodes.optimizer.methods.es;
+
+import amuse.interfaces.nodes.NodeException;
+import amuse.nodes.optimizer.methods.es.evaluation.interfaces.EvaluationInterface;
+import amuse.nodes.optimizer.methods.es.operators.crossover.interfaces.CrossoverInterface;
+import amuse.nodes.optimizer.methods.es.operators.mutation.interfaces.AbstractMutation;
+import amuse.nodes.optimizer.methods.es.operators.mutation.interfaces.MutationInterface;
+import amuse.nodes.optimizer.methods.es.operators.selection.PlusSelection;
+import amuse.nodes.optimizer.methods.es.representation.BinaryVector;
+import amuse.nodes.optimizer.methods.es.representation.interfaces.RepresentationInterface;
+import amuse.nodes.validator.interfaces.ValidationMeasureDouble;
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Random;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.w3c.dom.NodeList;
+import static org.junit.Assert.*;
+
+/**
+ * Runs a small ES with a synthetic fitness function and checks that the
+ * concurrent evaluation of offspring and VNS neighbourhoods produces the
+ * same trajectory as the evaluation by a single worker.
+ *
+ * @version $Id$
+ */
+public class EvolutionaryStrategyTest {
+
+    private static final int vectorLength = 40;
+    private static final int popSize = 6;
+    private static final int offspringPopSize = 4;
+    private static File configFile;
+
+    @BeforeClass
+    public static void setUpClass() throws IOException {
+        configFile = File.createTempFile("esConfiguration", ".xml");
+        FileWriter writer = new FileWriter(configFile);
+        writer.write("<esConfiguration>\n"
+                + "  <problemParametersToOptimize/>\n"
+                + "  <problemParametersConstant/>\n"
+                + "  <esParameters>\n"
+                + "    <esParameter name=\"Apply VNS only after successful mutations\" booleanValue=\"false\"/>\n"
+                + "  </esParameters>\n"
+                + "  <output/>\n"
+                + "</esConfiguration>\n");
+        writer.close();
+    }
+
+    @AfterClass
+    public static void tearDownClass() {
+        configFile.delete();
+    }
+
+    @Test
+    public void testTrajectoryDoesNotDependOnWorkerNumber() throws Exception {
+        List<String> sequential = runStrategy(1, 1000);
+        List<String> parallel = runStrategy(4, 1000);
+        assertTrue(sequential.size() > 20);
+        assertEquals(sequential, parallel);
+    }
+
+    @Test
+    public void testEvaluationLimitDuringVNS() throws Exception {
+        // The limit is reached in the middle of the local search of some
+        // offspring; searches started in advance must not be counted.
+        for (int limit = 30; limit < 60; limit += 7) {
+            List<String> sequential = runStrategy(1, limit);
+            List<String> parallel = runStrategy(3, limit);
+            assertEquals(sequential, parallel);
+            String lastLog = sequential.get(sequential.size() - popSize - 1);
+            assertTrue(Integer.parseInt(lastLog.substring(lastLog.lastIndexOf(',') + 1)) >= limit);
+        }
+    }
+
+    /**
+     * Runs the ES and returns the log lines without the time column followed
+     * by the final population.
+     */
+    private List<String> runStrategy(int workerNumber, int evaluationLimit) throws Exception {
+        File log = File.createTempFile("esLog", ".arff");
+        EvolutionaryStrategy es = new EvolutionaryStrategy();
+        es.esConfiguration = new ESConfiguration(configFile.getAbsolutePath());
+        es.popSize = popSize;
+        es.offspringPopSize = offspringPopSize;
+        es.numberOfFitnessValues = 1;
+        es.evaluationLimit = evaluationLimit;
+        es.logPopulationRepresentations = true;
+        es.logOffspringPopulationRepresentations = true;
+        es.population = new ESIndividual[popSize];
+        es.populationFitnessValues = new ValidationMeasureDouble[popSize][1];
+        es.offspringPopulationFitnessValues = new ValidationMeasureDouble[offspringPopSize][1];
+        es.selectionOperator = new PlusSelection(es);
+        es.crossoverMap = new HashMap<String, List<CrossoverInterface>>();
+        es.mutationMap = new HashMap<String, List<MutationInterface>>();
+        es.mutationMap.put(BinaryVector.class.getName(), Arrays.<MutationInterface>asList(new SeededBitFlip(es)));
+        es.vnsMap = new HashMap<String, List<MutationInterface>>();
+        es.vnsMap.put(BinaryVector.class.getName(), Arrays.<MutationInterface>asList(new SeededSetBit(true, 13), new SeededSetBit(false, 17)));
+        es.random = new Random(11);
+        es.esLogger = new ESLogger(log);
+        List<EvaluationInterface> evaluators = new ArrayList<EvaluationInterface>();
+        for (int i = 0; i < workerNumber; i++) {
+            evaluators.add(new SyntheticEvaluation());
+        }
+        es.evaluationPool = new ESEvaluationPool(evaluators);
+
+        Random random = new Random(3);
+        for (int i = 0; i < popSize; i++) {
+            Boolean[] vector = new Boolean[vectorLength];
+            for (int j = 0; j < vectorLength; j++) {
+                vector[j] = random.nextBoolean();
+            }
+            es.population[i] = new ESIndividual(es);
+            es.population[i].getRepresentationList().add(new BinaryVector(es.esConfiguration, vector));
+        }
+        es.currentEvaluation = -popSize;
+        es.evaluatePopulation(es.population, es.populationFitnessValues, null);
+        for (es.currentGeneration = 0; es.currentGeneration < 15 && es.currentEvaluation < evaluationLimit; es.currentGeneration++) {
+            es.proceedGeneration();
+        }
+        es.evaluationPool.close();
+        es.esLogger.close();
+
+        List<String> lines = new ArrayList<String>();
+        BufferedReader reader = new BufferedReader(new FileReader(log));
+        String line;
+        while ((line = reader.readLine()) != null) {
+            // Remove the time column which precedes the evaluation number
+            int evaluationColumn = line.lastIndexOf(',');
+            int timeColumn = line.lastIndexOf(',', evaluationColumn - 1);
+            lines.add(line.substring(0, timeColumn) + line.substring(evaluationColumn));
+        }
+        reader.close();
+        log.delete();
+        for (int i = 0; i < popSize; i++) {
+            lines.add(es.population[i].getRepresentationList().get(0) + ":" + es.populationFitnessValues[i][0].getValue());
+        }
+        return lines;
+    }
+
+    /**
+     * Number of bits which differ from an alternating pattern. The evaluation
+     * takes a different time for different individuals, so that concurrent
+     * evaluations finish in a different order than they were started.
+     */
+    private static class SyntheticEvaluation implements EvaluationInterface {
+
+        public void initialize(EvolutionaryStrategy strategy, boolean isEvaluatedOnIndependentTestSet) {
+        }
+
+        public ValidationMeasureDouble[] getFitness(ESIndividual individual, boolean isEvaluatedOnIndependentTestSet)
+                throws NodeException {
+            Boolean[] vector = ((BinaryVector) individual.getRepresentationList().get(0)).getValue();
+            int distance = 0;
+            for (int i = 0; i < vector.length; i++) {
+                if (vector[i] != (i % 2 == 0)) {
+                    distance++;
+                }
+            }
+            try {
+                Thread.sleep(Math.abs(Arrays.hashCode(vector)) % 3);
+            } catch (InterruptedException e) {
+                throw new NodeException(e.getMessage());
+            }
+            ValidationMeasureDouble[] fitness = new ValidationMeasureDouble[1];
+            fitness[0] = new ValidationMeasureDouble();
+            fitness[0].setValue((double) distance);
+            return fitness;
+        }
+
+        public void close() {
+        }
+    }
+
+    /**
+     * Flips one bit chosen by its own random generator, so that a run is
+     * reproducible as long as the mutations are done in the same order.
+     */
+    private static class SeededBitFlip extends AbstractMutation {
+
+        private final Random random = new Random(7);
+
+        SeededBitFlip(EvolutionaryStrategy es) {
+            correspondingES = es;
+        }
+
+        public void setParameters(NodeList parameters, EvolutionaryStrategy correspondingStrategy) {
+        }
+
+        public void mutate(RepresentationInterface representation) {
+            Boolean[] vector = ((BinaryVector) representation).getValue();
+            int position = random.nextInt(vector.length);
+            vector[position] = !vector[position];
+        }
+    }
+
+    /**
+     * Local search operator which sets a bit chosen by its own random
+     * generator to the given value, so that the local search depends on the
+     * order of the mutations.
+     */
+    private static class SeededSetBit extends AbstractMutation {
+
+        private final boolean value;
+        private final Random random;
+
+        SeededSetBit(boolean value, long seed) {
+            this.value = value;
+            this.random = new Random(seed);
+        }
+
+        public void setParameters(NodeList parameters, EvolutionaryStrategy correspondingStrategy) {
+        }
+
+        public void mutate(RepresentationInterface representation) {
+            Boolean[] vector = ((BinaryVector) representation).getValue();
+            vector[random.nextInt(vector.length)] = value;
+        }
+    }
+}
@@ -0,0 +1,286 @@
+/**
+ * This file is part of AMUSE framework (Advanced MUsic Explorer).
+ *
+ * Copyright 2006-2010 by code authors
+ *
+ * Created at TU Dortmund, Chair of Algorithm Engineering
+ * (Contact: <http://ls11-www.cs.tu-dortmund.de>)
+ *
+ * AMUSE is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * AMUSE is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with AMUSE. If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Creation date: 17.10.2026
+ */
+
+package amuse.nodes.processor;
+
+import amuse.data.Feature;
+import amuse.data.FeatureTable;
+import amuse.data.FileTable;
+import amuse.nodes.processor.methods.reducers.NormalizerWithGivenMinMax;
+import amuse.util.FileOperations;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Properties;
+import java.util.Set;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * Checks that the keys of the processed feature cache are stable and change
+ * with each processing parameter, raw feature file and further input file, and that the entries
+ * are stored, evicted and ignored if damaged.
+ *
+ * @version $Id$
+ */
+public class ProcessedFeatureCacheTest {
+
+    private static final File testFolder = new File("test/processedcache/").getAbsoluteFile();
+    private static final File featureFolder = new File(testFolder, "features" + File.separator + "song");
+    private static final File cacheFolder = new File(testFolder, "cache");
+    private static final List<File> noFiles = new ArrayList<File>();
+
+    @Before
+    public void setUp() throws IOException {
+        featureFolder.mkdirs();
+        writeFile(new File(featureFolder, "song_4.arff"), "4,1\n");
+        writeFile(new File(featureFolder, "song_10.arff"), "10,1\n");
+        new File(featureFolder, "song_4.arff").setLastModified(1000000000000L);
+        new File(featureFolder, "song_10.arff").setLastModified(1000000000000L);
+    }
+
+    @After
+    public void tearDown() {
+        FileOperations.delete(testFolder, true);
+    }
+
+    @Test
+    public void testKeyIsStable() throws IOException {
+        String key = ProcessedFeatureCache.createKey(createConfiguration("1-8[true_false]", "2", 1000, 500, 4, 10), featureFolder, noFiles);
+        assertEquals(64, key.length());
+        assertEquals(key, ProcessedFeatureCache.createKey(createConfiguration("1-8[true_false]", "2", 1000, 500, 4, 10), featureFolder, noFiles));
+
+        assertEquals("version=2\nfeatures=[4, 10]\nreductionSteps=1-8[true_false]\nconversionStep=2\npartitionSize=1000\n"
+                + "partitionOverlap=500\nfolder=" + featureFolder.getPath() + "\n"
+                + "file=song_10.arff;5;1000000000000\nfile=song_4.arff;4;1000000000000\n",
+                ProcessedFeatureCache.describe(createConfiguration("1-8[true_false]", "2", 1000, 500, 4, 10), featureFolder, noFiles));
+
+        // The description of the processed features and other files do not change the processing
+        ProcessingConfiguration describedConfiguration = new ProcessingConfiguration(
+                new FileTable(Arrays.asList(new File("other.mp3"))), createFeatureTable(4, 10), "1-8[true_false]", 1000, 500, "2", "test");
+        writeFile(new File(featureFolder, "song_4.bin"), "binary");
+        assertEquals(key, ProcessedFeatureCache.createKey(describedConfiguration, featureFolder, noFiles));
+    }
+
+    @Test
+    public void testKeyChangesWithParameters() throws IOException {
+        Set<String> keys = new HashSet<String>();
+        keys.add(ProcessedFeatureCache.createKey(createConfiguration("1-8[true_false]", "2", 1000, 500, 4, 10), featureFolder, noFiles));
+        keys.add(ProcessedFeatureCache.createKey(createConfiguration("1-8[true_true]", "2", 1000, 500, 4, 10), featureFolder, noFiles));
+        keys.add(ProcessedFeatureCache.createKey(createConfiguration("1-8", "2", 1000, 500, 4, 10), featureFolder, noFiles));
+        keys.add(ProcessedFeatureCache.createKey(createConfiguration("8[true_false]-1", "2", 1000, 500, 4, 10), featureFolder, noFiles));
+        keys.add(ProcessedFeatureCache.createKey(createConfiguration("1-8[true_false]", "0", 1000, 500, 4, 10), featureFolder, noFiles));
+        keys.add(ProcessedFeatureCache.createKey(createConfiguration("1-8[true_false]", "2", 2000, 500, 4, 10), featureFolder, noFiles));
+        keys.add(ProcessedFeatureCache.createKey(createConfiguration("1-8[true_false]", "2", 1000, 0, 4, 10), featureFolder, noFiles));
+        keys.add(ProcessedFeatureCache.createKey(createConfiguration("1-8[true_false]", "2", 1000, 500, 4), featureFolder, noFiles));
+        keys.add(ProcessedFeatureCache.createKey(createConfiguration("1-8[true_false]", "2", 1000, 500, 10, 4), featureFolder, noFiles));
+        keys.add(ProcessedFeatureCache.createKey(createConfiguration("1-8[true_false]", "2", 1000, 500, 4, 10), testFolder, noFiles));
+        assertEquals(10, keys.size());
+    }
+
+    @Test
+    public void testKeyChangesWithRawFeatures() throws IOException {
+        ProcessingConfiguration configuration = createConfiguration("1", "2", 1000, 500, 4, 10);
+        Set<String> keys = new HashSet<String>();
+        keys.add(ProcessedFeatureCache.createKey(configuration, featureFolder, noFiles));
+
+        // Changed modification time
+        File file = new File(featureFolder, "song_4.arff");
+        file.setLastModified(file.lastModified() + 2000);
+        keys.add(ProcessedFeatureCache.createKey(configuration, featureFolder, noFiles));
+
+        // Changed length with the same modification time
+        long lastModified = file.lastModified();
+        writeFile(file, "4,12\n");
+        file.setLastModified(lastModified);
+        keys.add(ProcessedFeatureCache.createKey(configuration, featureFolder, noFiles));
+
+        // Further raw feature, e.g. onset times used by a processing step
+        writeFile(new File(featureFolder, "song_419.arff"), "419\n");
+        keys.add(ProcessedFeatureCache.createKey(configuration, featureFolder, noFiles));
+        assertEquals(4, keys.size());
+    }
+
+    @Test
+    public void testChangedInputFileIsMissed() throws Exception {
+        File toolTable = new File(testFolder, "processorAlgorithmTable.arff");
+        File minMaxTable = new File(testFolder, "tools" + File.separator + "Normalizer" + File.separator + "featureTableMaxMin.arff");
+        minMaxTable.getParentFile().mkdirs();
+        writeFile(toolTable, "@DATA\n");
+        writeFile(minMaxTable, "4,0,1\n");
+        toolTable.setLastModified(1000000000000L);
+        minMaxTable.setLastModified(1000000000000L);
+        List<File> inputFiles = Arrays.asList(toolTable, minMaxTable);
+        ProcessingConfiguration configuration = createConfiguration("9", "2", 1000, 500, 4, 10);
+        assertTrue(ProcessedFeatureCache.describe(configuration, featureFolder, inputFiles).endsWith(
+                "input=" + toolTable.getPath() + ";6;1000000000000\ninput=" + minMaxTable.getPath() + ";6;1000000000000\n"));
+
+        ProcessedFeatureCache cache = new ProcessedFeatureCache(cacheFolder, 1 << 20);
+        cache.put(ProcessedFeatureCache.createKey(configuration, featureFolder, inputFiles), createEntry(10, 1));
+        assertNotNull(cache.get(ProcessedFeatureCache.createKey(configuration, featureFolder, inputFiles)));
+
+        // Other minimal and maximal values of the normalization
+        writeFile(minMaxTable, "4,-1,1\n");
+        assertNull(cache.get(ProcessedFeatureCache.createKey(configuration, featureFolder, inputFiles)));
+
+        // Edited tool table with the same length
+        writeFile(minMaxTable, "4,0,1\n");
+        minMaxTable.setLastModified(1000000000000L);
+        assertNotNull(cache.get(ProcessedFeatureCache.createKey(configuration, featureFolder, inputFiles)));
+        toolTable.setLastModified(1000000002000L);
+        assertNull(cache.get(ProcessedFeatureCache.createKey(configuration, featureFolder, inputFiles)));
+
+        // Removed file
+        toolTable.delete();
+        assertNull(cache.get(ProcessedFeatureCache.createKey(configuration, featureFolder, inputFiles)));
+        assertEquals(2, cache.getHits());
+        assertEquals(3, cache.getMisses());
+    }
+
+    @Test
+    public void testNormalizerReportsMinMaxTable() throws Exception {
+        NormalizerWithGivenMinMax normalizer = new NormalizerWithGivenMinMax();
+        normalizer.configure(new Properties(), new ProcessorNodeScheduler(testFolder.getPath()), null);
+        List<File> files = normalizer.getExternalFiles();
+        assertEquals(1, files.size());
+        assertTrue(files.get(0).getPath().endsWith("tools" + File.separator + "Normalizer" + File.separator + "featureTableMaxMin.arff"));
+    }
+
+    @Test
+    public void testStoredEntryIsLoaded() {
+        ProcessedFeatureCache cache = new ProcessedFeatureCache(cacheFolder, 1 << 20);
+        assertTrue(cache.isEnabled());
+        assertNull(cache.get("a"));
+        cache.put("a", createEntry(100, 7));
+
+        ProcessedFeatureCache.Entry entry = cache.get("a");
+        assertEquals(1, cache.getHits());
+        assertEquals(1, cache.getMisses());
+        assertEquals(7, entry.getInitialNumberOfUsedRawTimeWindows());
+        assertEquals(8, entry.getFinalNumberOfUsedRawTimeWindows());
+        assertEquals(9, entry.getInitialNumberOfFeatureMatrixEntries());
+        assertEquals(10, entry.getFinalNumberOfFeatureMatrixEntries());
+        assertEquals(2, entry.getFeatures().size());
+        Feature feature = entry.getFeatures().get(1);
+        assertEquals("Quartile(Test feature)", feature.getHistoryAsString());
+        assertEquals(100, feature.getValues().size());
+        assertEquals(99d, feature.getValues().get(99)[0], 0d);
+        assertEquals(98d, feature.getWindows().get(49), 0d);
+        assertEquals(22050, feature.getSampleRate());
+        assertEquals(49, feature.getIndexOfWindow(98));
+
+        // Other caches with the same folder use the entry
+        assertNotNull(new ProcessedFeatureCache(cacheFolder, 1 << 20).get("a"));
+    }
+
+    @Test
+    public void testLeastRecentlyUsedEntriesAreRemoved() throws Exception {
+        ProcessedFeatureCache cache = new ProcessedFeatureCache(cacheFolder, 1 << 20);
+        cache.put("a", createEntry(1000, 1));
+        long entrySize = new File(cacheFolder, "a.ser").length();
+
+        cache = new ProcessedFeatureCache(cacheFolder, 2 * entrySize + entrySize / 2);
+        cache.put("b", createEntry(1000, 2));
+        new File(cacheFolder, "a.ser").setLastModified(System.currentTimeMillis() - 20000);
+        new File(cacheFolder, "b.ser").setLastModified(System.currentTimeMillis() - 10000);
+        cache.get("a");
+        cache.put("c", createEntry(1000, 3));
+
+        assertEquals(1, cache.getEvictions());
+        assertNotNull(cache.get("a"));
+        assertNull(cache.get("b"));
+        assertNotNull(cache.get("c"));
+        assertEquals(2, cacheFolder.list().length);
+    }
+
+    @Test
+    public void testDamagedEntryIsIgnored() throws IOException {
+        ProcessedFeatureCache cache = new ProcessedFeatureCache(cacheFolder, 1 << 20);
+        cache.put("a", createEntry(100, 1));
+        File entryFile = new File(cacheFolder, "a.ser");
+        RandomAccessFile truncatedFile = new RandomAccessFile(entryFile, "rw");
+        truncatedFile.setLength(truncatedFile.length() / 2);
+        truncatedFile.close();
+
+        assertNull(cache.get("a"));
+        assertFalse(entryFile.exists());
+    }
+
+    @Test
+    public void testDisabledCache() {
+        ProcessedFeatureCache cache = new ProcessedFeatureCache(cacheFolder, 0);
+        assertFalse(cache.isEnabled());
+        cache.put("a", createEntry(10, 1));
+        assertNull(cache.get("a"));
+        assertFalse(cacheFolder.exists());
+    }
+
+    private static ProcessingConfiguration createConfiguration(String reductionSteps, String conversionStep,
+            int partitionSize, int partitionOverlap, int... featureIds) {
+        return new ProcessingConfiguration(new FileTable(Arrays.asList(new File("song.mp3"))), createFeatureTable(featureIds),
+                reductionSteps, partitionSize, partitionOverlap, conversionStep, "");
+    }
+
+    private static FeatureTable createFeatureTable(int... featureIds) {
+        List<Feature> features = new ArrayList<Feature>();
+        for (int id : featureIds) {
+            features.add(new Feature(id));
+        }
+        return new FeatureTable(features);
+    }
+
+    private static ProcessedFeatureCache.Entry createEntry(int partitions, long initialWindows) {
+        ArrayList<Feature> features = new ArrayList<Feature>();
+        for (String history : new String[]{"Mean(Test feature)", "Quartile(Test feature)"}) {
+            ArrayList<Double[]> values = new ArrayList<Double[]>();
+            ArrayList<Double> windows = new ArrayList<Double>();
+            for (int i = 0; i < partitions; i++) {
+                values.add(new Double[]{(double) i});
+                windows.add(2d * i);
+            }
+            ArrayList<Integer> ids = new ArrayList<Integer>();
+            ids.add(4);
+            Feature feature = new Feature(ids, "Test feature", values, windows);
+            ArrayList<String> histories = new ArrayList<String>();
+            histories.add(history);
+            feature.setHistory(histories);
+            feature.setSampleRate(22050);
+            features.add(feature);
+        }
+        return new ProcessedFeatureCache.Entry(features, initialWindows, initialWindows + 1, initialWindows + 2, initialWindows + 3);
+    }
+
+    private static void writeFile(File file, String content) throws IOException {
+        FileWriter writer = new FileWriter(file);
+        writer.write(content);
+        writer.close();
+    }
+}
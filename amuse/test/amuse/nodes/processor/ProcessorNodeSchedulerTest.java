@@ -0,0 +1,260 @@
+/**
+ * This file is part of AMUSE framework (Advanced MUsic Explorer).
+ *
+ * Copyright 2006-2010 by code authors
+ *
+ * Created at TU Dortmund, Chair of Algorithm Engineering
+ * (Contact: <http://ls11-www.cs.tu-dortmund.de>)
+ *
+ * AMUSE is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * AMUSE is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with AMUSE. If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Creation date: 17.10.2026
+ */
+
+package amuse.nodes.processor;
+
+import amuse.data.BinaryFeatureFile;
+import amuse.data.Feature;
+import amuse.data.FeatureTable;
+import amuse.data.FileTable;
+import amuse.data.io.ArffDataSet;
+import amuse.data.io.DataSetAbstract;
+import amuse.preferences.AmusePreferences;
+import amuse.preferences.KeysIntValue;
+import amuse.preferences.KeysStringValue;
+import amuse.util.FileOperations;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * Processes several music files once with a single node scheduler per file
+ * and once in batch mode and compares the processed feature files.
+ *
+ * @version $Id$
+ */
+public class ProcessorNodeSchedulerTest {
+
+    private static final File testFolder = new File("test/processor/").getAbsoluteFile();
+    private static final File musicDatabase = new File(testFolder, "music");
+    private static final File featureDatabase = new File(testFolder, "features");
+    private static final int numberOfMusicFiles = 6;
+
+    private String amusePath;
+    private String musicDatabasePath;
+    private String featureDatabasePath;
+    private String processedFeatureDatabasePath;
+    private String processedFeatureCachePath;
+    private int processedFeatureCacheSize;
+
+    @Before
+    public void setUp() throws IOException {
+        amusePath = AmusePreferences.get(KeysStringValue.AMUSE_PATH);
+        musicDatabasePath = AmusePreferences.get(KeysStringValue.MUSIC_DATABASE);
+        featureDatabasePath = AmusePreferences.get(KeysStringValue.FEATURE_DATABASE);
+        processedFeatureDatabasePath = AmusePreferences.get(KeysStringValue.PROCESSED_FEATURE_DATABASE);
+        processedFeatureCachePath = AmusePreferences.get(KeysStringValue.PROCESSED_FEATURE_CACHE);
+        processedFeatureCacheSize = AmusePreferences.getInt(KeysIntValue.PROCESSED_FEATURE_CACHE_SIZE_IN_MB);
+        AmusePreferences.put(KeysStringValue.AMUSE_PATH, new File("").getAbsolutePath());
+        AmusePreferences.put(KeysStringValue.MUSIC_DATABASE, musicDatabase.getPath());
+        AmusePreferences.put(KeysStringValue.FEATURE_DATABASE, featureDatabase.getPath());
+        // Each test processes the features; the cache is enabled only by the cache test
+        AmusePreferences.putInt(KeysIntValue.PROCESSED_FEATURE_CACHE_SIZE_IN_MB, 0);
+
+        Random random = new Random(1);
+        for (int i = 0; i < numberOfMusicFiles; i++) {
+            writeFeature("song" + i, 4, 1, 512, 200 + i * 10, random);
+            writeFeature("song" + i, 10, 2, 1024, 100 + i * 5, random);
+        }
+    }
+
+    @After
+    public void tearDown() {
+        AmusePreferences.put(KeysStringValue.AMUSE_PATH, amusePath);
+        AmusePreferences.put(KeysStringValue.MUSIC_DATABASE, musicDatabasePath);
+        AmusePreferences.put(KeysStringValue.FEATURE_DATABASE, featureDatabasePath);
+        AmusePreferences.put(KeysStringValue.PROCESSED_FEATURE_DATABASE, processedFeatureDatabasePath);
+        AmusePreferences.put(KeysStringValue.PROCESSED_FEATURE_CACHE, processedFeatureCachePath);
+        AmusePreferences.putInt(KeysIntValue.PROCESSED_FEATURE_CACHE_SIZE_IN_MB, processedFeatureCacheSize);
+        FileOperations.delete(testFolder, true);
+    }
+
+    @Test
+    public void testBatchEqualsSingleRuns() throws Exception {
+        String nodeHome = AmusePreferences.get(KeysStringValue.AMUSE_PATH) + File.separator + "test" + File.separator + "processor";
+
+        AmusePreferences.put(KeysStringValue.PROCESSED_FEATURE_DATABASE, new File(testFolder, "single").getPath());
+        for (ProcessingConfiguration configuration : createConfigurations()) {
+            ProcessorNodeScheduler scheduler = new ProcessorNodeScheduler(nodeHome + File.separator + "input" + File.separator + "task_1");
+            scheduler.proceedTask(nodeHome, 1, configuration);
+            assertEquals("", scheduler.getErrorDescriptionBuilder().toString());
+        }
+
+        AmusePreferences.put(KeysStringValue.PROCESSED_FEATURE_DATABASE, new File(testFolder, "batch").getPath());
+        ProcessorNodeScheduler scheduler = new ProcessorNodeScheduler(nodeHome + File.separator + "input" + File.separator + "task_2");
+        scheduler.proceedBatch(nodeHome, 2, createConfigurations(), 3);
+        assertEquals("", scheduler.getErrorDescriptionBuilder().toString());
+
+        List<String> singleFiles = listFiles(new File(testFolder, "single"));
+        List<String> batchFiles = listFiles(new File(testFolder, "batch"));
+        // An ARFF and a binary file for each processed music file
+        assertEquals(2 * 2 * numberOfMusicFiles, singleFiles.size());
+        assertEquals(singleFiles, batchFiles);
+        for (String file : singleFiles) {
+            assertArrayEquals(file, Files.readAllBytes(new File(testFolder, "single" + File.separator + file).toPath()),
+                    Files.readAllBytes(new File(testFolder, "batch" + File.separator + file).toPath()));
+        }
+
+        // The binary files contain the same values as the ARFF files; Double.equals() compares the bits
+        for (String file : singleFiles) {
+            if (file.endsWith(".arff")) {
+                File arffFile = new File(testFolder, "single" + File.separator + file);
+                DataSetAbstract expected = new ArffDataSet(arffFile);
+                DataSetAbstract actual = BinaryFeatureFile.loadProcessedFeatures(BinaryFeatureFile.getBinaryFile(arffFile));
+                assertEquals(expected.getAttributeNames(), actual.getAttributeNames());
+                assertEquals(expected.getValueCount(), actual.getValueCount());
+                for (int a = 0; a < expected.getAttributeCount(); a++) {
+                    for (int v = 0; v < expected.getValueCount(); v++) {
+                        assertEquals(expected.getAttribute(a).getValueAt(v), actual.getAttribute(a).getValueAt(v));
+                    }
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testFailedFileDoesNotStopBatch() throws Exception {
+        String nodeHome = AmusePreferences.get(KeysStringValue.AMUSE_PATH) + File.separator + "test" + File.separator + "processor";
+        AmusePreferences.put(KeysStringValue.PROCESSED_FEATURE_DATABASE, new File(testFolder, "batch").getPath());
+        FileOperations.delete(new File(featureDatabase, "song2"), true);
+
+        ProcessorNodeScheduler scheduler = new ProcessorNodeScheduler(nodeHome + File.separator + "input" + File.separator + "task_3");
+        scheduler.proceedBatch(nodeHome, 3, createConfigurations(), 2);
+
+        // Both processing chains fail for the music file without features
+        String failedFile = new File(musicDatabase, "song2.mp3").getPath();
+        assertEquals(failedFile + "\n" + failedFile, scheduler.getErrorDescriptionBuilder().toString());
+        assertEquals(2 * 2 * (numberOfMusicFiles - 1), listFiles(new File(testFolder, "batch")).size());
+    }
+
+    @Test
+    public void testCachedResultsAreReused() throws Exception {
+        String nodeHome = AmusePreferences.get(KeysStringValue.AMUSE_PATH) + File.separator + "test" + File.separator + "processor";
+        AmusePreferences.put(KeysStringValue.PROCESSED_FEATURE_CACHE, new File(testFolder, "cache").getPath());
+        AmusePreferences.putInt(KeysIntValue.PROCESSED_FEATURE_CACHE_SIZE_IN_MB, 10);
+        ProcessedFeatureCache cache = ProcessedFeatureCache.getInstance();
+        long hits = cache.getHits();
+        long misses = cache.getMisses();
+
+        AmusePreferences.put(KeysStringValue.PROCESSED_FEATURE_DATABASE, new File(testFolder, "single").getPath());
+        for (ProcessingConfiguration configuration : createConfigurations()) {
+            new ProcessorNodeScheduler(nodeHome + File.separator + "input" + File.separator + "task_4").proceedTask(nodeHome, 4, configuration);
+        }
+        assertEquals(hits, cache.getHits());
+        assertEquals(misses + 2 * numberOfMusicFiles, cache.getMisses());
+
+        // The same processing is taken from the cache and saves the same files
+        AmusePreferences.put(KeysStringValue.PROCESSED_FEATURE_DATABASE, new File(testFolder, "cached").getPath());
+        ProcessorNodeScheduler scheduler = new ProcessorNodeScheduler(nodeHome + File.separator + "input" + File.separator + "task_5");
+        scheduler.proceedBatch(nodeHome, 5, createConfigurations(), 2);
+        assertEquals("", scheduler.getErrorDescriptionBuilder().toString());
+        assertEquals(hits + 2 * numberOfMusicFiles, cache.getHits());
+        List<String> singleFiles = listFiles(new File(testFolder, "single"));
+        assertEquals(singleFiles, listFiles(new File(testFolder, "cached")));
+        for (String file : singleFiles) {
+            assertArrayEquals(file, Files.readAllBytes(new File(testFolder, "single" + File.separator + file).toPath()),
+                    Files.readAllBytes(new File(testFolder, "cached" + File.separator + file).toPath()));
+        }
+
+        // A changed raw feature is processed again
+        File changedFeature = new File(featureDatabase, "song0" + File.separator + "song0_4.arff");
+        long lastModified = changedFeature.lastModified();
+        writeFeature("song0", 4, 1, 512, 300, new Random(2));
+        changedFeature.setLastModified(lastModified + 2000);
+        ProcessingConfiguration[] configurations = createConfigurations();
+        new ProcessorNodeScheduler(nodeHome + File.separator + "input" + File.separator + "task_6").proceedTask(nodeHome, 6, configurations[0], false);
+        assertEquals(hits + 2 * numberOfMusicFiles, cache.getHits());
+        assertEquals(misses + 2 * numberOfMusicFiles + 1, cache.getMisses());
+        new ProcessorNodeScheduler(nodeHome + File.separator + "input" + File.separator + "task_6").proceedTask(nodeHome, 6, configurations[0], false);
+        assertEquals(hits + 2 * numberOfMusicFiles + 1, cache.getHits());
+    }
+
+    /**
+     * Creates the configurations for all music files; the first half uses another processing chain
+     */
+    private ProcessingConfiguration[] createConfigurations() {
+        List<Feature> features = new ArrayList<Feature>();
+        features.add(new Feature(4));
+        features.add(new Feature(10));
+        ProcessingConfiguration[] configurations = new ProcessingConfiguration[2 * numberOfMusicFiles];
+        for (int i = 0; i < numberOfMusicFiles; i++) {
+            List<File> musicFile = Arrays.asList(new File(musicDatabase, "song" + i + ".mp3"));
+            configurations[2 * i] = new ProcessingConfiguration(new FileTable(musicFile), new FeatureTable(features),
+                    "1", 1000, 500, "2", "");
+            configurations[2 * i + 1] = new ProcessingConfiguration(new FileTable(musicFile), new FeatureTable(features),
+                    "1-8[true_false]", 2000, 2000, "2", "");
+        }
+        return configurations;
+    }
+
+    private static void writeFeature(String song, int id, int dimensions, int frameSize, int windows, Random random)
+            throws IOException {
+        File folder = new File(featureDatabase, song);
+        folder.mkdirs();
+        FileWriter writer = new FileWriter(new File(folder, song + "_" + id + ".arff"));
+        writer.write("@RELATION 'Music feature'\n");
+        writer.write("%rows=" + dimensions + "\n%columns=" + windows + "\n%sample_rate=22050\n%window_size=" + frameSize + "\n\n");
+        for (int d = 0; d < dimensions; d++) {
+            writer.write("@ATTRIBUTE 'Feature " + id + "' NUMERIC\n");
+        }
+        writer.write("@ATTRIBUTE WindowNumber NUMERIC\n\n@DATA\n");
+        for (int w = 1; w <= windows; w++) {
+            for (int d = 0; d < dimensions; d++) {
+                writer.write((w % 17 == 0 ? "NaN" : Double.toString(random.nextGaussian())) + ",");
+            }
+            writer.write(w + "\n");
+        }
+        writer.close();
+    }
+
+    private static List<String> listFiles(File folder) {
+        List<String> files = new ArrayList<String>();
+        listFiles(folder, "", files);
+        java.util.Collections.sort(files);
+        return files;
+    }
+
+    private static void listFiles(File folder, String prefix, List<String> files) {
+        File[] children = folder.listFiles();
+        if (children == null) {
+            return;
+        }
+        for (File child : children) {
+            if (child.isDirectory()) {
+                listFiles(child, prefix + child.getName() + File.separator, files);
+            } else {
+                files.add(prefix + child.getName());
+            }
+        }
+    }
+}
@@ -0,0 +1,292 @@
+/**
+ * This file is part of AMUSE framework (Advanced MUsic Explorer).
+ *
+ * Copyright 2006-2010 by code authors
+ *
+ * Created at TU Dortmund, Chair of Algorithm Engineering
+ * (Contact: <http://ls11-www.cs.tu-dortmund.de>)
+ *
+ * AMUSE is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * AMUSE is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with AMUSE. If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Creation date: 17.10.2026
+ */
+
+package amuse.nodes.processor.methods.converters;
+
+import amuse.data.Feature;
+import amuse.interfaces.nodes.methods.AmuseTask;
+import amuse.nodes.processor.ProcessorNodeScheduler;
+import amuse.nodes.processor.interfaces.MatrixToVectorConverterInterface;
+import amuse.util.FileOperations;
+import java.io.File;
+import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Properties;
+import java.util.Random;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * Compares the output of the GMM and quartile converters with a direct
+ * two-pass and sorting based calculation of the partition statistics and
+ * measures the conversion time of a long music file.
+ *
+ * @version $Id$
+ */
+public class ConvertersTest {
+
+    private static final File nodeFolder = new File("test/converters/");
+    private static final int sampleRate = 22050;
+    private static final int frameSize = 512;
+    private static ProcessorNodeScheduler scheduler;
+
+    @BeforeClass
+    public static void setUpClass() throws Exception {
+        scheduler = new ProcessorNodeScheduler(nodeFolder.getPath());
+        Field minimalFrameSize = ProcessorNodeScheduler.class.getDeclaredField("minimalFrameSize");
+        minimalFrameSize.setAccessible(true);
+        minimalFrameSize.setInt(scheduler, frameSize);
+    }
+
+    @AfterClass
+    public static void tearDownClass() {
+        FileOperations.delete(nodeFolder, true);
+    }
+
+    @Test
+    public void testGMMConverterOutput() throws Exception {
+        int[][] partitions = {{1000, 500}, {1000, 1000}, {5000, 250}, {-1, -1}};
+        for (int[] partition : partitions) {
+            for (boolean withGaps : new boolean[]{false, true}) {
+                Feature feature = createFeature(3, 3000, withGaps, new Random(partition[0] + partition[1]));
+                List<Feature> converted = convert(new GMMConverter(), "true_true", feature, partition[0], partition[1]);
+                assertFeaturesEqual(expectedGMM(feature, partition[0], partition[1]), converted, 1e-12);
+            }
+        }
+    }
+
+    @Test
+    public void testQuartileConverterOutput() throws Exception {
+        int[][] partitions = {{1000, 500}, {1000, 1000}, {5000, 250}, {-1, -1}};
+        for (int[] partition : partitions) {
+            for (boolean withGaps : new boolean[]{false, true}) {
+                Feature feature = createFeature(2, 3000, withGaps, new Random(partition[0] - partition[1]));
+                List<Feature> converted = convert(new QuartileConverter(), null, feature, partition[0], partition[1]);
+                assertFeaturesEqual(expectedQuartiles(feature, partition[0], partition[1]), converted, 0);
+            }
+        }
+    }
+
+    @Test
+    public void testRandomFeatures() throws Exception {
+        Random random = new Random(7);
+        for (int trial = 0; trial < 200; trial++) {
+            int dimensions = 1 + random.nextInt(4);
+            int numberOfWindows = 200 + random.nextInt(400);
+            int ms = 100 * (1 + random.nextInt(30));
+            int overlap = 100 * (1 + random.nextInt(ms / 100));
+            Feature feature = createFeature(dimensions, numberOfWindows, random.nextBoolean(), random);
+
+            // Many equal values, zeros of both signs and NaN values
+            double nanRatio = random.nextDouble();
+            for (Double[] value : feature.getValues()) {
+                for (int d = 0; d < dimensions; d++) {
+                    if (random.nextDouble() < nanRatio / 2) {
+                        value[d] = Double.NaN;
+                    } else if (random.nextInt(4) == 0) {
+                        value[d] = random.nextBoolean() ? 0d : -0d;
+                    } else if (random.nextInt(3) == 0) {
+                        value[d] = (double) random.nextInt(3);
+                    }
+                }
+            }
+
+            assertFeaturesEqual(expectedGMM(feature, ms, overlap),
+                    convert(new GMMConverter(), "true_true", feature, ms, overlap), 1e-12);
+            assertFeaturesEqual(expectedQuartiles(feature, ms, overlap),
+                    convert(new QuartileConverter(), null, feature, ms, overlap), 0);
+        }
+    }
+
+    @Test
+    public void testConversionTimeOfLongMusicFile() throws Exception {
+
+        // About ten minutes with frames of 512 samples
+        int numberOfWindows = 26000;
+        Feature feature = createFeature(1, numberOfWindows, false, new Random(1));
+
+        long startTime = System.currentTimeMillis();
+        convert(new GMMConverter(), "true_true", feature, 1000, 500);
+        long gmmTime = System.currentTimeMillis() - startTime;
+        startTime = System.currentTimeMillis();
+        convert(new QuartileConverter(), null, feature, 1000, 500);
+        long quartileTime = System.currentTimeMillis() - startTime;
+
+        System.out.println("Conversion of " + numberOfWindows + " windows: GMM " + gmmTime + " ms, quartiles " + quartileTime + " ms");
+        assertTrue("GMM conversion took " + gmmTime + " ms", gmmTime < 2000);
+        assertTrue("Quartile conversion took " + quartileTime + " ms", quartileTime < 2000);
+    }
+
+    private static List<Feature> convert(AmuseTask converter, String parameters, Feature feature, int ms, int overlap)
+            throws Exception {
+        converter.configure(new Properties(), scheduler, parameters);
+        ArrayList<Feature> features = new ArrayList<Feature>();
+        features.add(feature);
+        return ((MatrixToVectorConverterInterface) converter).runConversion(features, ms, overlap, "");
+    }
+
+    /**
+     * Creates a feature with NaN values and optionally with pruned time windows
+     */
+    private static Feature createFeature(int dimensions, int numberOfWindows, boolean withGaps, Random random) {
+        ArrayList<Double[]> values = new ArrayList<Double[]>();
+        ArrayList<Double> windows = new ArrayList<Double>();
+        for (int w = 1; w <= numberOfWindows; w++) {
+            if (withGaps && random.nextInt(3) == 0) {
+                continue;
+            }
+            Double[] value = new Double[dimensions];
+            for (int d = 0; d < dimensions; d++) {
+                value[d] = random.nextInt(50) == 0 ? Double.NaN : random.nextGaussian() * (d + 1);
+            }
+            values.add(value);
+            windows.add(new Double(w));
+        }
+        ArrayList<Integer> ids = new ArrayList<Integer>();
+        ids.add(4);
+        Feature feature = new Feature(ids, "Test feature", values, windows);
+        feature.setSampleRate(sampleRate);
+        feature.setSourceFrameSize(frameSize);
+        return feature;
+    }
+
+    /**
+     * Returns the start windows of the partitions and the values of the given dimension in each partition
+     */
+    private static List<List<Double>> partitionValues(Feature feature, int ms, int overlap, int dimension,
+            boolean lastPartialPartition, List<Double> partitionStarts) {
+        List<Double> windows = feature.getWindows();
+        double lastWindow = windows.get(windows.size() - 1);
+        double partitionSize, step;
+        int numberOfPartitions;
+        if (ms == -1) {
+            partitionSize = lastPartialPartition ? lastWindow + 1 : lastWindow;
+            step = 0;
+            numberOfPartitions = 1;
+        } else {
+            partitionSize = sampleRate * (ms / 1000d) / frameSize;
+            step = partitionSize - sampleRate * ((ms - overlap) / 1000d) / frameSize;
+            double partitions = (lastWindow - partitionSize) / step + 1;
+            numberOfPartitions = (int) (lastPartialPartition ? Math.ceil(partitions) : Math.floor(partitions));
+        }
+        List<List<Double>> result = new ArrayList<List<Double>>();
+        for (int p = 0; p < numberOfPartitions; p++) {
+            double start = Math.floor(step * p);
+            double end = Math.ceil(step * p + partitionSize);
+            List<Double> values = new ArrayList<Double>();
+            boolean hasWindows = false;
+            for (int w = 0; w < windows.size(); w++) {
+                if (windows.get(w) >= start && windows.get(w) < end) {
+                    hasWindows = true;
+                    Double value = feature.getValues().get(w)[dimension];
+                    if (!value.isNaN()) {
+                        values.add(value);
+                    }
+                }
+            }
+            if (hasWindows) {
+                partitionStarts.add(start);
+                result.add(values);
+            }
+        }
+        return result;
+    }
+
+    private static List<Feature> expectedGMM(Feature feature, int ms, int overlap) {
+        List<Feature> expected = new ArrayList<Feature>();
+        for (int d = 0; d < feature.getDimension(); d++) {
+            Feature mean = new Feature(-1);
+            Feature variance = new Feature(-1);
+            List<Double> starts = new ArrayList<Double>();
+            for (List<Double> values : partitionValues(feature, ms, overlap, d, true, starts)) {
+                Double m = 0d;
+                for (Double value : values) {
+                    m += value;
+                }
+                m /= values.size();
+                Double v = 0d;
+                for (Double value : values) {
+                    v += Math.pow(value - m, 2);
+                }
+                v /= values.size();
+                mean.getValues().add(new Double[]{m});
+                variance.getValues().add(new Double[]{v});
+            }
+            mean.getWindows().addAll(starts);
+            variance.getWindows().addAll(starts);
+            expected.add(mean);
+            expected.add(variance);
+        }
+        return expected;
+    }
+
+    private static List<Feature> expectedQuartiles(Feature feature, int ms, int overlap) {
+        List<Feature> expected = new ArrayList<Feature>();
+        for (int d = 0; d < feature.getDimension(); d++) {
+            Feature[] statistics = new Feature[5];
+            for (int s = 0; s < 5; s++) {
+                statistics[s] = new Feature(-1);
+            }
+            List<Double> starts = new ArrayList<Double>();
+            for (List<Double> values : partitionValues(feature, ms, overlap, d, false, starts)) {
+                Double[] sorted = values.toArray(new Double[values.size()]);
+                Arrays.sort(sorted);
+                double[] quantiles = {0, 0.25, 0.5, 0.75};
+                for (int s = 0; s < 4; s++) {
+                    statistics[s].getValues().add(new Double[]{sorted.length == 0 ? Double.NaN : sorted[(int) (sorted.length * quantiles[s])]});
+                }
+                statistics[4].getValues().add(new Double[]{sorted.length == 0 ? Double.NaN : sorted[sorted.length - 1]});
+            }
+            for (int s = 0; s < 5; s++) {
+                statistics[s].getWindows().addAll(starts);
+                expected.add(statistics[s]);
+            }
+        }
+        return expected;
+    }
+
+    /**
+     * Compares the values bit for bit or, if a tolerance is given, relative to the expected value
+     */
+    private static void assertFeaturesEqual(List<Feature> expected, List<Feature> actual, double tolerance) {
+        assertEquals(expected.size(), actual.size());
+        for (int f = 0; f < expected.size(); f++) {
+            assertEquals(expected.get(f).getWindows(), actual.get(f).getWindows());
+            assertEquals(expected.get(f).getValues().size(), actual.get(f).getValues().size());
+            for (int w = 0; w < expected.get(f).getValues().size(); w++) {
+                double expectedValue = expected.get(f).getValues().get(w)[0];
+                double actualValue = actual.get(f).getValues().get(w)[0];
+                if (tolerance == 0 || Double.isNaN(expectedValue)) {
+                    assertEquals(Double.doubleToLongBits(expectedValue), Double.doubleToLongBits(actualValue));
+                } else {
+                    assertEquals(expectedValue, actualValue, tolerance * Math.max(1, Math.abs(expectedValue)));
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,233 @@
+/**
+ * This file is part of AMUSE framework (Advanced MUsic Explorer).
+ *
+ * Copyright 2006-2010 by code authors
+ *
+ * Created at TU Dortmund, Chair of Algorithm Engineering
+ * (Contact: <http://ls11-www.cs.tu-dortmund.de>)
+ *
+ * AMUSE is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * AMUSE is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with AMUSE. If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Creation date: 17.10.2026
+ */
+
+package amuse.scheduler;
+
+import amuse.util.FileOperations;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.channels.FileLock;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * Drops task files into a folder and checks how fast and how often they
+ * are taken by the task folder watchers and which claimed files are recovered.
+ *
+ * @version $Id$
+ */
+public class TaskFolderWatcherTest {
+
+    private static final File taskFolder = new File("test/taskfolder/");
+
+    @Before
+    public void setUp() {
+        taskFolder.mkdirs();
+    }
+
+    @After
+    public void tearDown() {
+        FileOperations.delete(taskFolder, true);
+    }
+
+    @Test
+    public void testPickupLatency() throws Exception {
+        TaskFolderWatcher watcher = new TaskFolderWatcher(taskFolder, 500, 0);
+        DelayedWriter writer = new DelayedWriter(200, "task_1.ser");
+        writer.start();
+        File taskFile = watcher.takeNextFile(10000);
+        long latency = System.currentTimeMillis() - writer.writeTime;
+        watcher.close();
+
+        assertNotNull(taskFile);
+        assertEquals("task_1.ser", TaskFolderWatcher.getOriginalName(taskFile));
+        assertTrue(taskFile.getName().startsWith("."));
+        assertFalse(new File(taskFolder, "task_1.ser").exists());
+        System.out.println("Pickup latency: " + latency + " ms");
+        assertTrue("Pickup latency " + latency + " ms", latency < 1000);
+    }
+
+    @Test
+    public void testDebounce() throws Exception {
+        TaskFolderWatcher watcher = new TaskFolderWatcher(taskFolder, 5000, 300);
+        write("task_2.ser");
+        long writeTime = System.currentTimeMillis();
+        File taskFile = watcher.takeNextFile(10000);
+        long latency = System.currentTimeMillis() - writeTime;
+        watcher.close();
+
+        assertNotNull(taskFile);
+        assertTrue("File taken after " + latency + " ms", latency >= 300);
+    }
+
+    @Test
+    public void testTimeoutAndHiddenFiles() throws Exception {
+        write(".hidden");
+        TaskFolderWatcher watcher = new TaskFolderWatcher(taskFolder, 50, 0);
+        assertNull(watcher.takeNextFile(200));
+        watcher.close();
+    }
+
+    @Test
+    public void testSharedFolder() throws Exception {
+        int numberOfFiles = 200;
+        List<String> takenFiles = Collections.synchronizedList(new ArrayList<String>());
+        List<Thread> consumers = new ArrayList<Thread>();
+        for (int i = 0; i < 3; i++) {
+            consumers.add(new Consumer(new TaskFolderWatcher(taskFolder, 20, 0), takenFiles));
+        }
+        for (Thread consumer : consumers) {
+            consumer.start();
+        }
+        for (int i = 0; i < numberOfFiles; i++) {
+            write("task_" + i + ".ser");
+        }
+        for (Thread consumer : consumers) {
+            consumer.join();
+        }
+
+        assertEquals(numberOfFiles, takenFiles.size());
+        for (int i = 0; i < numberOfFiles; i++) {
+            assertTrue(takenFiles.contains("task_" + i + ".ser"));
+        }
+    }
+
+    @Test
+    public void testClaimsOfStoppedSchedulerAreRecovered() throws Exception {
+        write(".instance_stopped-1.lock");
+        write(".claimed_stopped-1_task_1.ser");
+        TaskFolderWatcher watcher = new TaskFolderWatcher(taskFolder, 50, 0);
+        File taskFile = watcher.takeNextFile(2000);
+        watcher.close();
+
+        assertNotNull(taskFile);
+        assertEquals("task_1.ser", TaskFolderWatcher.getOriginalName(taskFile));
+        assertFalse(new File(taskFolder, ".claimed_stopped-1_task_1.ser").exists());
+        assertFalse(new File(taskFolder, ".instance_stopped-1.lock").exists());
+    }
+
+    @Test
+    public void testClaimsOfRunningSchedulerAreKept() throws Exception {
+        write(".instance_running-1.lock");
+        write(".claimed_running-1_task_2.ser");
+        RandomAccessFile instanceFile = new RandomAccessFile(new File(taskFolder, ".instance_running-1.lock"), "rw");
+        try {
+            FileLock lock = instanceFile.getChannel().lock();
+            TaskFolderWatcher watcher = new TaskFolderWatcher(taskFolder, 50, 0, 3600000);
+            assertNull(watcher.takeNextFile(200));
+            watcher.close();
+            lock.release();
+        } finally {
+            instanceFile.close();
+        }
+        assertTrue(new File(taskFolder, ".claimed_running-1_task_2.ser").exists());
+    }
+
+    @Test
+    public void testClaimTimeout() throws Exception {
+        // The instance files are missing, e.g. if the file system does not support locks
+        write(".claimed_unknown-1_task_3.ser");
+        write(".claimed_unknown-1_task_4.ser");
+        new File(taskFolder, ".claimed_unknown-1_task_3.ser").setLastModified(System.currentTimeMillis() - 20000);
+        TaskFolderWatcher watcher = new TaskFolderWatcher(taskFolder, 50, 0, 10000);
+        File taskFile = watcher.takeNextFile(2000);
+        assertNotNull(taskFile);
+        assertEquals("task_3.ser", TaskFolderWatcher.getOriginalName(taskFile));
+        assertNull(watcher.takeNextFile(200));
+        watcher.close();
+        assertTrue(new File(taskFolder, ".claimed_unknown-1_task_4.ser").exists());
+
+        // Without timeout, only the files of stopped schedulers are recovered
+        new File(taskFolder, ".claimed_unknown-1_task_4.ser").setLastModified(System.currentTimeMillis() - 20000);
+        watcher = new TaskFolderWatcher(taskFolder, 50, 0);
+        assertNull(watcher.takeNextFile(200));
+        watcher.close();
+    }
+
+    private static void write(String fileName) throws IOException {
+        FileWriter writer = new FileWriter(new File(taskFolder, fileName));
+        writer.write("-fe " + fileName);
+        writer.close();
+    }
+
+    /**
+     * Writes a task file after the given time
+     */
+    private static class DelayedWriter extends Thread {
+
+        private final long delay;
+        private final String fileName;
+        volatile long writeTime;
+
+        DelayedWriter(long delay, String fileName) {
+            this.delay = delay;
+            this.fileName = fileName;
+        }
+
+        public void run() {
+            try {
+                Thread.sleep(delay);
+                writeTime = System.currentTimeMillis();
+                write(fileName);
+            } catch (Exception e) {
+                throw new RuntimeException(e);
+            }
+        }
+    }
+
+    /**
+     * Takes and deletes task files until no file arrives for one second
+     */
+    private static class Consumer extends Thread {
+
+        private final TaskFolderWatcher watcher;
+        private final List<String> takenFiles;
+
+        Consumer(TaskFolderWatcher watcher, List<String> takenFiles) {
+            this.watcher = watcher;
+            this.takenFiles = takenFiles;
+        }
+
+        public void run() {
+            try {
+                File taskFile;
+                while ((taskFile = watcher.takeNextFile(1000)) != null) {
+                    takenFiles.add(TaskFolderWatcher.getOriginalName(taskFile));
+                    taskFile.delete();
+                }
+            } catch (InterruptedException e) {
+                throw new RuntimeException(e);
+            } finally {
+                watcher.close();
+            }
+        }
+    }
+}
@@ -0,0 +1,258 @@
+/**
+ * This file is part of AMUSE framework (Advanced MUsic Explorer).
+ *
+ * Copyright 2006-2010 by code authors
+ *
+ * Created at TU Dortmund, Chair of Algorithm Engineering
+ * (Contact: <http://ls11-www.cs.tu-dortmund.de>)
+ *
+ * AMUSE is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * AMUSE is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with AMUSE. If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Creation date: 17.10.2026
+ */
+package amuse.util;
+
+import amuse.interfaces.nodes.NodeException;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import org.junit.After;
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * Runs the model server with a stub loader, whose models predict for each row
+ * its sum, the number of times the model was loaded (or the number saved in
+ * the model file) and the process id of the server.
+ *
+ * @version $Id$
+ */
+public class PythonModelServerTest {
+
+    private static final File folder = new File("test/modelserver").getAbsoluteFile();
+
+    private static final String python = "python3";
+
+    private static final String stubLoader =
+            "import os\n" +
+            "import time\n" +
+            "\n" +
+            "loads = {}\n" +
+            "\n" +
+            "def load_model(path):\n" +
+            "    if path == 'broken':\n" +
+            "        raise IOError('stub model cannot be loaded')\n" +
+            "    if os.path.isfile(path):\n" +
+            "        with open(path) as model:\n" +
+            "            return float(model.read())\n" +
+            "    loads[path] = loads.get(path, 0) + 1\n" +
+            "    return loads[path]\n" +
+            "\n" +
+            "def predict(model, values, rows, columns, parameters):\n" +
+            "    print('stub prediction: ' + ' '.join(parameters))\n" +
+            "    if parameters[0] == 'sleep':\n" +
+            "        time.sleep(30)\n" +
+            "    elif parameters[0] == 'crash':\n" +
+            "        os._exit(1)\n" +
+            "    return [[sum(values[i * columns:(i + 1) * columns]), model, os.getpid()] for i in range(rows)]\n";
+
+    private static final double[][] row = {{1, 2, 3}};
+
+    private File loader;
+
+    private PythonModelServer server;
+
+    @Before
+    public void setUp() throws IOException {
+        Assume.assumeTrue(isPythonAvailable());
+        folder.mkdirs();
+        loader = new File(folder, "stubLoader.py");
+        FileWriter writer = new FileWriter(loader);
+        writer.write(stubLoader);
+        writer.close();
+    }
+
+    @After
+    public void tearDown() {
+        if (server != null) {
+            server.shutdown();
+        }
+        FileOperations.delete(folder, true);
+    }
+
+    @Test
+    public void testPredictionsMatchRows() throws Exception {
+        server = createServer(2, 30000);
+        Random random = new Random(3);
+        double[][] data = new double[50][7];
+        for (int i = 0; i < data.length; i++) {
+            for (int j = 0; j < data[i].length; j++) {
+                data[i][j] = random.nextGaussian();
+            }
+        }
+        double[][] predictions = server.predict("model", data, parameters("predict"));
+        assertEquals(data.length, predictions.length);
+        for (int i = 0; i < data.length; i++) {
+            double sum = 0;
+            for (double value : data[i]) {
+                sum += value;
+            }
+            assertEquals(3, predictions[i].length);
+            assertEquals(sum, predictions[i][0], 1e-12);
+        }
+    }
+
+    @Test
+    public void testModelsAreCachedLeastRecentlyUsed() throws Exception {
+        server = createServer(2, 30000);
+        assertEquals(1, getLoads("a"));
+        assertEquals(1, getLoads("b"));
+        assertEquals(1, getLoads("a"));
+
+        // c replaces b, which was used before a
+        assertEquals(1, getLoads("c"));
+        assertEquals(1, getLoads("a"));
+        assertEquals(2, getLoads("b"));
+        assertEquals(2, getLoads("c"));
+    }
+
+    @Test
+    public void testOverwrittenModelIsLoadedAgain() throws Exception {
+        server = createServer(2, 30000);
+        File model = new File(folder, "model.mod");
+        writeModel(model, "1", 1000000000000L);
+        assertEquals(1d, server.predict(model.getPath(), row, parameters("predict"))[0][1], 0d);
+        assertEquals(1d, server.predict(model.getPath(), row, parameters("predict"))[0][1], 0d);
+
+        // A model of the same size is saved again at the same path, as during optimization
+        writeModel(model, "2", 1000000002000L);
+        assertEquals(2d, server.predict(model.getPath(), row, parameters("predict"))[0][1], 0d);
+
+        // Another size with the same modification time
+        writeModel(model, "30", 1000000002000L);
+        assertEquals(30d, server.predict(model.getPath(), row, parameters("predict"))[0][1], 0d);
+    }
+
+    @Test
+    public void testFailedPredictionKeepsServer() throws Exception {
+        server = createServer(2, 30000);
+        double process = server.predict("a", row, parameters("predict"))[0][2];
+        try {
+            server.predict("broken", row, parameters("predict"));
+            fail("Failure of the model is not reported");
+        } catch (NodeException e) {
+            System.out.println(e.getMessage());
+        }
+        double[] prediction = server.predict("a", row, parameters("predict"))[0];
+        assertEquals(process, prediction[2], 0);
+        assertEquals(1, prediction[1], 0);
+    }
+
+    @Test
+    public void testCrashRestartsServer() throws Exception {
+        server = createServer(2, 30000);
+        double process = server.predict("a", row, parameters("predict"))[0][2];
+        try {
+            server.predict("a", row, parameters("crash"));
+            fail("Crash of the server is not reported");
+        } catch (NodeException e) {
+            System.out.println(e.getMessage());
+        }
+        assertFalse(server.isRunning());
+        double[] prediction = server.predict("a", row, parameters("predict"))[0];
+        assertFalse(process == prediction[2]);
+        assertEquals(1, prediction[1], 0);
+    }
+
+    @Test
+    public void testTimeoutRestartsServer() throws Exception {
+        server = createServer(2, 1000);
+        double process = server.predict("a", row, parameters("predict"))[0][2];
+        long start = System.currentTimeMillis();
+        try {
+            server.predict("a", row, parameters("sleep"));
+            fail("Timeout is not reported");
+        } catch (NodeException e) {
+            System.out.println(e.getMessage());
+        }
+        assertTrue(System.currentTimeMillis() - start < 10000);
+        assertFalse(process == server.predict("a", row, parameters("predict"))[0][2]);
+    }
+
+    @Test
+    public void testShutdown() throws Exception {
+        server = createServer(2, 30000);
+        server.predict("a", row, parameters("predict"));
+        server.shutdown();
+        assertFalse(server.isRunning());
+        try {
+            server.predict("a", row, parameters("predict"));
+            fail("Request after shutdown is accepted");
+        } catch (NodeException e) {
+            System.out.println(e.getMessage());
+        }
+    }
+
+    @Test
+    public void testSpeed() throws Exception {
+        server = createServer(2, 30000);
+        double[][] data = new double[5000][200];
+        for (int i = 0; i < data.length; i++) {
+            Arrays.fill(data[i], i);
+        }
+        server.predict("model", row, parameters("predict"));
+        long before = System.currentTimeMillis();
+        for (int i = 0; i < 10; i++) {
+            assertEquals(data.length, server.predict("model", data, parameters("predict")).length);
+        }
+        System.out.println("10 predictions of 5000 x 200 values: " + (System.currentTimeMillis() - before) + " ms");
+    }
+
+    private PythonModelServer createServer(int cacheSize, long timeout) {
+        List<String> command = Arrays.asList(python, new File("tools/PythonWorker/amuseModelServer.py").getAbsolutePath(),
+                Integer.toString(cacheSize), loader.getPath());
+        return new PythonModelServer(command, folder, timeout);
+    }
+
+    /**
+     * @return Number of times the stub server has loaded the model
+     */
+    private int getLoads(String model) throws NodeException {
+        return (int) server.predict(model, row, parameters("predict"))[0][1];
+    }
+
+    private static void writeModel(File model, String value, long modificationTime) throws IOException {
+        FileWriter writer = new FileWriter(model);
+        writer.write(value);
+        writer.close();
+        model.setLastModified(modificationTime);
+    }
+
+    private static List<String> parameters(String action) {
+        return Arrays.asList(action);
+    }
+
+    private static boolean isPythonAvailable() {
+        try {
+            return new ProcessBuilder(python, "-c", "pass").start().waitFor() == 0;
+        } catch (Exception e) {
+            return false;
+        }
+    }
+}
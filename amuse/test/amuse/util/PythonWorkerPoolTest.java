@@ -0,0 +1,237 @@
+/**
+ * This file is part of AMUSE framework (Advanced MUsic Explorer).
+ *
+ * Copyright 2006-2010 by code authors
+ *
+ * Created at TU Dortmund, Chair of Algorithm Engineering
+ * (Contact: <http://ls11-www.cs.tu-dortmund.de>)
+ *
+ * AMUSE is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * AMUSE is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with AMUSE. If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Creation date: 17.10.2026
+ */
+package amuse.util;
+
+import amuse.interfaces.nodes.NodeException;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import org.junit.After;
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * Runs a mock extraction script in the workers of the pool, which writes its
+ * output file, sleeps, fails or crashes depending on its arguments.
+ *
+ * @version $Id$
+ */
+public class PythonWorkerPoolTest {
+
+    private static final File folder = new File("test/pythonworker").getAbsoluteFile();
+
+    private static final String python = "python3";
+
+    private static final String mockScript =
+            "import os\n" +
+            "import sys\n" +
+            "import time\n" +
+            "\n" +
+            "if __name__ == '__main__':\n" +
+            "    action = sys.argv[1]\n" +
+            "    output = sys.argv[2]\n" +
+            "    print('mock extraction: ' + action)\n" +
+            "    if action == 'sleep':\n" +
+            "        time.sleep(float(sys.argv[3]))\n" +
+            "    elif action == 'fail':\n" +
+            "        raise ValueError('mock failure')\n" +
+            "    elif action == 'exit':\n" +
+            "        sys.exit(3)\n" +
+            "    elif action == 'crash':\n" +
+            "        os._exit(1)\n" +
+            "    with open(output, 'w') as f:\n" +
+            "        f.write(str(os.getpid()))\n";
+
+    private File script;
+
+    private PythonWorkerPool pool;
+
+    @Before
+    public void setUp() throws IOException {
+        Assume.assumeTrue(isPythonAvailable());
+        folder.mkdirs();
+        script = new File(folder, "mockExtraction.py");
+        FileWriter writer = new FileWriter(script);
+        writer.write(mockScript);
+        writer.close();
+    }
+
+    @After
+    public void tearDown() {
+        if (pool != null) {
+            pool.shutdown();
+        }
+        FileOperations.delete(folder, true);
+    }
+
+    @Test
+    public void testScriptsRunInSameProcess() throws Exception {
+        pool = createPool(1, 30000);
+        String first = runWrite("first");
+        String second = runWrite("second");
+        assertEquals(first, second);
+        assertEquals(1, pool.getNumberOfIdleWorkers());
+    }
+
+    @Test
+    public void testFailingScriptsKeepWorker() throws Exception {
+        pool = createPool(1, 30000);
+        String before = runWrite("before");
+        for (String action : Arrays.asList("fail", "exit")) {
+            try {
+                pool.run(script.getPath(), Arrays.asList(action, new File(folder, action).getPath()));
+                fail("Failure of the script is not reported: " + action);
+            } catch (NodeException e) {
+                System.out.println(e.getMessage());
+            }
+        }
+        assertEquals(before, runWrite("after"));
+    }
+
+    @Test
+    public void testCrashedWorkerIsReplaced() throws Exception {
+        pool = createPool(1, 30000);
+        String before = runWrite("before");
+        try {
+            pool.run(script.getPath(), Arrays.asList("crash", new File(folder, "crash").getPath()));
+            fail("Crash of the worker is not reported");
+        } catch (NodeException e) {
+            System.out.println(e.getMessage());
+        }
+        assertEquals(0, pool.getNumberOfIdleWorkers());
+        assertFalse(before.equals(runWrite("after")));
+    }
+
+    @Test
+    public void testTimeoutRestartsWorker() throws Exception {
+        pool = createPool(1, 1000);
+        String before = runWrite("before");
+        long start = System.currentTimeMillis();
+        try {
+            pool.run(script.getPath(), Arrays.asList("sleep", new File(folder, "sleep").getPath(), "30"));
+            fail("Timeout is not reported");
+        } catch (NodeException e) {
+            System.out.println(e.getMessage());
+        }
+        assertTrue(System.currentTimeMillis() - start < 10000);
+        assertFalse(before.equals(runWrite("after")));
+    }
+
+    @Test
+    public void testParallelRequestsAreLimitedToPoolSize() throws Exception {
+        pool = createPool(2, 30000);
+        ExecutorService executor = Executors.newFixedThreadPool(6);
+        List<Future<String>> results = new ArrayList<Future<String>>();
+        for (int i = 0; i < 12; i++) {
+            final String name = "parallel" + i;
+            results.add(executor.submit(new Callable<String>() {
+                public String call() throws Exception {
+                    pool.run(script.getPath(), Arrays.asList("sleep", new File(folder, name).getPath(), "0.1"));
+                    return readFile(new File(folder, name));
+                }
+            }));
+        }
+        List<String> processes = new ArrayList<String>();
+        for (Future<String> result : results) {
+            String process = result.get();
+            if (!processes.contains(process)) {
+                processes.add(process);
+            }
+        }
+        executor.shutdown();
+        assertTrue(processes.toString(), processes.size() <= 2);
+        assertTrue(pool.getNumberOfIdleWorkers() <= 2);
+    }
+
+    @Test
+    public void testShutdown() throws Exception {
+        pool = createPool(1, 30000);
+        runWrite("before");
+        pool.shutdown();
+        assertEquals(0, pool.getNumberOfIdleWorkers());
+        try {
+            runWrite("after");
+            fail("Request after shutdown is accepted");
+        } catch (NodeException e) {
+            System.out.println(e.getMessage());
+        }
+    }
+
+    @Test
+    public void testSpeedComparedToNewProcesses() throws Exception {
+        int runs = 20;
+        pool = createPool(1, 30000);
+        runWrite("warmup");
+        long before = System.currentTimeMillis();
+        for (int i = 0; i < runs; i++) {
+            runWrite("pooled" + i);
+        }
+        long pooled = System.currentTimeMillis() - before;
+
+        before = System.currentTimeMillis();
+        for (int i = 0; i < runs; i++) {
+            Process process = new ProcessBuilder(python, script.getPath(), "write", new File(folder, "process" + i).getPath())
+                    .redirectErrorStream(true).redirectOutput(new File(folder, "process.log")).start();
+            assertEquals(0, process.waitFor());
+        }
+        long processes = System.currentTimeMillis() - before;
+        System.out.println(runs + " mock extractions in pooled worker: " + pooled + " ms, in new processes: " + processes + " ms");
+    }
+
+    private PythonWorkerPool createPool(int size, long timeout) {
+        List<String> command = Arrays.asList(python, new File("tools/PythonWorker/amuseWorker.py").getAbsolutePath(), "json");
+        return new PythonWorkerPool(command, folder, size, timeout);
+    }
+
+    /**
+     * Runs the mock script with the write action
+     * @return Process id of the worker which ran the script
+     */
+    private String runWrite(String name) throws NodeException, IOException {
+        File output = new File(folder, name);
+        pool.run(script.getPath(), Arrays.asList("write", output.getPath()));
+        return readFile(output);
+    }
+
+    private static String readFile(File file) throws IOException {
+        return new String(java.nio.file.Files.readAllBytes(file.toPath()), "UTF-8");
+    }
+
+    private static boolean isPythonAvailable() {
+        try {
+            return new ProcessBuilder(python, "-c", "pass").start().waitFor() == 0;
+        } catch (Exception e) {
+            return false;
+        }
+    }
+}
@@ -24,12 +24,20 @@
 
 package amuse.util.audio;
 
+import amuse.data.datasets.WavePartTableSet;
 import amuse.preferences.AmusePreferences;
 import amuse.preferences.KeysBooleanValue;
 import amuse.preferences.KeysIntValue;
+import amuse.util.FileOperations;
+import java.io.ByteArrayInputStream;
 import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Random;
 import javax.sound.sampled.AudioFileFormat;
 import javax.sound.sampled.AudioFormat;
+import javax.sound.sampled.AudioInputStream;
 import javax.sound.sampled.AudioSystem;
 import org.junit.AfterClass;
 import org.junit.BeforeClass;
@@ -48,6 +56,7 @@ public class AudioFileConversionTest {
     private static File storeSettings = new File("test/tmpSettings.prefs");
     private static File waveFile = new File("test/tmpWave.wav");
     private static File mp3File = new File("test/test.mp3");
+    private static File syntheticFolder = new File("test/audioconversion");
 
     @BeforeClass
     public static void setUpClass() throws Exception {
@@ -56,7 +65,6 @@ public class AudioFileConversionTest {
         if (!storeSettings.createNewFile())
             fail("Can not store store settings.");
         AmusePreferences.storeToFile(storeSettings);
-        assertTrue("Missing "+mp3File.getAbsolutePath()+"!",mp3File.isFile());
     }
 
     @AfterClass
@@ -64,11 +72,13 @@ public class AudioFileConversionTest {
         AmusePreferences.restoreFromFile(storeSettings);
         storeSettings.deleteOnExit();
         waveFile.deleteOnExit();
+        FileOperations.delete(syntheticFolder, true);
     }
 
     @Test
     public void testConvertMp3ToWave() throws Exception {
 	System.out.println("convertMp3ToWave");
+        assertTrue("Missing "+mp3File.getAbsolutePath()+"!",mp3File.isFile());
 	File mp3SourceFile = mp3File;
 	File outputFile = waveFile;
 	AudioFileConversion.convertMp3ToWave(mp3SourceFile, outputFile);
@@ -164,4 +174,195 @@ public class AudioFileConversionTest {
         assertTrue(format.getFrameRate() == 11025f);
         assertTrue(format.getChannels() == 1);
     }
-}
\ No newline at end of file
+
+    @Test
+    public void testStreamingConversionEqualsFileConversion() throws Exception {
+        System.out.println("streamingConversion");
+        File converted = new File(syntheticFolder, "converted.wav");
+        File reference = new File(syntheticFolder, "reference.wav");
+        for (int[] input : new int[][]{{44100, 2}, {48000, 2}, {22050, 1}}) {
+            File musicFile = writeSyntheticWave("synthetic_" + input[0] + "_" + input[1] + ".wav", input[0], input[1], 5);
+            for (AudioFileConversion.KHz khz : AudioFileConversion.KHz.values()) {
+                for (boolean isReduceToMono : new boolean[]{false, true}) {
+                    for (boolean isDownSamplingActive : new boolean[]{false, true}) {
+                        String setting = musicFile.getName() + " " + khz + " mono=" + isReduceToMono + " downsampling=" + isDownSamplingActive;
+                        AudioFileConversion.convertFile(musicFile, converted, khz, isReduceToMono, isDownSamplingActive,
+                                AudioFileConversion.Resampling.HALVING);
+                        convertWithTemporaryFiles(musicFile, reference, khz, isReduceToMono, isDownSamplingActive);
+                        assertArrayEquals(setting, Files.readAllBytes(reference.toPath()), Files.readAllBytes(converted.toPath()));
+                    }
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testProcessFileWritesParts() throws Exception {
+        System.out.println("processFile");
+        File musicFile = writeSyntheticWave("song.wav", 44100, 2, 5);
+        File reference = new File(syntheticFolder, "reference.wav");
+        convertWithTemporaryFiles(musicFile, reference, AudioFileConversion.KHz.KHz22, true, true);
+        AudioInputStream referenceStream = AudioSystem.getAudioInputStream(reference);
+        AudioFormat referenceFormat = referenceStream.getFormat();
+        byte[] referenceData = readData(referenceStream);
+        assertEquals(1, referenceFormat.getChannels());
+        assertEquals(22050f, referenceFormat.getSampleRate(), 0f);
+
+        AmusePreferences.putBoolean(KeysBooleanValue.USE_DOWNSAMPLING, true);
+        AmusePreferences.putBoolean(KeysBooleanValue.REDUCE_TO_MONO, true);
+        AmusePreferences.putInt(KeysIntValue.DOWNSAMPLING_TARGET_SIZE_IN_HZ, 1);
+        AmusePreferences.putInt(KeysIntValue.RESAMPLING_QUALITY, 0);
+
+        // Without splitting the whole music file is the first part
+        File targetDir = new File(syntheticFolder, "task_1");
+        AmusePreferences.putBoolean(KeysBooleanValue.SPLIT_WAVE, false);
+        AudioFileConversion.processFile(targetDir, musicFile);
+        String[] files = targetDir.list();
+        Arrays.sort(files);
+        assertArrayEquals(new String[]{"1", WavePartTableSet.FILE_NAME}, files);
+        assertArrayEquals(Files.readAllBytes(reference.toPath()), Files.readAllBytes(new File(targetDir, "1/song.wav").toPath()));
+        WavePartTableSet parts = new WavePartTableSet(new File(targetDir, WavePartTableSet.FILE_NAME));
+        assertEquals(1, parts.getNumberOfParts());
+        assertEquals(referenceData.length / 2, parts.getLength(1));
+
+        // Each part has whole blocks of 4096 frames and the overlap, the last one the rest
+        int totalFrames = referenceData.length / 2;
+        AmusePreferences.putBoolean(KeysBooleanValue.SPLIT_WAVE, true);
+        AmusePreferences.putInt(KeysIntValue.SPLIT_ALIGNMENT_IN_SAMPLES, 4096);
+        for (int[] setting : new int[][]{{1, 0}, {2, 0}, {1, 1}, {2, 1}, {4, 1}, {10, 0}}) {
+            String description = "Split size " + setting[0] + " s, overlap " + setting[1] + " s";
+            targetDir = new File(syntheticFolder, "task_" + setting[0] + "_" + setting[1]);
+            AmusePreferences.putInt(KeysIntValue.SPLIT_SIZE_IN_SECONDS, setting[0]);
+            AmusePreferences.putInt(KeysIntValue.SPLIT_OVERLAP_IN_SECONDS, setting[1]);
+            AudioFileConversion.processFile(targetDir, musicFile);
+            int partFrames = 22050 * setting[0] / 4096 * 4096;
+            int overlapFrames = (22050 * setting[1] + 4095) / 4096 * 4096;
+            parts = new WavePartTableSet(new File(targetDir, WavePartTableSet.FILE_NAME));
+            assertEquals(description, parts.getNumberOfParts() + 1, targetDir.list().length);
+            int start = 0;
+            for (int part = 1; part <= parts.getNumberOfParts(); part++) {
+                boolean isLastPart = start + partFrames + overlapFrames >= totalFrames;
+                assertEquals(description, isLastPart, part == parts.getNumberOfParts());
+                assertEquals(description, start, parts.getStart(part));
+                assertEquals(description, isLastPart ? totalFrames - start : partFrames, parts.getLength(part));
+                assertEquals(description, isLastPart ? 0 : overlapFrames, parts.getOverlap(part));
+                assertEquals(22050d, parts.getSampleRate(part), 0d);
+
+                File partFile = new File(targetDir, part + File.separator + "song.wav");
+                assertArrayEquals(description, new String[]{"song.wav"}, partFile.getParentFile().list());
+                AudioInputStream partStream = AudioSystem.getAudioInputStream(partFile);
+                assertTrue(referenceFormat.matches(partStream.getFormat()));
+                int end = (int) (start + parts.getLength(part) + parts.getOverlap(part));
+                assertArrayEquals(description + ", part " + part, Arrays.copyOfRange(referenceData, 2 * start, 2 * end), readData(partStream));
+                start += partFrames;
+            }
+        }
+        AmusePreferences.putInt(KeysIntValue.SPLIT_OVERLAP_IN_SECONDS, 0);
+    }
+
+    @Test
+    public void testPolyphaseResamplingReachesTargetRate() throws Exception {
+        System.out.println("polyphaseResampling");
+        File converted = new File(syntheticFolder, "converted.wav");
+        File musicFile = writeSyntheticWave("synthetic_48000_2.wav", 48000, 2, 5);
+        long frames = 48000 * 5 + 123;
+        for (AudioFileConversion.Resampling resampling : new AudioFileConversion.Resampling[]{AudioFileConversion.Resampling.POLYPHASE_LOW,
+                AudioFileConversion.Resampling.POLYPHASE_MEDIUM, AudioFileConversion.Resampling.POLYPHASE_HIGH}) {
+            AudioFileConversion.convertFile(musicFile, converted, AudioFileConversion.KHz.KHz22, true, true, resampling);
+            AudioInputStream stream = AudioSystem.getAudioInputStream(converted);
+            assertEquals(22050f, stream.getFormat().getSampleRate(), 0f);
+            assertEquals(1, stream.getFormat().getChannels());
+            assertEquals((frames * 147 + 319) / 320, readData(stream).length / 2);
+
+            // Without down-sampling only the channels are reduced
+            AudioFileConversion.convertFile(musicFile, converted, AudioFileConversion.KHz.KHz22, true, false, resampling);
+            stream = AudioSystem.getAudioInputStream(converted);
+            assertEquals(48000f, stream.getFormat().getSampleRate(), 0f);
+            assertEquals(frames, readData(stream).length / 2);
+        }
+    }
+
+    @Test
+    public void testSpeed() throws Exception {
+        File musicFile = writeSyntheticWave("long.wav", 44100, 2, 120);
+        File reference = new File(syntheticFolder, "reference.wav");
+        File targetDir = new File(syntheticFolder, "task_speed");
+        AmusePreferences.putBoolean(KeysBooleanValue.USE_DOWNSAMPLING, true);
+        AmusePreferences.putBoolean(KeysBooleanValue.REDUCE_TO_MONO, true);
+        AmusePreferences.putBoolean(KeysBooleanValue.SPLIT_WAVE, true);
+        AmusePreferences.putInt(KeysIntValue.SPLIT_SIZE_IN_SECONDS, 30);
+        AmusePreferences.putInt(KeysIntValue.RESAMPLING_QUALITY, 0);
+        for (int khz = 0; khz <= 2; khz++) {
+            AmusePreferences.putInt(KeysIntValue.DOWNSAMPLING_TARGET_SIZE_IN_HZ, khz);
+            long before = System.currentTimeMillis();
+            convertWithTemporaryFiles(musicFile, reference, AudioFileConversion.KHz.values()[2 - khz], true, true);
+            long fileConversionTime = System.currentTimeMillis() - before;
+            before = System.currentTimeMillis();
+            AudioFileConversion.processFile(targetDir, musicFile);
+            long streamingTime = System.currentTimeMillis() - before;
+            System.out.println("Converting " + musicFile.length() / 1024 / 1024 + "MB to mono " + AudioFileConversion.KHz.values()[2 - khz]
+                    + ": with temporary files (without splitting) " + fileConversionTime + " ms, streaming with splitting " + streamingTime + " ms");
+            FileOperations.delete(targetDir, true);
+        }
+    }
+
+    /**
+     * Writes a 16 bit wave file with sine tones and noise
+     */
+    private static File writeSyntheticWave(String name, int sampleRate, int channels, int seconds) throws IOException {
+        syntheticFolder.mkdirs();
+        File file = new File(syntheticFolder, name);
+        int frames = sampleRate * seconds + 123;
+        byte[] data = new byte[frames * channels * 2];
+        Random random = new Random(sampleRate + channels);
+        for (int i = 0; i < frames; i++) {
+            for (int c = 0; c < channels; c++) {
+                double value = 20000 * Math.sin(2 * Math.PI * (440 + 110 * c) * i / sampleRate) + 4000 * random.nextGaussian();
+                short sample = (short) Math.max(Short.MIN_VALUE, Math.min(Short.MAX_VALUE, value));
+                data[2 * (i * channels + c)] = (byte) sample;
+                data[2 * (i * channels + c) + 1] = (byte) (sample >> 8);
+            }
+        }
+        AudioInputStream stream = new AudioInputStream(new ByteArrayInputStream(data),
+                new AudioFormat(sampleRate, 16, channels, true, false), frames);
+        AudioSystem.write(stream, AudioFileFormat.Type.WAVE, file);
+        return file;
+    }
+
+    /**
+     * Converts the wave file as before the streaming conversion: the sampling rate and the
+     * channels are changed by the SampleRateConverter with temporary files
+     */
+    private static void convertWithTemporaryFiles(File waveFile, File targetFile, AudioFileConversion.KHz khz,
+            boolean isReduceToMono, boolean isDownSamplingActive) throws Exception {
+        AudioFormat format = AudioSystem.getAudioFileFormat(waveFile).getFormat();
+        int targetKHZ = khz == AudioFileConversion.KHz.KHz44 ? 44100 : (khz == AudioFileConversion.KHz.KHz22 ? 22050 : 11025);
+        if (!isDownSamplingActive) {
+            targetKHZ = (int) format.getFrameRate();
+        }
+        float hz = format.getSampleRate();
+        while (hz > targetKHZ) {
+            hz = hz / 2;
+        }
+        File tmpFile = new File(syntheticFolder, "tmp_" + waveFile.getName());
+        Files.copy(waveFile.toPath(), tmpFile.toPath());
+        targetFile.delete();
+        SampleRateConverter.changeFormat(tmpFile, targetFile, hz, isReduceToMono);
+        tmpFile.delete();
+    }
+
+    private static byte[] readData(AudioInputStream stream) throws IOException {
+        byte[] data = new byte[(int) (stream.getFrameLength() * stream.getFormat().getFrameSize())];
+        int read = 0;
+        while (read < data.length) {
+            int count = stream.read(data, read, data.length - read);
+            if (count < 0) {
+                break;
+            }
+            read += count;
+        }
+        stream.close();
+        assertEquals(data.length, read);
+        return data;
+    }
+}
@@ -0,0 +1,302 @@
+/**
+ * This file is part of AMUSE framework (Advanced MUsic Explorer).
+ *
+ * Copyright 2006-2010 by code authors
+ *
+ * Created at TU Dortmund, Chair of Algorithm Engineering
+ * (Contact: <http://ls11-www.cs.tu-dortmund.de>)
+ *
+ * AMUSE is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * AMUSE is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with AMUSE. If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Creation date: 17.10.2026
+ */
+package amuse.util.audio;
+
+import amuse.util.FileOperations;
+import amuse.util.audio.DecodedAudioCache.DecodedAudio;
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.FloatBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import javax.sound.sampled.AudioFileFormat;
+import javax.sound.sampled.AudioFormat;
+import javax.sound.sampled.AudioInputStream;
+import javax.sound.sampled.AudioSystem;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * Decodes generated stereo wave files through the cache and checks the samples, the entries
+ * of changed and copied files, the eviction and concurrent readers.
+ *
+ * @version $Id$
+ */
+public class DecodedAudioCacheTest {
+
+    private static final File folder = new File("test/decodedaudio").getAbsoluteFile();
+
+    private static final File cacheFolder = new File(folder, "cache");
+
+    private static final int sampleRate = 22050;
+
+    private DecodedAudioCache cache;
+
+    @Before
+    public void setUp() {
+        folder.mkdirs();
+        cache = new DecodedAudioCache(cacheFolder, 64 * 1048576L);
+    }
+
+    @After
+    public void tearDown() {
+        FileOperations.delete(folder, true);
+    }
+
+    @Test
+    public void testSamplesOfWaveFile() throws Exception {
+        short[] samples = createSamples(1000, 1);
+        File musicFile = writeWave(new File(folder, "music.wav"), samples);
+
+        DecodedAudio audio = cache.get(musicFile, 0, 0);
+        assertEquals(sampleRate, audio.getSampleRate(), 0);
+        assertEquals(2, audio.getChannels());
+        assertEquals(1000, audio.getFrames());
+        FloatBuffer decoded = audio.getSamples();
+        assertEquals(samples.length, decoded.remaining());
+        for (short sample : samples) {
+            assertEquals(sample / 32768f, decoded.get(), 0);
+        }
+
+        audio = cache.get(musicFile, 0, 1);
+        assertEquals(1, audio.getChannels());
+        decoded = audio.getSamples();
+        for (int i = 0; i < 1000; i++) {
+            assertEquals((samples[2 * i] + samples[2 * i + 1]) / 65536.0, decoded.get(), 1e-7);
+        }
+
+        audio = cache.get(musicFile, sampleRate / 2, 1);
+        assertEquals(sampleRate / 2, audio.getSampleRate(), 0);
+        assertEquals(1, audio.getChannels());
+        assertEquals(500, audio.getFrames(), 1);
+
+        // Each target format is an own entry, which is found again
+        assertEquals(3, cache.getMisses());
+        assertEquals(3, cacheFolder.list().length);
+        cache.get(musicFile, 0, 0);
+        cache.get(musicFile, 0, 1);
+        assertEquals(3, cache.getMisses());
+        assertEquals(2, cache.getHits());
+    }
+
+    @Test
+    public void testChangedSourceIsDecodedAgain() throws Exception {
+        File musicFile = writeWave(new File(folder, "music.wav"), createSamples(1000, 1));
+        DecodedAudio oldAudio = cache.get(musicFile, 0, 0);
+
+        // Same length, but another modification time
+        short[] samples = createSamples(1000, 2);
+        writeWave(musicFile, samples);
+        musicFile.setLastModified(musicFile.lastModified() + 10000);
+        DecodedAudio audio = cache.get(musicFile, 0, 0);
+        assertEquals(2, cache.getMisses());
+        assertEquals(samples[0] / 32768f, audio.getSamples().get(0), 0);
+
+        // The changed file gets a new entry, and the readers of the old one can still use it
+        assertEquals(2, cacheFolder.list().length);
+        assertEquals(createSamples(1000, 1)[0] / 32768f, oldAudio.getSamples().get(0), 0);
+
+        // Same modification time, but another length
+        long lastModified = musicFile.lastModified();
+        samples = createSamples(1200, 2);
+        writeWave(musicFile, samples);
+        musicFile.setLastModified(lastModified);
+        audio = cache.get(musicFile, 0, 0);
+        assertEquals(3, cache.getMisses());
+        assertEquals(1200, audio.getFrames());
+        assertEquals(0, cache.getHits());
+    }
+
+    @Test
+    public void testCopiesShareEntry() throws Exception {
+        short[] samples = createSamples(1000, 1);
+        File musicFile = writeWave(new File(folder, "music.wav"), samples);
+        cache.get(musicFile, 0, 1);
+
+        // The wave parts of each job are written to an own work folder
+        for (int job = 0; job < 2; job++) {
+            File copy = writeWave(new File(folder, "task_" + job + File.separator + "1" + File.separator + "music.wav"), samples);
+            copy.setLastModified(musicFile.lastModified() + 10000 * (job + 1));
+            DecodedAudio audio = cache.get(copy, 0, 1);
+            assertEquals((samples[2] + samples[3]) / 65536.0, audio.getSamples().get(1), 1e-7);
+        }
+        assertEquals(1, cache.getMisses());
+        assertEquals(2, cache.getHits());
+        assertEquals(1, cacheFolder.list().length);
+    }
+
+    @Test
+    public void testLeastRecentlyUsedEntriesAreEvicted() throws Exception {
+        // Each entry has about 40 KB
+        cache = new DecodedAudioCache(cacheFolder, 100000);
+        File[] musicFiles = new File[3];
+        for (int i = 0; i < musicFiles.length; i++) {
+            musicFiles[i] = writeWave(new File(folder, "music" + i + ".wav"), createSamples(5000, i));
+        }
+        cache.get(musicFiles[0], 0, 0);
+        cache.get(musicFiles[1], 0, 0);
+        setLastModified(-20000);
+        cache.get(musicFiles[0], 0, 0);
+        cache.get(musicFiles[2], 0, 0);
+        assertEquals(1, cache.getEvictions());
+        assertEquals(2, cacheFolder.list().length);
+
+        cache.get(musicFiles[0], 0, 0);
+        cache.get(musicFiles[1], 0, 0);
+        assertEquals(2, cache.getHits());
+        assertEquals(4, cache.getMisses());
+    }
+
+    @Test
+    public void testEntryLargerThanCacheIsNotStored() throws Exception {
+        // The entry has about 1.6 MB
+        cache = new DecodedAudioCache(cacheFolder, 100000);
+        File smallFile = writeWave(new File(folder, "small.wav"), createSamples(5000, 1));
+        cache.get(smallFile, 0, 0);
+
+        short[] samples = createSamples(200000, 2);
+        File musicFile = writeWave(new File(folder, "music.wav"), samples);
+        DecodedAudio audio = cache.get(musicFile, 0, 0);
+        assertEquals(200000, audio.getFrames());
+        FloatBuffer decoded = audio.getSamples();
+        for (short sample : samples) {
+            assertEquals(sample / 32768f, decoded.get(), 0);
+        }
+
+        // The stored entries are kept
+        assertEquals(0, cache.getEvictions());
+        assertEquals(1, cacheFolder.list().length);
+        cache.get(smallFile, 0, 0);
+        assertEquals(1, cache.getHits());
+    }
+
+    @Test
+    public void testNewEntryIsNotEvicted() throws Exception {
+        // Each entry has about 40 KB, so the new entry alone fits, but not together with the old one
+        cache = new DecodedAudioCache(cacheFolder, 60000);
+        File[] musicFiles = new File[2];
+        for (int i = 0; i < musicFiles.length; i++) {
+            musicFiles[i] = writeWave(new File(folder, "music" + i + ".wav"), createSamples(5000, i));
+        }
+        cache.get(musicFiles[0], 0, 0);
+
+        // The new entry is the most recently used one, even if the clock of the old entry is ahead
+        setLastModified(20000);
+        short[] samples = createSamples(5000, 1);
+        assertEquals(samples[3] / 32768f, cache.get(musicFiles[1], 0, 0).getSamples().get(3), 0);
+        assertEquals(1, cache.getEvictions());
+        cache.get(musicFiles[1], 0, 0);
+        assertEquals(1, cache.getHits());
+    }
+
+    @Test
+    public void testDisabledCacheDecodes() throws Exception {
+        cache = new DecodedAudioCache(cacheFolder, 0);
+        short[] samples = createSamples(1000, 1);
+        File musicFile = writeWave(new File(folder, "music.wav"), samples);
+        assertEquals(samples[1] / 32768f, cache.get(musicFile, 0, 0).getSamples().get(1), 0);
+        assertFalse(cacheFolder.exists());
+    }
+
+    @Test(expected = IOException.class)
+    public void testMissingFile() throws Exception {
+        cache.get(new File(folder, "missing.wav"), 0, 0);
+    }
+
+    @Test
+    public void testConcurrentReaders() throws Exception {
+        final short[] samples = createSamples(sampleRate, 3);
+        final File musicFile = writeWave(new File(folder, "music.wav"), samples);
+        int readers = 8;
+        final CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(readers);
+        try {
+            List<Future<Boolean>> results = new ArrayList<Future<Boolean>>();
+            for (int r = 0; r < readers; r++) {
+                results.add(executor.submit(new Callable<Boolean>() {
+                    public Boolean call() throws Exception {
+                        start.await();
+                        FloatBuffer decoded = cache.get(musicFile, 0, 0).getSamples();
+                        for (short sample : samples) {
+                            if (decoded.get() != sample / 32768f) {
+                                return false;
+                            }
+                        }
+                        return true;
+                    }
+                }));
+            }
+            start.countDown();
+            for (Future<Boolean> result : results) {
+                assertTrue(result.get());
+            }
+        } finally {
+            executor.shutdown();
+        }
+
+        // The file is decoded by one thread, the others wait for it or read the stored entry
+        assertEquals(1, cache.getMisses());
+        assertEquals(readers - 1, cache.getHits());
+        assertEquals(1, cacheFolder.list().length);
+    }
+
+    private static void setLastModified(long offset) {
+        for (File file : cacheFolder.listFiles()) {
+            file.setLastModified(System.currentTimeMillis() + offset);
+        }
+    }
+
+    /**
+     * @return Interleaved stereo samples
+     */
+    private static short[] createSamples(int frames, int seed) {
+        short[] samples = new short[2 * frames];
+        for (int i = 0; i < frames; i++) {
+            samples[2 * i] = (short) (10000 * Math.sin(0.01 * seed * (i + 1)));
+            samples[2 * i + 1] = (short) (-7000 * Math.cos(0.03 * seed * i));
+        }
+        return samples;
+    }
+
+    private static File writeWave(File file, short[] samples) throws IOException {
+        file.getParentFile().mkdirs();
+        byte[] data = new byte[2 * samples.length];
+        for (int i = 0; i < samples.length; i++) {
+            data[2 * i] = (byte) samples[i];
+            data[2 * i + 1] = (byte) (samples[i] >> 8);
+        }
+        AudioInputStream stream = new AudioInputStream(new ByteArrayInputStream(data),
+                new AudioFormat(sampleRate, 16, 2, true, false), samples.length / 2);
+        AudioSystem.write(stream, AudioFileFormat.Type.WAVE, file);
+        return file;
+    }
+}
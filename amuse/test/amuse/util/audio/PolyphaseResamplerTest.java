@@ -0,0 +1,224 @@
+/**
+ * This file is part of AMUSE framework (Advanced MUsic Explorer).
+ *
+ * Copyright 2006-2010 by code authors
+ *
+ * Created at TU Dortmund, Chair of Algorithm Engineering
+ * (Contact: <http://ls11-www.cs.tu-dortmund.de>)
+ *
+ * AMUSE is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * AMUSE is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with AMUSE. If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Creation date: 17.10.2026
+ */
+package amuse.util.audio;
+
+import amuse.util.FileOperations;
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.util.Random;
+import javax.sound.sampled.AudioFileFormat;
+import javax.sound.sampled.AudioFormat;
+import javax.sound.sampled.AudioInputStream;
+import javax.sound.sampled.AudioSystem;
+import org.junit.After;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * Measures the pass-band ripple and the stop-band attenuation of the
+ * resampler with sweeps of sine tones and compares its speed with the
+ * conversion by halving the sampling rate.
+ *
+ * @version $Id$
+ */
+public class PolyphaseResamplerTest {
+
+    private static final File folder = new File("test/resampler");
+
+    /** Rates of the tested conversions: source and target */
+    private static final int[][] rates = {{44100, 22050}, {48000, 22050}, {44100, 11025}, {22050, 44100}};
+
+    /** Amplitude of the test tones */
+    private static final double amplitude = 0.5;
+
+    /** Number of tones of each sweep */
+    private static final int tones = 12;
+
+    @After
+    public void tearDown() {
+        FileOperations.delete(folder, true);
+    }
+
+    @Test
+    public void testPassBandRipple() {
+        for (PolyphaseResampler.Quality quality : PolyphaseResampler.Quality.values()) {
+            // Allowed deviation of the Kaiser window design with some tolerance for float rounding
+            double allowedRipple = 2 * 20 * Math.log10(1 + Math.pow(10, -quality.getStopBandAttenuation() / 20)) + 0.0005;
+            for (int[] rate : rates) {
+                double passBandEdge = quality.getPassBandEdge() * Math.min(rate[0], rate[1]) / 2;
+                double maxDeviation = 0;
+                for (int tone = 1; tone <= tones; tone++) {
+                    double frequency = passBandEdge * tone / tones;
+                    float[] output = resample(sine(frequency, rate[0]), rate[0], rate[1], quality);
+                    double gain = 20 * Math.log10(fitAmplitude(output, frequency, rate[1], quality) / amplitude);
+                    maxDeviation = Math.max(maxDeviation, Math.abs(gain));
+                }
+                System.out.println("Pass-band ripple " + quality + " " + rate[0] + " -> " + rate[1] + ": " + maxDeviation + " dB");
+                assertTrue(quality + " " + rate[0] + " -> " + rate[1] + ": " + maxDeviation + " dB", maxDeviation < allowedRipple);
+            }
+        }
+    }
+
+    @Test
+    public void testStopBandAttenuation() {
+        for (PolyphaseResampler.Quality quality : PolyphaseResampler.Quality.values()) {
+            for (int[] rate : rates) {
+                if (rate[1] > rate[0]) {
+                    continue;
+                }
+                // Tones between the target and the source Nyquist frequency must not alias into the output
+                double targetNyquist = rate[1] / 2d;
+                double sourceNyquist = rate[0] / 2d;
+                double maxLevel = Double.NEGATIVE_INFINITY;
+                for (int tone = 0; tone < tones; tone++) {
+                    double frequency = targetNyquist + (sourceNyquist - targetNyquist) * (tone + 0.5) / tones;
+                    float[] output = resample(sine(frequency, rate[0]), rate[0], rate[1], quality);
+                    double level = 20 * Math.log10(rms(output, quality) / (amplitude / Math.sqrt(2)));
+                    maxLevel = Math.max(maxLevel, level);
+                }
+                System.out.println("Stop-band level " + quality + " " + rate[0] + " -> " + rate[1] + ": " + maxLevel + " dB");
+                assertTrue(quality + " " + rate[0] + " -> " + rate[1] + ": " + maxLevel + " dB",
+                        maxLevel < -quality.getStopBandAttenuation() + 3);
+            }
+        }
+    }
+
+    @Test
+    public void testStreamingEqualsOneShot() {
+        Random random = new Random(7);
+        for (int[] rate : rates) {
+            int channels = 2;
+            int frames = 10007;
+            float[] input = new float[frames * channels];
+            for (int i = 0; i < input.length; i++) {
+                input[i] = (float) random.nextGaussian() / 4;
+            }
+            PolyphaseResampler resampler = new PolyphaseResampler(rate[0], rate[1], channels, PolyphaseResampler.Quality.MEDIUM);
+            float[] expected = new float[resampler.getMaxOutputFrames(frames) * channels];
+            int expectedFrames = resampler.process(input, 0, frames, expected, 0);
+            expectedFrames += resampler.flush(expected, expectedFrames * channels);
+            assertEquals((frames * (long) rate[1] + rate[0] - 1) / rate[0], expectedFrames);
+
+            resampler = new PolyphaseResampler(rate[0], rate[1], channels, PolyphaseResampler.Quality.MEDIUM);
+            float[] output = new float[expected.length];
+            int outputFrames = 0;
+            for (int position = 0; position < frames;) {
+                int blockFrames = Math.min(frames - position, random.nextInt(300));
+                float[] block = new float[resampler.getMaxOutputFrames(blockFrames) * channels];
+                int written = resampler.process(input, position * channels, blockFrames, block, 0);
+                System.arraycopy(block, 0, output, outputFrames * channels, written * channels);
+                outputFrames += written;
+                position += blockFrames;
+            }
+            float[] block = new float[resampler.getMaxOutputFrames(0) * channels];
+            int written = resampler.flush(block, 0);
+            System.arraycopy(block, 0, output, outputFrames * channels, written * channels);
+            outputFrames += written;
+            assertEquals(expectedFrames, outputFrames);
+            for (int i = 0; i < expectedFrames * channels; i++) {
+                assertEquals(rate[0] + " -> " + rate[1] + ", sample " + i, expected[i], output[i], 0f);
+            }
+        }
+    }
+
+    @Test
+    public void testSpeed() throws Exception {
+        File musicFile = writeNoiseWave(new File(folder, "long.wav"), 48000, 2, 120);
+        File converted = new File(folder, "converted.wav");
+        for (AudioFileConversion.Resampling resampling : AudioFileConversion.Resampling.values()) {
+            long before = System.currentTimeMillis();
+            AudioFileConversion.convertFile(musicFile, converted, AudioFileConversion.KHz.KHz22, true, true, resampling);
+            long time = System.currentTimeMillis() - before;
+            AudioFormat format = AudioSystem.getAudioFileFormat(converted).getFormat();
+            System.out.println("Converting 120 s stereo 48000Hz to mono " + (int) format.getSampleRate() + "Hz with " + resampling + ": " + time + " ms");
+        }
+    }
+
+    private static float[] sine(double frequency, int sampleRate) {
+        float[] samples = new float[sampleRate];
+        for (int i = 0; i < samples.length; i++) {
+            samples[i] = (float) (amplitude * Math.sin(2 * Math.PI * frequency * i / sampleRate));
+        }
+        return samples;
+    }
+
+    private static float[] resample(float[] input, int sourceRate, int targetRate, PolyphaseResampler.Quality quality) {
+        PolyphaseResampler resampler = new PolyphaseResampler(sourceRate, targetRate, 1, quality);
+        float[] output = new float[resampler.getMaxOutputFrames(input.length)];
+        int frames = resampler.process(input, 0, input.length, output, 0);
+        frames += resampler.flush(output, frames);
+        float[] result = new float[frames];
+        System.arraycopy(output, 0, result, 0, frames);
+        return result;
+    }
+
+    /**
+     * @return Number of output samples at each end which depend on the zeros before and after the tone
+     */
+    private static int getSettlingSamples(PolyphaseResampler.Quality quality) {
+        return 200 * (int) Math.ceil(quality.getStopBandAttenuation() / 20);
+    }
+
+    /**
+     * Fits a sine and a cosine of the given frequency to the samples without the ends
+     * @return Amplitude of the fitted tone
+     */
+    private static double fitAmplitude(float[] samples, double frequency, int sampleRate, PolyphaseResampler.Quality quality) {
+        int skip = getSettlingSamples(quality);
+        double ss = 0, sc = 0, cc = 0, ys = 0, yc = 0;
+        for (int i = skip; i < samples.length - skip; i++) {
+            double s = Math.sin(2 * Math.PI * frequency * i / sampleRate);
+            double c = Math.cos(2 * Math.PI * frequency * i / sampleRate);
+            ss += s * s;
+            sc += s * c;
+            cc += c * c;
+            ys += samples[i] * s;
+            yc += samples[i] * c;
+        }
+        double determinant = ss * cc - sc * sc;
+        double a = (ys * cc - yc * sc) / determinant;
+        double b = (yc * ss - ys * sc) / determinant;
+        return Math.sqrt(a * a + b * b);
+    }
+
+    private static double rms(float[] samples, PolyphaseResampler.Quality quality) {
+        int skip = getSettlingSamples(quality);
+        double sum = 0;
+        for (int i = skip; i < samples.length - skip; i++) {
+            sum += samples[i] * samples[i];
+        }
+        return Math.sqrt(sum / (samples.length - 2 * skip));
+    }
+
+    private static File writeNoiseWave(File file, int sampleRate, int channels, int seconds) throws Exception {
+        folder.mkdirs();
+        int frames = sampleRate * seconds;
+        byte[] data = new byte[frames * channels * 2];
+        new Random(1).nextBytes(data);
+        AudioInputStream stream = new AudioInputStream(new ByteArrayInputStream(data),
+                new AudioFormat(sampleRate, 16, channels, true, false), frames);
+        AudioSystem.write(stream, AudioFileFormat.Type.WAVE, file);
+        return file;
+    }
+}
@@ -0,0 +1,118 @@
+/**
+ * This file is part of AMUSE framework (Advanced MUsic Explorer).
+ *
+ * Copyright 2006-2010 by code authors
+ *
+ * Created at TU Dortmund, Chair of Algorithm Engineering
+ * (Contact: <http://ls11-www.cs.tu-dortmund.de>)
+ *
+ * AMUSE is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * AMUSE is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with AMUSE. If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Creation date: 17.10.2026
+ */
+package amuse.util.audio;
+
+import java.util.Random;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * Compares the transform of random signals with the discrete Fourier
+ * transform computed by its definition.
+ *
+ * @version $Id$
+ */
+public class RealFFTTest {
+
+    @Test
+    public void testTransformEqualsDefinition() {
+        Random random = new Random(7);
+        for (int size = 2; size <= 2048; size *= 2) {
+            RealFFT fft = new RealFFT(size);
+            double[] samples = new double[size];
+            for (int i = 0; i < size; i++) {
+                samples[i] = random.nextGaussian();
+            }
+            double[] data = samples.clone();
+            fft.transform(data);
+            double[] magnitudes = new double[size / 2 + 1];
+            fft.magnitudes(data, magnitudes);
+
+            double tolerance = 1e-10 * size;
+            for (int k = 0; k <= size / 2; k++) {
+                double re = 0;
+                double im = 0;
+                for (int n = 0; n < size; n++) {
+                    re += samples[n] * Math.cos(2 * Math.PI * k * n / size);
+                    im -= samples[n] * Math.sin(2 * Math.PI * k * n / size);
+                }
+                if (k == 0) {
+                    assertEquals(re, data[0], tolerance);
+                } else if (k == size / 2) {
+                    assertEquals(re, data[1], tolerance);
+                } else {
+                    assertEquals("Size " + size + ", bin " + k, re, data[2 * k], tolerance);
+                    assertEquals("Size " + size + ", bin " + k, im, data[2 * k + 1], tolerance);
+                }
+                assertEquals(Math.sqrt(re * re + im * im), magnitudes[k], tolerance);
+            }
+        }
+    }
+
+    @Test
+    public void testSineIsSingleBin() {
+        int size = 512;
+        RealFFT fft = new RealFFT(size);
+        double[] data = new double[size];
+        for (int n = 0; n < size; n++) {
+            data[n] = Math.cos(2 * Math.PI * 40 * n / size);
+        }
+        fft.transform(data);
+        double[] magnitudes = new double[size / 2 + 1];
+        fft.magnitudes(data, magnitudes);
+        for (int k = 0; k <= size / 2; k++) {
+            assertEquals(k == 40 ? size / 2 : 0, magnitudes[k], 1e-9);
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testSizeMustBePowerOfTwo() {
+        new RealFFT(500);
+    }
+
+    @Test
+    public void testSpeed() {
+        int size = 512;
+        int transforms = 200000;
+        RealFFT fft = new RealFFT(size);
+        double[] samples = new double[size];
+        Random random = new Random(1);
+        for (int i = 0; i < size; i++) {
+            samples[i] = random.nextDouble() - 0.5;
+        }
+        double[] data = new double[size];
+        double[] magnitudes = new double[size / 2 + 1];
+        double sum = 0;
+        long before = System.currentTimeMillis();
+        for (int t = 0; t < transforms; t++) {
+            System.arraycopy(samples, 0, data, 0, size);
+            fft.transform(data);
+            fft.magnitudes(data, magnitudes);
+            sum += magnitudes[t % magnitudes.length];
+        }
+        long time = System.currentTimeMillis() - before;
+        assertTrue(sum > 0);
+        System.out.println(transforms + " transforms of " + size + " samples: " + time + " ms");
+    }
+}
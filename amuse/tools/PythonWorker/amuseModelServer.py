@@ -0,0 +1,113 @@
+# This file is part of AMUSE framework (Advanced MUsic Explorer).
+#
+# Inference server of amuse.util.PythonModelServer: keeps the recently used models
+# loaded and predicts the feature matrices sent by AMUSE, so that neither the
+# interpreter nor the models are loaded again for each classification.
+#
+# Usage: python amuseModelServer.py <number of cached models> <loader script>
+#
+# The loader script defines the functions
+#   load_model(path)                                  returns the model saved at path
+#   predict(model, values, rows, columns, parameters) returns the predictions as a
+#                                                     sequence of rows, e.g. a numpy
+#                                                     array; values is a flat list of
+#                                                     the rows of the feature matrix
+#
+# Requests and responses are messages as in amuseWorker.py: a 4 byte big-endian
+# length followed by UTF-8 text, whose fields are separated by new lines. The
+# matrices follow their message as raw little-endian doubles.
+#
+#   PREDICT <model> <version> <rows> <columns> <parameter> ...
+#                                                     followed by the feature matrix;
+#                                                     answers OK <rows> <columns>
+#                                                     followed by the predictions
+#                                                     or ERROR <description>
+#   PING                                              answers PONG
+#   EXIT                                              ends the server
+#
+# The version describes the saved model (its size and modification time), so that
+# a model saved again at the same path is loaded again. The server answers READY
+# after start-up. Everything printed by the loader is
+# written to stderr, since stdout is reserved for the responses.
+
+import collections
+import os
+import runpy
+import struct
+import sys
+import traceback
+
+from amuseWorker import read_exactly, read_message, write_message
+
+
+class ModelCache:
+    """Keeps the least recently used models loaded, keyed by path and version"""
+
+    def __init__(self, size, load_model):
+        self.size = size
+        self.load_model = load_model
+        self.models = collections.OrderedDict()
+
+    def get(self, path, version):
+        if path in self.models and self.models[path][0] == version:
+            model = self.models.pop(path)[1]
+        else:
+            # A former version of the model is unloaded before the new one is loaded
+            self.models.pop(path, None)
+            model = self.load_model(path)
+            while len(self.models) >= self.size:
+                self.models.popitem(last=False)
+        self.models[path] = (version, model)
+        return model
+
+
+def write_matrix(stream, rows):
+    rows = [[float(value) for value in row] for row in rows]
+    columns = len(rows[0]) if rows else 0
+    header = '\n'.join(['OK', str(len(rows)), str(columns)]).encode('utf-8')
+    values = [value for row in rows for value in row]
+    stream.write(struct.pack('>I', len(header)) + header + struct.pack('<%dd' % len(values), *values))
+    stream.flush()
+
+
+def main():
+    requests = os.fdopen(os.dup(0), 'rb')
+    responses = os.fdopen(os.dup(1), 'wb')
+
+    # The loader cannot read the requests or write into the responses
+    devnull = os.open(os.devnull, os.O_RDONLY)
+    os.dup2(devnull, 0)
+    os.dup2(2, 1)
+    sys.stdout = sys.stderr
+
+    loader = runpy.run_path(sys.argv[2])
+    cache = ModelCache(int(sys.argv[1]), loader['load_model'])
+    write_message(responses, ['READY'])
+
+    while True:
+        fields = read_message(requests)
+        if fields is None or fields[0] == 'EXIT':
+            break
+        elif fields[0] == 'PING':
+            write_message(responses, ['PONG'])
+        elif fields[0] == 'PREDICT' and len(fields) >= 5:
+            rows = int(fields[3])
+            columns = int(fields[4])
+            payload = read_exactly(requests, 8 * rows * columns)
+            if payload is None:
+                break
+            try:
+                values = list(struct.unpack('<%dd' % (rows * columns), payload))
+                model = cache.get(fields[1], fields[2])
+                write_matrix(responses, loader['predict'](model, values, rows, columns, fields[5:]))
+            except Exception:
+                write_message(responses, ['ERROR', traceback.format_exc()])
+            finally:
+                sys.stdout.flush()
+                sys.stdout = sys.stderr
+        else:
+            write_message(responses, ['ERROR', 'Unknown request ' + fields[0]])
+
+
+if __name__ == '__main__':
+    main()
@@ -0,0 +1,96 @@
+# This file is part of AMUSE framework (Advanced MUsic Explorer).
+#
+# Worker process of amuse.util.PythonWorkerPool: runs Python scripts one after another
+# in the same interpreter, so that modules like librosa or numpy are imported only once.
+#
+# Usage: python amuseWorker.py [module to import at start-up ...]
+#
+# Requests and responses are exchanged over stdin and stdout as messages: a 4 byte
+# big-endian length followed by UTF-8 text, whose fields are separated by new lines.
+#
+#   RUN <script> <argument> ...  runs the script as __main__ with the given arguments
+#                                and answers OK or ERROR <description>
+#   PING                         answers PONG
+#   EXIT                         ends the worker
+#
+# The worker answers READY after start-up. Everything printed by the scripts is
+# written to stderr, since stdout is reserved for the responses.
+
+import importlib
+import os
+import runpy
+import struct
+import sys
+import traceback
+
+
+def read_exactly(stream, length):
+    data = b''
+    while len(data) < length:
+        chunk = stream.read(length - len(data))
+        if not chunk:
+            return None
+        data += chunk
+    return data
+
+
+def read_message(stream):
+    header = read_exactly(stream, 4)
+    if header is None:
+        return None
+    (length,) = struct.unpack('>I', header)
+    payload = read_exactly(stream, length)
+    if payload is None:
+        return None
+    return payload.decode('utf-8').split('\n')
+
+
+def write_message(stream, fields):
+    payload = '\n'.join(fields).encode('utf-8')
+    stream.write(struct.pack('>I', len(payload)) + payload)
+    stream.flush()
+
+
+def run_script(script, arguments):
+    sys.argv = [script] + arguments
+    try:
+        runpy.run_path(script, run_name='__main__')
+    except SystemExit as e:
+        if e.code not in (None, 0):
+            return ['ERROR', 'Script exited with ' + str(e.code)]
+    except BaseException:
+        return ['ERROR', traceback.format_exc()]
+    finally:
+        sys.stdout.flush()
+        sys.stdout = sys.stderr
+    return ['OK']
+
+
+def main():
+    requests = os.fdopen(os.dup(0), 'rb')
+    responses = os.fdopen(os.dup(1), 'wb')
+
+    # The scripts cannot read the requests or write into the responses
+    devnull = os.open(os.devnull, os.O_RDONLY)
+    os.dup2(devnull, 0)
+    os.dup2(2, 1)
+    sys.stdout = sys.stderr
+
+    for module in sys.argv[1:]:
+        importlib.import_module(module)
+    write_message(responses, ['READY'])
+
+    while True:
+        fields = read_message(requests)
+        if fields is None or fields[0] == 'EXIT':
+            break
+        elif fields[0] == 'PING':
+            write_message(responses, ['PONG'])
+        elif fields[0] == 'RUN' and len(fields) >= 2:
+            write_message(responses, run_script(fields[1], fields[2:]))
+        else:
+            write_message(responses, ['ERROR', 'Unknown request ' + fields[0]])
+
+
+if __name__ == '__main__':
+    main()
@@ -0,0 +1,21 @@
+# Loader of tools/PythonWorker/amuseModelServer.py for Keras models: predicts the
+# classifier input in the same way as keras_classify.py, but the models are kept
+# loaded between the classifications.
+#
+# Parameter: window size (number of values per window, -1 for the number of columns)
+
+import numpy as np
+
+
+def load_model(path):
+    from keras.models import load_model as load_keras_model
+    return load_keras_model(path)
+
+
+def predict(model, values, rows, columns, parameters):
+    window_size = int(parameters[0])
+    classification_data = np.asarray(values, dtype=np.float64).reshape(rows, columns)
+    if window_size == -1:
+        window_size = columns
+    classification_data = np.reshape(classification_data, (rows, -1, window_size, 1))
+    return model.predict(classification_data)
@@ -26,12 +26,14 @@ package amuse.nodes.classifier.methods.supervised;
 import java.io.File;
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
 import org.apache.log4j.Level;
 
 import amuse.data.io.DataSet;
 import amuse.data.io.DataSetInput;
+import amuse.data.io.attributes.Attribute;
 import amuse.data.io.attributes.NumericAttribute;
 import amuse.interfaces.nodes.NodeException;
 import amuse.interfaces.nodes.methods.AmuseTask;
@@ -39,9 +41,11 @@ import amuse.nodes.classifier.ClassificationConfiguration;
 import amuse.nodes.classifier.ClassifierNodeScheduler;
 import amuse.nodes.classifier.interfaces.ClassifierInterface;
 import amuse.preferences.AmusePreferences;
+import amuse.preferences.KeysIntValue;
 import amuse.preferences.KeysStringValue;
 import amuse.util.AmuseLogger;
 import amuse.util.ExternalProcessBuilder;
+import amuse.util.PythonModelServer;
 
 /**
  * Adapter for classification with neural networks using Keras
@@ -63,6 +67,77 @@ public class KerasAdapter extends AmuseTask implements ClassifierInterface {
 
 	@Override
 	public void classify(String pathToModelFile) throws NodeException {
+		DataSet dataSetToClassify = ((DataSetInput)((ClassificationConfiguration)this.correspondingScheduler.
+				getConfiguration()).getInputToClassify()).getDataSet();
+		int windowSize = ((ClassificationConfiguration)this.correspondingScheduler.getConfiguration()).getNumberOfValuesPerWindow();
+		
+		// predict with the resident Python process, which keeps the model loaded
+		double[][] predictions = null;
+		double[][] classifierInput = getClassifierInput(dataSetToClassify);
+		if(AmusePreferences.getInt(KeysIntValue.PYTHON_MODEL_CACHE_SIZE) > 0 && classifierInput != null && classifierInput.length > 0) {
+			File loaderScript = new File(System.getenv("AMUSEHOME") + File.separator + "tools" + File.separator + "Keras" + File.separator + "keras_predict.py");
+			try {
+				predictions = PythonModelServer.getServer(loaderScript).predict(pathToModelFile, classifierInput,
+						Arrays.asList(Integer.toString(windowSize)));
+			} catch(NodeException e) {
+				AmuseLogger.write(this.getClass().getName(), Level.WARN, "Keras model server failed, starting a new classification process: " + e.getMessage());
+			}
+		}
+		if(predictions == null) {
+			predictions = classifyWithNewProcess(dataSetToClassify, pathToModelFile, windowSize);
+		}
+		
+		// convert the result to Amuse format and save it in dataSetToClassify
+		int numberOfAttributes = dataSetToClassify.getAttributeCount();
+		int numberOfCategories = predictions.length > 0 ? predictions[0].length : 0;
+		((ClassifierNodeScheduler)this.correspondingScheduler).setNumberOfCategories(numberOfCategories);
+		String[] categoryNames = new String[numberOfCategories];
+		if(dataSetToClassify.getAttributeNames().contains("NumberOfCategories")) {
+			for(int i = 0; i < numberOfCategories; i++) {
+				categoryNames[i] = dataSetToClassify.getAttribute(numberOfAttributes - numberOfCategories + i).getName();
+			}
+		} else {
+			for(int i = 0; i < numberOfCategories; i++) {
+				categoryNames[i] = "Category_" + i;
+			}
+		}
+		for(String categoryName : categoryNames) {
+			dataSetToClassify.addAttribute(new NumericAttribute("Predicted_" + categoryName, new ArrayList<Double>()));
+		}
+		for(int i = 0; i < numberOfCategories; i++) {
+			for(int j = 0; j < predictions.length; j++) {
+				dataSetToClassify.getAttribute(numberOfAttributes + i).addValue(predictions[j][i]);
+			}
+		}
+	}
+	
+	/**
+	 * Returns the values of the attributes before the Id attribute, which are classified by keras_classify.py
+	 * @return Classifier input or null if it contains attributes which are not numeric
+	 */
+	private double[][] getClassifierInput(DataSet dataSet) {
+		int numberOfColumns = dataSet.getAttributeNames().indexOf("Id");
+		if(numberOfColumns == -1) {
+			numberOfColumns = dataSet.getAttributeCount();
+		}
+		double[][] input = new double[dataSet.getValueCount()][numberOfColumns];
+		for(int j = 0; j < numberOfColumns; j++) {
+			Attribute attribute = dataSet.getAttribute(j);
+			if(!(attribute instanceof NumericAttribute)) {
+				return null;
+			}
+			for(int i = 0; i < input.length; i++) {
+				input[i][j] = ((NumericAttribute)attribute).getValueAt(i);
+			}
+		}
+		return input;
+	}
+	
+	/**
+	 * Classifies the data set with keras_classify.py, which is started for this classification
+	 * @return Predictions for the rows of the data set
+	 */
+	private double[][] classifyWithNewProcess(DataSet dataSetToClassify, String pathToModelFile, int windowSize) throws NodeException {
 		// set up working directory
 		File workingDirectory = new File(System.getenv("AMUSEHOME") + File.separator + "tools" + File.separator + "Keras" + File.separator + "workingDirectory");
 		
@@ -70,8 +145,6 @@ public class KerasAdapter extends AmuseTask implements ClassifierInterface {
 		cleanFolder(workingDirectory);
 		
 		// save classifier input in working directory
-		DataSet dataSetToClassify = ((DataSetInput)((ClassificationConfiguration)this.correspondingScheduler.
-				getConfiguration()).getInputToClassify()).getDataSet();
 		String inputPath = workingDirectory + File.separator + "classifierInput.arff";
 		String outputPath = workingDirectory + File.separator + "classifierOutput.arff";
 		try {
@@ -89,7 +162,6 @@ public class KerasAdapter extends AmuseTask implements ClassifierInterface {
 			commands.add(inputPath);
 			commands.add(pathToModelFile);
 			commands.add(outputPath);
-			int windowSize = ((ClassificationConfiguration)this.correspondingScheduler.getConfiguration()).getNumberOfValuesPerWindow();
 			commands.add(Integer.toString(windowSize));
 			ExternalProcessBuilder trainer = new ExternalProcessBuilder(commands);
 			trainer.setWorkingDirectory(workingDirectory);
@@ -117,28 +189,13 @@ public class KerasAdapter extends AmuseTask implements ClassifierInterface {
 		// clean the working directory
 		cleanFolder(workingDirectory);
 		
-		// convert the result to Amuse format and save it in dataSetToClassify
-		int numberOfAttributes = dataSetToClassify.getAttributeCount();
-		int numberOfCategories =  results.getAttributeCount();
-		((ClassifierNodeScheduler)this.correspondingScheduler).setNumberOfCategories(numberOfCategories);
-		String[] categoryNames = new String[numberOfCategories];
-		if(dataSetToClassify.getAttributeNames().contains("NumberOfCategories")) {
-			for(int i = 0; i < numberOfCategories; i++) {
-				categoryNames[i] = dataSetToClassify.getAttribute(numberOfAttributes - numberOfCategories + i).getName();
-			}
-		} else {
-			for(int i = 0; i < numberOfCategories; i++) {
-				categoryNames[i] = "Category_" + i;
-			}
-		}
-		for(String categoryName : categoryNames) {
-			dataSetToClassify.addAttribute(new NumericAttribute("Predicted_" + categoryName, new ArrayList<Double>()));
-		}
+		double[][] predictions = new double[results.getValueCount()][results.getAttributeCount()];
 		for(int i = 0; i < results.getAttributeCount(); i++) {
 			for(int j = 0; j < results.getValueCount(); j++) {
-				dataSetToClassify.getAttribute(numberOfAttributes + i).addValue(results.getAttribute(i).getValueAt(j));
+				predictions[j][i] = (Double)results.getAttribute(i).getValueAt(j);
 			}
 		}
+		return predictions;
 	}
 
 	private void cleanFolder(File folder) {
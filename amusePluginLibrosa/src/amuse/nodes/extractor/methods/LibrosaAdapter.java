@@ -28,6 +28,7 @@ import java.io.File;
 import java.io.FileWriter;
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 import java.util.StringTokenizer;
@@ -45,9 +46,11 @@ import amuse.interfaces.nodes.NodeException;
 import amuse.interfaces.nodes.methods.AmuseTask;
 import amuse.nodes.extractor.interfaces.ExtractorInterface;
 import amuse.preferences.AmusePreferences;
+import amuse.preferences.KeysIntValue;
 import amuse.preferences.KeysStringValue;
 import amuse.util.AmuseLogger;
 import amuse.util.ExternalProcessBuilder;
+import amuse.util.PythonWorkerPool;
 
 /**
  * Adapter to song structure analyser.
@@ -200,7 +203,7 @@ public class LibrosaAdapter extends AmuseTask implements ExtractorInterface {
 		
 		// Save the modified script as python file (content found in "text" nodes will be written)
 		try {
-			BufferedWriter out = new BufferedWriter(new FileWriter(properties.getProperty("extractorFolder") + 
+			BufferedWriter out = new BufferedWriter(new FileWriter(getConvertedScriptFolder() + 
 				"/"	+ properties.getProperty("inputExtractorBatch")));
 		    nList = currentBaseScript.getElementsByTagName("text");
 			for(int i=0;i<nList.getLength();i++) {
@@ -231,38 +234,55 @@ public class LibrosaAdapter extends AmuseTask implements ExtractorInterface {
 		}
 
 		// Start Librosa
-		try {
-			List<String> commands = new ArrayList<String>();
-			commands.add(AmusePreferences.get(KeysStringValue.PYTHON_PATH));
-			commands.add(properties.getProperty("extractorFolder") + File.separator + properties.getProperty("inputExtractorBatch"));
-			commands.add(this.musicFile);
-			commands.add(folder.getAbsolutePath());
-			ExternalProcessBuilder librosa = new ExternalProcessBuilder(commands);
-			librosa.setWorkingDirectory(new File(properties.getProperty("extractorFolder")));
-			Process pc = librosa.start();
-
-			pc.waitFor();
-			// DEBUG Show the runtime outputs
-			/*String s = null; 
-			java.io.BufferedReader stdInput = new java.io.BufferedReader(new java.io.InputStreamReader(pc.getInputStream()));
-			java.io.BufferedReader stdError = new java.io.BufferedReader(new java.io.InputStreamReader(pc.getErrorStream()));
-			System.out.println("Here is the standard output of the command:\n"); 
-			while ((s = stdInput.readLine()) != null) { System.out.println(s); } 
-			System.out.println("Here is the standard error of the command (if any):\n"); 
-			while ((s = stdError.readLine()) != null) { System.out.println(s); }*/
+		String script = getConvertedScriptFolder() + File.separator + properties.getProperty("inputExtractorBatch");
+		if(AmusePreferences.getInt(KeysIntValue.PYTHON_WORKER_POOL_SIZE) > 0) {
+			
+			// The script runs in a Python process which has already imported librosa
+			PythonWorkerPool.getPool(new File(properties.getProperty("extractorFolder")), Arrays.asList("librosa")).run(
+					script, Arrays.asList(this.musicFile, folder.getAbsolutePath()));
 			AmuseLogger.write(this.getClass().getName(), Level.DEBUG, "...Extraction succeeded");
-		} catch (IOException e) {
-			printStackTrace(e);
-			//e.printStackTrace();
-			throw new NodeException("Extraction with Librosa failed: " + e.getMessage());
-		} catch (InterruptedException e) {
-			throw new NodeException("Extraction with Librosa interrupted! " + e.getMessage());
+		} else {
+			try {
+				List<String> commands = new ArrayList<String>();
+				commands.add(AmusePreferences.get(KeysStringValue.PYTHON_PATH));
+				commands.add(script);
+				commands.add(this.musicFile);
+				commands.add(folder.getAbsolutePath());
+				ExternalProcessBuilder librosa = new ExternalProcessBuilder(commands);
+				librosa.setWorkingDirectory(new File(properties.getProperty("extractorFolder")));
+				Process pc = librosa.start();
+	
+				pc.waitFor();
+				// DEBUG Show the runtime outputs
+				/*String s = null; 
+				java.io.BufferedReader stdInput = new java.io.BufferedReader(new java.io.InputStreamReader(pc.getInputStream()));
+				java.io.BufferedReader stdError = new java.io.BufferedReader(new java.io.InputStreamReader(pc.getErrorStream()));
+				System.out.println("Here is the standard output of the command:\n"); 
+				while ((s = stdInput.readLine()) != null) { System.out.println(s); } 
+				System.out.println("Here is the standard error of the command (if any):\n"); 
+				while ((s = stdError.readLine()) != null) { System.out.println(s); }*/
+				AmuseLogger.write(this.getClass().getName(), Level.DEBUG, "...Extraction succeeded");
+			} catch (IOException e) {
+				printStackTrace(e);
+				//e.printStackTrace();
+				throw new NodeException("Extraction with Librosa failed: " + e.getMessage());
+			} catch (InterruptedException e) {
+				throw new NodeException("Extraction with Librosa interrupted! " + e.getMessage());
+			}
 		}
 
 		// Convert the results to Amuse ARFF
 		convertOutput();
 	}
 	
+	/**
+	 * Returns the folder with the base script converted for the features to extract,
+	 * which is set by BaseScriptConverter
+	 */
+	private String getConvertedScriptFolder() {
+		return properties.getProperty("convertedScriptFolder", properties.getProperty("extractorFolder"));
+	}
+	
 	public static void printStackTrace(Throwable t) {
 		  System.out.println(t);
 		  for (StackTraceElement ste : t.getStackTrace()) {